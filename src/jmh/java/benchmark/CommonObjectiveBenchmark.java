@@ -0,0 +1,55 @@
+package benchmark;
+
+import model.CommonObjective;
+import model.Shelf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of every common objective checker, without the caching of `CommonObjective.isCompleted`
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonObjectiveBenchmark {
+	@Param({
+		"2 square-shaped groups",
+		"2 columns of 6 different cards",
+		"4 groups of 4 cards",
+		"6 groups of 2 cards",
+		"3 columns of at most 3 different cards",
+		"2 rows with 5 different cards",
+		"4 rows of at most 3 different cards",
+		"all equal corners",
+		"eight equal cards",
+		"X shapes group",
+		"5 cards in diagonal",
+		"stair-shaped cards"
+	})
+	public String objective;
+
+	@Param({"RANDOM", "NEAR_FULL", "END_GAME"})
+	public Fixtures.ShelfKind kind;
+
+	private CommonObjective commonObjective;
+	private Shelf[] shelves;
+	private int index;
+
+	@Setup
+	public void setup() {
+		commonObjective = CommonObjective.generateAllCommonObjectives(4).stream()
+			.filter(o -> o.getName().equals(objective))
+			.findFirst()
+			.orElseThrow();
+		shelves = Fixtures.shelves(kind, 2);
+	}
+
+	@Benchmark
+	public boolean check() {
+		return commonObjective.check(shelves[index++ & (Fixtures.SAMPLES - 1)]);
+	}
+}
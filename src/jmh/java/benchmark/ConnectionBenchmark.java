@@ -0,0 +1,224 @@
+package benchmark;
+
+import network.Call;
+import network.GlobalClientManager;
+import network.Result;
+import network.Service;
+import network.parameters.Login;
+import network.rpc.FrameCodec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark of the socket server with many connected clients, in the platform and virtual thread modes.
+ * Usage: {@code ConnectionBenchmark [clients] [platform|virtual]}; without a mode, both are run in separate processes.
+ * The clients log in, then send lobby list calls all at once for some rounds; the memory and the threads of the
+ * process are measured with all the clients connected, the clients run in the same process as the server.
+ */
+public class ConnectionBenchmark {
+	private static final int ROUNDS = 5;
+	// As the real clients, ping the server every second to stay connected
+	private static final long PING_INTERVAL = 1000000000L;
+	private static final HashSet<UUID> pings = new HashSet<>();
+	private static long lastPing = 0;
+
+	public static void main(String[] args) throws Exception {
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		if (args.length > 1) {
+			Logger.getLogger("").setLevel(Level.OFF);
+			try {
+				run(clients, args[1]);
+			} catch (Exception e) {
+				e.printStackTrace();
+				// The server threads would keep the process alive
+				System.exit(1);
+			}
+			System.exit(0);
+		}
+		String java = System.getProperty("java.home") + "/bin/java";
+		for (String mode : List.of("platform", "virtual")) {
+			Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ConnectionBenchmark.class.getName(), String.valueOf(clients), mode)
+				.inheritIO()
+				.start();
+			if (process.waitFor() != 0) {
+				System.err.println("The " + mode + " benchmark failed");
+			}
+		}
+	}
+
+	/**
+	 * Run the benchmark in this process
+	 * @param clients the number of clients to connect
+	 * @param mode the thread mode of the server
+	 */
+	private static void run(int clients, String mode) throws Exception {
+		System.setProperty("myshelfie.threads", mode);
+		int port;
+		try (ServerSocket probe = new ServerSocket(0)) {
+			port = probe.getLocalPort();
+		}
+		network.rpc.server.ClientManager.setPort(port);
+		GlobalClientManager.getInstance();
+		network.rpc.server.ClientManager manager = (network.rpc.server.ClientManager) network.rpc.server.ClientManager.getInstance();
+		long heapBefore = usedHeap();
+		int threadsBefore = Thread.activeCount();
+
+		Selector selector = Selector.open();
+		SocketChannel[] channels = new SocketChannel[clients];
+		long start = System.nanoTime();
+		// The clients are connected by the login round, as the server drops the ones that stay silent
+		long[] login = round(selector, channels, port, i -> new Login("bench" + i), Service.Login);
+		long loginMillis = (System.nanoTime() - start) / 1000000;
+
+		long heap = usedHeap() - heapBefore;
+		int threads = Thread.activeCount() - threadsBefore;
+		long[] latencies = new long[0];
+		for (int round = 0; round < ROUNDS; round++) {
+			long[] times = round(selector, channels, port, i -> true, Service.LobbyList);
+			latencies = Arrays.copyOf(latencies, latencies.length + times.length);
+			System.arraycopy(times, 0, latencies, latencies.length - times.length, times.length);
+			Thread.sleep(500);
+			keepAlive(channels);
+		}
+		Arrays.sort(login);
+		Arrays.sort(latencies);
+
+		System.out.format("Mode %s (%s), %d clients%n", mode, controller.ThreadMode.current().name().toLowerCase(), clients);
+		System.out.format("  memory:  %.1f MB heap, %.1f KB per client, %d more threads%n", heap / 1e6, heap / 1e3 / clients, threads);
+		System.out.format("  login:   %d ms, p50 %.2f ms, p99 %.2f ms%n", loginMillis, percentile(login, 0.5), percentile(login, 0.99));
+		System.out.format("  calls:   p50 %.2f ms, p99 %.2f ms, max %.2f ms over %d rounds%n", percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 1), ROUNDS);
+		network.rpc.server.ClientManager.Metrics queues = manager.getMetrics();
+		System.out.format("  queues:  max %d frames waiting for a client, %d dropped, %d coalesced, %d snapshots, %d overflows%n", queues.maxQueueDepth(), queues.dropped(), queues.coalesced(), queues.snapshots(), queues.overflows());
+	}
+
+	/**
+	 * Send a call from every client at once, connecting the ones not connected yet, and wait for all the results
+	 * @return the latency of every call, in nanoseconds
+	 */
+	private static long[] round(Selector selector, SocketChannel[] channels, int port, IntFunction<Serializable> params, Service service) throws Exception {
+		long[] sentAt = new long[channels.length];
+		long[] latencies = new long[channels.length];
+		ByteBuffer[] frames = new ByteBuffer[channels.length];
+		for (int i = 0; i < channels.length; i++) {
+			frames[i] = FrameCodec.encode(new Call<>(params.apply(i), service, UUID.randomUUID()));
+		}
+		for (int i = 0; i < channels.length; i++) {
+			ByteBuffer frame = frames[i];
+			if (channels[i] == null) {
+				channels[i] = SocketChannel.open(new InetSocketAddress("localhost", port));
+				channels[i].configureBlocking(false);
+				channels[i].register(selector, SelectionKey.OP_READ, new Connection(i));
+			}
+			sentAt[i] = System.nanoTime();
+			write(channels[i], frame);
+			keepAlive(channels);
+		}
+		int received = 0;
+		while (received < channels.length) {
+			if (selector.select(1000) == 0 && System.nanoTime() - sentAt[channels.length - 1] > 10 * PING_INTERVAL) {
+				throw new IOException("Timeout waiting for the results, " + received + " received");
+			}
+			for (SelectionKey key : selector.selectedKeys()) {
+				Connection connection = (Connection) key.attachment();
+				for (Object object : connection.read((SocketChannel) key.channel())) {
+					Result<?> result = (Result<?>) object;
+					if (pings.remove(result.id())) {
+						continue;
+					}
+					if (result.isErr()) {
+						throw new IOException("Call failed: " + result.getException().map(Exception::toString).orElse(""));
+					}
+					latencies[connection.index] = System.nanoTime() - sentAt[connection.index];
+					received++;
+				}
+			}
+			selector.selectedKeys().clear();
+			keepAlive(channels);
+		}
+		return latencies;
+	}
+
+	/**
+	 * Ping the server from all the connected clients, if a second has passed since the last time
+	 */
+	private static void keepAlive(SocketChannel[] channels) throws IOException {
+		if (System.nanoTime() - lastPing < PING_INTERVAL) {
+			return;
+		}
+		lastPing = System.nanoTime();
+		for (SocketChannel channel : channels) {
+			if (channel != null) {
+				Call<Serializable> ping = new Call<>(null, Service.Ping, UUID.randomUUID());
+				pings.add(ping.id());
+				write(channel, FrameCodec.encode(ping));
+			}
+		}
+	}
+
+	private static void write(SocketChannel channel, ByteBuffer frame) throws IOException {
+		while (frame.hasRemaining()) {
+			channel.write(frame);
+		}
+	}
+
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (fraction * sorted.length))] / 1e6;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Client side of a connection, splitting the results into frames
+	 */
+	private static class Connection {
+		private final int index;
+		private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+		private Connection(int index) {
+			this.index = index;
+		}
+
+		private List<Object> read(SocketChannel channel) throws Exception {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Connection closed by the server");
+			}
+			ArrayList<Object> results = new ArrayList<>();
+			buffer.flip();
+			while (buffer.remaining() >= FrameCodec.HEADER_BYTES) {
+				int length = buffer.getInt(buffer.position());
+				if (buffer.remaining() < FrameCodec.HEADER_BYTES + length) {
+					break;
+				}
+				results.add(FrameCodec.decode(buffer.slice(buffer.position() + FrameCodec.HEADER_BYTES, length)));
+				buffer.position(buffer.position() + FrameCodec.HEADER_BYTES + length);
+			}
+			buffer.compact();
+			if (!buffer.hasRemaining()) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+			}
+			return results;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package benchmark;
+
+import model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Generators of realistic model states for the benchmarks.
+ * All the generators are deterministic given the random source.
+ */
+public class Fixtures {
+	public static final int SAMPLES = 1024;
+
+	/**
+	 * Kinds of generated shelves
+	 */
+	public enum ShelfKind {
+		// Columns of random height with random cards, as in the middle of a game
+		RANDOM,
+		// Between 24 and 29 cards with random types, as near the end of a game
+		NEAR_FULL,
+		// Full shelf where cards tend to repeat the type of a neighbour, as players build groups
+		END_GAME
+	}
+
+	private static final Card.Type[] TYPES = Card.Type.values();
+
+	/**
+	 * Generate `SAMPLES` shelves of the given kind
+	 * @param kind the kind of shelves
+	 * @param seed the seed of the generation
+	 * @return the shelves
+	 */
+	public static Shelf[] shelves(ShelfKind kind, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Shelf[] shelves = new Shelf[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			shelves[i] = switch (kind) {
+				case RANDOM -> randomShelf(random);
+				case NEAR_FULL -> nearFullShelf(random);
+				case END_GAME -> endGameShelf(random);
+			};
+		}
+		return shelves;
+	}
+
+	/**
+	 * Generate a shelf with columns of random height and random cards
+	 * @param random the random source
+	 * @return the shelf
+	 */
+	public static Shelf randomShelf(SplittableRandom random) {
+		int[] heights = new int[Shelf.COLUMNS];
+		for (int x = 0; x < Shelf.COLUMNS; x++) {
+			heights[x] = random.nextInt(Shelf.ROWS + 1);
+		}
+		return shelf(heights, random, 0);
+	}
+
+	/**
+	 * Generate a shelf with between 24 and 29 cards of random types
+	 * @param random the random source
+	 * @return the shelf
+	 */
+	public static Shelf nearFullShelf(SplittableRandom random) {
+		int[] heights = new int[Shelf.COLUMNS];
+		for (int x = 0; x < Shelf.COLUMNS; x++) {
+			heights[x] = Shelf.ROWS;
+		}
+		for (int missing = 1 + random.nextInt(Shelf.ROWS); missing > 0; ) {
+			int x = random.nextInt(Shelf.COLUMNS);
+			if (heights[x] > 0) {
+				heights[x]--;
+				missing--;
+			}
+		}
+		return shelf(heights, random, 0);
+	}
+
+	/**
+	 * Generate a full shelf where cards repeat the type of the card below or on the left half of the times
+	 * @param random the random source
+	 * @return the shelf
+	 */
+	public static Shelf endGameShelf(SplittableRandom random) {
+		int[] heights = new int[Shelf.COLUMNS];
+		for (int x = 0; x < Shelf.COLUMNS; x++) {
+			heights[x] = Shelf.ROWS;
+		}
+		return shelf(heights, random, 0.5);
+	}
+
+	/**
+	 * Generate a shelf with the given column heights
+	 * @param heights the height of every column
+	 * @param random the random source
+	 * @param repeatProbability probability of copying the type of a neighbour instead of choosing a random one
+	 * @return the shelf
+	 */
+	private static Shelf shelf(int[] heights, SplittableRandom random, double repeatProbability) {
+		Card.Type[][] types = new Card.Type[Shelf.ROWS][Shelf.COLUMNS];
+		for (int y = 0; y < Shelf.ROWS; y++) {
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				if (y >= heights[x]) {
+					continue;
+				}
+				Card.Type type = TYPES[random.nextInt(TYPES.length)];
+				if (random.nextDouble() < repeatProbability) {
+					if (x > 0 && types[y][x - 1] != null && (y == 0 || random.nextBoolean())) {
+						type = types[y][x - 1];
+					} else if (y > 0) {
+						type = types[y - 1][x];
+					}
+				}
+				types[y][x] = type;
+			}
+		}
+
+		Shelf shelf = new Shelf();
+		try {
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				// Insert as the players do, at most 3 cards at a time
+				for (int y = 0; y < heights[x]; y += 3) {
+					ArrayList<Card> cards = new ArrayList<>();
+					for (int i = y; i < Math.min(y + 3, heights[x]); i++) {
+						cards.add(Card.of(types[i][x], 1 + random.nextInt(CardsDeck.IMAGES_PER_TYPE)));
+					}
+					shelf.insert(x, cards);
+				}
+			}
+		} catch (InvalidMoveException e) {
+			throw new RuntimeException("Invalid fixture", e);
+		}
+		return shelf;
+	}
+
+	/**
+	 * Generate a tabletop from which some cards have been picked
+	 * @param nPlayers the number of players
+	 * @param pickProbability the probability of every card to be picked
+	 * @param random the random source
+	 * @return the tabletop
+	 */
+	public static TableTop tabletop(int nPlayers, double pickProbability, SplittableRandom random) {
+		TableTop tabletop = new TableTop(nPlayers, random.split());
+		try {
+			for (int y = 0; y < TableTop.SIZE; y++) {
+				for (int x = 0; x < TableTop.SIZE; x++) {
+					if (tabletop.getCard(y, x).isPresent() && random.nextDouble() < pickProbability) {
+						tabletop.pickCard(y, x);
+					}
+				}
+			}
+		} catch (InvalidMoveException e) {
+			throw new RuntimeException("Invalid fixture", e);
+		}
+		return tabletop;
+	}
+
+	/**
+	 * Generate an ended game, with full shelves, and return its save
+	 * @param nPlayers the number of players
+	 * @param random the random source
+	 * @return the bytes of the save of the game
+	 */
+	public static byte[] endGameSave(int nPlayers, SplittableRandom random) {
+		ArrayList<String> names = new ArrayList<>();
+		for (int i = 0; i < nPlayers; i++) {
+			names.add("player" + i);
+		}
+		Game game = new Game(names, random.nextLong());
+		try {
+			for (Player player : game.getPlayers()) {
+				Shelf shelf = endGameShelf(random);
+				for (int x = 0; x < Shelf.COLUMNS; x++) {
+					for (int y = 0; y < Shelf.ROWS; y += 3) {
+						ArrayList<Card> cards = new ArrayList<>();
+						for (int i = y; i < y + 3; i++) {
+							cards.add(shelf.getCard(i, x).orElseThrow());
+						}
+						player.getShelf().insert(x, cards);
+					}
+				}
+				for (CommonObjective objective : game.getCommonObjectives()) {
+					objective.isCompleted(player.getShelf(), player.getName()).ifPresent(player::addCockade);
+				}
+				player.getPersonalObjective().isCompleted(player.getShelf()).ifPresent(player::addCockade);
+			}
+
+			File file = File.createTempFile("benchmark", ".srl");
+			file.deleteOnExit();
+			game.saveGame(file);
+			byte[] bytes = Files.readAllBytes(file.toPath());
+			file.delete();
+			return bytes;
+		} catch (InvalidMoveException | IOException e) {
+			throw new RuntimeException("Invalid fixture", e);
+		}
+	}
+
+	/**
+	 * Load a game from the bytes of its save
+	 * @param save the bytes of the save
+	 * @return the loaded game
+	 */
+	public static Game loadGame(byte[] save) {
+		try {
+			return new Game(SaveStateCodec.decode(ByteBuffer.wrap(save)));
+		} catch (IOException e) {
+			throw new RuntimeException("Invalid fixture", e);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package benchmark;
+
+import controller.game.GameController;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the move validation done by `GameController` and of the move generation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+	@Param({"2", "4"})
+	public int nPlayers;
+
+	private TableTop[] tabletops;
+	private Shelf[] shelves;
+	private ArrayList<ArrayList<Point>> positions;
+	private int[] columns;
+	private final MoveGenerator generator = new MoveGenerator();
+	private int index;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(5);
+		tabletops = new TableTop[Fixtures.SAMPLES];
+		shelves = new Shelf[Fixtures.SAMPLES];
+		positions = new ArrayList<>();
+		columns = new int[Fixtures.SAMPLES];
+		for (int i = 0; i < Fixtures.SAMPLES; i++) {
+			int size;
+			do {
+				tabletops[i] = Fixtures.tabletop(nPlayers, random.nextDouble(0.7), random);
+				shelves[i] = Fixtures.randomShelf(random);
+				size = generator.generate(tabletops[i], shelves[i]);
+			} while (size == 0);
+			// Validate the longest legal moves, the most expensive ones
+			int move = generator.getMoves()[size - 1 - random.nextInt(Math.min(size, 8))];
+			positions.add(MoveGenerator.positions(move));
+			columns[i] = MoveGenerator.column(move);
+		}
+	}
+
+	@Benchmark
+	public int checkMove() throws InvalidMoveException {
+		int i = index++ & (Fixtures.SAMPLES - 1);
+		GameController.checkMove(tabletops[i], shelves[i], positions.get(i), columns[i]);
+		return i;
+	}
+
+	@Benchmark
+	public int generateMoves() {
+		int i = index++ & (Fixtures.SAMPLES - 1);
+		return generator.generate(tabletops[i], shelves[i]);
+	}
+
+	@Benchmark
+	public int countMoves() {
+		int i = index++ & (Fixtures.SAMPLES - 1);
+		return MoveGenerator.count(tabletops[i], shelves[i]);
+	}
+}
@@ -0,0 +1,44 @@
+package benchmark;
+
+import model.Cockade;
+import model.PersonalObjective;
+import model.Shelf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of `PersonalObjective.isCompleted`, cycling through all the personal objectives
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonalObjectiveBenchmark {
+	@Param({"RANDOM", "NEAR_FULL", "END_GAME"})
+	public Fixtures.ShelfKind kind;
+
+	private PersonalObjective[] objectives;
+	private Shelf[] shelves;
+	private int index;
+
+	@Setup
+	public void setup() {
+		ArrayList<PersonalObjective> all = PersonalObjective.generateAllPersonalObjectives();
+		objectives = new PersonalObjective[Fixtures.SAMPLES];
+		for (int i = 0; i < Fixtures.SAMPLES; i++) {
+			objectives[i] = all.get(i % all.size());
+		}
+		shelves = Fixtures.shelves(kind, 3);
+	}
+
+	@Benchmark
+	public Optional<Cockade> isCompleted() {
+		int i = index++ & (Fixtures.SAMPLES - 1);
+		return objectives[i].isCompleted(shelves[i]);
+	}
+}
@@ -0,0 +1,66 @@
+package benchmark;
+
+import model.SaveState;
+import model.SaveStateCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the binary save format against Java serialization,
+ * on the save of an ended game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveStateBenchmark {
+	@Param({"2", "4"})
+	public int nPlayers;
+
+	private SaveState state;
+	private byte[] encoded;
+	private byte[] serialized;
+
+	@Setup
+	public void setup() throws IOException {
+		encoded = Fixtures.endGameSave(nPlayers, new SplittableRandom(8));
+		state = SaveStateCodec.decode(ByteBuffer.wrap(encoded));
+		serialized = serialize();
+	}
+
+	@Benchmark
+	public byte[] encode() {
+		return SaveStateCodec.encode(state);
+	}
+
+	@Benchmark
+	public SaveState decode() throws IOException {
+		return SaveStateCodec.decode(ByteBuffer.wrap(encoded));
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(state);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public SaveState deserialize() throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return (SaveState)in.readObject();
+		}
+	}
+}
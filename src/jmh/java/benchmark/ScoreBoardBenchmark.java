@@ -0,0 +1,47 @@
+package benchmark;
+
+import model.Game;
+import model.ScoreBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the construction of the final `ScoreBoard` of an ended game.
+ * Building a scoreboard adds the group cockades to the players, so every invocation
+ * gets a fresh copy of the game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreBoardBenchmark {
+	@Param({"2", "4"})
+	public int nPlayers;
+
+	private byte[][] saves;
+	private int index;
+	private Game game;
+
+	@Setup
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(6);
+		saves = new byte[64][];
+		for (int i = 0; i < saves.length; i++) {
+			saves[i] = Fixtures.endGameSave(nPlayers, random);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void loadGame() {
+		game = Fixtures.loadGame(saves[index++ % saves.length]);
+	}
+
+	@Benchmark
+	public ScoreBoard scoreBoard() {
+		return new ScoreBoard(game, name -> true);
+	}
+}
@@ -0,0 +1,40 @@
+package benchmark;
+
+import model.Cockade;
+import model.Shelf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the adjacent groups scoring of `Shelf`
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShelfBenchmark {
+	@Param({"RANDOM", "NEAR_FULL", "END_GAME"})
+	public Fixtures.ShelfKind kind;
+
+	private Shelf[] shelves;
+	private int index;
+
+	@Setup
+	public void setup() {
+		shelves = Fixtures.shelves(kind, 1);
+	}
+
+	@Benchmark
+	public ArrayList<Cockade> groupsCockades() {
+		return shelves[index++ & (Fixtures.SAMPLES - 1)].getGroupsCockades();
+	}
+
+	@Benchmark
+	public int groupsPoints() {
+		return shelves[index++ & (Fixtures.SAMPLES - 1)].getGroupsPoints();
+	}
+}
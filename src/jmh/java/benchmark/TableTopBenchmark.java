@@ -0,0 +1,84 @@
+package benchmark;
+
+import model.InvalidMoveException;
+import model.TableTop;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the `TableTop` queries and of its filling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableTopBenchmark {
+	@Param({"2", "4"})
+	public int nPlayers;
+
+	// Fraction of the cards already picked from the tabletop
+	@Param({"0.2", "0.8"})
+	public double picked;
+
+	private TableTop[] tabletops;
+	private int[] cells;
+	private int index;
+	private SplittableRandom random;
+	private TableTop toFill;
+
+	@Setup
+	public void setup() {
+		random = new SplittableRandom(4);
+		tabletops = new TableTop[Fixtures.SAMPLES];
+		cells = new int[Fixtures.SAMPLES];
+		for (int i = 0; i < Fixtures.SAMPLES; i++) {
+			tabletops[i] = Fixtures.tabletop(nPlayers, picked, random);
+			// A random occupied cell, or a used one if the tabletop is empty
+			int cell;
+			int tries = 0;
+			do {
+				cell = random.nextInt(TableTop.SIZE * TableTop.SIZE);
+				tries++;
+			} while (
+				!tabletops[i].isUsed(cell / TableTop.SIZE, cell % TableTop.SIZE) ||
+				(tabletops[i].getType(cell) == null && tries < 1000)
+			);
+			cells[i] = tabletops[i].getType(cell) == null ? -1 : cell;
+		}
+	}
+
+	/**
+	 * Prepare a partially picked tabletop to refill (the deck would be exhausted by refilling the same one)
+	 */
+	@Setup(Level.Invocation)
+	public void setupFill() {
+		toFill = Fixtures.tabletop(nPlayers, picked, random);
+	}
+
+	@Benchmark
+	public boolean needRefill() {
+		return tabletops[index++ & (Fixtures.SAMPLES - 1)].needRefill();
+	}
+
+	@Benchmark
+	public boolean isPickable() throws InvalidMoveException {
+		int i = index++ & (Fixtures.SAMPLES - 1);
+		int cell = cells[i];
+		return cell >= 0 && tabletops[i].isPickable(cell / TableTop.SIZE, cell % TableTop.SIZE);
+	}
+
+	@Benchmark
+	public TableTop fillTable() {
+		toFill.fillTable();
+		return toFill;
+	}
+
+	@Benchmark
+	public TableTop newTableTop() {
+		return new TableTop(nPlayers, random.split());
+	}
+}
@@ -0,0 +1,78 @@
+package analytics;
+
+import model.ArchivedGame;
+import model.GameArchive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.StreamSupport;
+
+/**
+ * Engine that computes the `ArchiveStats` of a `GameArchive` on a fork/join pool.
+ * The segments are analyzed in parallel, and the games of every segment are split
+ * in batches between the workers while the segment is read, so the analysis scales
+ * with the cores also when there are few segments.
+ */
+public class ArchiveAnalyzer {
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor of an analyzer using all the available cores
+	 */
+	public ArchiveAnalyzer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of an analyzer using the given number of threads
+	 * @param parallelism the number of worker threads
+	 */
+	public ArchiveAnalyzer(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Analyze all the games of an archive
+	 * @param directory the directory of the archive
+	 * @return the statistics of the games
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 * @throws ExecutionException if a segment cannot be read
+	 */
+	public ArchiveStats analyze(File directory) throws InterruptedException, ExecutionException {
+		long start = System.nanoTime();
+		// Parallel streams run in the pool of the task that starts them
+		ArchiveStats stats = pool.submit(() -> GameArchive.segments(directory).parallelStream()
+			.map(ArchiveAnalyzer::analyzeSegment)
+			.collect(ArchiveStats::new, ArchiveStats::merge, ArchiveStats::merge)
+		).get();
+		stats.setElapsedNanos(System.nanoTime() - start);
+		return stats;
+	}
+
+	/**
+	 * Analyze the games of a segment
+	 * @param segment the segment
+	 * @return the statistics of the games of the segment
+	 * @throws UncheckedIOException if the segment cannot be read
+	 */
+	private static ArchiveStats analyzeSegment(File segment) {
+		try (GameArchive.Reader reader = GameArchive.read(segment)) {
+			return StreamSupport.stream(Spliterators.<ArchivedGame>spliteratorUnknownSize(reader, Spliterator.NONNULL), true)
+				.collect(ArchiveStats::new, ArchiveStats::add, ArchiveStats::merge);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Stop the worker threads of the analyzer
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,329 @@
+package analytics;
+
+import model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregated statistics of a set of archived games, computed by replaying them.
+ * Every worker fills its own instance, that are merged at the end.
+ */
+public class ArchiveStats {
+	// Personal objective points above this value are counted in the last bucket
+	public static final int MAX_PERSONAL_POINTS = 12;
+	private static final List<String> COMMON_OBJECTIVES = CommonObjective.generateAllCommonObjectives(2).stream().map(CommonObjective::getName).collect(Collectors.toList());
+	private static final List<String> PERSONAL_OBJECTIVES = PersonalObjective.generateAllPersonalObjectives().stream().map(PersonalObjective::getName).collect(Collectors.toList());
+	// Name of the cockade of `Shelf.getFinishCockade`
+	private static final String FIRST_TO_FINISH = "First to finish";
+	private static final Card.Type[] TYPES = Card.Type.values();
+
+	private int games;
+	private int invalid;
+	private long turns;
+	private long elapsedNanos;
+
+	private final int[] objectiveGames = new int[COMMON_OBJECTIVES.size()];
+	private final int[] objectiveCompletedGames = new int[COMMON_OBJECTIVES.size()];
+	private final long[] objectiveCompletions = new long[COMMON_OBJECTIVES.size()];
+	private final long[] objectiveFirstTurns = new long[COMMON_OBJECTIVES.size()];
+	// Games in which the objective was first completed during the archived turns, and before them
+	private final int[] objectiveTimedGames = new int[COMMON_OBJECTIVES.size()];
+	private final int[] objectiveEarlyGames = new int[COMMON_OBJECTIVES.size()];
+
+	private final int[][] personalPoints = new int[PERSONAL_OBJECTIVES.size()][MAX_PERSONAL_POINTS + 1];
+
+	private int finishedGames;
+	private int finisherWins;
+	private double expectedFinisherWins;
+	private long finisherPoints;
+	private long otherPoints;
+	private int otherPlayers;
+
+	private long shelves;
+	private final long[][][] heatMap = new long[Shelf.ROWS][Shelf.COLUMNS][TYPES.length];
+
+	/**
+	 * Add a game, replaying it. A game that cannot be replayed is only counted as invalid.
+	 * @param archived the game
+	 */
+	public void add(ArchivedGame archived) {
+		int[] firstTurns = new int[COMMON_OBJECTIVES.size()];
+		Arrays.fill(firstTurns, -1);
+		boolean[] completedBefore = new boolean[COMMON_OBJECTIVES.size()];
+		Game game;
+		try {
+			// The games loaded from a save start with the objectives completed before the archived turns
+			for (Player player : new Game(SaveStateCodec.decode(ByteBuffer.wrap(archived.start()))).getPlayers()) {
+				for (Cockade cockade : player.getCockades()) {
+					int objective = COMMON_OBJECTIVES.indexOf(cockade.name());
+					if (objective >= 0) {
+						completedBefore[objective] = true;
+					}
+				}
+			}
+			game = archived.replay((replayed, turn) -> {
+				for (Player player : replayed.getPlayers()) {
+					for (Cockade cockade : player.getCockades()) {
+						int objective = COMMON_OBJECTIVES.indexOf(cockade.name());
+						if (objective >= 0 && firstTurns[objective] < 0) {
+							firstTurns[objective] = turn;
+						}
+					}
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			invalid++;
+			return;
+		}
+		games++;
+		turns += archived.turns().size();
+
+		for (CommonObjective objective : game.getCommonObjectives()) {
+			int index = COMMON_OBJECTIVES.indexOf(objective.getName());
+			long completions = game.getPlayers().stream().filter(p -> p.getCockades().stream().anyMatch(c -> c.name().equals(objective.getName()))).count();
+			objectiveGames[index]++;
+			objectiveCompletions[index] += completions;
+			if (completions > 0) {
+				objectiveCompletedGames[index]++;
+				// The turn is unknown if completed before the archived turns
+				if (completedBefore[index] || firstTurns[index] < 0) {
+					objectiveEarlyGames[index]++;
+				} else {
+					objectiveTimedGames[index]++;
+					objectiveFirstTurns[index] += firstTurns[index];
+				}
+			}
+		}
+
+		HashMap<String, Integer> points = new HashMap<>();
+		archived.scores().forEach(score -> points.put(score.username(), score.score()));
+		Optional<Player> finisher = Optional.empty();
+		for (Player player : game.getPlayers()) {
+			int personal = player.getPersonalObjective().isCompleted(player.getShelf()).map(Cockade::points).orElse(0);
+			personalPoints[PERSONAL_OBJECTIVES.indexOf(player.getPersonalObjective().getName())][Math.min(personal, MAX_PERSONAL_POINTS)]++;
+			if (player.getCockades().stream().anyMatch(c -> c.name().equals(FIRST_TO_FINISH))) {
+				finisher = Optional.of(player);
+			}
+
+			shelves++;
+			for (int y = 0; y < Shelf.ROWS; y++) {
+				for (int x = 0; x < Shelf.COLUMNS; x++) {
+					Card.Type type = player.getShelf().getType(y, x);
+					if (type != null) {
+						heatMap[y][x][type.ordinal()]++;
+					}
+				}
+			}
+		}
+
+		if (finisher.isPresent()) {
+			String name = finisher.get().getName();
+			finishedGames++;
+			expectedFinisherWins += 1.0 / game.getPlayers().size();
+			if (archived.winner().equals(name)) {
+				finisherWins++;
+			}
+			for (String player : points.keySet()) {
+				if (player.equals(name)) {
+					finisherPoints += points.get(player);
+				} else {
+					otherPoints += points.get(player);
+					otherPlayers++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add all the games of other statistics to these
+	 * @param other the statistics to merge
+	 * @return this object
+	 */
+	public ArchiveStats merge(ArchiveStats other) {
+		games += other.games;
+		invalid += other.invalid;
+		turns += other.turns;
+		for (int i = 0; i < COMMON_OBJECTIVES.size(); i++) {
+			objectiveGames[i] += other.objectiveGames[i];
+			objectiveCompletedGames[i] += other.objectiveCompletedGames[i];
+			objectiveCompletions[i] += other.objectiveCompletions[i];
+			objectiveFirstTurns[i] += other.objectiveFirstTurns[i];
+			objectiveTimedGames[i] += other.objectiveTimedGames[i];
+			objectiveEarlyGames[i] += other.objectiveEarlyGames[i];
+		}
+		for (int i = 0; i < PERSONAL_OBJECTIVES.size(); i++) {
+			for (int points = 0; points <= MAX_PERSONAL_POINTS; points++) {
+				personalPoints[i][points] += other.personalPoints[i][points];
+			}
+		}
+		finishedGames += other.finishedGames;
+		finisherWins += other.finisherWins;
+		expectedFinisherWins += other.expectedFinisherWins;
+		finisherPoints += other.finisherPoints;
+		otherPoints += other.otherPoints;
+		otherPlayers += other.otherPlayers;
+		shelves += other.shelves;
+		for (int y = 0; y < Shelf.ROWS; y++) {
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				for (int type = 0; type < TYPES.length; type++) {
+					heatMap[y][x][type] += other.heatMap[y][x][type];
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Setter for the wall clock time taken by the analysis
+	 * @param elapsedNanos the elapsed time in nanoseconds
+	 */
+	public void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Getter for the `games` field
+	 * @return the number of analyzed games
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * Getter for the `invalid` field
+	 * @return the number of games that couldn't be replayed
+	 */
+	public int getInvalid() {
+		return invalid;
+	}
+
+	/**
+	 * Get the fraction of the games with a common objective in which at least a player completed it
+	 * @param objective the name of the common objective
+	 * @return the completion rate, in [0, 1]
+	 */
+	public double getCompletionRate(String objective) {
+		int index = COMMON_OBJECTIVES.indexOf(objective);
+		return objectiveGames[index] == 0 ? 0 : (double)objectiveCompletedGames[index] / objectiveGames[index];
+	}
+
+	/**
+	 * Get the average turn in which a common objective is completed for the first time,
+	 * among the games in which it was completed during the archived turns
+	 * @param objective the name of the common objective
+	 * @return the average turn, counted from the start of the archived turns
+	 */
+	public double getAverageFirstTurn(String objective) {
+		int index = COMMON_OBJECTIVES.indexOf(objective);
+		return objectiveTimedGames[index] == 0 ? 0 : (double)objectiveFirstTurns[index] / objectiveTimedGames[index];
+	}
+
+	/**
+	 * Get the number of games in which a common objective was completed before the archived turns,
+	 * e.g. games loaded from an old save, that are not counted by `getAverageFirstTurn`
+	 * @param objective the name of the common objective
+	 * @return the number of games
+	 */
+	public int getCompletedBeforeArchive(String objective) {
+		return objectiveEarlyGames[COMMON_OBJECTIVES.indexOf(objective)];
+	}
+
+	/**
+	 * Get the number of players that scored the given points with a personal objective
+	 * @param objective the name of the personal objective
+	 * @param points the points, `MAX_PERSONAL_POINTS` counts all the higher scores too
+	 * @return the number of players
+	 */
+	public int getPersonalPointsCount(String objective, int points) {
+		return personalPoints[PERSONAL_OBJECTIVES.indexOf(objective)][points];
+	}
+
+	/**
+	 * Get the fraction of the games won by the first player to finish the shelf
+	 * @return the win rate, in [0, 1]
+	 */
+	public double getFinisherWinRate() {
+		return finishedGames == 0 ? 0 : (double)finisherWins / finishedGames;
+	}
+
+	/**
+	 * Get the fraction of the shelves with a card of the given type in a cell
+	 * @param y the row of the cell
+	 * @param x the column of the cell
+	 * @param type the type of the card
+	 * @return the fraction of the shelves, in [0, 1]
+	 */
+	public double getHeat(int y, int x, Card.Type type) {
+		return shelves == 0 ? 0 : (double)heatMap[y][x][type.ordinal()] / shelves;
+	}
+
+	/**
+	 * Build a human-readable report of the statistics
+	 * @return the report
+	 */
+	public String report() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Games: %d (%.1f games/s), %d invalid, %.1f turns per game%n", games, elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos, invalid, games == 0 ? 0 : (double)turns / games));
+
+		builder.append(String.format("%nCommon objectives:%n"));
+		for (String objective : COMMON_OBJECTIVES) {
+			int index = COMMON_OBJECTIVES.indexOf(objective);
+			builder.append(String.format(
+				"  %-40s %6d games, %6.2f%% completed, %.2f players per game, first at turn %.1f (%d games before the archive)%n",
+				objective,
+				objectiveGames[index],
+				100 * getCompletionRate(objective),
+				objectiveGames[index] == 0 ? 0 : (double)objectiveCompletions[index] / objectiveGames[index],
+				getAverageFirstTurn(objective),
+				objectiveEarlyGames[index]
+			));
+		}
+
+		builder.append(String.format("%nPersonal objectives (players by points):%n"));
+		builder.append(String.format("  %-22s", ""));
+		for (int points = 0; points <= MAX_PERSONAL_POINTS; points++) {
+			builder.append(String.format(" %5d", points));
+		}
+		builder.append(String.format("   average%n"));
+		for (String objective : PERSONAL_OBJECTIVES) {
+			int[] histogram = personalPoints[PERSONAL_OBJECTIVES.indexOf(objective)];
+			long players = 0;
+			long total = 0;
+			builder.append(String.format("  %-22s", objective));
+			for (int points = 0; points <= MAX_PERSONAL_POINTS; points++) {
+				builder.append(String.format(" %5d", histogram[points]));
+				players += histogram[points];
+				total += (long)points * histogram[points];
+			}
+			builder.append(String.format("   %.2f%n", players == 0 ? 0 : (double)total / players));
+		}
+
+		builder.append(String.format(
+			"%nFirst to finish: %d games, %.2f%% wins (%.2f%% expected), %.2f average points against %.2f of the others%n",
+			finishedGames,
+			100 * getFinisherWinRate(),
+			finishedGames == 0 ? 0 : 100 * expectedFinisherWins / finishedGames,
+			finishedGames == 0 ? 0 : (double)finisherPoints / finishedGames,
+			otherPlayers == 0 ? 0 : (double)otherPoints / otherPlayers
+		));
+
+		builder.append(String.format("%nCards in each shelf cell (%% of %d shelves, top row first):%n", shelves));
+		for (Card.Type type : TYPES) {
+			builder.append(String.format("  %s%n", type));
+			for (int y = Shelf.ROWS - 1; y >= 0; y--) {
+				builder.append("   ");
+				for (int x = 0; x < Shelf.COLUMNS; x++) {
+					builder.append(String.format(" %5.1f", 100 * getHeat(y, x, type)));
+				}
+				builder.append(String.format("%n"));
+			}
+		}
+		return builder.toString();
+	}
+}
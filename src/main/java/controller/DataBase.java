@@ -5,71 +5,382 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serial;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * A minimal db to associate a set of players to their save file.
+ * The map is kept in memory and every `put` and `remove` is appended to a log file,
+ * so a change costs a single small write, whatever the number of saved games.
+ * The log is replayed at startup, discarding a torn record at its end left by a crash,
+ * and it is compacted in background when most of its records are obsolete.
+ * Only `put` and `remove` are persisted, the other mutators of `HashMap` must not be used.
+ * <pre>
+ * header: magic (int)
+ * record: payload length (int), payload, CRC32 of the payload (int)
+ * payload: type (byte), names (byte), for each: name, save file (only for `PUT`)
+ * </pre>
+ * Strings are written as their UTF-8 length (unsigned short) and bytes.
  */
 public class DataBase extends HashMap<HashSet<String>, File> {
+	// Pinned to the value of the serialized db, that is still readable to migrate it
+	@Serial
+	private static final long serialVersionUID = -8436752843682409284L;
+
 	private static DataBase instance = null;
 	private static final String DB_NAME = "db.srl";
+	private static final String LOG_NAME = "db.log";
+	private static final int MAGIC = 0x4D534442;  // "MSDB"
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+	// Compact when the log has this many records and more than twice the live entries
+	private static final int MIN_COMPACTION_RECORDS = 64;
+	private static final Logger logger = Logger.getLogger(DataBase.class.getName());
+
+	private transient File logFile;
+	private transient FileOutputStream log;
+	private transient long logLength;
+	private transient int records;
+	private transient boolean compacting;
+	private transient ExecutorService compactor;
 
 	/**
-	 * Private constructor that loads the database from the file "db.srl" if it exists, or creates a new database otherwise.
-	 * @author Marco
+	 * Constructor that opens the database from its log, replaying it.
+	 * If the log doesn't exist, an empty one is created.
+	 * @param logFile the log file
+	 * @throws IOException if the log cannot be read or created
 	 */
-	private DataBase() {
+	DataBase(File logFile) throws IOException {
 		super();
-		try {
-			instance = loadDb();
-		} catch (Exception e) {
-			instance = this;
-		}
+		this.logFile = logFile;
+		recover();
 	}
+
 	/**
-	 * Returns the instance of the database. If the database has not been created yet, it creates a new instance.
+	 * Returns the instance of the database. If the database has not been created yet, it opens it
+	 * from "db.log", migrating the old "db.srl" if there is no log yet.
 	 * @return The instance of the database
 	 * @author Marco
 	 */
-	public static DataBase getInstance() {
+	public static synchronized DataBase getInstance() {
 		if (instance == null) {
-			new DataBase();
+			try {
+				instance = open(new File(LOG_NAME), new File(DB_NAME));
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot open db: " + e.getMessage(), e);
+			}
 		}
 		return instance;
 	}
 
 	/**
-	 * Loads the database from the file "db.srl".
-	 * @return the loaded database
-	 * @throws IOException if an I/O error occurs while reading the file
-	 * @throws ClassNotFoundException if the class of the serialized object cannot be found
-	 * @author Marco
+	 * Open the database, migrating the old serialized one if there is no log yet.
+	 * @param logFile the log file
+	 * @param legacyFile the old serialized database
+	 * @return the database
+	 * @throws IOException if the log cannot be read or created
 	 */
-	private DataBase loadDb() throws IOException, ClassNotFoundException {
-		DataBase savedDb;
-		FileInputStream inputFile = new FileInputStream(DB_NAME);
-		ObjectInputStream objectInputStream = new ObjectInputStream(inputFile);
-		savedDb = (DataBase)objectInputStream.readObject();
-		objectInputStream.close();
-		inputFile.close();
-
-		return savedDb;
+	static DataBase open(File logFile, File legacyFile) throws IOException {
+		if (logFile.exists() || !legacyFile.exists()) {
+			return new DataBase(logFile);
+		}
+
+		HashMap<HashSet<String>, File> legacy;
+		try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(legacyFile))) {
+			legacy = (DataBase)in.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Invalid db " + legacyFile, e);
+		}
+		// Write the new log aside, so that a crash during the migration leaves the old db in use
+		File temporary = new File(logFile.getPath() + ".tmp");
+		writeLog(temporary, legacy);
+		move(temporary, logFile);
+		if (!legacyFile.delete()) {
+			logger.warning("Cannot delete migrated db " + legacyFile);
+		}
+		logger.info("Migrated " + legacy.size() + " entries from " + legacyFile);
+		return new DataBase(logFile);
 	}
 
 	/**
-	 * Writes the database to the file "db.srl".
-	 * @throws IOException if an I/O error occurs while writing the file
-	 * @author Marco
+	 * Associate a set of players to a save file, appending the change to the log.
+	 * @param key the names of the players
+	 * @param value the save file
+	 * @return the previous save file of the players, or null
+	 */
+	@Override
+	public synchronized File put(HashSet<String> key, File value) {
+		append(record(PUT, key, value));
+		return super.put(new HashSet<>(key), value);
+	}
+
+	/**
+	 * Remove a set of players, appending the change to the log if they were present.
+	 * @param key the names of the players
+	 * @return the save file of the players, or null
+	 */
+	@Override
+	public synchronized File remove(Object key) {
+		if (!super.containsKey(key)) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		HashSet<String> names = (HashSet<String>)key;
+		append(record(REMOVE, names, null));
+		return super.remove(key);
+	}
+
+	@Override
+	public synchronized File get(Object key) {
+		return super.get(key);
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return super.containsKey(key);
+	}
+
+	/**
+	 * Replay the log into the map, truncating a torn or corrupted tail, and open it for appending.
+	 * @throws IOException if an I/O error occurs or the file is not a log
 	 */
-	public void write() throws IOException {
-		synchronized(instance) {
-			FileOutputStream outputFile = new FileOutputStream(DB_NAME);
-			ObjectOutputStream outputStream = new ObjectOutputStream(outputFile);
-			outputStream.writeObject(instance);
-			outputStream.close();
-			outputFile.close();
+	private void recover() throws IOException {
+		if (!logFile.exists()) {
+			writeLog(logFile, Map.of());
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(logFile.toPath()));
+		if (in.remaining() < Integer.BYTES || in.getInt() != MAGIC) {
+			throw new IOException("Not a db log: " + logFile);
+		}
+		long valid = in.position();
+		records = 0;
+		while (in.hasRemaining()) {
+			try {
+				int length = in.getInt();
+				if (length <= 0 || length > in.remaining() - Integer.BYTES) {
+					break;
+				}
+				ByteBuffer payload = in.slice(in.position(), length);
+				in.position(in.position() + length);
+				CRC32 crc = new CRC32();
+				crc.update(payload.duplicate());
+				if (in.getInt() != (int)crc.getValue()) {
+					break;
+				}
+				apply(payload);
+			} catch (BufferUnderflowException | IllegalArgumentException e) {
+				break;
+			}
+			valid = in.position();
+			records++;
+		}
+
+		if (valid < in.limit()) {
+			logger.warning("Discarding " + (in.limit() - valid) + " bytes at the end of " + logFile);
+			try (RandomAccessFile file = new RandomAccessFile(logFile, "rw")) {
+				file.setLength(valid);
+				file.getFD().sync();
+			}
+		}
+		logLength = valid;
+		log = new FileOutputStream(logFile, true);
+	}
+
+	/**
+	 * Apply a record read from the log to the map
+	 * @param payload the payload of the record
+	 * @throws IllegalArgumentException if the record is not valid
+	 */
+	private void apply(ByteBuffer payload) {
+		byte type = payload.get();
+		HashSet<String> names = new HashSet<>();
+		for (int i = payload.get() & 0xFF; i > 0; i--) {
+			names.add(readString(payload));
+		}
+		switch (type) {
+			case PUT -> super.put(names, new File(readString(payload)));
+			case REMOVE -> super.remove(names);
+			default -> throw new IllegalArgumentException("Unknown record type " + type);
+		}
+	}
+
+	/**
+	 * Append a record to the log, forcing it to the disk, and start a compaction if needed.
+	 * A failure is only logged, the change is kept in memory.
+	 * @param record the record
+	 */
+	private void append(byte[] record) {
+		try {
+			log.write(record);
+			log.getChannel().force(false);
+			logLength += record.length;
+			records++;
+		} catch (IOException e) {
+			logger.warning("Cannot write db " + e.getMessage());
+			return;
+		}
+		if (!compacting && records >= MIN_COMPACTION_RECORDS && records > 2 * size()) {
+			compacting = true;
+			if (compactor == null) {
+				compactor = Executors.newSingleThreadExecutor(runnable -> {
+					Thread thread = new Thread(runnable, "db-compactor");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			compactor.execute(() -> {
+				try {
+					compact();
+				} catch (IOException e) {
+					logger.warning("Cannot compact db " + e.getMessage());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Rewrite the log with only the live entries.
+	 * The live entries are written without holding the lock, the records appended in the meantime
+	 * are then copied after them, and the new log atomically replaces the old one.
+	 * @throws IOException if an I/O error occurs, the old log is kept in this case
+	 */
+	void compact() throws IOException {
+		HashMap<HashSet<String>, File> live;
+		long offset;
+		int compactedRecords;
+		synchronized (this) {
+			live = new HashMap<>(this);
+			offset = logLength;
+			compactedRecords = records;
+		}
+		File temporary = new File(logFile.getPath() + ".tmp");
+		try {
+			writeLog(temporary, live);
+
+			synchronized (this) {
+				byte[] tail = new byte[(int)(logLength - offset)];
+				try (RandomAccessFile file = new RandomAccessFile(logFile, "r")) {
+					file.seek(offset);
+					file.readFully(tail);
+				}
+				try (FileOutputStream out = new FileOutputStream(temporary, true)) {
+					out.write(tail);
+					out.getChannel().force(false);
+				}
+				log.close();
+				try {
+					move(temporary, logFile);
+					records = live.size() + records - compactedRecords;
+				} finally {
+					// The old log is appended to again if it hasn't been replaced
+					log = new FileOutputStream(logFile, true);
+					logLength = logFile.length();
+				}
+			}
+		} finally {
+			synchronized (this) {
+				compacting = false;
+			}
+			temporary.delete();
+		}
+	}
+
+	/**
+	 * Write a complete log, with a `PUT` record for every entry, forcing it to the disk.
+	 * @param file the file to write
+	 * @param entries the entries
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void writeLog(File file, Map<HashSet<String>, File> entries) throws IOException {
+		ArrayList<byte[]> all = new ArrayList<>();
+		for (Map.Entry<HashSet<String>, File> entry : entries.entrySet()) {
+			all.add(record(PUT, entry.getKey(), entry.getValue()));
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + all.stream().mapToInt(record -> record.length).sum());
+		buffer.putInt(MAGIC);
+		all.forEach(buffer::put);
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(buffer.array());
+			out.getChannel().force(false);
+		}
+	}
+
+	/**
+	 * Build a log record
+	 * @param type `PUT` or `REMOVE`
+	 * @param names the names of the players, written in sorted order
+	 * @param value the save file, only for `PUT`
+	 * @return the record
+	 */
+	private static byte[] record(byte type, HashSet<String> names, File value) {
+		if (names.size() > 0xFF) {
+			throw new IllegalArgumentException("Too many players");
+		}
+		ArrayList<byte[]> strings = new ArrayList<>();
+		ArrayList<String> sorted = new ArrayList<>(names);
+		Collections.sort(sorted);
+		for (String name : sorted) {
+			strings.add(name.getBytes(StandardCharsets.UTF_8));
+		}
+		if (value != null) {
+			strings.add(value.getPath().getBytes(StandardCharsets.UTF_8));
+		}
+		int length = 2 + strings.stream().mapToInt(string -> Short.BYTES + string.length).sum();
+
+		ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+		record.putInt(length);
+		record.put(type);
+		record.put((byte)names.size());
+		for (byte[] string : strings) {
+			if (string.length > 0xFFFF) {
+				throw new IllegalArgumentException("String too long");
+			}
+			record.putShort((short)string.length);
+			record.put(string);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), Integer.BYTES, length);
+		record.putInt((int)crc.getValue());
+		return record.array();
+	}
+
+	/**
+	 * Read a string written by `record`
+	 * @param in the buffer to read from
+	 * @return the string
+	 */
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Atomically replace a file with another one
+	 * @param source the new file
+	 * @param target the file to replace
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 }
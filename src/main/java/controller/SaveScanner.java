@@ -0,0 +1,237 @@
+package controller;
+
+import model.Game;
+import model.GameJournal;
+import model.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Startup phase that checks the save directory against the `DataBase`.
+ * Every save referenced by the database is loaded on a bounded pool of threads, to find the corrupted ones
+ * before a lobby tries to load them, the files that the database doesn't reference anymore are deleted,
+ * and the most recently played games are reported, so that they can be resumed as soon as their players log in.
+ * The pool size, the time limit and the number of recent games are read from the
+ * `myshelfie.startup.threads`, `myshelfie.startup.timeout` (seconds) and `myshelfie.startup.warm` system properties.
+ */
+public class SaveScanner {
+	/**
+	 * Result of a scan
+	 * @param saves the number of saves referenced by the database
+	 * @param valid the number of saves successfully loaded
+	 * @param corrupted the number of saves that cannot be loaded, set aside and removed from the database
+	 * @param missing the number of database entries without a save file, removed from the database
+	 * @param unchecked the number of saves not checked before the time limit, that will be checked when loaded
+	 * @param deleted the number of deleted files (unreferenced saves, journals without a save, temporary files)
+	 * @param elapsedMillis the duration of the scan, in milliseconds
+	 * @param recent the players of the most recently played games, most recent first
+	 */
+	public record Report(
+		int saves,
+		int valid,
+		int corrupted,
+		int missing,
+		int unchecked,
+		int deleted,
+		long elapsedMillis,
+		List<HashSet<String>> recent
+	) {}
+
+	public static final String CORRUPTED_EXTENSION = ".corrupted";
+	private static final Logger logger = Logger.getLogger(SaveScanner.class.getName());
+	private static final int PROGRESS_STEPS = 10;
+
+	private SaveScanner() {}
+
+	/**
+	 * Scan a save directory, with the settings given by the system properties
+	 * @param directory the save directory
+	 * @param db the database of the saves
+	 * @return the result of the scan
+	 * @throws IOException if the directory cannot be read
+	 * @throws InterruptedException if interrupted while waiting for the checks
+	 */
+	public static Report scan(File directory, DataBase db) throws IOException, InterruptedException {
+		return scan(
+			directory,
+			db,
+			Integer.getInteger("myshelfie.startup.threads", Runtime.getRuntime().availableProcessors()),
+			Long.getLong("myshelfie.startup.timeout", 60),
+			Integer.getInteger("myshelfie.startup.warm", 100)
+		);
+	}
+
+	/**
+	 * Scan a save directory
+	 * @param directory the save directory
+	 * @param db the database of the saves
+	 * @param threads the number of threads loading the saves
+	 * @param timeout the maximum time spent loading the saves, in seconds
+	 * @param warm the maximum number of recent games to report
+	 * @return the result of the scan
+	 * @throws IOException if the directory cannot be read
+	 * @throws InterruptedException if interrupted while waiting for the checks
+	 */
+	static Report scan(File directory, DataBase db, int threads, long timeout, int warm) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		HashMap<HashSet<String>, File> entries;
+		synchronized (db) {
+			entries = new HashMap<>(db);
+		}
+		HashMap<Path, HashSet<String>> referenced = new HashMap<>();
+		for (Map.Entry<HashSet<String>, File> entry : entries.entrySet()) {
+			referenced.put(normalize(entry.getValue()), entry.getKey());
+		}
+
+		int deleted = 0;
+		if (directory.isDirectory()) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.toPath())) {
+				for (Path file : files) {
+					if (isGarbage(file, referenced)) {
+						if (Files.deleteIfExists(file)) {
+							deleted++;
+						}
+					}
+				}
+			}
+		}
+
+		// Check the saves in parallel
+		int missing = 0;
+		ArrayList<Map.Entry<HashSet<String>, File>> saves = new ArrayList<>();
+		for (Map.Entry<HashSet<String>, File> entry : entries.entrySet()) {
+			if (entry.getValue().isFile()) {
+				saves.add(entry);
+			} else {
+				logger.warning("Save of " + entry.getKey() + " not found, removing it");
+				db.remove(entry.getKey());
+				missing++;
+			}
+		}
+		ConcurrentHashMap<HashSet<String>, Long> valid = new ConcurrentHashMap<>();
+		AtomicInteger corrupted = new AtomicInteger();
+		AtomicInteger done = new AtomicInteger();
+		int step = Math.max(1, saves.size() / PROGRESS_STEPS);
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "save-scanner");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (Map.Entry<HashSet<String>, File> entry : saves) {
+			pool.execute(() -> {
+				if (check(entry.getKey(), entry.getValue())) {
+					valid.put(entry.getKey(), lastActivity(entry.getValue()));
+				} else {
+					db.remove(entry.getKey());
+					corrupted.incrementAndGet();
+				}
+				int checked = done.incrementAndGet();
+				if (checked % step == 0 || checked == saves.size()) {
+					logger.info(String.format("Checked %d/%d saves in %d ms", checked, saves.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+				}
+			});
+		}
+		pool.shutdown();
+		if (!pool.awaitTermination(timeout, TimeUnit.SECONDS)) {
+			logger.warning("Save check timed out, the remaining saves will be checked when loaded");
+			pool.shutdownNow();
+		}
+
+		List<HashSet<String>> recent = valid.entrySet().stream()
+			.sorted(Map.Entry.<HashSet<String>, Long>comparingByValue(Comparator.reverseOrder()))
+			.limit(warm)
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toList());
+		Report report = new Report(
+			entries.size(),
+			valid.size(),
+			corrupted.get(),
+			missing,
+			saves.size() - valid.size() - corrupted.get(),
+			deleted,
+			TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+			recent
+		);
+		logger.info("Save scan completed: " + report);
+		return report;
+	}
+
+	/**
+	 * Check if a file of the save directory is not needed anymore
+	 * @param file the file to check
+	 * @param referenced the saves referenced by the database
+	 * @return true if the file can be deleted
+	 */
+	private static boolean isGarbage(Path file, Map<Path, HashSet<String>> referenced) {
+		String name = file.getFileName().toString();
+		if (name.endsWith(CORRUPTED_EXTENSION) || !Files.isRegularFile(file)) {
+			return false;
+		}
+		if (name.endsWith(".tmp")) {
+			// Left by a save interrupted by a crash
+			return true;
+		}
+		if (name.endsWith(GameJournal.EXTENSION)) {
+			name = name.substring(0, name.length() - GameJournal.EXTENSION.length());
+			return !referenced.containsKey(normalize(file.resolveSibling(name).toFile()));
+		}
+		return !referenced.containsKey(normalize(file.toFile()));
+	}
+
+	/**
+	 * Load a save, and set it aside if it is corrupted
+	 * @param players the players of the game, according to the database
+	 * @param file the save file
+	 * @return true if the save is valid
+	 */
+	private static boolean check(HashSet<String> players, File file) {
+		try {
+			Game game = Game.loadGame(file);
+			if (game.getPlayers().stream().map(Player::getName).collect(Collectors.toSet()).equals(players)) {
+				return true;
+			}
+			logger.warning("Save " + file + " belongs to other players");
+		} catch (Exception e) {
+			logger.warning("Corrupted save " + file + ": " + e);
+		}
+		File journal = GameJournal.journalFile(file);
+		file.renameTo(new File(file.getPath() + CORRUPTED_EXTENSION));
+		journal.renameTo(new File(journal.getPath() + CORRUPTED_EXTENSION));
+		return false;
+	}
+
+	/**
+	 * Get the last time a game has been saved
+	 * @param file the save file
+	 * @return the last modification time of the save or of its journal
+	 */
+	private static long lastActivity(File file) {
+		return Math.max(file.lastModified(), GameJournal.journalFile(file).lastModified());
+	}
+
+	/**
+	 * Get a path that can be compared with the ones of other files
+	 * @param file the file
+	 * @return the absolute and normalized path of the file
+	 */
+	private static Path normalize(File file) {
+		return file.toPath().toAbsolutePath().normalize();
+	}
+}
@@ -0,0 +1,361 @@
+package controller;
+
+import model.GameJournal;
+import model.SaveState;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Background service that writes the saves and the journals of all the games,
+ * so that a slow disk never stalls a game.
+ * The games submit detached `SaveState` snapshots and journal records, that are written
+ * by a small pool of I/O threads. The operations of a save file are applied in order,
+ * one at a time, and a snapshot replaces everything still pending for its file,
+ * so a game that produces snapshots faster than the disk can write them only gets its latest one written.
+ * When a write fails, the journal of the file is incomplete: the records are dropped until the game
+ * submits a new snapshot, that it does as soon as `needsCheckpoint` tells it so.
+ * The pool size and the fsync policy are read from the `myshelfie.save.threads`
+ * and `myshelfie.save.fsync` (`never`, `checkpoints`, `always`) system properties.
+ */
+public class SaveService {
+	/**
+	 * When the written data is forced to the disk
+	 */
+	public enum FsyncPolicy {
+		// Leave it to the operating system
+		NEVER,
+		// Force the saves, not the journal records
+		CHECKPOINTS,
+		// Force both the saves and every batch of journal records
+		ALWAYS
+	}
+
+	/**
+	 * Snapshot of the metrics of the service
+	 * @param queueDepth the number of operations waiting to be written
+	 * @param maxQueueDepth the maximum value reached by `queueDepth`
+	 * @param snapshots the number of saves written
+	 * @param records the number of journal records written
+	 * @param coalesced the number of saves and records dropped because replaced by a newer save
+	 * @param failures the number of failed writes
+	 * @param averageWriteMicros the average duration of a write, in microseconds
+	 * @param maxWriteMicros the maximum duration of a write, in microseconds
+	 */
+	public record Metrics(
+		int queueDepth,
+		int maxQueueDepth,
+		long snapshots,
+		long records,
+		long coalesced,
+		long failures,
+		double averageWriteMicros,
+		long maxWriteMicros
+	) {}
+
+	/**
+	 * Operations still to be written for a save file
+	 */
+	private static class Pending {
+		SaveState snapshot;
+		final ArrayList<byte[]> records = new ArrayList<>();
+		boolean delete;
+		boolean running;
+
+		int size() {
+			return (snapshot == null ? 0 : 1) + records.size() + (delete ? 1 : 0);
+		}
+	}
+
+	private static SaveService instance = null;
+	private static final Logger logger = Logger.getLogger(SaveService.class.getName());
+	private static final long SHUTDOWN_TIMEOUT = 5;
+
+	private final Executor executor;
+	private final FsyncPolicy fsyncPolicy;
+	private final HashMap<File, Pending> pending = new HashMap<>();
+	private final HashMap<File, GameJournal> journals = new HashMap<>();
+	// The files whose last write failed, guarded by `pending`
+	private final HashSet<File> failed = new HashSet<>();
+
+	// Metrics, guarded by `pending`
+	private int queueDepth;
+	private int maxQueueDepth;
+	private long snapshots;
+	private long records;
+	private long coalesced;
+	private long failures;
+	private long writes;
+	private long totalWriteNanos;
+	private long maxWriteNanos;
+
+	/**
+	 * Constructor of the service
+	 * @param executor the executor running the writes
+	 * @param fsyncPolicy when the written data is forced to the disk
+	 */
+	SaveService(Executor executor, FsyncPolicy fsyncPolicy) {
+		this.executor = executor;
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	/**
+	 * Returns the instance of the service, creating it if needed.
+	 * @return The instance of the service
+	 */
+	public static synchronized SaveService getInstance() {
+		if (instance == null) {
+			int threads = Integer.getInteger("myshelfie.save.threads", 2);
+			FsyncPolicy policy = FsyncPolicy.valueOf(System.getProperty("myshelfie.save.fsync", "checkpoints").toUpperCase());
+			ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "save-writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			instance = new SaveService(pool, policy);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					instance.flush(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+				} catch (InterruptedException ignored) {}
+			}));
+		}
+		return instance;
+	}
+
+	/**
+	 * Save a game, replacing everything still pending for its file
+	 * @param file the save file
+	 * @param state the state of the game, that must not be modified anymore
+	 */
+	public void checkpoint(File file, SaveState state) {
+		submit(file, operations -> {
+			coalesced += operations.size();
+			operations.snapshot = state;
+			operations.records.clear();
+			// A save written again after being deleted must not be deleted after it
+			operations.delete = false;
+		});
+	}
+
+	/**
+	 * Append a record to the journal of a save file, after the pending save, if any
+	 * @param file the save file
+	 * @param record the record, as returned by `GameJournal.record`
+	 */
+	public void append(File file, byte[] record) {
+		submit(file, operations -> operations.records.add(record));
+	}
+
+	/**
+	 * Delete a save file and its journal, dropping everything still pending for it
+	 * @param file the save file
+	 */
+	public void delete(File file) {
+		submit(file, operations -> {
+			coalesced += operations.size();
+			operations.snapshot = null;
+			operations.records.clear();
+			operations.delete = true;
+		});
+	}
+
+	/**
+	 * Add an operation to the pending ones of a file, and schedule them if needed
+	 * @param file the save file
+	 * @param update the function adding the operation
+	 */
+	private void submit(File file, Consumer<Pending> update) {
+		boolean schedule;
+		synchronized (pending) {
+			Pending operations = pending.computeIfAbsent(file, f -> new Pending());
+			int before = operations.size();
+			update.accept(operations);
+			queueDepth += operations.size() - before;
+			maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+			schedule = !operations.running;
+			operations.running = true;
+		}
+		if (schedule) {
+			executor.execute(() -> drain(file));
+		}
+	}
+
+	/**
+	 * Write the pending operations of a file, until there are none left
+	 * @param file the save file
+	 */
+	private void drain(File file) {
+		while (true) {
+			SaveState snapshot;
+			ArrayList<byte[]> batch;
+			boolean delete;
+			synchronized (pending) {
+				Pending operations = pending.get(file);
+				if (operations.size() == 0) {
+					pending.remove(file);
+					pending.notifyAll();
+					break;
+				}
+				snapshot = operations.snapshot;
+				batch = new ArrayList<>(operations.records);
+				delete = operations.delete;
+				operations.snapshot = null;
+				operations.records.clear();
+				operations.delete = false;
+				if (snapshot == null && !delete && failed.contains(file)) {
+					// The records would follow the ones lost, they are replaced by the next snapshot
+					queueDepth -= batch.size();
+					coalesced += batch.size();
+					continue;
+				}
+			}
+
+			long start = System.nanoTime();
+			boolean written = true;
+			try {
+				write(file, snapshot, batch, delete);
+			} catch (IOException | RuntimeException e) {
+				logger.warning("Failed to write save " + file + ": " + e.getMessage());
+				written = false;
+			}
+			long elapsed = System.nanoTime() - start;
+
+			synchronized (pending) {
+				queueDepth -= (snapshot == null ? 0 : 1) + batch.size() + (delete ? 1 : 0);
+				writes++;
+				totalWriteNanos += elapsed;
+				maxWriteNanos = Math.max(maxWriteNanos, elapsed);
+				if (written) {
+					snapshots += snapshot == null ? 0 : 1;
+					records += batch.size();
+					if (snapshot != null || delete) {
+						failed.remove(file);
+					}
+				} else {
+					failures++;
+					if (!delete) {
+						failed.add(file);
+					}
+				}
+			}
+		}
+
+		// Don't keep a file open for every idle game
+		GameJournal journal;
+		synchronized (journals) {
+			journal = journals.get(file);
+		}
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				logger.warning("Failed to close journal of " + file);
+			}
+		}
+	}
+
+	/**
+	 * Write some operations of a file, in order
+	 * @param file the save file
+	 * @param snapshot the save to write, or null
+	 * @param batch the journal records to append after the save
+	 * @param delete if true, delete the file and its journal
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void write(File file, SaveState snapshot, ArrayList<byte[]> batch, boolean delete) throws IOException {
+		GameJournal journal;
+		synchronized (journals) {
+			journal = delete ? journals.remove(file) : journals.computeIfAbsent(file, GameJournal::new);
+		}
+		if (delete) {
+			if (journal != null) {
+				journal.delete();
+			} else {
+				GameJournal.journalFile(file).delete();
+			}
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Failed to delete save");
+			}
+			return;
+		}
+		if (snapshot != null) {
+			journal.checkpoint(snapshot, fsyncPolicy != FsyncPolicy.NEVER);
+		}
+		if (!batch.isEmpty()) {
+			journal.append(batch, fsyncPolicy == FsyncPolicy.ALWAYS);
+		}
+	}
+
+	/**
+	 * Check if the last write of a file failed, so that its game must submit a new snapshot
+	 * @param file the save file
+	 * @return true until a snapshot of the file has been written
+	 */
+	public boolean needsCheckpoint(File file) {
+		synchronized (pending) {
+			return failed.contains(file);
+		}
+	}
+
+	/**
+	 * Wait until everything pending for a file has been written
+	 * @param file the save file
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void flush(File file) throws InterruptedException {
+		synchronized (pending) {
+			while (pending.containsKey(file)) {
+				pending.wait();
+			}
+		}
+	}
+
+	/**
+	 * Wait until everything pending has been written
+	 * @param timeout the maximum time to wait
+	 * @param unit the unit of `timeout`
+	 * @return true if everything has been written, false if the timeout expired
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (pending) {
+			while (!pending.isEmpty()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(pending, remaining);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the current metrics of the service
+	 * @return the metrics
+	 */
+	public Metrics getMetrics() {
+		synchronized (pending) {
+			return new Metrics(
+				queueDepth,
+				maxQueueDepth,
+				snapshots,
+				records,
+				coalesced,
+				failures,
+				writes == 0 ? 0 : totalWriteNanos / 1000.0 / writes,
+				maxWriteNanos / 1000
+			);
+		}
+	}
+}
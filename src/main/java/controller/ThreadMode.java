@@ -0,0 +1,106 @@
+package controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Kind of threads used by the server for the work that mostly waits on other clients: the handling of the socket
+ * calls and the disconnection checks of the games.
+ * Chosen with the `myshelfie.threads` property, `platform` (default) or `virtual`.
+ */
+public enum ThreadMode {
+	PLATFORM,
+	VIRTUAL;
+
+	private static final Logger logger = Logger.getLogger(ThreadMode.class.getName());
+	private static ThreadMode current = null;
+
+	/**
+	 * Get the mode chosen for the server, falling back to platform threads if the runtime doesn't support virtual ones
+	 * @return the mode
+	 */
+	public static synchronized ThreadMode current() {
+		if (current == null) {
+			current = parse(System.getProperty("myshelfie.threads", "platform"));
+		}
+		return current;
+	}
+
+	/**
+	 * Parse the name of a mode
+	 * @param name `platform` or `virtual`
+	 * @return the mode, `PLATFORM` if the name is unknown or virtual threads are not available
+	 */
+	static ThreadMode parse(String name) {
+		if (name.equalsIgnoreCase("virtual")) {
+			if (virtualFactory("probe-") != null) {
+				return VIRTUAL;
+			}
+			logger.warning("Virtual threads are not available on this runtime, using platform threads");
+		} else if (!name.equalsIgnoreCase("platform")) {
+			logger.warning("Unknown thread mode " + name + ", using platform threads");
+		}
+		return PLATFORM;
+	}
+
+	/**
+	 * Create a factory of daemon threads of this kind
+	 * @param prefix the prefix of the names of the threads, followed by a counter
+	 * @return the factory
+	 */
+	public ThreadFactory factory(String prefix) {
+		return factory(prefix, true);
+	}
+
+	/**
+	 * Create a factory of threads of this kind
+	 * @param prefix the prefix of the names of the threads, followed by a counter
+	 * @param daemon if the platform threads are daemon, the virtual threads always are
+	 * @return the factory
+	 */
+	public ThreadFactory factory(String prefix, boolean daemon) {
+		if (this == VIRTUAL) {
+			return virtualFactory(prefix);
+		}
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+			thread.setDaemon(daemon);
+			return thread;
+		};
+	}
+
+	/**
+	 * Create an executor of this kind: a fixed pool of platform threads, or a virtual thread for every task
+	 * @param prefix the prefix of the names of the threads
+	 * @param platformThreads the number of threads of the platform pool
+	 * @return the executor
+	 */
+	public ExecutorService newExecutor(String prefix, int platformThreads) {
+		if (this == VIRTUAL) {
+			// Virtual threads are cheap to create, the pool only recycles the idle ones for a while
+			return Executors.newCachedThreadPool(factory(prefix));
+		}
+		return Executors.newFixedThreadPool(Math.max(1, platformThreads), factory(prefix));
+	}
+
+	/**
+	 * Build a factory of virtual threads. The API is looked up at runtime, since it is a preview on Java 19, that the
+	 * project targets, and final from Java 21
+	 * @param prefix the prefix of the names of the threads
+	 * @return the factory, or null if virtual threads are not available
+	 */
+	private static ThreadFactory virtualFactory(String prefix) {
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+			virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, prefix, 0L);
+			return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+}
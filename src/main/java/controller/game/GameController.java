@@ -3,21 +3,25 @@ import controller.DataBase;
 import controller.IdentityTheftException;
 import controller.MessageTooLongException;
 import controller.NotHostException;
+import controller.SaveService;
+import controller.ThreadMode;
 import controller.lobby.ClientNotConnectedException;
 import controller.lobby.Lobby;
 import controller.lobby.LobbyController;
 import model.*;
 import network.*;
 import network.errors.ClientNotFoundException;
+import network.errors.ClientNotIdentifiedException;
 import network.parameters.CardSelect;
 import network.parameters.Message;
 import network.parameters.GameInfo;
-import network.parameters.Update;
+import network.parameters.UpdateDelta;
 import network.errors.WrongParametersException;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -35,6 +39,10 @@ public class GameController {
 
     private boolean isPaused = false;
     private final Thread disconnectionChecker;
+    // Held by the moves and the disconnection checks, that send events while holding it
+    private final ReentrantLock turnLock = new ReentrantLock();
+    // Not daemon in the platform mode, as the checkers have always been; virtual threads are always daemon
+    private static final ThreadFactory checkerFactory = ThreadMode.current().factory("game-checker-", false);
     private Player currentPlayer;
     private static final Logger logger = Logger.getLogger(GameController.class.getName());
 
@@ -42,12 +50,21 @@ public class GameController {
     private ArrayList<Boolean> playerDisconnected;
 
     private final DataBase db = DataBase.getInstance();
+    private final SaveService saveService = SaveService.getInstance();
     private final File saveFile;
+    private int journaledTurns;
+    // State of the game when this controller started it and the turns played since then, for the archive
+    private byte[] sessionStart;
+    private final ArrayList<byte[]> history = new ArrayList<>();
 
-    private boolean someoneCompleted = false;
+    // Incremented by every turn, sent with the deltas and the snapshots
+    private int stateVersion = 0;
     private static final long SOLE_SURVIVOR_TIMER = 60;
     private static final long DISCONNECTION_CHECK_INTERVAL = 1;
+    private static final int CHECKPOINT_INTERVAL = 64;
+    private static final long HIBERNATE_AFTER = Long.getLong("myshelfie.game.hibernate", 30);
     private int pauseCounter;
+    private int abandonedCounter;
 
     /**
      * Constructor that creates a new game with the specified players.
@@ -57,6 +74,7 @@ public class GameController {
     public GameController(Lobby lobby) throws Exception {
         this.lobby = lobby;
         game = new Game(lobby.getPlayers());
+        logger.info("Game created with seed " + game.getSeed());
         playerIterator = game.iterator();
         currentPlayer = playerIterator.next();
         clientManager = GlobalClientManager.getInstance();
@@ -76,7 +94,8 @@ public class GameController {
         for (int i = 0; i < game.getPlayers().size(); i++) {
             playerDisconnected.add(false);
         }
-        disconnectionChecker = new Thread(this::checkDisconnections);
+        sessionStart = SaveStateCodec.encode(game.getSaveState());
+        disconnectionChecker = checkerFactory.newThread(this::checkDisconnections);
         disconnectionChecker.start();
         saveGame();
     }
@@ -88,28 +107,92 @@ public class GameController {
      * @author Marco
      */
     public GameController(File saveFile, Lobby lobby) throws Exception {
+        this(saveFile, lobby, false);
+    }
+
+    /**
+     * Wake up a hibernated game, as soon as one of its players comes back.
+     * Unlike a normal load, the other players don't need to be connected,
+     * they will rejoin the game when they log in again.
+     * @param saveFile The path of the save file
+     * @param lobby The lobby of the game when it was hibernated
+     * @return The controller of the resumed game
+     * @throws Exception If the save cannot be loaded
+     */
+    public static GameController rehydrate(File saveFile, Lobby lobby) throws Exception {
+        return new GameController(saveFile, lobby, true);
+    }
+
+    /**
+     * Constructor that loads a game from a save file.
+     * @param saveFile The path of the save file
+     * @param lobby The lobby containing the players
+     * @param resume If true, the game is resumed after hibernation and the players may be disconnected
+     */
+    private GameController(File saveFile, Lobby lobby, boolean resume) throws Exception {
         this.lobby = lobby;
+        // The save could still be being written, if the game has just been exited
+        saveService.flush(saveFile);
         game = Game.loadGame(saveFile);
         clientManager = GlobalClientManager.getInstance();
         playerIterator = game.iterator();
         currentPlayer = playerIterator.next();
+        playerDisconnected = new ArrayList<>(game.getPlayers().size());
         for (Player player : game.getPlayers()) {
-            ClientInterface client = clientManager.getClient(player.getName()).orElseThrow();
+            Optional<ClientInterface> optionalClient = clientManager.getClient(player.getName());
+            if (resume && optionalClient.isEmpty()) {
+                // Not logged in since the server started, the game is attached to its client when it does
+                playerDisconnected.add(true);
+                continue;
+            }
+            ClientInterface client = optionalClient.orElseThrow();
+            if (resume) {
+                // The returning players get the game from the login, the others when they come back
+                client.setCallHandler(this::handleGame);
+                if (client.isDisconnected()) {
+                    client.setLastValidStatus(ClientStatus.InGame);
+                } else {
+                    client.setStatus(ClientStatus.InGame);
+                    if (!lobby.getPlayers().contains(player.getName())) {
+                        lobby.addPlayer(player.getName());
+                    }
+                }
+                playerDisconnected.add(client.isDisconnected());
+                continue;
+            }
             if(client.isDisconnected()){
                 throw new ClientNotConnectedException();
             }
             client.setCallHandler(this::handleGame);
             GameInfo toSend = getGameInfo(player);
             client.sendEvent(ServerEvent.Start(toSend));
+            playerDisconnected.add(false);
         }
         this.saveFile = db.get(game.getPlayers().stream().map(Player::getName).collect(Collectors.toCollection(HashSet::new)));
+        // Compact the replayed journal into a new save
+        sessionStart = SaveStateCodec.encode(game.getSaveState());
+        saveGame();
+        disconnectionChecker = checkerFactory.newThread(this::checkDisconnections);
+        disconnectionChecker.start();
+    }
 
-        playerDisconnected = new ArrayList<>(game.getPlayers().size());
-        for (int i = 0; i < game.getPlayers().size(); i++) {
-            playerDisconnected.add(false);
+    /**
+     * Attach the client of a player logging in to the game, so that its calls are handled by the game.
+     * Needed by the players of a resumed game that had no client when it was loaded.
+     * @param client The client of a player of the game
+     */
+    public void attachClient(ClientInterface client) {
+        turnLock.lock();
+        try {
+            client.setCallHandler(this::handleGame);
+            if (client.isDisconnected()) {
+                client.setLastValidStatus(ClientStatus.InGame);
+            } else {
+                client.setStatus(ClientStatus.InGame);
+            }
+        } finally {
+            turnLock.unlock();
         }
-        disconnectionChecker = new Thread(this::checkDisconnections);
-        disconnectionChecker.start();
     }
 
     /**
@@ -121,25 +204,6 @@ public class GameController {
         return game;
     }
 
-    /**
-     * Checks if the tabletop needs a refill.
-     * @return true if refill needed, false otherwise
-     * @author Ludovico
-     */
-    private boolean checkRefillTable() {
-        return game.getTabletop().needRefill();
-    }
-
-    /**
-     * Refills the table if needed.
-     * @author Ludovico
-     */
-    private void refillTable() {
-        if (checkRefillTable()) {
-            game.getTabletop().fillTable();
-        }
-    }
-
     /**
      * Check if the given player has completed the personal objective,
      * if this is the case, add the corresponding cockade to him.
@@ -152,53 +216,39 @@ public class GameController {
     }
 
     /**
-     * Check for completed common objectives by the player.
-     * This function takes two parameters in addition to the player, references to two `ArrayList`s
-     * in which the caller will find the cockades for the completed objectives and the corresponding updated scores.
-     * @param player The player to consider
-     * @param completedObjectives A reference to the list of completed objectives
-     * @param newCommonObjectivesScores A reference to the list of updated scores
-     * @author Ludovico, Marco
+     * Check if the move selected by the player is valid and make it.
+     * @param player The player making the move
+     * @param positions The positions of the cards to pick
+     * @param column The column where the cards will be placed
+     * @throws InvalidMoveException If the move is not valid
+     * @author Marco, Ludovico
      */
-    private void addCommonCockade(Player player, ArrayList<Cockade> completedObjectives, ArrayList<Integer> newCommonObjectivesScores) {
-        for (CommonObjective objective : game.getCommonObjectives()) {
-            Optional<Cockade> cockade = objective.isCompleted(player.getShelf(), player.getName());
-            if (cockade.isPresent()) {
-                player.addCockade(cockade.get());
-                completedObjectives.add(cockade.get());
-                newCommonObjectivesScores.add(objective.getValue());
-            }
-        }
-    }
+    private void doMove(Player player, ArrayList<Point> positions, int column) throws InvalidMoveException {
+        checkMove(game.getTabletop(), player.getShelf(), positions, column);
 
-    /**
-     * Checks if the player is the first to finish the game.
-     * If true, add the first to finish cockade to the player's shelf.
-     * @param player The player to check
-     */
-    private void addFirstToFinish(Player player){
-        Optional<Cockade> firstToFinishCockade = player.getShelf().getFinishCockade();
-        if(firstToFinishCockade.isPresent() && !someoneCompleted){
-            player.addCockade(firstToFinishCockade.get());
-            someoneCompleted = true;
+        ArrayList<Card> cards = new ArrayList<>();
+        for (Point position : positions) {
+            cards.add(game.getTabletop().pickCard(position.y(), position.x()));
         }
+        player.getShelf().insert(column, cards);
     }
 
     /**
-     * Check if the move selected by the player is valid and make it.
-     * @param player The player making the move
+     * Check if a move is valid, without making it.
+     * @param tabletop The tabletop to pick the cards from
+     * @param shelf The shelf of the player making the move
      * @param positions The positions of the cards to pick
      * @param column The column where the cards will be placed
      * @throws InvalidMoveException If the move is not valid
      * @author Marco, Ludovico
      */
-    private void doMove(Player player, ArrayList<Point> positions, int column) throws InvalidMoveException {
+    public static void checkMove(TableTop tabletop, Shelf shelf, List<Point> positions, int column) throws InvalidMoveException {
         if (positions.size() < 1 || positions.size() > 3) {
             throw new InvalidMoveException("Invalid number of picked cards");
         }
 
         for (int i = 0; i < positions.size(); i++) {
-            if (player.getShelf().getCard(Shelf.ROWS - i - 1, column).isPresent()) {
+            if (shelf.getCard(Shelf.ROWS - i - 1, column).isPresent()) {
                 throw new InvalidMoveException("Not enough space in column");
             }
         }
@@ -215,7 +265,7 @@ public class GameController {
 
         // Check that all the cards are singularly pickable
         for (Point position : positions) {
-            if (!game.getTabletop().isPickable(position.y(), position.x())) {
+            if (!tabletop.isPickable(position.y(), position.x())) {
                 throw new InvalidMoveException("One of the selected cards is not pickable");
             }
         }
@@ -234,12 +284,21 @@ public class GameController {
                 throw new InvalidMoveException("Cards are not pickable (not colinear)");
             }
         }
+    }
 
-        ArrayList<Card> cards = new ArrayList<>();
-        for (Point position : positions) {
-            cards.add(game.getTabletop().pickCard(position.y(), position.x()));
+    /**
+     * Send a snapshot of the game to a client, in place of the updates dropped from its backlog.
+     * The turn lock is held, so that the updates sent after the snapshot are exactly the ones that follow it.
+     * @param client The client of a player of the game
+     * @throws ClientNotIdentifiedException if the client has not logged in
+     */
+    public void sendSnapshot(ClientInterface client) throws ClientNotIdentifiedException {
+        turnLock.lock();
+        try {
+            client.sendEvent(ServerEvent.Snapshot(getGameInfo(getPlayer(client.getUsername()))));
+        } finally {
+            turnLock.unlock();
         }
-        player.getShelf().insert(column, cards);
     }
 
     /**
@@ -296,6 +355,7 @@ public class GameController {
      * The message is checked and sent to the specified client/s.
      * - `GameStop`: the host stops the game.
      * The game is stopped and the clients are notified.
+     * - `GameSnapshot`: the player asks for the whole state of the game, after missing an update.
      *
      * @param call A `Call` object containing the event requested by the client
      * @param client The client object
@@ -310,7 +370,8 @@ public class GameController {
                     if(!(call.params() instanceof CardSelect)) {
                         throw new WrongParametersException("CardSelect", call.params().getClass().getName(), "CardSelect");
                     }
-                    synchronized (disconnectionChecker) {
+                    turnLock.lock();
+                    try {
                         CardSelect cardSelect = (CardSelect)call.params();
                         String username = client.getUsername();
                         Player player = game.getPlayers().stream().filter(p -> p.getName().equals(username)).findFirst().orElseThrow();
@@ -320,10 +381,12 @@ public class GameController {
                             throw new GamePausedException();
                         }
                         doMove(player, cardSelect.selectedCards(), cardSelect.column());
-                        if (completePlayerTurn(player)) {
+                        if (completePlayerTurn(player, cardSelect.selectedCards(), cardSelect.column())) {
                             disconnectionChecker.interrupt();
                         }
                         result = Result.empty(call.id());
+                    } finally {
+                        turnLock.unlock();
                     }
                 }
                 case GameChatSend -> {
@@ -349,8 +412,17 @@ public class GameController {
 
                     result = Result.empty(call.id());
                 }
+                case GameSnapshot -> {
+                    turnLock.lock();
+                    try {
+                        result = Result.ok(getGameInfo(getPlayer(client.getUsername())), call.id());
+                    } finally {
+                        turnLock.unlock();
+                    }
+                }
                 case ExitGame -> {
-                    synchronized (disconnectionChecker) {
+                    turnLock.lock();
+                    try {
                         if (!lobby.isHost(client.getUsername())) {
                             throw new NotHostException();
                         }
@@ -359,6 +431,8 @@ public class GameController {
                         exitGame(false);
                         disconnectionChecker.interrupt();
                         result = Result.empty(call.id());
+                    } finally {
+                        turnLock.unlock();
                     }
                 }
                 default -> throw new WrongThreadException();
@@ -371,28 +445,19 @@ public class GameController {
 
     /**
      * Method to handle the end of the game.
-     * If endGame is true, end the game, send the final ranking to the clients and cancel the game from disk
+     * If endGame is true, end the game, send the final ranking to the clients, archive the game and cancel its save from disk
      * @param endGame If set to true, completely end the game, otherwise just make the players exit the game, but keep the save
      * @author Ludovico, Lorenzo, Marco
      */
     public void exitGame(boolean endGame) {
-        ArrayList<Cockade> completedObjectives = new ArrayList<>();
-        ArrayList<Integer> newCommonObjectivesScores = new ArrayList<>();
-        addCommonCockade(currentPlayer, completedObjectives, newCommonObjectivesScores);
-        addFirstToFinish(currentPlayer);
+        game.addTurnCockades(currentPlayer, new ArrayList<>(), new ArrayList<>());
 
         LobbyController lobbyController = LobbyController.getInstance();
         for(Player player : game.getPlayers()) {
             if (endGame) {
                 addPersonalCockade(player);
             }
-            Optional<ClientInterface> client = clientManager.getClient(player.getName());
-            client.get().setCallHandler(lobbyController::handleLobbySearch);
-            if (client.get().getStatus() != ClientStatus.Disconnected) {
-                client.get().setStatus(ClientStatus.InLobbySearch);
-            } else {
-                client.get().setLastValidStatus(ClientStatus.InLobbySearch);
-            }
+            returnToLobbySearch(player);
         }
 
         if (endGame) {
@@ -405,13 +470,62 @@ public class GameController {
                     logger.warning("Client disconnected while exiting game, they won't receive the final ranking");
                 }
             }
+            archiveGame(scoreBoard);
             deleteSave();
             lobbyController.endGame(this);
         } else {
+            saveGame();
             lobbyController.exitGame(this);
         }
     }
 
+    /**
+     * Save the game and release it, keeping only what is needed to resume it
+     * when one of the players comes back. Used when everyone has left the game.
+     * The game stays running if a player has logged in meanwhile.
+     * @return true if the game has been hibernated
+     */
+    private boolean hibernate() {
+        return LobbyController.getInstance().hibernateGame(this, () -> {
+            for (Player player : game.getPlayers()) {
+                Optional<ClientInterface> client = clientManager.getClient(player.getName());
+                if (client.isPresent() && !client.get().isDisconnected()) {
+                    return false;
+                }
+            }
+            for (Player player : game.getPlayers()) {
+                returnToLobbySearch(player);
+            }
+            saveGame();
+            return true;
+        });
+    }
+
+    /**
+     * Move the client of a player back to the lobby search, or make it go there when it reconnects.
+     * @param player The player leaving the game
+     */
+    private void returnToLobbySearch(Player player) {
+        Optional<ClientInterface> client = clientManager.getClient(player.getName());
+        if (client.isEmpty()) {
+            return;
+        }
+        client.get().setCallHandler(LobbyController.getInstance()::handleLobbySearch);
+        if (client.get().getStatus() != ClientStatus.Disconnected) {
+            client.get().setStatus(ClientStatus.InLobbySearch);
+        } else {
+            client.get().setLastValidStatus(ClientStatus.InLobbySearch);
+        }
+    }
+
+    /**
+     * Getter for the lobby of the game
+     * @return The lobby of the game
+     */
+    public Lobby getLobby() {
+        return lobby;
+    }
+
     /**
      * Getter for the players `ArrayList`
      * @return The players of the game
@@ -446,33 +560,40 @@ public class GameController {
      * It checks for common objectives, first to finish, tabletop refill and game end.
      * If the game is over, call the `exitGame` method with `true` as parameter, if only one player
      * is connected, set pause to true, otherwise update all the client with the new game state.
+     * The turn is appended to the journal of the game.
      * @param player The player that just finished the turn
+     * @param positions The positions of the picked cards, empty if the turn was skipped
+     * @param column The column where the cards have been placed
      * @return true if the game is over, false otherwise
      * @author Marco, Lorenzo
      */
-    private boolean completePlayerTurn(Player player) {
+    private boolean completePlayerTurn(Player player, List<Point> positions, int column) {
         ArrayList<Cockade> completedObjectives = new ArrayList<>();
         ArrayList<Integer> newCommonObjectivesScores = new ArrayList<>();
-        addCommonCockade(player, completedObjectives, newCommonObjectivesScores);
-        addFirstToFinish(player);
-        refillTable();
+        ArrayList<Card> inserted = insertedCards(player, positions.size(), column);
+        Card[][] refill = game.endTurn(player, completedObjectives, newCommonObjectivesScores);
         Optional<Player> nextToPlay = nextNotDisconnected();
-        saveGame();
+        journalTurn(player, positions, column);
+        // Counts the turns not sent too, so that the clients notice them and ask for a snapshot
+        stateVersion++;
         if (nextToPlay.isEmpty()) {  // Game is over
             exitGame(true);
             return true;
         } else if (nextToPlay.get().equals(currentPlayer)) {  // Sole survivor or all disconnected, waiting for the checker thread to do stuffs
             isPaused = true;  // Prevent cheating for sole survivor
         } else {
-            Update update = new Update(
+            UpdateDelta update = new UpdateDelta(
+                stateVersion,
                 player.getName(),
-                game.getTabletop().getSerializable(),
-                player.getShelf().getSerializable(),
+                new ArrayList<>(positions),
+                column,
+                inserted,
+                refill,
                 nextToPlay.get().getName(),
                 completedObjectives,
                 newCommonObjectivesScores
             );
-            ServerEvent event = ServerEvent.Update(update);
+            ServerEvent event = ServerEvent.UpdateDelta(update);
             globalUpdate(event);
             currentPlayer = nextToPlay.get();
         }
@@ -498,30 +619,80 @@ public class GameController {
             commonObjectives,
             commonObjectivesPoints,
             player.getPersonalObjective().getName(),
-            currentPlayer.getName()
+            currentPlayer.getName(),
+            stateVersion
         );
     }
 
     /**
-     * Call the `Game`'s method to save to file the current state.
+     * Get the cards just inserted in a column of the shelf of a player.
+     * @param player The player that made the move
+     * @param count The number of cards inserted
+     * @param column The column where the cards have been placed
+     * @return The cards, in order from the bottom
+     */
+    private ArrayList<Card> insertedCards(Player player, int count, int column) {
+        ArrayList<Card> cards = new ArrayList<>(count);
+        int highest = player.getShelf().getHighest(column);
+        for (int y = highest - count; y < highest; y++) {
+            try {
+                cards.add(player.getShelf().getCard(y, column).orElseThrow());
+            } catch (InvalidMoveException e) {
+                throw new RuntimeException("Broken shelf after the move");
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Save to file the current state, starting a new journal.
+     * The save is written in background by the `SaveService`.
      * @author Marco
      */
     private void saveGame() {
+        saveService.checkpoint(saveFile, game.getSaveState());
+        journaledTurns = 0;
+    }
+
+    /**
+     * Append a turn to the journal, or save the whole game every `CHECKPOINT_INTERVAL` turns and after a failed write.
+     * @param player The player that played the turn
+     * @param positions The positions of the picked cards, empty if the turn was skipped
+     * @param column The column where the cards have been placed
+     */
+    private void journalTurn(Player player, List<Point> positions, int column) {
+        byte[] record = GameJournal.record(game, player, positions, column);
+        history.add(record);
+        if (saveService.needsCheckpoint(saveFile)) {
+            logger.warning("Failed to write the save of the game, saving it again");
+            saveGame();
+        } else if (++journaledTurns >= CHECKPOINT_INTERVAL) {
+            saveGame();
+        } else {
+            saveService.append(saveFile, record);
+        }
+    }
+
+    /**
+     * Add the completed game to the archive, with all the turns played since this controller started it.
+     * @param scoreBoard The final scoreboard
+     */
+    private void archiveGame(ScoreBoard scoreBoard) {
+        ArrayList<Score> scores = new ArrayList<>();
+        scoreBoard.forEach(scores::add);
         try {
-            game.saveGame(saveFile);
-        } catch (IOException e) {
-            logger.warning("Failed to save game");
+            GameArchive.getInstance().append(new ArchivedGame(game.getSeed(), System.currentTimeMillis(), sessionStart, history, scores));
+        } catch (Exception e) {
+            logger.warning("Failed to archive game: " + e.getMessage());
         }
     }
 
     /**
-     * Delete the save for this game.
+     * Delete the save for this game, together with its journal.
      * @author Marco
      */
     private void deleteSave() {
-        if (!saveFile.delete()) {
-            logger.warning("Failed to delete save file (" + saveFile + ")");
-        }
+        saveService.delete(saveFile);
     }
 
     /**
@@ -535,7 +706,8 @@ public class GameController {
      * If only one player is connected, the game is paused.
      * If only one player remains in the game for more than `SOLE_SURVIVOR_TIMER checks,
      * it is decreed as the winner and the game is terminated.
-     * If no one is connected anymore, the game is ended keeping the save file.
+     * If no one is connected anymore for `HIBERNATE_AFTER` checks, the game is saved and hibernated,
+     * it will be resumed when one of the players logs in again.
      * @throws RuntimeException If the game state is broken and an illegal action happens
      * @author Marco
      */
@@ -547,7 +719,8 @@ public class GameController {
             } catch (InterruptedException e) {
                 return;
             }
-            synchronized (disconnectionChecker) {
+            turnLock.lock();
+            try {
                 int activePlayers = 0; 
                 boolean currentPlayerActive = false;
                 ArrayList<Player> players = game.getPlayers();
@@ -591,13 +764,20 @@ public class GameController {
                 if (isPaused) pauseCounter++;
 
                 if (activePlayers == 0) {
-                    logger.info("All players disconnected, closing game");
-                    exitGame(false);
-                    return;
+                    // Wait a bit for the players to come back before parking the game
+                    if (abandonedCounter++ >= HIBERNATE_AFTER) {
+                        if (hibernate()) {
+                            logger.info("All players disconnected, game hibernated");
+                            return;
+                        }
+                        abandonedCounter = 0;
+                    }
+                    continue;
                 }
+                abandonedCounter = 0;
                 if (!currentPlayerActive) {
                     logger.info("Current player disconnected, skipping turn");
-                    if (completePlayerTurn(currentPlayer)) {
+                    if (completePlayerTurn(currentPlayer, List.of(), 0)) {
                         return;
                     }
                 }
@@ -621,6 +801,8 @@ public class GameController {
                     globalUpdate(event);
                 }
                 wasPaused = isPaused;
+            } finally {
+                turnLock.unlock();
             }
         }
     }
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -27,12 +28,21 @@ public class LobbyController extends Thread {
     private static LobbyController instance = null;
     private HashMap<String, Lobby> lobbies = new HashMap<>();
     private ArrayList<GameController> games = new ArrayList<>();
+    // Games that everyone left, by player name, kept out of memory until someone comes back
+    private HashMap<String, HibernatedGame> hibernatedGames = new HashMap<>();
     private DataBase db = DataBase.getInstance();
     private final ClientManagerInterface clientManager;
 
-    private static final String SAVESTATES_DIRECTORY = "save-states";
+    public static final String SAVESTATES_DIRECTORY = "save-states";
     private static final String SAVESTATES_PREFIX = "save_";
 
+    /**
+     * What is left in memory of a hibernated game, the rest is in its save
+     * @param players the names of the players
+     * @param lobby the lobby of the game
+     */
+    private record HibernatedGame(HashSet<String> players, Lobby lobby) {}
+
     /**
      * Initializes the `clientManager` variable by calling the `getInstance()` method of the `GlobalClientManager` class.
      * If an exception is caught during this process, it throws a `RuntimeException` with the message "Cannot get client manager instance".
@@ -354,12 +364,8 @@ public class LobbyController extends Thread {
             if (!db.containsKey(dbKey)) {
                 File saveFile = File.createTempFile(SAVESTATES_PREFIX, ".srl", new File(SAVESTATES_DIRECTORY));
                 db.put(dbKey, saveFile);
-                try {
-                    db.write();
-                } catch (Exception e) {
-                    Logger.getLogger(LobbyController.class.getName()).warning("Cannot save db " + e.getMessage());
-                }
             }
+            forgetHibernated(dbKey);
             GameController game = new GameController(lobby);
             games.add(game);
             lobbies.remove(lobby.getName());
@@ -377,6 +383,7 @@ public class LobbyController extends Thread {
         synchronized (lobby) {
             HashSet<String> dbKey = new HashSet<>(lobby.getPlayers());
             File saveFile = db.get(dbKey);
+            forgetHibernated(dbKey);
             GameController game = new GameController(saveFile, lobby);
             games.add(game);
             lobbies.remove(lobby.getName());
@@ -393,14 +400,80 @@ public class LobbyController extends Thread {
         synchronized (games){
             games.remove(game);
             db.remove(game.getGame().getPlayers().stream().map(Player::getName).collect(Collectors.toCollection(HashSet::new)));
-            try {
-                db.write();
-            } catch (Exception e) {
-                Logger.getLogger(LobbyController.class.getName()).warning("Cannot save db " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hibernates the specified game, that is removed from memory until one of its players comes back.
+     * The game is parked while holding the list of the games, so that a player logging in meanwhile
+     * finds either the running game, that is then not parked, or the hibernated one.
+     *
+     * @param game the GameController object representing the game to hibernate
+     * @param park saves the game and returns true, or returns false if a player is connected and the game must keep running
+     * @return true if the game has been hibernated
+     */
+    public boolean hibernateGame(GameController game, BooleanSupplier park) {
+        HashSet<String> players = game.getGame().getPlayers().stream().map(Player::getName).collect(Collectors.toCollection(HashSet::new));
+        HibernatedGame hibernated = new HibernatedGame(players, game.getLobby());
+        synchronized (games) {
+            if (!park.getAsBoolean()) {
+                return false;
+            }
+            games.remove(game);
+            for (String player : players) {
+                hibernatedGames.put(player, hibernated);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hibernates a saved game that is not running, so that it is resumed as soon as one of its players logs in.
+     * Used at startup for the most recently played games.
+     *
+     * @param players the names of the players of the game, that must have a save in the database
+     * @throws PlayerNotInLobbyException never, the lobby is created with the first player
+     */
+    public void hibernateSavedGame(HashSet<String> players) throws PlayerNotInLobbyException {
+        String host = players.stream().sorted().findFirst().orElseThrow();
+        // The players join the lobby when they come back
+        Lobby lobby = new Lobby(host, host);
+        lobby.removePlayer(host);
+        HibernatedGame hibernated = new HibernatedGame(players, lobby);
+        synchronized (games) {
+            for (String player : players) {
+                hibernatedGames.putIfAbsent(player, hibernated);
+            }
+        }
+    }
+
+    /**
+     * Forget the hibernated game of the specified players, if any, because it has been loaded or replaced.
+     *
+     * @param players the names of the players of the game
+     */
+    private void forgetHibernated(HashSet<String> players) {
+        synchronized (games) {
+            for (String player : players) {
+                HibernatedGame hibernated = hibernatedGames.get(player);
+                if (hibernated != null && hibernated.players().equals(players)) {
+                    hibernatedGames.remove(player);
+                }
             }
         }
     }
 
+    /**
+     * Returns the number of hibernated games.
+     *
+     * @return the number of hibernated games
+     */
+    public int getHibernatedGamesCount() {
+        synchronized (games) {
+            return (int)hibernatedGames.values().stream().distinct().count();
+        }
+    }
+
     /**
      * Exits the specified game.
      *
@@ -415,18 +488,62 @@ public class LobbyController extends Thread {
 
     /**
      * Searches for a game containing the specified player.
+     * If the player belongs to a hibernated game, the game is resumed.
      *
      * @param username the username of the player to search for
      * @return an Optional object containing the GameController object representing the game, if found, or an empty Optional object otherwise
      * @author Marco
      */
     public Optional<GameController> searchGame(String username) {
+        HibernatedGame hibernated;
         synchronized (games) {
-            for (GameController game : games) {
-                if (game.getPlayers().stream().filter(p -> p.getName().equals(username)).findAny().isPresent()) {
-                    return Optional.of(game);
+            Optional<GameController> running = searchRunningGame(username);
+            if (running.isPresent()) {
+                return running;
+            }
+            hibernated = hibernatedGames.get(username);
+            if (hibernated == null) {
+                return Optional.empty();
+            }
+        }
+
+        // Load the game outside the lock of the games, it reads the save from the disk; the other players of the game
+        // logging in meanwhile wait for it, and the game stays hibernated if it cannot be loaded
+        synchronized (hibernated) {
+            synchronized (games) {
+                Optional<GameController> running = searchRunningGame(username);
+                if (running.isPresent() || hibernatedGames.get(username) != hibernated) {
+                    return running;
                 }
             }
+            try {
+                GameController game = GameController.rehydrate(db.get(hibernated.players()), hibernated.lobby());
+                synchronized (games) {
+                    games.add(game);
+                    for (String player : hibernated.players()) {
+                        hibernatedGames.remove(player, hibernated);
+                    }
+                }
+                Logger.getLogger(LobbyController.class.getName()).info("Resumed hibernated game of " + username);
+                return Optional.of(game);
+            } catch (Exception e) {
+                Logger.getLogger(LobbyController.class.getName()).warning("Cannot resume hibernated game of " + username + ": " + e.getMessage());
+                return Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Searches for a running game containing the specified player, the games must be locked.
+     *
+     * @param username the username of the player to search for
+     * @return the game of the player, if it is running
+     */
+    private Optional<GameController> searchRunningGame(String username) {
+        for (GameController game : games) {
+            if (game.getPlayers().stream().anyMatch(p -> p.getName().equals(username))) {
+                return Optional.of(game);
+            }
         }
         return Optional.empty();
     }
@@ -1,9 +1,14 @@
 package it.polimi.ingsw;
 
+import analytics.ArchiveAnalyzer;
+import controller.DataBase;
+import controller.SaveScanner;
 import controller.lobby.LobbyController;
 import network.ClientManagerInterface;
 import network.GlobalClientManager;
 
+import java.io.File;
+import java.util.HashSet;
 import java.util.Scanner;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -17,13 +22,37 @@ public class Server {
 	static public void main(String[] args) throws Exception {
 		Logger root = Logger.getLogger("");
 		root.setLevel(Level.OFF);
+		if (args.length > 0 && args[0].equals("--stats")) {
+			printStats(new File(args.length > 1 ? args[1] : System.getProperty("myshelfie.archive.dir", "archive")));
+			return;
+		}
 		System.setProperty("java.rmi.server.hostname", getIp());
+		SaveScanner.Report report = SaveScanner.scan(new File(LobbyController.SAVESTATES_DIRECTORY), DataBase.getInstance());
+		System.out.printf(
+			"Checked %d saves in %d ms: %d valid, %d corrupted, %d missing, %d unchecked, %d files deleted%n",
+			report.saves(), report.elapsedMillis(), report.valid(), report.corrupted(), report.missing(), report.unchecked(), report.deleted()
+		);
 		ClientManagerInterface clientManager = GlobalClientManager.getInstance();
 		LobbyController lobbyController = LobbyController.getInstance();
+		for (HashSet<String> players : report.recent()) {
+			lobbyController.hibernateSavedGame(players);
+		}
 		clientManager.waitAndClose();
 	}
 
 
+	/**
+	 * Print the statistics of the archived games, without starting the server
+	 * @param directory the directory of the archive
+	 * @throws Exception if the archive cannot be read
+	 */
+	static private void printStats(File directory) throws Exception {
+		System.out.println("Analyzing the games archived in " + directory);
+		ArchiveAnalyzer analyzer = new ArchiveAnalyzer();
+		System.out.print(analyzer.analyze(directory).report());
+		analyzer.shutdown();
+	}
+
 	static private String getIp(){
 		String ip;
 		Scanner scanner = new Scanner(System.in);
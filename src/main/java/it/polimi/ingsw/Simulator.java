@@ -0,0 +1,53 @@
+package it.polimi.ingsw;
+
+import simulator.GreedyPolicy;
+import simulator.Policy;
+import simulator.RandomPolicy;
+import simulator.SimulationEngine;
+import simulator.SimulationStats;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless simulator, plays games offline without any network.
+ * Usage: {@code Simulator [games] [players] [seed] [random|greedy]...},
+ * with one policy for every player (the last one is repeated if missing).
+ */
+public class Simulator {
+
+	public static void main(String[] args) {
+		Logger root = Logger.getLogger("");
+		root.setLevel(Level.OFF);
+
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int nPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		if (nPlayers < 2 || nPlayers > 4) {
+			System.err.println("The number of players must be between 2 and 4");
+			System.exit(1);
+		}
+
+		Policy[] policies = new Policy[nPlayers];
+		String policy = "random";
+		for (int i = 0; i < nPlayers; i++) {
+			if (args.length > 3 + i) {
+				policy = args[3 + i];
+			}
+			switch (policy) {
+				case "random" -> policies[i] = new RandomPolicy();
+				case "greedy" -> policies[i] = new GreedyPolicy();
+				default -> {
+					System.err.println("Unknown policy: " + policy);
+					System.exit(1);
+				}
+			}
+		}
+
+		System.out.format("Simulating %d games of %d players with seed %d%n", games, nPlayers, seed);
+		SimulationEngine engine = new SimulationEngine();
+		SimulationStats stats = engine.run(policies, games, seed);
+		engine.shutdown();
+		System.out.print(stats.report());
+	}
+}
@@ -0,0 +1,48 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A completed game, as stored in the `GameArchive`
+ * @param seed the seed of the game
+ * @param endTime the time the game ended, in milliseconds since the epoch
+ * @param start the state of the game when the recorded turns started, encoded by `SaveStateCodec`
+ * @param turns the turns played since `start`, as `GameJournal` records
+ * @param scores the final scores, from the winner
+ */
+public record ArchivedGame(long seed, long endTime, byte[] start, List<byte[]> turns, List<Score> scores) {
+	/**
+	 * Rebuild the final state of the game, playing again all its turns
+	 * @return the game at its last turn
+	 * @throws IOException if the stored game is not valid
+	 */
+	public Game replay() throws IOException {
+		return replay((game, turn) -> {});
+	}
+
+	/**
+	 * Rebuild the final state of the game, observing it after every turn
+	 * @param afterTurn called with the game and the number of turns played so far, after every turn
+	 * @return the game at its last turn
+	 * @throws IOException if the stored game is not valid
+	 */
+	public Game replay(ObjIntConsumer<Game> afterTurn) throws IOException {
+		Game game = new Game(SaveStateCodec.decode(ByteBuffer.wrap(start)));
+		for (int i = 0; i < turns.size(); i++) {
+			GameJournal.replayRecords(game, ByteBuffer.wrap(turns.get(i)));
+			afterTurn.accept(game, i + 1);
+		}
+		return game;
+	}
+
+	/**
+	 * Get the name of the winner
+	 * @return the name of the winner
+	 */
+	public String winner() {
+		return scores.get(0).username();
+	}
+}
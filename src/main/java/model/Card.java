@@ -5,8 +5,13 @@ import java.io.Serializable;
 /**
  * Immutable class to hold information about a card.
  * It contains the type of the card and the index of its image.
+ * There are only a few distinct cards, so they are shared: get them with `Card.of`,
+ * deserialization resolves them to the shared instances too.
  */
 public class Card implements Serializable {
+	// Pinned to the value computed before `readResolve`, to keep loading the old saves
+	private static final long serialVersionUID = 5222299477227607683L;
+
 	public enum Type {
 		Cat,
 		Book,
@@ -19,6 +24,41 @@ public class Card implements Serializable {
 	private final int imageIndex;
 	private final Type type;
 
+	// Image indexes with a shared instance: -1 (no image), 0 and [1, `CardsDeck.IMAGES_PER_TYPE`]
+	private static final int MIN_IMAGE = -1;
+	private static final int MAX_IMAGE = CardsDeck.IMAGES_PER_TYPE;
+	private static final Card[][] CARDS = new Card[Type.values().length][MAX_IMAGE - MIN_IMAGE + 1];
+	static {
+		for (Type type : Type.values()) {
+			for (int image = MIN_IMAGE; image <= MAX_IMAGE; image++) {
+				CARDS[type.ordinal()][image - MIN_IMAGE] = new Card(type, image);
+			}
+		}
+	}
+
+	/**
+	 * Get the shared card with the given type and image index.
+	 * @param type The type of the card
+	 * @param imageIndex The cards' image index
+	 * @return the shared card, or a new one if the image index is unknown
+	 */
+	public static Card of(Type type, int imageIndex) {
+		if (imageIndex < MIN_IMAGE || imageIndex > MAX_IMAGE) {
+			return new Card(type, imageIndex);
+		}
+		return CARDS[type.ordinal()][imageIndex - MIN_IMAGE];
+	}
+
+	/**
+	 * Get the shared card with the given type and no image.
+	 * This should be used only where the image is not used, so in testing and in the CLI.
+	 * @param type The type of the card
+	 * @return the shared card
+	 */
+	public static Card of(Type type) {
+		return of(type, -1);
+	}
+
 	/**
 	 * Constructor for a card given the type and the image index.
 	 * @param type The type of the card
@@ -54,6 +94,39 @@ public class Card implements Serializable {
 		return false;
 	}
 
+	/**
+	 * Get the compact code of the card, used by the binary saves.
+	 * @return the code of the card
+	 * @throws IllegalArgumentException if the image index has no shared instance
+	 */
+	public byte getCode() {
+		if (imageIndex < MIN_IMAGE || imageIndex > MAX_IMAGE) {
+			throw new IllegalArgumentException("Invalid image index");
+		}
+		return (byte)(type.ordinal() * (MAX_IMAGE - MIN_IMAGE + 1) + imageIndex - MIN_IMAGE);
+	}
+
+	/**
+	 * Get the shared card from its compact code.
+	 * @param code the code of the card, as returned by `getCode`
+	 * @return the shared card
+	 * @throws IllegalArgumentException if the code is not valid
+	 */
+	public static Card fromCode(byte code) {
+		if (code < 0 || code >= CARDS.length * CARDS[0].length) {
+			throw new IllegalArgumentException("Invalid card code");
+		}
+		return CARDS[code / CARDS[0].length][code % CARDS[0].length];
+	}
+
+	/**
+	 * Replace the deserialized card with the shared instance.
+	 * @return the shared card with the same type and image
+	 */
+	private Object readResolve() {
+		return of(type, imageIndex);
+	}
+
 	/**
 	 * Getter for the `imageIndex` field.
 	 * @return The cards' image index
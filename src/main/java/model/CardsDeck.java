@@ -1,34 +1,132 @@
 package model;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 /**
  * Class to handle the game's deck of cards.
  * The deck gets filled when the object is constructed,
  * to draw a card, call `draw()`, if the deck is not empty, it
  * will return an optional containing the drawn card.
+ * The cards are kept as a `byte` array of codes (type and image), the top of
+ * the deck being the last one still in the deck.
  */
 public class CardsDeck implements Serializable {
-    private final Stack<Card> cards;
+    // Pinned to the value of the old `Stack` based deck, that is still readable by `readObject`
+    private static final long serialVersionUID = 2143922468287155148L;
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("codes", byte[].class),
+        new ObjectStreamField("size", int.class),
+        new ObjectStreamField("cards", Stack.class)
+    };
+
     public static final int CARDS_PER_TYPE = 22;
     public static final int IMAGES_PER_TYPE = 3;
     public static final int TOTAL_CARDS = CARDS_PER_TYPE * Card.Type.values().length;
+    private static final Card.Type[] TYPES = Card.Type.values();
+
+    private byte[] codes;
+    private int size;
 
     /**
-     * Constructor that creates a new deck of cards by initializing a stack of cards
+     * Constructor that creates a new deck of cards by initializing an array of cards
      * with all card values except for empty, and adding 22 instances of each card value
-     * to the stack. The stack is then shuffled.
+     * to the array. The array is then shuffled.
      * @author Lorenzo, Ludovico, Marco, Riccardo
      */
     public CardsDeck() {
-        cards = new Stack<>();
-        for (Card.Type c : Card.Type.values()) {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Constructor that creates a new deck of cards, shuffled with the given random source.
+     * @param random the random source used to shuffle the deck
+     */
+    public CardsDeck(RandomGenerator random) {
+        codes = new byte[TOTAL_CARDS];
+        for (Card.Type c : TYPES) {
             for (int i = 0; i < CARDS_PER_TYPE; i++) {
-                cards.push(new Card(c, i % IMAGES_PER_TYPE + 1));
+                codes[size++] = encode(c, i % IMAGES_PER_TYPE + 1);
             }
         }
-        Collections.shuffle(cards);
+        shuffle(random);
+    }
+
+    /**
+     * Constructor that creates a deck from the codes of its cards, as returned by `getCodes`.
+     * @param codes the codes of the cards, the last one being the top of the deck
+     * @throws IllegalArgumentException if the codes are not valid
+     */
+    CardsDeck(byte[] codes) {
+        if (!isValid(codes, codes.length)) {
+            throw new IllegalArgumentException("Invalid deck");
+        }
+        this.codes = codes.clone();
+        this.size = codes.length;
+    }
+
+    /**
+     * Check that the first `size` codes are a valid deck
+     * @param codes the codes of the cards
+     * @param size the number of cards
+     * @return true if the deck is valid
+     */
+    private static boolean isValid(byte[] codes, int size) {
+        if (codes == null || size < 0 || size > codes.length || size > TOTAL_CARDS) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (codes[i] < 0 || codes[i] >= TYPES.length * IMAGES_PER_TYPE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the codes of the cards still in the deck, used by the binary saves.
+     * @return a copy of the codes, the last one being the top of the deck
+     */
+    byte[] getCodes() {
+        return Arrays.copyOf(codes, size);
+    }
+
+    /**
+     * Shuffle the cards still in the deck in place (Fisher-Yates)
+     * @param random the random source used to shuffle the deck
+     */
+    private void shuffle(RandomGenerator random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte tmp = codes[i];
+            codes[i] = codes[j];
+            codes[j] = tmp;
+        }
+    }
+
+    /**
+     * Get the code of a card
+     * @param type the type of the card
+     * @param imageIndex the image of the card, in [1, `IMAGES_PER_TYPE`]
+     * @return the code of the card
+     */
+    private static byte encode(Card.Type type, int imageIndex) {
+        return (byte)(type.ordinal() * IMAGES_PER_TYPE + imageIndex - 1);
+    }
+
+    /**
+     * Get the card from its code
+     * @param code the code of the card
+     * @return the card
+     */
+    private static Card decode(byte code) {
+        return Card.of(TYPES[code / IMAGES_PER_TYPE], code % IMAGES_PER_TYPE + 1);
     }
 
     /**
@@ -41,13 +139,19 @@ public class CardsDeck implements Serializable {
      * or empty Optional object if the deck is empty.
      */
     public Optional<Card> draw() {
-        Optional<Card> to_draw;
-        if (cards.empty()) {
-            to_draw = Optional.empty();
-        } else {
-            to_draw = Optional.of(cards.pop());
+        return Optional.ofNullable(drawCard());
+    }
+
+    /**
+     * Method that draws a card from the top of the deck, without wrapping it in an `Optional`.
+     *
+     * @return the drawn card, or null if the deck is empty
+     */
+    public Card drawCard() {
+        if (size == 0) {
+            return null;
         }
-        return to_draw;
+        return decode(codes[--size]);
     }
 
     /**
@@ -57,6 +161,55 @@ public class CardsDeck implements Serializable {
      * @return The size of the deck (number of cards)
      */
     public int size() {
-        return cards.size();
+        return size;
+    }
+
+    /**
+     * Check if the deck is empty
+     * @return true if there are no cards left
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Write only the cards still in the deck
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("codes", getCodes());
+        fields.put("size", size);
+        out.writeFields();
+    }
+
+    /**
+     * Read a deck, either in the current format or in the old one (a `Stack` of cards)
+     * @param in the stream to read from
+     * @throws IOException if an I/O error occurs or the deck is invalid
+     * @throws ClassNotFoundException if the class of a serialized object cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Stack<Card> legacy = (Stack<Card>)fields.get("cards", null);
+        if (legacy != null) {
+            codes = new byte[legacy.size()];
+            size = 0;
+            for (Card card : legacy) {
+                // A card out of range would be encoded as another valid card
+                if (card == null || card.getType() == null || card.getImageIndex() < 1 || card.getImageIndex() > IMAGES_PER_TYPE) {
+                    throw new InvalidObjectException("Invalid deck");
+                }
+                codes[size++] = encode(card.getType(), card.getImageIndex());
+            }
+        } else {
+            codes = (byte[])fields.get("codes", null);
+            size = fields.get("size", 0);
+        }
+        if (!isValid(codes, size)) {
+            throw new InvalidObjectException("Invalid deck");
+        }
     }
 }
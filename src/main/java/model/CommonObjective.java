@@ -2,6 +2,8 @@ package model;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
+import java.util.random.RandomGenerator;
 import java.util.stream.Collectors;
 
 
@@ -18,6 +20,17 @@ public class CommonObjective extends Objective {
 	private final int pointDecrement;
 	private final HashSet<String> completedBy;
 	private final Function<Shelf, Boolean> checkCompleted;
+	private final LongUnaryOperator relevantCells;
+	// Last failed check for every player, used to skip the checks that cannot have a different result
+	private final HashMap<String, FailedCheck> failedChecks = new HashMap<>();
+
+	/**
+	 * State of a shelf that did not complete the objective
+	 * @param shelf the checked shelf
+	 * @param cells the relevant cells of the shelf when it was checked
+	 * @param overwrites the number of overwritten cards of the shelf when it was checked
+	 */
+	private record FailedCheck(Shelf shelf, long cells, int overwrites) {}
 
 	private static final int INITIAL_VALUE = 8;
 	private static final int POINT_DECREMENT = 2;
@@ -35,10 +48,27 @@ public class CommonObjective extends Objective {
 	 * @author Marco, Lorenzo, Ludovico, Riccardo
 	 */
 	public CommonObjective(String name, int nPlayers, Function<Shelf, Boolean> checkCompleted) {
+		this(name, nPlayers, checkCompleted, LongUnaryOperator.identity());
+	}
+
+	/**
+	 * Constructor that creates a new common objective with a specified name,
+	 * value, and point decrement based on the number of players.
+	 * The objective also includes a function for checking if it has been completed,
+	 * and a function that, given the occupied cells of a shelf, returns the ones on which the check depends:
+	 * if they don't change between two checks, the result cannot change either.
+	 *
+	 * @param name           The name of the objective
+	 * @param nPlayers       The number of players in the game
+	 * @param checkCompleted A function for checking if the objective has been completed
+	 * @param relevantCells  A function that selects the relevant cells from the occupied ones
+	 */
+	public CommonObjective(String name, int nPlayers, Function<Shelf, Boolean> checkCompleted, LongUnaryOperator relevantCells) {
 		super(name);
 		value = INITIAL_VALUE;
 		pointDecrement = nPlayers == 2 ? POINT_DECREMENT_2_PLAYERS : POINT_DECREMENT;
 		this.checkCompleted = checkCompleted;
+		this.relevantCells = relevantCells;
 		completedBy = new HashSet<>();
 	}
 
@@ -57,6 +87,7 @@ public class CommonObjective extends Objective {
 		for (CommonObjective obj : generateAllCommonObjectives(nPlayers)) {
 			if (obj.getName().equals(this.name)) {
 				this.checkCompleted = obj.checkCompleted;
+				this.relevantCells = obj.relevantCells;
 				return;
 			}
 		}
@@ -68,7 +99,7 @@ public class CommonObjective extends Objective {
 	 * @return a serializable representation of the object
 	 */
 	public SaveCommonObjective getSavable() {
-		return new SaveCommonObjective(name, value, completedBy);
+		return new SaveCommonObjective(name, value, new HashSet<>(completedBy));
 	}
 
 	/**
@@ -82,16 +113,16 @@ public class CommonObjective extends Objective {
 		ArrayList<CommonObjective> allObjectives = new ArrayList<>();
 
 		allObjectives.add(new CommonObjective("2 square-shaped groups", nPlayers, CommonObjective::twoSquareGroups));
-		allObjectives.add(new CommonObjective("2 columns of 6 different cards", nPlayers, CommonObjective::twoColumnsOfSixDifferentCards));
+		allObjectives.add(new CommonObjective("2 columns of 6 different cards", nPlayers, CommonObjective::twoColumnsOfSixDifferentCards, CommonObjective::fullColumns));
 		allObjectives.add(new CommonObjective("4 groups of 4 cards", nPlayers, CommonObjective::fourGroupsOfFourCards));
 		allObjectives.add(new CommonObjective("6 groups of 2 cards", nPlayers, CommonObjective::sixGroupsOfTwoCards));
-		allObjectives.add(new CommonObjective("3 columns of at most 3 different cards", nPlayers, CommonObjective::threeColumnsOfAtMostThreeDifferentCards));
-		allObjectives.add(new CommonObjective("2 rows with 5 different cards", nPlayers, CommonObjective::twoRowsWithFiveDifferentCards));
-		allObjectives.add(new CommonObjective("4 rows of at most 3 different cards", nPlayers, CommonObjective::fourRowsOfAtMostThreeDifferentCards));
-		allObjectives.add(new CommonObjective("all equal corners", nPlayers, CommonObjective::equalCorners));
+		allObjectives.add(new CommonObjective("3 columns of at most 3 different cards", nPlayers, CommonObjective::threeColumnsOfAtMostThreeDifferentCards, CommonObjective::fullColumns));
+		allObjectives.add(new CommonObjective("2 rows with 5 different cards", nPlayers, CommonObjective::twoRowsWithFiveDifferentCards, CommonObjective::fullRows));
+		allObjectives.add(new CommonObjective("4 rows of at most 3 different cards", nPlayers, CommonObjective::fourRowsOfAtMostThreeDifferentCards, CommonObjective::fullRows));
+		allObjectives.add(new CommonObjective("all equal corners", nPlayers, CommonObjective::equalCorners, occupied -> occupied & CORNERS_MASK));
 		allObjectives.add(new CommonObjective("eight equal cards", nPlayers, CommonObjective::eightEquals));
 		allObjectives.add(new CommonObjective("X shapes group", nPlayers, CommonObjective::equalsX));
-		allObjectives.add(new CommonObjective("5 cards in diagonal", nPlayers, CommonObjective::fiveCardsInDiagonal));
+		allObjectives.add(new CommonObjective("5 cards in diagonal", nPlayers, CommonObjective::fiveCardsInDiagonal, occupied -> occupied & DIAGONALS_MASK));
 		allObjectives.add(new CommonObjective("stair-shaped cards", nPlayers, CommonObjective::stairsShape));
 
 		return allObjectives;
@@ -105,8 +136,20 @@ public class CommonObjective extends Objective {
 	 * @author Marco, Lorenzo, Ludovico, Riccardo
 	 */
 	public static ArrayList<CommonObjective> generateCommonObjectives(int nPlayers) {
+		return generateCommonObjectives(nPlayers, new SplittableRandom());
+	}
+
+	/**
+	 * Method that generates a list of common objectives based on the number of players,
+	 * using the given random source.
+	 *
+	 * @param nPlayers The number of players in the game
+	 * @param random The random source used to select the objectives
+	 * @return An array list of two randomly selected common objectives
+	 */
+	public static ArrayList<CommonObjective> generateCommonObjectives(int nPlayers, RandomGenerator random) {
 		ArrayList<CommonObjective> allObjectives = generateAllCommonObjectives(nPlayers);
-		Collections.shuffle(allObjectives);
+		Collections.shuffle(allObjectives, Random.from(random));
 		return allObjectives.stream().limit(N_COMMON_OBJECTIVES).collect(Collectors.toCollection(ArrayList::new));
 	}
 
@@ -122,14 +165,43 @@ public class CommonObjective extends Objective {
 	 */
 	public Optional<Cockade> isCompleted(Shelf shelf, String player) {
 		Optional<Cockade> cockade = Optional.empty();
-		if (!completedBy.contains(player) && checkCompleted.apply(shelf)) {
+		if (completedBy.contains(player)) {
+			return cockade;
+		}
+
+		long cells = relevantCells.applyAsLong(shelf.getOccupiedMask());
+		FailedCheck lastCheck = failedChecks.get(player);
+		if (
+			lastCheck != null &&
+			lastCheck.shelf() == shelf &&
+			lastCheck.cells() == cells &&
+			lastCheck.overwrites() == shelf.getOverwrites()
+		) {
+			// Cards are never removed, so the relevant cards are the same as in the last (failed) check
+			return cockade;
+		}
+
+		if (checkCompleted.apply(shelf)) {
 			cockade = Optional.of(new Cockade(name, value));
 			value -= pointDecrement;
 			completedBy.add(player);
+			failedChecks.remove(player);
+		} else {
+			failedChecks.put(player, new FailedCheck(shelf, cells, shelf.getOverwrites()));
 		}
 		return cockade;
 	}
 
+	/**
+	 * Evaluate the objective on a shelf, without using or updating the state of the objective.
+	 *
+	 * @param shelf The shelf to check
+	 * @return true if the shelf satisfies the objective
+	 */
+	public boolean check(Shelf shelf) {
+		return checkCompleted.apply(shelf);
+	}
+
 	/**
 	 * Getter for the value attribute
 	 *
@@ -141,11 +213,113 @@ public class CommonObjective extends Objective {
 	}
 
 	// Common objectives functions
+	// Every checker works on the shelf bitboards (see `Shelf`) with precomputed pattern masks,
+	// so no checker allocates anything on the heap.
+
+	private static final int N_TYPES = Card.Type.values().length;
+	private static final Card.Type[] TYPES = Card.Type.values();
+
+	private static final long[] COLUMN_MASKS = new long[Shelf.COLUMNS];
+	private static final long[] ROW_MASKS = new long[Shelf.ROWS];
+	static {
+		for (int x = 0; x < Shelf.COLUMNS; x++) {
+			COLUMN_MASKS[x] = Shelf.columnMask(x);
+		}
+		for (int y = 0; y < Shelf.ROWS; y++) {
+			ROW_MASKS[y] = Shelf.rowMask(y);
+		}
+	}
+
+	// Cells that can be the bottom-left corner of a 2x2 square
+	private static final long SQUARE_CORNERS = (Shelf.FULL_MASK & ~Shelf.LAST_COLUMN_MASK) & ~Shelf.rowMask(Shelf.ROWS - 1);
+	// Cells that can be the center of an X
+	private static final long X_CENTERS = (Shelf.FULL_MASK & ~Shelf.FIRST_COLUMN_MASK & ~Shelf.LAST_COLUMN_MASK) & ~Shelf.rowMask(0) & ~Shelf.rowMask(Shelf.ROWS - 1);
+	private static final long CORNERS_MASK =
+		1L << Shelf.bitIndex(0, 0) |
+		1L << Shelf.bitIndex(0, Shelf.COLUMNS - 1) |
+		1L << Shelf.bitIndex(Shelf.ROWS - 1, 0) |
+		1L << Shelf.bitIndex(Shelf.ROWS - 1, Shelf.COLUMNS - 1);
+
+	// Both diagonal directions for both possible offsets
+	private static final long[] DIAGONALS = new long[2 * (Shelf.ROWS - Shelf.COLUMNS + 1)];
+	private static final long DIAGONALS_MASK;
+	static {
+		int i = 0;
+		for (int offset = 0; offset <= Shelf.ROWS - Shelf.COLUMNS; offset++) {
+			long ascending = 0;
+			long descending = 0;
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				ascending |= 1L << Shelf.bitIndex(x + offset, x);
+				descending |= 1L << Shelf.bitIndex(x + offset, Shelf.COLUMNS - x - 1);
+			}
+			DIAGONALS[i++] = ascending;
+			DIAGONALS[i++] = descending;
+		}
+		long union = 0;
+		for (long diagonal : DIAGONALS) {
+			union |= diagonal;
+		}
+		DIAGONALS_MASK = union;
+	}
+
+	// Stairs patterns, indexed by the height of the first column:
+	// the cells that must be full and the cells that must be empty (right above the full ones).
+	// The valid heights are 1 and 2 (ascending stairs) and `ROWS - 1` and `ROWS` (descending stairs),
+	// for any other height both masks are 0 and the pattern is not valid.
+	private static final long[] STAIRS_FULL = new long[Shelf.ROWS + 1];
+	private static final long[] STAIRS_EMPTY = new long[Shelf.ROWS + 1];
+	static {
+		for (int height = 1; height <= Shelf.ROWS; height++) {
+			if (height > 2 && height < Shelf.ROWS - 1) {
+				continue;
+			}
+			int direction = height <= 2 ? 1 : -1;
+			int h = height + direction - 1;
+			for (int x = 1; x < Shelf.COLUMNS; x++) {
+				STAIRS_FULL[height] |= 1L << Shelf.bitIndex(h, x);
+				if (h != Shelf.ROWS - 1) {
+					STAIRS_EMPTY[height] |= 1L << Shelf.bitIndex(h + 1, x);
+				}
+				h += direction;
+			}
+		}
+	}
+
+	/**
+	 * Select the cells of the full rows
+	 *
+	 * @param occupied the occupied cells of a shelf
+	 * @return the cells of the full rows
+	 */
+	private static long fullRows(long occupied) {
+		long result = 0;
+		for (long row : ROW_MASKS) {
+			if ((occupied & row) == row) {
+				result |= row;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Select the cells of the full columns
+	 *
+	 * @param occupied the occupied cells of a shelf
+	 * @return the cells of the full columns
+	 */
+	private static long fullColumns(long occupied) {
+		long result = 0;
+		for (long column : COLUMN_MASKS) {
+			if ((occupied & column) == column) {
+				result |= column;
+			}
+		}
+		return result;
+	}
 
 	/**
 	 * Method computes the number of groups of n cards present in the given Shelf object.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @param n The size of the group to check for
 	 * @return The number of groups of n cards present in the given Shelf object
@@ -153,24 +327,78 @@ public class CommonObjective extends Objective {
 	 *
 	 */
 	private static int groupsOfAtLeastNCards(Shelf shelf, int n) {
-		boolean[][] visited = new boolean[Shelf.ROWS][Shelf.COLUMNS];
 		int groups = 0;
 
-		try {
-			for (int y = 0; y < Shelf.ROWS; y++) {
-				for (int x = 0; x < Shelf.COLUMNS; x++) {
-					if (shelf.getCard(y, x).isPresent()) {
-						groups += shelf.getGroupSize(y, x, shelf.getCard(y, x).get().getType(), visited) >= n ? 1 : 0;
-					}
+		for (int t = 0; t < N_TYPES; t++) {
+			long remaining = shelf.getTypeMask(TYPES[t]);
+			while (Long.bitCount(remaining) >= n) {
+				long group = Shelf.floodFill(Long.lowestOneBit(remaining), remaining);
+				remaining &= ~group;
+				if (Long.bitCount(group) >= n) {
+					groups++;
 				}
 			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking groups of n cards common objective");
 		}
 
 		return groups;
 	}
 
+	/**
+	 * Count the number of different card types in the given cells
+	 *
+	 * @param shelf The shelf object
+	 * @param mask The cells to check
+	 * @return the number of different card types in the cells
+	 */
+	private static int differentTypes(Shelf shelf, long mask) {
+		int count = 0;
+		for (int t = 0; t < N_TYPES; t++) {
+			if ((shelf.getTypeMask(TYPES[t]) & mask) != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count the full lines (rows or columns) with a number of different card types in the given range
+	 *
+	 * @param shelf The shelf object
+	 * @param lines The masks of the lines to check
+	 * @param minTypes The minimum number of different types
+	 * @param maxTypes The maximum number of different types
+	 * @return the number of full lines respecting the constraint
+	 */
+	private static int countFullLines(Shelf shelf, long[] lines, int minTypes, int maxTypes) {
+		int count = 0;
+		long occupied = shelf.getOccupiedMask();
+		for (long line : lines) {
+			if ((occupied & line) == line) {
+				int types = differentTypes(shelf, line);
+				if (types >= minTypes && types <= maxTypes) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Check if all the given cells contain cards of the same type
+	 *
+	 * @param shelf The shelf object
+	 * @param mask The cells to check
+	 * @return true if all the cells are full and of the same type
+	 */
+	private static boolean sameType(Shelf shelf, long mask) {
+		for (int t = 0; t < N_TYPES; t++) {
+			if ((shelf.getTypeMask(TYPES[t]) & mask) == mask) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Method that checks if the objective "4 groups of 4 cards" is done.
 	 *
@@ -196,360 +424,144 @@ public class CommonObjective extends Objective {
 	/**
 	 * Method that checks if the objective "two columns with 6 different cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Lorenzo
 	 */
 	private static Boolean twoColumnsOfSixDifferentCards(Shelf shelf) {
-		boolean firstCol = false;
-		HashSet<Card.Type> cards = new HashSet<>();
-
-		try {
-			for (int x = 0; x < Shelf.COLUMNS; x++) {
-				for (int y = 0; y < Shelf.ROWS; y++) {
-					if (shelf.getCard(y, x).isEmpty()) {
-						break;
-					}
-					cards.add(shelf.getCard(y, x).get().getType());
-				}
-				if (cards.size() == 6) {
-					if (firstCol) {
-						return true;
-					}
-					firstCol = true;
-				}
-				cards.clear();
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking two columns of six different cards common objective");
-		}
-
-		return false;
+		return countFullLines(shelf, COLUMN_MASKS, 6, 6) >= 2;
 	}
 
 	/**
 	 * Method that checks if the objective "five cards in diagonal" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Marco, Lorenzo
 	 */
 	private static Boolean fiveCardsInDiagonal(Shelf shelf) {
-		boolean fullDiagonal;
-		Card reference;
-
-		try {
-			for (int offset = 0; offset <= Shelf.ROWS - Shelf.COLUMNS; offset++) {
-				// sud-west to north-est
-				if (shelf.getCard(offset, 0).isPresent()) {
-					reference = shelf.getCard(offset, 0).get();
-					fullDiagonal = true;
-					for (int x = 1; x < Shelf.COLUMNS; x++) {
-						Optional<Card> card = shelf.getCard(x + offset, x);
-						if (card.isEmpty() || !card.get().equals(reference)) {
-							fullDiagonal = false;
-							break;
-						}
-					}
-					if (fullDiagonal) return true;
-				}
-
-				// sud-est to north-west
-				if (shelf.getCard(offset, Shelf.COLUMNS - 1).isPresent()) {
-					reference = shelf.getCard(offset, Shelf.COLUMNS - 1).get();
-					fullDiagonal = true;
-					for (int y = 1; y < Shelf.COLUMNS; y++) {
-						Optional<Card> card = shelf.getCard(y + offset, Shelf.COLUMNS - y - 1);
-						if (card.isEmpty() || !card.get().equals(reference)) {
-							fullDiagonal = false;
-							break;
-						}
-					}
-					if (fullDiagonal) return true;
-				}
+		for (long diagonal : DIAGONALS) {
+			if (sameType(shelf, diagonal)) {
+				return true;
 			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking five cards in diagonal common objective");
 		}
-
 		return false;
 	}
 
 	/**
 	 * Method that check if the objective "four rows such that each row has at most three different cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Ludovico, Marco
 	 */
 	private static Boolean fourRowsOfAtMostThreeDifferentCards(Shelf shelf) {
-		int count = 0;
-		HashSet<Card.Type> cards = new HashSet<>();
-
-		try {
-			for (int y = 0; y < Shelf.ROWS; y++) {
-				boolean isFull = true;
-				for (int x = 0; x < Shelf.COLUMNS; x++) {
-					if (shelf.getCard(y, x).isEmpty()) {
-						isFull = false;
-						break;
-					}
-					cards.add(shelf.getCard(y, x).get().getType());
-				}
-				if (isFull && cards.size() <= 3) {
-					count++;
-				}
-				cards.clear();
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking five in a row common objective");
-		}
-
-		return count == 4;
+		return countFullLines(shelf, ROW_MASKS, 1, 3) == 4;
 	}
 
-	private static final int[] cornersX = {0, 0, Shelf.COLUMNS - 1, Shelf.COLUMNS - 1};
-	private static final int[] cornersY = {0, Shelf.ROWS - 1, 0, Shelf.ROWS - 1};
 	/**
 	 * Method that checks if the objective "all equal cards in the four corners of the shelf" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Ludovico, Marco
 	 */
 	private static Boolean equalCorners(Shelf shelf) {
-		try {
-			Optional<Card> reference = shelf.getCard(cornersY[0], cornersX[0]);
-			if (reference.isEmpty()) {
-				return false;
-			}
-			for (int i = 1; i < 4; i++) {
-				if (!shelf.getCard(cornersY[i], cornersX[i]).equals(reference)) {
-					return false;
-				}
-			}
-
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking corners common objective");
-		}
-
-		return true;
+		return sameType(shelf, CORNERS_MASK);
 	}
 
 	/**
 	 * Method that checks if the objective "two rows contains 5 different cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Riccardo, Marco
 	 */
 	private static Boolean twoRowsWithFiveDifferentCards(Shelf shelf) {
-		boolean firstRow = false;
-		HashSet<Card.Type> cards = new HashSet<>();
-
-		try {
-			for (int y = 0; y < Shelf.ROWS; y++) {
-				for (int x = 0; x < Shelf.COLUMNS; x++) {
-					if (shelf.getCard(y, x).isEmpty()) {
-						break;
-					}
-					cards.add(shelf.getCard(y, x).get().getType());
-				}
-				if (cards.size() == 5) {
-					if (firstRow) {
-						return true;
-					}
-					firstRow = true;
-				}
-				cards.clear();
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking two rows with five different cards common objective");
-		}
-
-		return false;
+		return countFullLines(shelf, ROW_MASKS, 5, 5) >= 2;
 	}
 
-	private static final int[] squareDx = {0, 1, 1};
-	private static final int[] squareDy = {1, 0, 1};
 	/**
 	 * Method that checks if the objective "two non-overlapping 2x2 squares" is done.
+	 * The first square is the lowest, leftmost one, and the second one must not overlap it.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Marco
 	 */
 	public static Boolean twoSquareGroups(Shelf shelf) {
-		boolean firstSquare = false;
-		boolean[][] alreadyUsed = new boolean[Shelf.ROWS][Shelf.COLUMNS];
-
-		try {
-			for (int y = 0; y < Shelf.ROWS - 1; y++) {
-				for (int x = 0; x < Shelf.COLUMNS - 1; x++) {
-					Optional<Card> reference = shelf.getCard(y, x);
-					if (alreadyUsed[y][x] || alreadyUsed[y][x + 1] || reference.isEmpty()) {
-						continue;
-					}
-					boolean isValidSquare = true;
-					for (int i = 0; i < 3; i++) {
-						Optional<Card> card = shelf.getCard(y + squareDy[i], x + squareDx[i]);
-						if (card.isEmpty() || !card.equals(reference)) {
-							isValidSquare = false;
-							break;
-						}
-					}
-
-					if (isValidSquare) {
-						if (firstSquare) {
-							return true;
-						}
-						firstSquare = true;
-						alreadyUsed[y + 1][x] = true;
-						alreadyUsed[y + 1][x + 1] = true;
-						x++;  // skip next cell because it would overlap
-					}
-				}
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking two square groups common objective");
+		long squares = 0;
+		for (int t = 0; t < N_TYPES; t++) {
+			long type = shelf.getTypeMask(TYPES[t]);
+			squares |= type & (type >>> 1) & (type >>> Shelf.COLUMNS) & (type >>> (Shelf.COLUMNS + 1));
+		}
+		squares &= SQUARE_CORNERS;
+		if (squares == 0) {
+			return false;
 		}
 
-		return false;
+		long first = Long.lowestOneBit(squares);
+		long overlapping = first | first << 1 | first << (Shelf.COLUMNS - 1) | first << Shelf.COLUMNS | first << (Shelf.COLUMNS + 1);
+		return (squares & ~overlapping) != 0;
 	}
 
 	/**
 	 * Method that checks if the objective "X-shaped equal cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Riccardo,Marco
 	 */
 	private static Boolean equalsX(Shelf shelf) {
-		try {
-			for (int y = 1; y < Shelf.ROWS - 1; y++) {
-				for (int x = 1; x < Shelf.COLUMNS - 1; x++) {
-					if (
-						shelf.getCard(y, x).isPresent() &&
-						shelf.getCard(y, x).equals(shelf.getCard(y - 1, x - 1)) &&
-						shelf.getCard(y, x).equals(shelf.getCard(y + 1, x + 1)) &&
-						shelf.getCard(y, x).equals(shelf.getCard(y - 1, x + 1)) &&
-						shelf.getCard(y, x).equals(shelf.getCard(y + 1, x - 1))
-					) {
-						return true;
-					}
-				}
+		for (int t = 0; t < N_TYPES; t++) {
+			long type = shelf.getTypeMask(TYPES[t]);
+			long centers = type &
+				(type >>> (Shelf.COLUMNS + 1)) & (type << (Shelf.COLUMNS + 1)) &
+				(type >>> (Shelf.COLUMNS - 1)) & (type << (Shelf.COLUMNS - 1));
+			if ((centers & X_CENTERS) != 0) {
+				return true;
 			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking equals X common objective");
 		}
-
 		return false;
 	}
 
 	/**
 	 * Method that checks if the objective "stair shaped cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Riccardo,Marco
 	 */
 	private static Boolean stairsShape(Shelf shelf) {
-		int h = 0;
-
-		try {
-			while (h < Shelf.ROWS && shelf.getCard(h, 0).isPresent()) {
-				h++;
-			}
-
-			if (h < 1 || (h > 2 && h < 5)) {
-				return false;
-			}
-			int direction = h <= 2 ? 1 : -1;
-			h += direction - 1;
-
-			for (int x = 1; x < Shelf.COLUMNS; x++) {
-				if (shelf.getCard(h, x).isEmpty() || (h != Shelf.ROWS - 1 && shelf.getCard(h + 1, x).isPresent())) {
-					return false;
-				}
-				h += direction;
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking stairs shape common objective");
-		}
-
-		return true;
+		long occupied = shelf.getOccupiedMask();
+		long full = STAIRS_FULL[shelf.getHighest(0)];
+		return full != 0 && (occupied & full) == full && (occupied & STAIRS_EMPTY[shelf.getHighest(0)]) == 0;
 	}
 
 	/**
 	 * Method that checks if the objective "8 equal cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Marco
 	 */
 	private static Boolean eightEquals(Shelf shelf) {
-		HashMap<Card.Type, Integer> cardCount = new HashMap<>();
-
-		try {
-			for (int y = 0; y < Shelf.ROWS; y++) {
-				for (int x = 0; x < Shelf.COLUMNS; x++) {
-					if (shelf.getCard(y, x).isPresent()) {
-						Card card = shelf.getCard(y, x).get();
-						int count = cardCount.getOrDefault(card.getType(), 0) + 1;
-						if (count == 8) {
-							return true;
-						}
-						cardCount.put(card.getType(), count);
-					}
-				}
+		for (int t = 0; t < N_TYPES; t++) {
+			if (shelf.countCard(TYPES[t]) >= 8) {
+				return true;
 			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking eight equals common objective");
 		}
-
 		return false;
 	}
 
 	/**
 	 * Method that checks if the objective "three columns where each column has at most three different cards" is done.
 	 *
-	 * @throws RuntimeException if there is any error while checking
 	 * @param shelf The shelf object
 	 * @return true if the objective is done, false otherwise
 	 * @author Marco
 	 */
 	private static Boolean threeColumnsOfAtMostThreeDifferentCards(Shelf shelf) {
-		int count = 0;
-		HashSet<Card.Type> cards = new HashSet<>();
-
-		try {
-			for (int x = 0; x < Shelf.COLUMNS; x++) {
-				boolean isFull = true;
-				for (int y = 0; y < Shelf.ROWS; y++) {
-					if (shelf.getCard(y, x).isEmpty()) {
-						isFull = false;
-						break;
-					}
-					cards.add(shelf.getCard(y, x).get().getType());
-				}
-				if (isFull && cards.size() <= 3) {
-					count++;
-				}
-				cards.clear();
-			}
-		} catch (InvalidMoveException e) {
-			throw new RuntimeException("error while checking five in a row common objective");
-		}
-
-		return count == 3;
+		return countFullLines(shelf, COLUMN_MASKS, 1, 3) == 3;
 	}
 }
@@ -1,15 +1,21 @@
 package model;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 
 /**
@@ -25,20 +31,48 @@ public class Game implements Iterable<Player> {
     private final ArrayList<CommonObjective> commonObjectives;
     private PlayerIterator playerIterator;
     private Optional<Integer> iteratorIndex = Optional.empty();
+    private final long seed;
 
     /**
      * Constructor for the `Game` class
      * @param playerNames the list of players' names from which to construct the game.
      */
     public Game(ArrayList<String> playerNames) {
-        this.tabletop = new TableTop(playerNames.size());
-        PersonalObjective[] personalObjective = PersonalObjective.generatePersonalObjectives(playerNames.size());
+        this(playerNames, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructor for the `Game` class, taking every random choice
+     * (deck, objectives and seating order) from the given seed.
+     * The same seed and the same set of names always produce the same game,
+     * whatever the order of the names.
+     * @param playerNames the list of players' names from which to construct the game.
+     * @param seed the seed of the game
+     */
+    public Game(ArrayList<String> playerNames, long seed) {
+        this.seed = seed;
+        SplittableRandom random = new SplittableRandom(seed);
+        // Every part of the setup has its own stream, so that changing one doesn't affect the others
+        this.tabletop = new TableTop(playerNames.size(), random.split());
+        PersonalObjective[] personalObjective = PersonalObjective.generatePersonalObjectives(playerNames.size(), random.split());
+        ArrayList<String> sortedNames = new ArrayList<>(playerNames);
+        Collections.sort(sortedNames);
         this.players = new ArrayList<>();
-        for (int i = 0; i < playerNames.size(); i++) {
-            this.players.add(new Player(playerNames.get(i), personalObjective[i]));
+        for (int i = 0; i < sortedNames.size(); i++) {
+            this.players.add(new Player(sortedNames.get(i), personalObjective[i]));
         }
-        Collections.shuffle(this.players);
-        this.commonObjectives = CommonObjective.generateCommonObjectives(players.size());
+        Collections.shuffle(this.players, Random.from(random.split()));
+        this.commonObjectives = CommonObjective.generateCommonObjectives(players.size(), random.split());
+    }
+
+    /**
+     * Get the deck that a game created with the given seed starts with,
+     * before the tabletop is filled. Must take the same stream as the constructor.
+     * @param seed the seed of the game
+     * @return the initial deck
+     */
+    static CardsDeck initialDeck(long seed) {
+        return new CardsDeck(new SplittableRandom(seed).split());
     }
 
     /**
@@ -50,6 +84,7 @@ public class Game implements Iterable<Player> {
         this.players = saveState.players().stream().map(Player::new).collect(Collectors.toCollection(ArrayList::new));
         this.commonObjectives = saveState.commonObjectives().stream().map(o -> new CommonObjective(o, saveState.players().size())).collect(Collectors.toCollection(ArrayList::new));
         this.iteratorIndex = Optional.of(saveState.playerIteratorIndex());
+        this.seed = saveState.seed();
     }
 
     /**
@@ -98,6 +133,63 @@ public class Game implements Iterable<Player> {
         return commonObjectives;
     }
 
+    /**
+     * Getter for the `seed` field
+     * @return the seed the game was created from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Add to the player that just played the cockades of the common objectives completed,
+     * and the first to finish cockade if nobody got it yet.
+     * @param player the player that just played
+     * @param completedObjectives filled with the cockades of the common objectives completed
+     * @param newCommonObjectivesScores filled with the points given by the completed objectives from now on
+     */
+    public void addTurnCockades(Player player, List<Cockade> completedObjectives, List<Integer> newCommonObjectivesScores) {
+        for (CommonObjective objective : commonObjectives) {
+            Optional<Cockade> cockade = objective.isCompleted(player.getShelf(), player.getName());
+            if (cockade.isPresent()) {
+                player.addCockade(cockade.get());
+                completedObjectives.add(cockade.get());
+                newCommonObjectivesScores.add(objective.getValue());
+            }
+        }
+        Optional<Cockade> finishCockade = player.getShelf().getFinishCockade();
+        if (finishCockade.isPresent() && players.stream().noneMatch(p -> p.getCockades().contains(finishCockade.get()))) {
+            player.addCockade(finishCockade.get());
+        }
+    }
+
+    /**
+     * Apply the end of turn rules to the player that just played: the cockades of `addTurnCockades`,
+     * then the refill of the tabletop if needed.
+     * `GameController`, the journal replay and the simulator all end the turns here.
+     * @param player the player that just played
+     * @param completedObjectives filled with the cockades of the common objectives completed
+     * @param newCommonObjectivesScores filled with the points given by the completed objectives from now on
+     * @return the cards added to the tabletop, null where there already was a card, or null if it wasn't refilled
+     */
+    public Card[][] endTurn(Player player, List<Cockade> completedObjectives, List<Integer> newCommonObjectivesScores) {
+        addTurnCockades(player, completedObjectives, newCommonObjectivesScores);
+        if (!tabletop.needRefill()) {
+            return null;
+        }
+        Card[][] before = tabletop.getSerializable();
+        tabletop.fillTable();
+        Card[][] added = tabletop.getSerializable();
+        for (int y = 0; y < TableTop.SIZE; y++) {
+            for (int x = 0; x < TableTop.SIZE; x++) {
+                if (before[y][x] != null) {
+                    added[y][x] = null;
+                }
+            }
+        }
+        return added;
+    }
+
     /**
      * Returns the final ranks of the players.
      *
@@ -126,49 +218,103 @@ public class Game implements Iterable<Player> {
 
     /**
      * Get a serializable object representing the actual game state
+     * The returned state shares nothing mutable with the game, so it can be saved by another thread.
      * @return a serializable object representing the actual game state.
      */
-    private SaveState getSaveState() {
+    public SaveState getSaveState() {
         SaveTableTop tableTop = this.tabletop.getSaveTableTop();
         ArrayList<SavePlayer> savePlayers = new ArrayList<>();
         for (Player player : this.players) {
             savePlayers.add(player.getSavePlayer());
         }
         ArrayList<SaveCommonObjective> saveCommonObjectives = commonObjectives.stream().map(CommonObjective::getSavable).collect(Collectors.toCollection(ArrayList::new));
-        int index = playerIterator == null ? 0 : playerIterator.getIndex();
+        return new SaveState(tableTop, savePlayers, saveCommonObjectives, getIteratorIndex(), seed);
+    }
+
+    /**
+     * Get the index of the player iterator, as saved in the `SaveState`
+     * @return the index of the player iterator
+     */
+    int getIteratorIndex() {
+        if (playerIterator != null) {
+            return playerIterator.getIndex();
+        }
+        return iteratorIndex.orElse(0);
+    }
 
-        return new SaveState(tableTop, savePlayers, saveCommonObjectives, index);
+    /**
+     * Set the index from which the player iterator will start, used when replaying a journal
+     * @param index the index of the player iterator
+     */
+    void setIteratorIndex(int index) {
+        iteratorIndex = Optional.of(index);
     }
 
     /**
      * Save the game state to a file
+     * The journal of the file, if any, is deleted, since it doesn't follow the new save.
      * @param file the file to save the game state to
      * @throws IOException if an I/O error occurs while writing stream header
      */
     public void saveGame(File file) throws IOException {
-        SaveState saveState = getSaveState();
-        FileOutputStream outputFile = new FileOutputStream(file);
-        ObjectOutputStream outputStream = new ObjectOutputStream(outputFile);
-        outputStream.writeObject(saveState);
-        outputStream.close();
-        outputFile.close();
+        writeSnapshot(file, getSaveState(), false);
+        File journal = GameJournal.journalFile(file);
+        if (journal.exists() && !journal.delete()) {
+            throw new IOException("Failed to delete " + journal);
+        }
+    }
+
+    /**
+     * Atomically replace a save file with a game state, without touching its journal.
+     * The state is written to a temporary file in the same directory, which is then renamed,
+     * so a crash never leaves a partially written save.
+     * @param file the file to save the game state to
+     * @param state the game state
+     * @param sync if true, the data is forced to the disk before the rename
+     * @return the written bytes
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] writeSnapshot(File file, SaveState state, boolean sync) throws IOException {
+        byte[] save = SaveStateCodec.encode(state);
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream outputFile = new FileOutputStream(temporary)) {
+            outputFile.write(save);
+            if (sync) {
+                outputFile.getChannel().force(true);
+            }
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return save;
     }
 
     /**
      * Load a game state from a file
+     * Both the binary format of `SaveStateCodec` and the old Java serialized saves are supported,
+     * the latter are converted to the binary format on the next save.
+     * The turns in the `GameJournal` of the file are replayed on the loaded game.
      * @param file the `File` object containing the path of the save file.
      * @return the loaded game
-     * @throws IOException if an I/O error occurs while reading stream header
+     * @throws IOException if an I/O error occurs while reading stream header or the save is corrupted
      * @throws ClassNotFoundException if the class of the serialized loaded object cannot be found
      * (probably due to a different version of the game or a wrong file path)
      */
     public static Game loadGame(File file) throws IOException, ClassNotFoundException {
-        FileInputStream inputFile = new FileInputStream(file);
-        ObjectInputStream objectInputStream = new ObjectInputStream(inputFile);
-        SaveState saveState = (SaveState)objectInputStream.readObject();
-        objectInputStream.close();
-        inputFile.close();
+        byte[] save = Files.readAllBytes(file.toPath());
+        SaveState saveState;
+        if (SaveStateCodec.isEncoded(save)) {
+            saveState = SaveStateCodec.decode(ByteBuffer.wrap(save));
+        } else {
+            ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(save));
+            saveState = (SaveState)objectInputStream.readObject();
+            objectInputStream.close();
+        }
 
-        return new Game(saveState);
+        Game game = new Game(saveState);
+        GameJournal.replay(game, file, save);
+        return game;
     }
 }
@@ -0,0 +1,435 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archive of the completed games, stored as rolling segment files `games-N.seg` in a directory.
+ * The games are collected in blocks of about `BLOCK_BYTES`, each compressed on its own,
+ * and a new segment is started when the current one is bigger than `SEGMENT_BYTES`, or when the archive is reopened.
+ * <pre>
+ * block: magic (int), compressed length (int), uncompressed length (int), games (int),
+ *        CRC32 of the compressed data (int), deflated games
+ * game:  seed (long), end time (long), start,
+ *        turns (int), for each: length (byte), GameJournal record without its CRC32,
+ *        scores (byte), for each: username (UTF), points (int), title (UTF)
+ * start: NEW_GAME (byte), players (byte), for each: name (UTF)
+ *        or SAVED_GAME (byte), length (short), SaveStateCodec save
+ * </pre>
+ * The start of a game that began on the server is rebuilt from its seed, the other ones
+ * (e.g. loaded from an old save) are stored whole.
+ * The games of the block being filled are only in memory until the block is full, holds `BLOCK_GAMES` games,
+ * or the archive of the server flushes it, every `FLUSH_SECONDS`; the segment is synced when a block is written.
+ * The readers keep a single block in memory, and a truncated block at the end of a segment is ignored.
+ * The directory, the games of a block and the flush interval are read from the `myshelfie.archive.dir`,
+ * `myshelfie.archive.games` and `myshelfie.archive.flush` system properties.
+ */
+public class GameArchive implements Closeable {
+	public static final int MAGIC = 0x4D534841;  // "MSHA"
+	public static final String EXTENSION = ".seg";
+	private static final String PREFIX = "games-";
+	static final int BLOCK_BYTES = 64 * 1024;
+	static final int BLOCK_GAMES = Integer.getInteger("myshelfie.archive.games", 64);
+	static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+	private static final long FLUSH_SECONDS = Long.getLong("myshelfie.archive.flush", 5);
+	private static final int HEADER_BYTES = 5 * Integer.BYTES;
+	private static final int NEW_GAME = 0;
+	private static final int SAVED_GAME = 1;
+	// A block is never much bigger than `BLOCK_BYTES`, a bigger length means a corrupted header
+	private static final int MAX_BLOCK_BYTES = 64 * BLOCK_BYTES;
+
+	private static GameArchive instance = null;
+	private static final Logger logger = Logger.getLogger(GameArchive.class.getName());
+
+	private final File directory;
+	private final int blockBytes;
+	private final int blockGames;
+	private final long segmentBytes;
+	private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+	private final DataOutputStream blockOut = new DataOutputStream(block);
+	private int pendingGames;
+	private int segmentIndex;
+	private FileOutputStream out;
+	private long segmentLength;
+
+	/**
+	 * Open an archive, the games are appended to a new segment
+	 * @param directory the directory of the segments, created if needed
+	 * @throws IOException if the directory cannot be created
+	 */
+	public GameArchive(File directory) throws IOException {
+		this(directory, BLOCK_BYTES, BLOCK_GAMES, SEGMENT_BYTES);
+	}
+
+	/**
+	 * Open an archive, the games are appended to a new segment
+	 * @param directory the directory of the segments, created if needed
+	 * @param blockBytes the uncompressed size after which a block is written
+	 * @param blockGames the number of games after which a block is written
+	 * @param segmentBytes the size after which a new segment is started
+	 * @throws IOException if the directory cannot be created
+	 */
+	GameArchive(File directory, int blockBytes, int blockGames, long segmentBytes) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create archive directory " + directory);
+		}
+		this.directory = directory;
+		this.blockBytes = blockBytes;
+		this.blockGames = blockGames;
+		this.segmentBytes = segmentBytes;
+		List<File> segments = segments(directory);
+		segmentIndex = segments.isEmpty() ? 0 : index(segments.get(segments.size() - 1));
+	}
+
+	/**
+	 * Returns the archive of the server, creating it if needed.
+	 * The pending games are written every `FLUSH_SECONDS`, and when the server shuts down.
+	 * @return The archive
+	 * @throws IOException if the archive directory cannot be created
+	 */
+	public static synchronized GameArchive getInstance() throws IOException {
+		if (instance == null) {
+			instance = new GameArchive(new File(System.getProperty("myshelfie.archive.dir", "archive")));
+			GameArchive archive = instance;
+			ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "archive-flusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			flusher.scheduleWithFixedDelay(() -> {
+				try {
+					archive.flush();
+				} catch (IOException e) {
+					logger.warning("Failed to write archive: " + e.getMessage());
+				}
+			}, FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					instance.close();
+				} catch (IOException e) {
+					logger.warning("Failed to write archive: " + e.getMessage());
+				}
+			}));
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the state of a new game, as `GameController` starts it
+	 * @param names the names of the players
+	 * @param seed the seed of the game
+	 * @return the state of the game, encoded by `SaveStateCodec`
+	 */
+	private static byte[] newGameStart(List<String> names, long seed) {
+		Game game = new Game(new ArrayList<>(names), seed);
+		game.iterator().next();
+		return SaveStateCodec.encode(game.getSaveState());
+	}
+
+	/**
+	 * Add a completed game to the archive
+	 * @param game the game
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void append(ArchivedGame game) throws IOException {
+		blockOut.writeLong(game.seed());
+		blockOut.writeLong(game.endTime());
+		List<String> names = SaveStateCodec.decode(ByteBuffer.wrap(game.start())).players().stream().map(SavePlayer::name).collect(Collectors.toList());
+		if (Arrays.equals(game.start(), newGameStart(names, game.seed()))) {
+			blockOut.writeByte(NEW_GAME);
+			blockOut.writeByte(names.size());
+			for (String name : names) {
+				blockOut.writeUTF(name);
+			}
+		} else {
+			blockOut.writeByte(SAVED_GAME);
+			blockOut.writeShort(game.start().length);
+			blockOut.write(game.start());
+		}
+		blockOut.writeInt(game.turns().size());
+		for (byte[] turn : game.turns()) {
+			// The CRC of the records is random data, the blocks have their own
+			blockOut.writeByte(turn.length - Integer.BYTES);
+			blockOut.write(turn, 0, turn.length - Integer.BYTES);
+		}
+		blockOut.writeByte(game.scores().size());
+		for (Score score : game.scores()) {
+			blockOut.writeUTF(score.username());
+			blockOut.writeInt(score.score());
+			blockOut.writeUTF(score.title());
+		}
+		pendingGames++;
+		if (block.size() >= blockBytes || pendingGames >= blockGames) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Write the games still in memory
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void flush() throws IOException {
+		if (pendingGames > 0) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Write the games still in memory and close the current segment
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		flush();
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * Compress the current block and append it to the current segment, starting a new one if needed.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void writeBlock() throws IOException {
+		byte[] data = block.toByteArray();
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			compressed.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+		CRC32 crc = new CRC32();
+		crc.update(compressed.toByteArray());
+
+		if (out == null || segmentLength >= segmentBytes) {
+			if (out != null) {
+				out.close();
+			}
+			segmentIndex++;
+			out = new FileOutputStream(new File(directory, String.format("%s%06d%s", PREFIX, segmentIndex, EXTENSION)));
+			segmentLength = 0;
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+			.putInt(MAGIC)
+			.putInt(compressed.size())
+			.putInt(data.length)
+			.putInt(pendingGames)
+			.putInt((int)crc.getValue());
+		out.write(header.array());
+		compressed.writeTo(out);
+		out.flush();
+		out.getFD().sync();
+		segmentLength += HEADER_BYTES + compressed.size();
+		block.reset();
+		pendingGames = 0;
+	}
+
+	/**
+	 * Get the segments of an archive
+	 * @param directory the directory of the archive
+	 * @return the segments, from the oldest
+	 */
+	public static List<File> segments(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(EXTENSION));
+		if (files == null) {
+			return List.of();
+		}
+		return Arrays.stream(files).sorted(Comparator.comparingInt(GameArchive::index)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Get the index of a segment from its name
+	 * @param segment the segment
+	 * @return the index
+	 */
+	private static int index(File segment) {
+		String name = segment.getName();
+		return Integer.parseInt(name.substring(PREFIX.length(), name.length() - EXTENSION.length()));
+	}
+
+	/**
+	 * Read the games of a segment, one block at a time
+	 * @param segment the segment
+	 * @return a reader of the games, that must be closed
+	 * @throws IOException if the segment cannot be opened
+	 */
+	public static Reader read(File segment) throws IOException {
+		return new Reader(segment);
+	}
+
+	/**
+	 * Stream all the games of an archive. The segments are read in parallel if the stream is parallel.
+	 * @param directory the directory of the archive
+	 * @return the games
+	 */
+	public static Stream<ArchivedGame> stream(File directory) {
+		return segments(directory).stream().flatMap(segment -> {
+			try {
+				Reader reader = read(segment);
+				return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+					.onClose(reader::close);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Sequential reader of the games of a segment
+	 */
+	public static class Reader implements Iterator<ArchivedGame>, Closeable {
+		private final DataInputStream in;
+		private DataInputStream block;
+		private int remaining;
+		private boolean ended;
+
+		/**
+		 * Open a segment
+		 * @param segment the segment
+		 * @throws IOException if the segment cannot be opened
+		 */
+		private Reader(File segment) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (remaining == 0 && !ended) {
+				try {
+					ended = !nextBlock();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return remaining > 0;
+		}
+
+		@Override
+		public ArchivedGame next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+			try {
+				long seed = block.readLong();
+				long endTime = block.readLong();
+				byte[] start;
+				if (block.readByte() == NEW_GAME) {
+					ArrayList<String> names = new ArrayList<>();
+					for (int i = block.readUnsignedByte(); i > 0; i--) {
+						names.add(block.readUTF());
+					}
+					start = newGameStart(names, seed);
+				} else {
+					start = new byte[block.readUnsignedShort()];
+					block.readFully(start);
+				}
+				int turnsCount = block.readInt();
+				ArrayList<byte[]> turns = new ArrayList<>(turnsCount);
+				for (int i = 0; i < turnsCount; i++) {
+					int length = block.readUnsignedByte();
+					byte[] turn = new byte[length + Integer.BYTES];
+					block.readFully(turn, 0, length);
+					CRC32 crc = new CRC32();
+					crc.update(turn, 0, length);
+					ByteBuffer.wrap(turn).putInt(length, (int)crc.getValue());
+					turns.add(turn);
+				}
+				int scoresCount = block.readUnsignedByte();
+				ArrayList<Score> scores = new ArrayList<>(scoresCount);
+				for (int i = 0; i < scoresCount; i++) {
+					scores.add(new Score(block.readUTF(), block.readInt(), block.readUTF()));
+				}
+				return new ArchivedGame(seed, endTime, start, turns, scores);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Corrupted archive block", e);
+			}
+		}
+
+		/**
+		 * Read and decompress the next block
+		 * @return false if there are no more valid blocks
+		 * @throws IOException if an I/O error occurs
+		 */
+		private boolean nextBlock() throws IOException {
+			try {
+				if (in.readInt() != MAGIC) {
+					return false;
+				}
+				int compressedLength = in.readInt();
+				int dataLength = in.readInt();
+				if (compressedLength < 0 || compressedLength > MAX_BLOCK_BYTES || dataLength < 0 || dataLength > MAX_BLOCK_BYTES) {
+					return false;
+				}
+				byte[] compressed = new byte[compressedLength];
+				byte[] data = new byte[dataLength];
+				int games = in.readInt();
+				int checksum = in.readInt();
+				in.readFully(compressed);
+				CRC32 crc = new CRC32();
+				crc.update(compressed);
+				if ((int)crc.getValue() != checksum) {
+					return false;
+				}
+				Inflater inflater = new Inflater();
+				inflater.setInput(compressed);
+				try {
+					if (inflater.inflate(data) != data.length) {
+						return false;
+					}
+				} catch (DataFormatException e) {
+					return false;
+				} finally {
+					inflater.end();
+				}
+				block = new DataInputStream(new ByteArrayInputStream(data));
+				remaining = games;
+				return true;
+			} catch (EOFException e) {
+				// Truncated block, the archive was being written
+				return false;
+			}
+		}
+
+		@Override
+		public void close() {
+			try {
+				in.close();
+			} catch (IOException ignored) {}
+		}
+	}
+}
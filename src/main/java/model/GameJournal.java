@@ -0,0 +1,265 @@
+package model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the turns played since the last full save of a game.
+ * Instead of rewriting the whole save after every turn, only a small record is appended
+ * to `<save file>.journal`, and a full save (checkpoint) is written every few turns.
+ * `Game.loadGame` replays the journal on top of the save it belongs to.
+ * <pre>
+ * header: magic (int), CRC32 of the save file the journal follows (int)
+ * record: player index (byte), picked cards (byte), for each: y (byte), x (byte),
+ *         column (byte), player iterator index after the turn (byte), CRC32 of the record (int)
+ * </pre>
+ * A skipped turn (disconnected player) is a record with no picked cards.
+ * The refills of the tabletop are not recorded, since they only draw from the deck of the save.
+ * A truncated or corrupted record at the end of the journal (e.g. a crash while writing)
+ * is ignored, together with everything after it.
+ */
+public class GameJournal {
+	public static final int MAGIC = 0x4D53484A;  // "MSHJ"
+	public static final String EXTENSION = ".journal";
+	private static final int HEADER_BYTES = 2 * Integer.BYTES;
+	private static final int CRC_BYTES = Integer.BYTES;
+
+	private final File saveFile;
+	private final File journalFile;
+	private FileOutputStream out;
+	private boolean started;
+	private int turns;
+
+	/**
+	 * Create the journal of a save file, nothing is written until the first checkpoint
+	 * @param saveFile the save file of the game
+	 */
+	public GameJournal(File saveFile) {
+		this.saveFile = saveFile;
+		this.journalFile = journalFile(saveFile);
+	}
+
+	/**
+	 * Get the journal file of a save file
+	 * @param saveFile the save file
+	 * @return the journal file
+	 */
+	public static File journalFile(File saveFile) {
+		return new File(saveFile.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Write a full save of the game and start a new empty journal after it
+	 * @param game the game to save
+	 * @throws IOException if an I/O error occurs
+	 */
+	public void checkpoint(Game game) throws IOException {
+		checkpoint(game.getSaveState(), false);
+	}
+
+	/**
+	 * Write a full save and start a new empty journal after it
+	 * @param state the state of the game
+	 * @param sync if true, the save and the journal header are forced to the disk
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void checkpoint(SaveState state, boolean sync) throws IOException {
+		close();
+		byte[] snapshot = Game.writeSnapshot(saveFile, state, sync);
+		out = new FileOutputStream(journalFile);
+		out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(checksum(snapshot)).array());
+		if (sync) {
+			out.getChannel().force(false);
+		}
+		started = true;
+		turns = 0;
+	}
+
+	/**
+	 * Append a turn to the journal, after its effects have been applied to the game
+	 * @param game the game
+	 * @param player the player that played the turn
+	 * @param positions the positions of the picked cards, empty if the turn was skipped
+	 * @param column the column where the cards have been inserted, ignored if the turn was skipped
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if there hasn't been a checkpoint yet
+	 */
+	public void append(Game game, Player player, List<Point> positions, int column) throws IOException {
+		append(List.of(record(game, player, positions, column)), false);
+	}
+
+	/**
+	 * Append some records to the journal, with a single write
+	 * @param records the records, as returned by `record`
+	 * @param sync if true, the records are forced to the disk
+	 * @throws IOException if an I/O error occurs
+	 * @throws IllegalStateException if there hasn't been a checkpoint yet
+	 */
+	public synchronized void append(List<byte[]> records, boolean sync) throws IOException {
+		if (!started) {
+			throw new IllegalStateException("Journal without checkpoint");
+		}
+		if (out == null) {
+			out = new FileOutputStream(journalFile, true);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(records.stream().mapToInt(record -> record.length).sum());
+		records.forEach(buffer::put);
+		out.write(buffer.array());
+		if (sync) {
+			out.getChannel().force(false);
+		}
+		turns += records.size();
+	}
+
+	/**
+	 * Build the record of a turn, after its effects have been applied to the game
+	 * @param game the game
+	 * @param player the player that played the turn
+	 * @param positions the positions of the picked cards, empty if the turn was skipped
+	 * @param column the column where the cards have been inserted, ignored if the turn was skipped
+	 * @return the record
+	 */
+	public static byte[] record(Game game, Player player, List<Point> positions, int column) {
+		ByteBuffer record = ByteBuffer.allocate(4 + 2 * positions.size() + CRC_BYTES);
+		record.put((byte)game.getPlayers().indexOf(player));
+		record.put((byte)positions.size());
+		for (Point position : positions) {
+			record.put((byte)position.y());
+			record.put((byte)position.x());
+		}
+		record.put((byte)(positions.isEmpty() ? 0 : column));
+		record.put((byte)game.getIteratorIndex());
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, record.position());
+		record.putInt((int)crc.getValue());
+		return record.array();
+	}
+
+	/**
+	 * Get the number of turns appended since the last checkpoint
+	 * @return the number of turns
+	 */
+	public synchronized int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * Close the journal, keeping its file, it is reopened by the next `append`
+	 * @throws IOException if an I/O error occurs
+	 */
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * Close and delete the journal, a checkpoint is needed to append again
+	 * @return true if the journal doesn't exist anymore
+	 */
+	public synchronized boolean delete() {
+		try {
+			close();
+		} catch (IOException ignored) {}
+		started = false;
+		return journalFile.delete() || !journalFile.exists();
+	}
+
+	/**
+	 * Replay on a loaded game the journal of its save file, if there is one and it follows that save
+	 * @param game the game loaded from the save
+	 * @param saveFile the save file
+	 * @param snapshot the content of the save file
+	 * @throws IOException if the journal cannot be read or a recorded turn is not valid on the game
+	 */
+	static void replay(Game game, File saveFile, byte[] snapshot) throws IOException {
+		File journal = journalFile(saveFile);
+		if (!journal.exists()) {
+			return;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(journal.toPath()));
+		if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC || in.getInt() != checksum(snapshot)) {
+			// Left behind by an older save
+			return;
+		}
+		replayRecords(game, in);
+	}
+
+	/**
+	 * Replay a sequence of records on a game, stopping at the first truncated or corrupted one
+	 * @param game the game
+	 * @param in the records
+	 * @throws IOException if a recorded turn is not valid on the game
+	 */
+	static void replayRecords(Game game, ByteBuffer in) throws IOException {
+		while (in.hasRemaining()) {
+			int start = in.position();
+			try {
+				int playerIndex = in.get() & 0xFF;
+				ArrayList<Point> positions = new ArrayList<>();
+				for (int i = in.get() & 0xFF; i > 0; i--) {
+					positions.add(new Point(in.get(), in.get()));
+				}
+				int column = in.get();
+				int iteratorIndex = in.get() & 0xFF;
+				CRC32 crc = new CRC32();
+				crc.update(in.array(), start, in.position() - start);
+				if (in.getInt() != (int)crc.getValue()) {
+					return;
+				}
+				replayTurn(game, playerIndex, positions, column, iteratorIndex);
+			} catch (BufferUnderflowException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Apply a recorded turn to the game, with the same effects of the turn in `GameController`
+	 * @param game the game
+	 * @param playerIndex the index of the player that played the turn
+	 * @param positions the positions of the picked cards
+	 * @param column the column where the cards have been inserted
+	 * @param iteratorIndex the player iterator index after the turn
+	 * @throws IOException if the turn is not valid on the game
+	 */
+	private static void replayTurn(Game game, int playerIndex, List<Point> positions, int column, int iteratorIndex) throws IOException {
+		if (playerIndex >= game.getPlayers().size() || iteratorIndex >= game.getPlayers().size()) {
+			throw new IOException("Invalid journal record");
+		}
+		Player player = game.getPlayers().get(playerIndex);
+		try {
+			if (!positions.isEmpty()) {
+				ArrayList<Card> cards = new ArrayList<>();
+				for (Point position : positions) {
+					cards.add(game.getTabletop().pickCard(position.y(), position.x()));
+				}
+				player.getShelf().insert(column, cards);
+			}
+		} catch (InvalidMoveException e) {
+			throw new IOException("Journal doesn't match the save: " + e.getMessage());
+		}
+
+		game.endTurn(player, new ArrayList<>(), new ArrayList<>());
+		game.setIteratorIndex(iteratorIndex);
+	}
+
+	/**
+	 * Get the checksum identifying a save file
+	 * @param snapshot the content of the save file
+	 * @return the CRC32 of the content
+	 */
+	private static int checksum(byte[] snapshot) {
+		CRC32 crc = new CRC32();
+		crc.update(snapshot);
+		return (int)crc.getValue();
+	}
+}
@@ -0,0 +1,243 @@
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * Class that enumerates all the legal moves of a player, that are the
+ * ordered selections of 1 to 3 pickable cards in a straight line of the tabletop,
+ * together with a column of the shelf with enough space for them.
+ * Moves are encoded as `int`s and written in a buffer reused between calls,
+ * so that the generation doesn't allocate anything:
+ * <ul>
+ *     <li>bits [0, 21): the cells of the tabletop (`y * TableTop.SIZE + x`), 7 bits each, in picking order</li>
+ *     <li>bits [21, 23): the number of cards</li>
+ *     <li>bits [23, 26): the column of the shelf</li>
+ * </ul>
+ * A generator must not be shared between threads.
+ */
+public class MoveGenerator {
+	private static final int CELL_BITS = 7;
+	private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+	private static final int COUNT_SHIFT = 3 * CELL_BITS;
+	private static final int COLUMN_SHIFT = COUNT_SHIFT + 2;
+	public static final int MAX_CARDS = 3;
+
+	// Upper bound of the moves of a position: every cell, every (ordered) pair of
+	// adjacent cells and every (ordered) line of three cells, for every column
+	private static final int MAX_PAIRS = 2 * TableTop.SIZE * (TableTop.SIZE - 1);
+	private static final int MAX_LINES = 2 * TableTop.SIZE * (TableTop.SIZE - 2);
+	public static final int MAX_MOVES = Shelf.COLUMNS * (TableTop.SIZE * TableTop.SIZE + 2 * MAX_PAIRS + 6 * MAX_LINES);
+
+	private final int[] moves = new int[MAX_MOVES];
+	private final int[] freeCells = new int[Shelf.COLUMNS];
+	private int size;
+
+	/**
+	 * Generate all the legal moves of the player whose shelf is `shelf`
+	 * @param tabletop the tabletop of the game
+	 * @param shelf the shelf of the player that has to move
+	 * @return the number of generated moves, available through `getMoves`
+	 */
+	public int generate(TableTop tabletop, Shelf shelf) {
+		size = 0;
+		int maxCards = freeCells(shelf, freeCells);
+		if (maxCards == 0) {
+			return 0;
+		}
+
+		long pickableLow = tabletop.getPickableLow();
+		long pickableHigh = tabletop.getPickableHigh();
+		for (int cell = 0; cell < TableTop.SIZE * TableTop.SIZE; cell++) {
+			if (!isSet(pickableLow, pickableHigh, cell)) {
+				continue;
+			}
+			emit(cell, 1);
+			if (maxCards < 2) {
+				continue;
+			}
+			int y = cell / TableTop.SIZE;
+			int x = cell % TableTop.SIZE;
+			// Lines going right and lines going up, in both picking orders
+			if (x + 1 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + 1)) {
+				emitPermutations(cell, cell + 1, x + 2 < TableTop.SIZE && maxCards == MAX_CARDS && isSet(pickableLow, pickableHigh, cell + 2) ? cell + 2 : -1);
+			}
+			if (y + 1 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + TableTop.SIZE)) {
+				emitPermutations(cell, cell + TableTop.SIZE, y + 2 < TableTop.SIZE && maxCards == MAX_CARDS && isSet(pickableLow, pickableHigh, cell + 2 * TableTop.SIZE) ? cell + 2 * TableTop.SIZE : -1);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Generate all the legal moves of a player
+	 * @param game the game
+	 * @param player the player that has to move
+	 * @return the number of generated moves, available through `getMoves`
+	 */
+	public int generate(Game game, Player player) {
+		return generate(game.getTabletop(), player.getShelf());
+	}
+
+	/**
+	 * Count the legal moves of the player whose shelf is `shelf`, without generating them
+	 * @param tabletop the tabletop of the game
+	 * @param shelf the shelf of the player that has to move
+	 * @return the number of legal moves
+	 */
+	public static int count(TableTop tabletop, Shelf shelf) {
+		int[] free = new int[Shelf.COLUMNS];
+		if (freeCells(shelf, free) == 0) {
+			return 0;
+		}
+		int[] columns = new int[MAX_CARDS + 1];
+		for (int f : free) {
+			for (int n = 1; n <= f; n++) {
+				columns[n]++;
+			}
+		}
+
+		long pickableLow = tabletop.getPickableLow();
+		long pickableHigh = tabletop.getPickableHigh();
+		int singles = Long.bitCount(pickableLow) + Long.bitCount(pickableHigh);
+		int pairs = 0;
+		int lines = 0;
+		for (int cell = 0; cell < TableTop.SIZE * TableTop.SIZE; cell++) {
+			if (!isSet(pickableLow, pickableHigh, cell)) {
+				continue;
+			}
+			int y = cell / TableTop.SIZE;
+			int x = cell % TableTop.SIZE;
+			if (x + 1 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + 1)) {
+				pairs++;
+				if (x + 2 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + 2)) {
+					lines++;
+				}
+			}
+			if (y + 1 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + TableTop.SIZE)) {
+				pairs++;
+				if (y + 2 < TableTop.SIZE && isSet(pickableLow, pickableHigh, cell + 2 * TableTop.SIZE)) {
+					lines++;
+				}
+			}
+		}
+		return singles * columns[1] + 2 * pairs * columns[2] + 6 * lines * columns[3];
+	}
+
+	/**
+	 * Getter for the buffer of the generated moves, valid up to the value returned by the last `generate`
+	 * and overwritten by the next one
+	 * @return the buffer of the moves
+	 */
+	public int[] getMoves() {
+		return moves;
+	}
+
+	/**
+	 * Getter for the number of moves generated by the last `generate`
+	 * @return the number of moves
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of cards picked by a move
+	 * @param move the encoded move
+	 * @return the number of cards
+	 */
+	public static int cardsCount(int move) {
+		return move >>> COUNT_SHIFT & 3;
+	}
+
+	/**
+	 * Get the column of the shelf where the cards of a move are inserted
+	 * @param move the encoded move
+	 * @return the column
+	 */
+	public static int column(int move) {
+		return move >>> COLUMN_SHIFT;
+	}
+
+	/**
+	 * Get the cell of a picked card
+	 * @param move the encoded move
+	 * @param i the index of the card, in picking order
+	 * @return the cell of the tabletop (`y * TableTop.SIZE + x`)
+	 */
+	public static int cell(int move, int i) {
+		return move >>> (i * CELL_BITS) & CELL_MASK;
+	}
+
+	/**
+	 * Get the positions of the cards picked by a move, in picking order
+	 * @param move the encoded move
+	 * @return the list of the positions, as expected by `CardSelect`
+	 */
+	public static ArrayList<Point> positions(int move) {
+		ArrayList<Point> result = new ArrayList<>();
+		for (int i = 0; i < cardsCount(move); i++) {
+			int cell = cell(move, i);
+			result.add(new Point(cell / TableTop.SIZE, cell % TableTop.SIZE));
+		}
+		return result;
+	}
+
+	/**
+	 * Compute the free cells of every column of a shelf
+	 * @param shelf the shelf
+	 * @param free the array where to write the free cells of every column
+	 * @return the maximum number of cards that can be inserted in a column, up to `MAX_CARDS`
+	 */
+	private static int freeCells(Shelf shelf, int[] free) {
+		int max = 0;
+		for (int column = 0; column < Shelf.COLUMNS; column++) {
+			free[column] = Math.min(MAX_CARDS, Shelf.ROWS - shelf.getHighest(column));
+			max = Math.max(max, free[column]);
+		}
+		return max;
+	}
+
+	/**
+	 * Check if a cell of a two words tabletop mask is set
+	 * @param low the low word of the mask
+	 * @param high the high word of the mask
+	 * @param cell the cell (`y * TableTop.SIZE + x`)
+	 * @return true if the cell is set
+	 */
+	private static boolean isSet(long low, long high, int cell) {
+		return cell < TableTop.LOW_BITS ? (low >>> cell & 1) != 0 : (high >>> (cell - TableTop.LOW_BITS) & 1) != 0;
+	}
+
+	/**
+	 * Emit the moves picking the cards of `cells`, for every column with enough space
+	 * @param cells the cells, already encoded in picking order
+	 * @param count the number of cards
+	 */
+	private void emit(int cells, int count) {
+		for (int column = 0; column < Shelf.COLUMNS; column++) {
+			if (freeCells[column] >= count) {
+				moves[size++] = cells | count << COUNT_SHIFT | column << COLUMN_SHIFT;
+			}
+		}
+	}
+
+	/**
+	 * Emit the moves picking the pair `a`, `b` in both orders and,
+	 * if `c` is not negative, the line `a`, `b`, `c` in all the orders
+	 * @param a the first cell of the line
+	 * @param b the second cell of the line
+	 * @param c the third cell of the line, or -1
+	 */
+	private void emitPermutations(int a, int b, int c) {
+		emit(a | b << CELL_BITS, 2);
+		emit(b | a << CELL_BITS, 2);
+		if (c >= 0) {
+			emit(a | b << CELL_BITS | c << 2 * CELL_BITS, 3);
+			emit(a | c << CELL_BITS | b << 2 * CELL_BITS, 3);
+			emit(b | a << CELL_BITS | c << 2 * CELL_BITS, 3);
+			emit(b | c << CELL_BITS | a << 2 * CELL_BITS, 3);
+			emit(c | a << CELL_BITS | b << 2 * CELL_BITS, 3);
+			emit(c | b << CELL_BITS | a << 2 * CELL_BITS, 3);
+		}
+	}
+}
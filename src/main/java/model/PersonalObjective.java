@@ -3,6 +3,9 @@ package model;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Immutable class to handle the personal objectives
@@ -213,10 +216,21 @@ public class PersonalObjective extends Objective {
      * @return An array of personal objectives
      */
     public static PersonalObjective[] generatePersonalObjectives(int nPlayers) {
+        return generatePersonalObjectives(nPlayers, new SplittableRandom());
+    }
+
+    /**
+     * Generates an array of personal objectives, one for each player, using the given random source.
+     *
+     * @param nPlayers The number of players in the game
+     * @param random The random source used to select the objectives
+     * @return An array of personal objectives
+     */
+    public static PersonalObjective[] generatePersonalObjectives(int nPlayers, RandomGenerator random) {
         PersonalObjective[] selectedPersonalObjectives = new PersonalObjective[nPlayers];
 
         ArrayList<PersonalObjective> allObjectives = generateAllPersonalObjectives();
-        Collections.shuffle(allObjectives);
+        Collections.shuffle(allObjectives, Random.from(random));
         for (int i = 0; i < nPlayers; i++) {
             selectedPersonalObjectives[i] = allObjectives.get(i);
         }
@@ -103,7 +103,7 @@ public class Player {
 			name,
 			personalObjective.getName(),
 			shelf.getSerializable(),
-			cockades,
+			new ArrayList<>(cockades),
 			points
 		);
 	}
@@ -9,10 +9,12 @@ import java.util.ArrayList;
  * @param players the current players as a list of serializable records
  * @param commonObjectives the common objectives as a list of serializable records
  * @param playerIteratorIndex the index of the current player
+ * @param seed the seed the game was created from (0 for saves older than the seed)
  */
 public record SaveState(
 	SaveTableTop tabletop,
 	ArrayList<SavePlayer> players,
 	ArrayList<SaveCommonObjective> commonObjectives,
-	int playerIteratorIndex
+	int playerIteratorIndex,
+	long seed
 ) implements Serializable {}
@@ -0,0 +1,353 @@
+package model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary format of the save states, replacing Java serialization.
+ * All the numbers are big endian, the cards are written as their compact codes:
+ * <pre>
+ * magic (int), version (byte), seed (long), player iterator index (byte)
+ * strings (byte), for each: UTF-8 length (unsigned short) and bytes
+ * tabletop grid, deck
+ * players (byte), for each: name, personal objective, shelf grid,
+ *     cockades (byte), for each: name, points (byte)
+ *     points (short)
+ * common objectives (byte), for each: name, points (byte), completed by (byte), names
+ * CRC32 of all the previous bytes (int)
+ * </pre>
+ * Every string is written once in the string table and then referenced by its index (byte),
+ * since the same names appear in the players, the objectives and the cockades.
+ * Grids are written as their rows (byte), columns (byte), a bitmap of the occupied
+ * cells in row-major order and the codes of the occupied cells.
+ * The deck is written as its size (byte) if it is what is left of the deck generated
+ * by the seed of the game (always, unless the game was created before the seeds),
+ * otherwise as 0xFF, its size and its codes.
+ */
+public class SaveStateCodec {
+	public static final int MAGIC = 0x4D534853;  // "MSHS"
+	public static final byte VERSION = 1;
+	private static final int CRC_BYTES = Integer.BYTES;
+	private static final int EXPLICIT_DECK = 0xFF;
+
+	/**
+	 * Encode a save state
+	 * @param state the save state
+	 * @return the encoded save state
+	 * @throws IllegalArgumentException if the state cannot be represented (e.g. too many strings)
+	 */
+	public static byte[] encode(SaveState state) {
+		ArrayList<String> strings = new ArrayList<>();
+		HashMap<String, Integer> indexes = new HashMap<>();
+		for (SavePlayer player : state.players()) {
+			intern(strings, indexes, player.name());
+			intern(strings, indexes, player.personalObjective());
+			for (Cockade cockade : player.cockades()) {
+				intern(strings, indexes, cockade.name());
+			}
+		}
+		for (SaveCommonObjective objective : state.commonObjectives()) {
+			intern(strings, indexes, objective.name());
+			for (String name : objective.completedBy()) {
+				intern(strings, indexes, name);
+			}
+		}
+
+		byte[][] utf8 = new byte[strings.size()][];
+		int capacity = Integer.BYTES + 1 + Long.BYTES + 1 + 1 + 2 + 2 * CardsDeck.TOTAL_CARDS + 1 + 1 + CRC_BYTES;
+		for (int i = 0; i < utf8.length; i++) {
+			utf8[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			if (utf8[i].length > 0xFFFF) {
+				throw new IllegalArgumentException("String too long");
+			}
+			capacity += Short.BYTES + utf8[i].length;
+		}
+		capacity += gridBytes(state.tabletop().grid());
+		for (SavePlayer player : state.players()) {
+			capacity += 3 + gridBytes(player.shelf()) + 2 * player.cockades().size() + Short.BYTES;
+		}
+		for (SaveCommonObjective objective : state.commonObjectives()) {
+			capacity += 3 + objective.completedBy().size();
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(capacity);
+		out.putInt(MAGIC);
+		out.put(VERSION);
+		out.putLong(state.seed());
+		out.put((byte)state.playerIteratorIndex());
+
+		out.put((byte)utf8.length);
+		for (byte[] string : utf8) {
+			out.putShort((short)string.length);
+			out.put(string);
+		}
+
+		writeGrid(out, state.tabletop().grid());
+		writeDeck(out, state.tabletop().deck().getCodes(), state.seed());
+
+		out.put((byte)state.players().size());
+		for (SavePlayer player : state.players()) {
+			out.put(indexes.get(player.name()).byteValue());
+			out.put(indexes.get(player.personalObjective()).byteValue());
+			writeGrid(out, player.shelf());
+			out.put((byte)checkByte(player.cockades().size()));
+			for (Cockade cockade : player.cockades()) {
+				out.put(indexes.get(cockade.name()).byteValue());
+				out.put((byte)checkByte(cockade.points()));
+			}
+			out.putShort((short)player.points());
+		}
+
+		out.put((byte)state.commonObjectives().size());
+		for (SaveCommonObjective objective : state.commonObjectives()) {
+			out.put(indexes.get(objective.name()).byteValue());
+			out.put((byte)checkByte(objective.points()));
+			out.put((byte)objective.completedBy().size());
+			for (String name : objective.completedBy()) {
+				out.put(indexes.get(name).byteValue());
+			}
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(out.array(), 0, out.position());
+		out.putInt((int)crc.getValue());
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * Check if some bytes start like an encoded save state
+	 * @param bytes the bytes to check
+	 * @return true if they start with the magic number of the format
+	 */
+	public static boolean isEncoded(byte[] bytes) {
+		return bytes.length >= Integer.BYTES && ByteBuffer.wrap(bytes).getInt(0) == MAGIC;
+	}
+
+	/**
+	 * Decode a save state, reading the buffer from its position to its limit
+	 * @param buffer the buffer containing the encoded save state
+	 * @return the save state
+	 * @throws IOException if the data is corrupted, truncated or of an unknown version
+	 */
+	public static SaveState decode(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < Integer.BYTES + 1 + CRC_BYTES) {
+			throw new IOException("Truncated save state");
+		}
+		int start = buffer.position();
+		int end = buffer.limit() - CRC_BYTES;
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate().limit(end));
+		if ((int)crc.getValue() != buffer.getInt(end)) {
+			throw new IOException("Corrupted save state (wrong checksum)");
+		}
+		ByteBuffer in = buffer.duplicate().limit(end);
+		in.position(start);
+
+		try {
+			if (in.getInt() != MAGIC) {
+				throw new IOException("Not a save state");
+			}
+			byte version = in.get();
+			if (version != VERSION) {
+				throw new IOException("Unknown save state version " + version);
+			}
+			long seed = in.getLong();
+			int playerIteratorIndex = in.get();
+
+			String[] strings = new String[in.get() & 0xFF];
+			for (int i = 0; i < strings.length; i++) {
+				byte[] utf8 = new byte[in.getShort() & 0xFFFF];
+				in.get(utf8);
+				strings[i] = new String(utf8, StandardCharsets.UTF_8);
+			}
+
+			Card[][] grid = readGrid(in, TableTop.SIZE, TableTop.SIZE);
+			SaveTableTop tabletop = new SaveTableTop(grid, readDeck(in, seed));
+
+			int nPlayers = in.get() & 0xFF;
+			ArrayList<SavePlayer> players = new ArrayList<>(nPlayers);
+			for (int i = 0; i < nPlayers; i++) {
+				String name = readString(in, strings);
+				String personalObjective = readString(in, strings);
+				Card[][] shelf = readGrid(in, Shelf.ROWS, Shelf.COLUMNS);
+				int nCockades = in.get() & 0xFF;
+				ArrayList<Cockade> cockades = new ArrayList<>(nCockades);
+				for (int j = 0; j < nCockades; j++) {
+					cockades.add(new Cockade(readString(in, strings), in.get() & 0xFF));
+				}
+				players.add(new SavePlayer(name, personalObjective, shelf, cockades, in.getShort()));
+			}
+
+			int nObjectives = in.get() & 0xFF;
+			ArrayList<SaveCommonObjective> commonObjectives = new ArrayList<>(nObjectives);
+			for (int i = 0; i < nObjectives; i++) {
+				String name = readString(in, strings);
+				int points = in.get() & 0xFF;
+				int nCompleted = in.get() & 0xFF;
+				HashSet<String> completedBy = new HashSet<>();
+				for (int j = 0; j < nCompleted; j++) {
+					completedBy.add(readString(in, strings));
+				}
+				commonObjectives.add(new SaveCommonObjective(name, points, completedBy));
+			}
+
+			if (in.hasRemaining()) {
+				throw new IOException("Trailing data in save state");
+			}
+			buffer.position(buffer.limit());
+			return new SaveState(tabletop, players, commonObjectives, playerIteratorIndex, seed);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated save state");
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException("Invalid save state: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Add a string to the string table, if it isn't already there
+	 * @param strings the string table
+	 * @param indexes the index of every string in the table
+	 * @param string the string
+	 * @throws IllegalArgumentException if the table is full
+	 */
+	private static void intern(ArrayList<String> strings, HashMap<String, Integer> indexes, String string) {
+		if (!indexes.containsKey(string)) {
+			indexes.put(string, checkByte(strings.size()));
+			strings.add(string);
+		}
+	}
+
+	/**
+	 * Check that a number fits in an unsigned byte
+	 * @param value the number
+	 * @return the number
+	 * @throws IllegalArgumentException if it doesn't fit
+	 */
+	private static int checkByte(int value) {
+		if (value < 0 || value > 0xFF) {
+			throw new IllegalArgumentException("Value out of range: " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Read a reference to the string table
+	 * @param in the buffer to read from
+	 * @param strings the string table
+	 * @return the referenced string
+	 * @throws IndexOutOfBoundsException if the reference is not in the table
+	 */
+	private static String readString(ByteBuffer in, String[] strings) {
+		return strings[in.get() & 0xFF];
+	}
+
+	/**
+	 * Write the deck, as its size if it is the rest of the deck generated by the seed
+	 * @param out the buffer to write to
+	 * @param codes the codes of the deck
+	 * @param seed the seed of the game
+	 */
+	private static void writeDeck(ByteBuffer out, byte[] codes, long seed) {
+		byte[] initial = Game.initialDeck(seed).getCodes();
+		if (Arrays.equals(codes, 0, codes.length, initial, 0, Math.min(codes.length, initial.length))) {
+			out.put((byte)codes.length);
+		} else {
+			out.put((byte)EXPLICIT_DECK);
+			out.put((byte)codes.length);
+			out.put(codes);
+		}
+	}
+
+	/**
+	 * Read a deck written by `writeDeck`
+	 * @param in the buffer to read from
+	 * @param seed the seed of the game
+	 * @return the deck
+	 * @throws IllegalArgumentException if the deck is not valid
+	 */
+	private static CardsDeck readDeck(ByteBuffer in, long seed) {
+		int size = in.get() & 0xFF;
+		byte[] codes;
+		if (size == EXPLICIT_DECK) {
+			codes = new byte[in.get() & 0xFF];
+			in.get(codes);
+		} else if (size <= CardsDeck.TOTAL_CARDS) {
+			codes = Arrays.copyOf(Game.initialDeck(seed).getCodes(), size);
+		} else {
+			throw new IllegalArgumentException("Invalid deck");
+		}
+		return new CardsDeck(codes);
+	}
+
+	/**
+	 * Get the maximum number of bytes taken by a grid
+	 * @param grid the grid
+	 * @return the number of bytes
+	 */
+	private static int gridBytes(Card[][] grid) {
+		int cells = grid.length == 0 ? 0 : grid.length * grid[0].length;
+		return 2 + (cells + 7) / 8 + cells;
+	}
+
+	/**
+	 * Write a grid of cards (null for empty cells)
+	 * @param out the buffer to write to
+	 * @param grid the grid
+	 */
+	private static void writeGrid(ByteBuffer out, Card[][] grid) {
+		int rows = grid.length;
+		int columns = rows == 0 ? 0 : grid[0].length;
+		out.put((byte)rows);
+		out.put((byte)columns);
+		byte[] bitmap = new byte[(rows * columns + 7) / 8];
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++) {
+				if (grid[y][x] != null) {
+					int index = y * columns + x;
+					bitmap[index / 8] |= (byte)(1 << (index % 8));
+				}
+			}
+		}
+		out.put(bitmap);
+		for (Card[] row : grid) {
+			for (Card card : row) {
+				if (card != null) {
+					out.put(card.getCode());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a grid written by `writeGrid`
+	 * @param in the buffer to read from
+	 * @param rows the expected number of rows
+	 * @param columns the expected number of columns
+	 * @return the grid
+	 * @throws IllegalArgumentException if the grid doesn't have the expected size
+	 */
+	private static Card[][] readGrid(ByteBuffer in, int rows, int columns) {
+		if ((in.get() & 0xFF) != rows || (in.get() & 0xFF) != columns) {
+			throw new IllegalArgumentException("Wrong grid size");
+		}
+		byte[] bitmap = new byte[(rows * columns + 7) / 8];
+		in.get(bitmap);
+		Card[][] grid = new Card[rows][columns];
+		for (int y = 0; y < rows; y++) {
+			for (int x = 0; x < columns; x++) {
+				int index = y * columns + x;
+				if ((bitmap[index / 8] >>> (index % 8) & 1) != 0) {
+					grid[y][x] = Card.fromCode(in.get());
+				}
+			}
+		}
+		return grid;
+	}
+}
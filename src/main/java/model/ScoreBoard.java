@@ -6,6 +6,7 @@ import network.GlobalClientManager;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Class to construct a serializable scoreboard
@@ -34,9 +35,20 @@ public class ScoreBoard implements Serializable, Iterable<Score> {
 
     /**
      * Constructor of the class to create the scoreboard from the final game state.
+     * The connection status of the players is taken from the `GlobalClientManager`.
      * @param game the game object to construct the scoreboard from
      */
     public ScoreBoard(Game game) {
+        this(game, ScoreBoard::isConnected);
+    }
+
+    /**
+     * Constructor of the class to create the scoreboard from the final game state,
+     * without depending on the network layer.
+     * @param game the game object to construct the scoreboard from
+     * @param isConnected predicate telling if the player with the given name is still connected
+     */
+    public ScoreBoard(Game game, Predicate<String> isConnected) {
         scores = new ArrayList<>();
         cockades = new HashMap<>();
         ArrayList<Player> players = game.finalRanks();
@@ -48,7 +60,7 @@ public class ScoreBoard implements Serializable, Iterable<Score> {
         mostTrophies = players.stream().max(Comparator.comparingInt(p -> p.getShelf().countCard(Card.Type.Trophy))).get().getName();
         mostPlants = players.stream().max(Comparator.comparingInt(p -> p.getShelf().countCard(Card.Type.Plant))).get().getName();
 
-        soleSurvivor = findSoleSurvivor(players);
+        soleSurvivor = findSoleSurvivor(players, isConnected);
         if (soleSurvivor != null) {
             victoryType = null;
             Player solePlayer = players.stream().filter(p -> p.getName().equals(soleSurvivor)).findFirst().get();
@@ -74,22 +86,32 @@ public class ScoreBoard implements Serializable, Iterable<Score> {
     }
 
     /**
-     * Check if the game ended because a player remained alone for too long
-     * @param players the list of players
-     * @return the name of the sole survivor or null
+     * Check if a player is connected to the server
+     * @param playerName the name of the player
+     * @return true if the client of the player is present and not disconnected
      */
-    private String findSoleSurvivor(ArrayList<Player> players) {
-        String soleSurvivor = null;
+    private static boolean isConnected(String playerName) {
         ClientManagerInterface clientManager;
-        int connected = 0;
         try {
             clientManager = GlobalClientManager.getInstance();
         } catch (Exception e) {
             throw new RuntimeException("Cannot get client manager");
         }
+        Optional<ClientInterface> client = clientManager.getClient(playerName);
+        return client.isPresent() && !client.get().isDisconnected();
+    }
+
+    /**
+     * Check if the game ended because a player remained alone for too long
+     * @param players the list of players
+     * @param isConnected predicate telling if a player is still connected
+     * @return the name of the sole survivor or null
+     */
+    private String findSoleSurvivor(ArrayList<Player> players, Predicate<String> isConnected) {
+        String soleSurvivor = null;
+        int connected = 0;
         for(Player player : players) {
-            Optional<ClientInterface> client = clientManager.getClient(player.getName());
-            if(client.isPresent() && !client.get().isDisconnected()){
+            if(isConnected.test(player.getName())){
                 connected++;
                 soleSurvivor = player.getName();
             }
@@ -8,17 +8,38 @@ import java.util.Optional;
  * It holds the cards that the player has placed on the shelf.
  * You can construct an empty shelf by calling the constructor with no parameters,
  * or give a serializable representation of the shelf (as a matrix of `Card`) to load it.
+ * Internally the shelf is a bitboard: the cell (y, x) is the bit `y * COLUMNS + x`
+ * of an occupancy mask and of the mask of its card type, so that the scoring
+ * methods work with a few bit operations instead of walking the whole grid.
+ * The groups of adjacent cards are kept in a union-find updated on every insertion.
  */
 public class Shelf {
-	// Size of the shelf 6(rows)x5(columns)
-	private final Optional<Card>[][] slots;
-
 	public static final int COLUMNS = 5;
 	public static final int ROWS = 6;
+	public static final int CELLS = ROWS * COLUMNS;
+
+	// Bitboard masks, bit `y * COLUMNS + x` represents the cell (y, x)
+	public static final long FULL_MASK = (1L << CELLS) - 1;
+	public static final long FIRST_COLUMN_MASK = columnMask(0);
+	public static final long LAST_COLUMN_MASK = columnMask(COLUMNS - 1);
+	public static final long TOP_ROW_MASK = rowMask(ROWS - 1);
 
 	private static final int[] groupPoints = {2, 3, 5, 8};
-	private static final int[] dx = {-1, 0, 1, 0};
-	private static final int[] dy = {0, -1, 0, 1};
+
+	// Occupied cells, and occupied cells for every `Card.Type` (indexed by ordinal)
+	private long occupied;
+	private final long[] typeMasks;
+	// The actual cards, needed to rebuild the views with the right images
+	private final Card[] cards;
+	// Union-find of the groups of adjacent cards of the same type, updated on every insertion
+	private final int[] parent;
+	private final int[] groupSize;
+	private int groupsPoints;
+	// Number of times a card has been overwritten (only possible with `insertTest`)
+	private int overwrites;
+
+	// Lazily derived `Optional` view, dropped on every change
+	private Optional<Card>[][] slots;
 
 	/**
 	 * Constructor that creates a new shelf with a two-dimensional array of empty cards
@@ -27,12 +48,14 @@ public class Shelf {
 	 * @author Lorenzo, Marco, Ludovico
 	 */
 	public Shelf() {
-		slots = new Optional[ROWS][COLUMNS];
-		for (int y = 0; y < ROWS; y++) {
-			for (int x = 0; x < COLUMNS; x++) {
-				slots[y][x] = Optional.empty();
-			}
-		}
+		occupied = 0;
+		typeMasks = new long[Card.Type.values().length];
+		cards = new Card[CELLS];
+		parent = new int[CELLS];
+		groupSize = new int[CELLS];
+		groupsPoints = 0;
+		overwrites = 0;
+		slots = null;
 	}
 
 	/**
@@ -40,13 +63,11 @@ public class Shelf {
 	 * @param cards a matrix of `Card` representing the shelf
 	 */
 	public Shelf(Card[][] cards) {
-		slots = new Optional[ROWS][COLUMNS];
+		this();
 		for (int y = 0; y < ROWS; y++) {
 			for (int x = 0; x < COLUMNS; x++) {
 				if (cards[y][x] != null) {
-					slots[y][x] = Optional.of(cards[y][x]);
-				} else {
-					slots[y][x] = Optional.empty();
+					set(y, x, cards[y][x]);
 				}
 			}
 		}
@@ -55,14 +76,175 @@ public class Shelf {
 	/**
 	 * Constructor to initialize a shelf with a specified two-dimensional array of cards.
 	 * Note: this game must not be used by the controller it has to be used only for testing or for the CLI
+	 * The given matrix is kept as the shelf view until the shelf is modified.
 	 *
 	 * @param slots The two-dimensional array of cards to initialize the shelf with
 	 * @author Marco
 	 */
 	public Shelf(Optional<Card>[][] slots) {
+		this();
+		for (int y = 0; y < ROWS; y++) {
+			for (int x = 0; x < COLUMNS; x++) {
+				if (slots[y][x] != null && slots[y][x].isPresent()) {
+					set(y, x, slots[y][x].get());
+				}
+			}
+		}
 		this.slots = slots;
 	}
 
+	/**
+	 * Get the mask of all the cells in the given column
+	 * @param column the column
+	 * @return the mask of the column
+	 */
+	public static long columnMask(int column) {
+		long mask = 0;
+		for (int y = 0; y < ROWS; y++) {
+			mask |= 1L << (y * COLUMNS + column);
+		}
+		return mask;
+	}
+
+	/**
+	 * Get the mask of all the cells in the given row
+	 * @param row the row
+	 * @return the mask of the row
+	 */
+	public static long rowMask(int row) {
+		return ((1L << COLUMNS) - 1) << (row * COLUMNS);
+	}
+
+	/**
+	 * Get the bit index of the given cell
+	 * @param y the row of the cell
+	 * @param x the column of the cell
+	 * @return the bit index of the cell
+	 */
+	public static int bitIndex(int y, int x) {
+		return y * COLUMNS + x;
+	}
+
+	/**
+	 * Expand a set of cells to the orthogonally adjacent ones, without wrapping around the columns.
+	 * @param mask the set of cells to expand
+	 * @return the given set plus all the adjacent cells
+	 */
+	public static long expand(long mask) {
+		return (
+			mask |
+			(mask << COLUMNS) |
+			(mask >>> COLUMNS) |
+			((mask & ~LAST_COLUMN_MASK) << 1) |
+			((mask & ~FIRST_COLUMN_MASK) >>> 1)
+		) & FULL_MASK;
+	}
+
+	/**
+	 * Get the connected group of cells of `area` containing `seed`
+	 * @param seed a mask containing the starting cell(s)
+	 * @param area the cells that can be part of the group
+	 * @return the mask of the connected group
+	 */
+	public static long floodFill(long seed, long area) {
+		long group = seed & area;
+		long next = expand(group) & area;
+		while (next != group) {
+			group = next;
+			next = expand(group) & area;
+		}
+		return group;
+	}
+
+	/**
+	 * Put a card in the given cell, updating all the masks and the groups.
+	 * @param y the row of the cell
+	 * @param x the column of the cell
+	 * @param card the card to put
+	 */
+	private void set(int y, int x, Card card) {
+		int index = bitIndex(y, x);
+		long bit = 1L << index;
+		boolean overwrite = cards[index] != null;
+		if (overwrite) {
+			typeMasks[cards[index].getType().ordinal()] &= ~bit;
+		}
+		occupied |= bit;
+		typeMasks[card.getType().ordinal()] |= bit;
+		cards[index] = card;
+		slots = null;
+
+		if (overwrite) {
+			// Groups cannot be split in a union-find, rebuild them from scratch
+			overwrites++;
+			groupsPoints = 0;
+			for (long bits = occupied; bits != 0; bits &= bits - 1) {
+				long lowest = Long.lowestOneBit(bits);
+				addToGroups(Long.numberOfTrailingZeros(lowest), occupied & ~((lowest << 1) - 1));
+			}
+		} else {
+			addToGroups(index, 0);
+		}
+	}
+
+	/**
+	 * Add a new card to the union-find, merging it with its neighbours of the same type
+	 * @param index the index of the new card
+	 * @param ignore the cells that must not be considered as neighbours yet
+	 */
+	private void addToGroups(int index, long ignore) {
+		parent[index] = index;
+		groupSize[index] = 1;
+		long neighbours = expand(1L << index) & typeMasks[cards[index].getType().ordinal()] & ~ignore & ~(1L << index);
+		for (; neighbours != 0; neighbours &= neighbours - 1) {
+			union(index, Long.numberOfTrailingZeros(neighbours));
+		}
+	}
+
+	/**
+	 * Find the representative of the group of a cell, compressing the path
+	 * @param index the index of the cell
+	 * @return the index of the representative of the group
+	 */
+	private int find(int index) {
+		while (parent[index] != index) {
+			parent[index] = parent[parent[index]];
+			index = parent[index];
+		}
+		return index;
+	}
+
+	/**
+	 * Merge the groups of two cells, keeping the score of the groups up to date
+	 * @param a the index of the first cell
+	 * @param b the index of the second cell
+	 */
+	private void union(int a, int b) {
+		a = find(a);
+		b = find(b);
+		if (a == b) {
+			return;
+		}
+		if (groupSize[a] < groupSize[b]) {
+			int tmp = a;
+			a = b;
+			b = tmp;
+		}
+		groupsPoints -= pointsForGroup(groupSize[a]) + pointsForGroup(groupSize[b]);
+		parent[b] = a;
+		groupSize[a] += groupSize[b];
+		groupsPoints += pointsForGroup(groupSize[a]);
+	}
+
+	/**
+	 * Get the points given by a group of adjacent cards
+	 * @param size the size of the group
+	 * @return the points given by the group
+	 */
+	private static int pointsForGroup(int size) {
+		return size >= 3 ? groupPoints[Math.min(size - 3, 3)] : 0;
+	}
+
 	/**
 	 * Method that inserts a specified array of cards into a specified column on the shelf.
 	 * If the column is invalid (out of range), throws an InvalidMoveException with an appropriate error message.
@@ -88,24 +270,23 @@ public class Shelf {
 			throw new InvalidMoveException("Not enough space in column");
 		}
 		for (Card card : cards) {
-			slots[highest++][column] = Optional.of(card);
+			set(highest++, column, card);
 		}
 	}
 
 	/**
-	 * Private helper method that returns the index of the highest empty slot in a specified column on the shelf.
+	 * Returns the index of the highest empty slot in a specified column on the shelf.
 	 *
 	 * @param column The index of the column to check
-	 * @return The index of the highest empty slot in the column
+	 * @return The index of the highest empty slot in the column, `ROWS` if the column is full
 	 * @author Ludovico, Marco
 	 */
-	private int getHighest(int column) {
-		for (int y = 0; y < ROWS; y++) {
-			if (slots[y][column].isEmpty()) {
-				return y;
-			}
+	public int getHighest(int column) {
+		long free = ~occupied & (FIRST_COLUMN_MASK << column);
+		if (free == 0) {
+			return ROWS;
 		}
-		return ROWS;
+		return Long.numberOfTrailingZeros(free) / COLUMNS;
 	}
 
 	/**
@@ -122,7 +303,7 @@ public class Shelf {
 		if (y >= ROWS || y < 0 || x < 0 || x >= COLUMNS) {
 			throw new InvalidMoveException("Card requested is out of bound");
 		}
-		return slots[y][x];
+		return getShelf()[y][x];
 	}
 
 	/**
@@ -130,6 +311,7 @@ public class Shelf {
 	 * non-empty cards on the board with a size of at least 3.
 	 * A Cockade is added to the resulting ArrayList for each group, with a name indicating the size and
 	 * color of the group and the associated point value.
+	 * Groups are reported in the order of their lowest, leftmost cell.
 	 *
 	 * @return ArrayList of Cockades representing all groups of adjacent non-empty cards on the board
 	 * with a size of at least 3.
@@ -138,22 +320,46 @@ public class Shelf {
 	public ArrayList<Cockade> getGroupsCockades() {
 		ArrayList<Cockade> result = new ArrayList<>();
 
-		boolean[][] visited = new boolean[ROWS][COLUMNS];
-		for (int y = 0; y < ROWS; y++) {
-			for (int x = 0; x < COLUMNS; x++) {
-				if (slots[y][x].isEmpty()) continue;
+		// The first cell found of every group is its lowest, leftmost one
+		long seenGroups = 0;
+		for (long bits = occupied; bits != 0; bits &= bits - 1) {
+			int root = find(Long.numberOfTrailingZeros(bits));
+			if ((seenGroups & 1L << root) != 0) {
+				continue;
+			}
+			seenGroups |= 1L << root;
 
-				int groupSize = getGroupSize(y, x, slots[y][x].get().getType(), visited);
-				if (groupSize >= 3) {
-					String cockadeName = String.format("Area of %s of size %d", slots[y][x].get().getType(), groupSize);
-					result.add(new Cockade(cockadeName, groupPoints[Math.min(groupSize - 3, 3)]));
-				}
+			int size = groupSize[root];
+			if (size >= 3) {
+				String cockadeName = String.format("Area of %s of size %d", cards[root].getType(), size);
+				result.add(new Cockade(cockadeName, pointsForGroup(size)));
 			}
 		}
 
 		return result;
 	}
 
+	/**
+	 * Get the total points given by the groups of adjacent cards,
+	 * that is the sum of the points of `getGroupsCockades()`.
+	 *
+	 * @return the points given by the groups of adjacent cards
+	 */
+	public int getGroupsPoints() {
+		return groupsPoints;
+	}
+
+	/**
+	 * Get the number of times a card has been overwritten.
+	 * Cards are never overwritten during a game, so if this number doesn't change,
+	 * the shelf only grows and equal occupied cells mean equal cards.
+	 *
+	 * @return the number of overwritten cards
+	 */
+	public int getOverwrites() {
+		return overwrites;
+	}
+
 	/**
 	 * Calculates and returns the size of the group of adjacent non-empty cards on the board
 	 * that includes the card at the specified coordinates and has the same color as the reference card.
@@ -167,17 +373,24 @@ public class Shelf {
 	 * @author Marco
 	 */
 	public int getGroupSize(int y, int x, Card.Type reference, boolean[][] visited) {
-		if (y < 0 || x < 0 || y >= ROWS || x >= COLUMNS || visited[y][x] || !slots[y][x].map(value -> value.getType()  == reference).orElse(false)) {
+		if (y < 0 || x < 0 || y >= ROWS || x >= COLUMNS || visited[y][x]) {
 			return 0;
 		}
-		visited[y][x] = true;
-
-		int result = 1;
-		for (int i = 0; i < 4; i++) {
-			result += getGroupSize(y + dy[i], x + dx[i], reference, visited);
+		long area = typeMasks[reference.ordinal()];
+		for (int vy = 0; vy < ROWS; vy++) {
+			for (int vx = 0; vx < COLUMNS; vx++) {
+				if (visited[vy][vx]) {
+					area &= ~(1L << bitIndex(vy, vx));
+				}
+			}
+		}
+		long group = floodFill(1L << bitIndex(y, x), area);
+		for (long bits = group; bits != 0; bits &= bits - 1) {
+			int index = Long.numberOfTrailingZeros(bits);
+			visited[index / COLUMNS][index % COLUMNS] = true;
 		}
 
-		return result;
+		return Long.bitCount(group);
 	}
 
 	/**
@@ -187,12 +400,7 @@ public class Shelf {
 	 * @author Ludovico
 	 */
 	public boolean isFull() {
-		for (int x = 0; x < COLUMNS; x++) {
-			if (slots[ROWS - 1][x].isEmpty()) {
-				return false;
-			}
-		}
-		return true;
+		return (occupied & TOP_ROW_MASK) == TOP_ROW_MASK;
 	}
 
 	/**
@@ -208,9 +416,7 @@ public class Shelf {
 		Card[][] result = new Card[ROWS][COLUMNS];
 
 		for (int y = 0; y < ROWS; y++) {
-			for (int x = 0; x < COLUMNS; x++) {
-				result[y][x] = slots[y][x].orElse(null);
-			}
+			System.arraycopy(cards, y * COLUMNS, result[y], 0, COLUMNS);
 		}
 
 		return result;
@@ -226,7 +432,7 @@ public class Shelf {
 	 * @author Ludovico
 	 */
 	public void insertTest(int column, int row, Card card) {
-		slots[row][column] = Optional.of(card);
+		set(row, column, card);
 	}
 
 	/**
@@ -237,22 +443,53 @@ public class Shelf {
 	 * @author Lorenzo
 	 */
 	public int countCard(Card.Type card) {
-		int count = 0;
-		for (int y = 0; y < ROWS; y++) {
-			for (int x = 0; x < COLUMNS; x++) {
-				if (slots[y][x].isPresent() && slots[y][x].get().getType() == card) {
-					count++;
-				}
-			}
-		}
-		return count;
+		return Long.bitCount(typeMasks[card.ordinal()]);
 	}
 
 	/**
-	 * Getter for the `slots` field (they represent the whole shelf information)
-	 * @return the `slots` field
+	 * Getter for the occupancy mask
+	 * @return the mask of the non-empty cells
+	 */
+	public long getOccupiedMask() {
+		return occupied;
+	}
+
+	/**
+	 * Getter for the mask of a card type
+	 * @param type the card type
+	 * @return the mask of the cells containing a card of the given type
+	 */
+	public long getTypeMask(Card.Type type) {
+		return typeMasks[type.ordinal()];
+	}
+
+	/**
+	 * Get the type of the card in the given cell, without any bound check or allocation
+	 * @param y the row of the cell
+	 * @param x the column of the cell
+	 * @return the type of the card, or null if the cell is empty
+	 */
+	public Card.Type getType(int y, int x) {
+		Card card = cards[bitIndex(y, x)];
+		return card == null ? null : card.getType();
+	}
+
+	/**
+	 * Getter for the shelf as a matrix of `Optional` (they represent the whole shelf information)
+	 * The matrix is built on the first request after a change and shared until the next one,
+	 * so it must not be modified by the caller.
+	 * @return the shelf as a matrix of `Optional`
 	 */
 	public Optional<Card>[][] getShelf() {
+		if (slots == null) {
+			Optional<Card>[][] view = new Optional[ROWS][COLUMNS];
+			for (int y = 0; y < ROWS; y++) {
+				for (int x = 0; x < COLUMNS; x++) {
+					view[y][x] = Optional.ofNullable(cards[bitIndex(y, x)]);
+				}
+			}
+			slots = view;
+		}
 		return slots;
 	}
 
@@ -1,6 +1,8 @@
 package model;
 
+import java.util.ArrayList;
 import java.util.Optional;
+import java.util.random.RandomGenerator;
 
 /**
  * Class that holds information about the tabletop.
@@ -12,14 +14,31 @@ public class TableTop {
 	public static final int SIZE = 9;
 	public static final int MAX_PLAYERS = 6;
 
+	// The 81 cells are split by rows in two words: rows [0, LOW_ROWS) in the low word
+	// and the remaining ones in the high word. The cell (y, x) is the bit `y * SIZE + x` of the board.
+	public static final int LOW_ROWS = 7;
+	public static final int LOW_BITS = LOW_ROWS * SIZE;
+	public static final long LOW_FULL = (1L << LOW_BITS) - 1;
+	public static final long HIGH_FULL = (1L << (SIZE * SIZE - LOW_BITS)) - 1;
+	private static final long ROW_MASK = (1L << SIZE) - 1;
+	private static final long LOW_FIRST_COLUMN = columnMask(0, LOW_ROWS);
+	private static final long LOW_LAST_COLUMN = columnMask(SIZE - 1, LOW_ROWS);
+	private static final long HIGH_FIRST_COLUMN = columnMask(0, SIZE - LOW_ROWS);
+	private static final long HIGH_LAST_COLUMN = columnMask(SIZE - 1, SIZE - LOW_ROWS);
+
 	private final CardsDeck deck;
-	private final Optional<Card>[][] table;
+	// The actual cards, needed to keep the images
+	private final Card[] cards;
+	// Occupied cells and occupied cells for every `Card.Type` (indexed by ordinal)
+	private long occupiedLow;
+	private long occupiedHigh;
+	private final long[] typeLow;
+	private final long[] typeHigh;
+	private final long usedLow;
+	private final long usedHigh;
 
 	private final int nPlayers;
 
-	private static final int[] dx = {-1, 0, 1, 0};
-	private static final int[] dy = {0, -1, 0, 1};
-
 	public static final int[][] PLAYER_NUMBER_MASK = {
 		{MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS, 3          , 4          , MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS},
 		{MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS, 2          , 2          , 4          , MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS},
@@ -32,6 +51,40 @@ public class TableTop {
 		{MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS, 4          , 3          , MAX_PLAYERS, MAX_PLAYERS, MAX_PLAYERS}
 	};
 
+	// Used cells for every number of players, precomputed from `PLAYER_NUMBER_MASK`
+	private static final long[] USED_LOW = new long[MAX_PLAYERS + 1];
+	private static final long[] USED_HIGH = new long[MAX_PLAYERS + 1];
+	static {
+		for (int n = 0; n <= MAX_PLAYERS; n++) {
+			for (int y = 0; y < SIZE; y++) {
+				for (int x = 0; x < SIZE; x++) {
+					if (PLAYER_NUMBER_MASK[y][x] <= n) {
+						int index = y * SIZE + x;
+						if (index < LOW_BITS) {
+							USED_LOW[n] |= 1L << index;
+						} else {
+							USED_HIGH[n] |= 1L << (index - LOW_BITS);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the mask of a column in a word of `rows` rows
+	 * @param column the column
+	 * @param rows the number of rows in the word
+	 * @return the mask of the column
+	 */
+	private static long columnMask(int column, int rows) {
+		long mask = 0;
+		for (int y = 0; y < rows; y++) {
+			mask |= 1L << (y * SIZE + column);
+		}
+		return mask;
+	}
+
 	/**
 	 * Returns true if the position is used in this tabletop, false otherwise.
 	 * @author Marco
@@ -41,7 +94,8 @@ public class TableTop {
 	 * @return The card at the specified position.
 	 */
 	public boolean isUsed(int y, int x) {
-		return PLAYER_NUMBER_MASK[y][x] <= nPlayers;
+		int index = y * SIZE + x;
+		return index < LOW_BITS ? (usedLow >>> index & 1) != 0 : (usedHigh >>> (index - LOW_BITS) & 1) != 0;
 	}
 
 	/**
@@ -53,14 +107,19 @@ public class TableTop {
 	 * @param nPlayers The number of players in the game.
 	 */
 	public TableTop(int nPlayers) {
-		table = new Optional[SIZE][SIZE];
-		for (int y = 0; y < SIZE; y++){
-			for (int x = 0; x < SIZE; x++){
-				table[y][x] = Optional.empty();
-			}
-		}
-		this.nPlayers = nPlayers;
-		deck = new CardsDeck();
+		this(nPlayers, new CardsDeck());
+		fillTable();
+	}
+
+	/**
+	 * Creates a new TableTop object with a specified number of players,
+	 * shuffling the deck with the given random source.
+	 *
+	 * @param nPlayers The number of players in the game.
+	 * @param random The random source used to shuffle the deck.
+	 */
+	public TableTop(int nPlayers, RandomGenerator random) {
+		this(nPlayers, new CardsDeck(random));
 		fillTable();
 	}
 
@@ -70,49 +129,155 @@ public class TableTop {
 	 * @param nPlayers the number of players in the game.
 	 */
 	public TableTop(SaveTableTop tableTop, int nPlayers) {
-		table = new Optional[SIZE][SIZE];
+		this(nPlayers, tableTop.deck());
 		for (int y = 0; y < SIZE; y++){
 			for (int x = 0; x < SIZE; x++){
-				table[y][x] = Optional.ofNullable(tableTop.grid()[y][x]);
+				if (tableTop.grid()[y][x] != null) {
+					set(y * SIZE + x, tableTop.grid()[y][x]);
+				}
 			}
 		}
+	}
+
+	/**
+	 * Creates an empty TableTop object.
+	 * @param nPlayers the number of players in the game.
+	 * @param deck the deck of cards.
+	 */
+	private TableTop(int nPlayers, CardsDeck deck) {
 		this.nPlayers = nPlayers;
-		deck = tableTop.deck();
+		this.deck = deck;
+		cards = new Card[SIZE * SIZE];
+		typeLow = new long[Card.Type.values().length];
+		typeHigh = new long[Card.Type.values().length];
+		int maskIndex = Math.max(0, Math.min(nPlayers, MAX_PLAYERS));
+		usedLow = USED_LOW[maskIndex];
+		usedHigh = USED_HIGH[maskIndex];
+	}
+
+	/**
+	 * Put a card in the cell with the given index, updating the masks.
+	 * @param index the index of the cell (`y * SIZE + x`)
+	 * @param card the card to put
+	 */
+	private void set(int index, Card card) {
+		cards[index] = card;
+		if (index < LOW_BITS) {
+			occupiedLow |= 1L << index;
+			typeLow[card.getType().ordinal()] |= 1L << index;
+		} else {
+			occupiedHigh |= 1L << (index - LOW_BITS);
+			typeHigh[card.getType().ordinal()] |= 1L << (index - LOW_BITS);
+		}
+	}
+
+	/**
+	 * Remove the card in the cell with the given index, updating the masks.
+	 * @param index the index of the cell (`y * SIZE + x`)
+	 */
+	private void clear(int index) {
+		Card card = cards[index];
+		cards[index] = null;
+		if (index < LOW_BITS) {
+			occupiedLow &= ~(1L << index);
+			typeLow[card.getType().ordinal()] &= ~(1L << index);
+		} else {
+			occupiedHigh &= ~(1L << (index - LOW_BITS));
+			typeHigh[card.getType().ordinal()] &= ~(1L << (index - LOW_BITS));
+		}
 	}
 
 	/**
 	 * Fills any empty spaces on the table with cards drawn from the deck,
 	 * as long as the card meets the requirements for the position.
+	 * Cells are filled in row-major order.
 	 * @author Marco, Ludovico
 	 */
 	public void fillTable() {
-		for (int y = 0; y < SIZE; y++){
-			for (int x = 0; x < SIZE; x++){
-				if(isUsed(y, x) && table[y][x].isEmpty()){
-					table[y][x] = deck.draw();
-				}
+		for (long empty = usedLow & ~occupiedLow; empty != 0; empty &= empty - 1) {
+			Card card = deck.drawCard();
+			if (card == null) {
+				return;
+			}
+			set(Long.numberOfTrailingZeros(empty), card);
+		}
+		for (long empty = usedHigh & ~occupiedHigh; empty != 0; empty &= empty - 1) {
+			Card card = deck.drawCard();
+			if (card == null) {
+				return;
 			}
+			set(LOW_BITS + Long.numberOfTrailingZeros(empty), card);
 		}
 	}
 
 	/**
-	 * Determines if the table needs to be refilled based on whether there are any empty spaces
-	 * next to non-empty spaces. Returns true if a refill is needed, false otherwise.
+	 * Determines if the table needs to be refilled, that is, if no card on the table
+	 * has another card on one of its sides.
 	 * @author Marco, Ludovico
 	 *
 	 * @return True if the table needs to be refilled, false otherwise.
 	 */
 	public boolean needRefill() {
-		for (int y = 0; y < SIZE - 1; y++) {
-			for (int x = 0; x < SIZE - 1; x++) {
-				if (isUsed(y, x) && table[y][x].isPresent()) {
-					if ((isUsed(y + 1, x) && table[y + 1][x].isPresent()) || (isUsed(y, x + 1) && table[y][x + 1].isPresent())) {
-						return false;
-					}
-				}
-			}
+		// Cells having an occupied cell right above or on the right
+		long verticalLow = occupiedLow & ((occupiedLow >>> SIZE) | ((occupiedHigh & ROW_MASK) << (LOW_BITS - SIZE)));
+		long verticalHigh = occupiedHigh & (occupiedHigh >>> SIZE);
+		long horizontalLow = occupiedLow & ~LOW_LAST_COLUMN & (occupiedLow >>> 1);
+		long horizontalHigh = occupiedHigh & ~HIGH_LAST_COLUMN & (occupiedHigh >>> 1);
+		return (verticalLow | verticalHigh | horizontalLow | horizontalHigh) == 0;
+	}
+
+	/**
+	 * Get the low word of the mask of the pickable cards,
+	 * that are the cards having at least one free side.
+	 * @return the pickable cells in the rows [0, `LOW_ROWS`)
+	 */
+	public long getPickableLow() {
+		long enclosed =
+			(occupiedLow >>> SIZE | (occupiedHigh & ROW_MASK) << (LOW_BITS - SIZE)) &
+			(occupiedLow << SIZE) &
+			((occupiedLow & ~LOW_FIRST_COLUMN) >>> 1) &
+			((occupiedLow & ~LOW_LAST_COLUMN) << 1);
+		return occupiedLow & ~enclosed;
+	}
+
+	/**
+	 * Get the high word of the mask of the pickable cards,
+	 * that are the cards having at least one free side.
+	 * @return the pickable cells in the rows [`LOW_ROWS`, `SIZE`)
+	 */
+	public long getPickableHigh() {
+		long enclosed =
+			(occupiedHigh >>> SIZE) &
+			((occupiedHigh << SIZE | occupiedLow >>> (LOW_BITS - SIZE)) & HIGH_FULL) &
+			((occupiedHigh & ~HIGH_FIRST_COLUMN) >>> 1) &
+			((occupiedHigh & ~HIGH_LAST_COLUMN) << 1);
+		return occupiedHigh & ~enclosed;
+	}
+
+	/**
+	 * Get all the pickable positions, in row-major order.
+	 * @return the list of the pickable positions
+	 */
+	public ArrayList<Point> getPickablePositions() {
+		ArrayList<Point> result = new ArrayList<>();
+		for (long bits = getPickableLow(); bits != 0; bits &= bits - 1) {
+			int index = Long.numberOfTrailingZeros(bits);
+			result.add(new Point(index / SIZE, index % SIZE));
+		}
+		for (long bits = getPickableHigh(); bits != 0; bits &= bits - 1) {
+			int index = LOW_BITS + Long.numberOfTrailingZeros(bits);
+			result.add(new Point(index / SIZE, index % SIZE));
 		}
-		return true;
+		return result;
+	}
+
+	/**
+	 * Check if the cell with the given index is occupied
+	 * @param index the index of the cell (`y * SIZE + x`)
+	 * @return true if there is a card in the cell
+	 */
+	private boolean isOccupied(int index) {
+		return index < LOW_BITS ? (occupiedLow >>> index & 1) != 0 : (occupiedHigh >>> (index - LOW_BITS) & 1) != 0;
 	}
 
 	/**
@@ -131,19 +296,15 @@ public class TableTop {
 		if (!isUsed(y, x)) {
 			throw new InvalidMoveException("Card place not used");
 		}
-		if (table[y][x].isEmpty()) {
+		int index = y * SIZE + x;
+		if (!isOccupied(index)) {
 			throw new InvalidMoveException("Empty position");
 		}
-		for (int i = 0; i < 4; i++) {
-			if(
-				y + dy[i] >= SIZE || y + dy[i] < 0 ||
-				x + dx[i] >= SIZE || x + dx[i] < 0 ||
-				table[y + dy[i]][x + dx[i]].isEmpty()
-			) {
-				return true;
-			}
+		if (index < LOW_BITS) {
+			return (getPickableLow() >>> index & 1) != 0;
+		} else {
+			return (getPickableHigh() >>> (index - LOW_BITS) & 1) != 0;
 		}
-		return false;
 	}
 
 	/**
@@ -156,12 +317,58 @@ public class TableTop {
 	 * @throws InvalidMoveException If the specified position is already empty or not valid.
 	 */
 	public Card pickCard(int y, int x) throws InvalidMoveException {
-		Optional<Card> card = getCard(y, x);
-		if (card.isEmpty()) {
+		if (y < 0 || x < 0 || y >= SIZE || x >= SIZE) {
+			throw new InvalidMoveException("Invalid position");
+		}
+		int index = y * SIZE + x;
+		Card card = cards[index];
+		if (card == null) {
 			throw new InvalidMoveException("Empty position");
 		}
-		table[y][x] = Optional.empty();
-		return card.get();
+		clear(index);
+		return card;
+	}
+
+	/**
+	 * Getter for the low word of the mask of the cards of a type
+	 * @param type the card type
+	 * @return the cells of the rows [0, `LOW_ROWS`) containing a card of the given type
+	 */
+	public long getTypeLow(Card.Type type) {
+		return typeLow[type.ordinal()];
+	}
+
+	/**
+	 * Getter for the high word of the mask of the cards of a type
+	 * @param type the card type
+	 * @return the cells of the rows [`LOW_ROWS`, `SIZE`) containing a card of the given type
+	 */
+	public long getTypeHigh(Card.Type type) {
+		return typeHigh[type.ordinal()];
+	}
+
+	/**
+	 * Getter for the low word of the occupancy mask
+	 * @return the occupied cells of the rows [0, `LOW_ROWS`)
+	 */
+	public long getOccupiedLow() {
+		return occupiedLow;
+	}
+
+	/**
+	 * Getter for the high word of the occupancy mask
+	 * @return the occupied cells of the rows [`LOW_ROWS`, `SIZE`)
+	 */
+	public long getOccupiedHigh() {
+		return occupiedHigh;
+	}
+
+	/**
+	 * Getter for the `nPlayers` field.
+	 * @return the number of players of the tabletop.
+	 */
+	public int getNumberOfPlayers() {
+		return nPlayers;
 	}
 
 	/**
@@ -183,7 +390,17 @@ public class TableTop {
 		if (y < 0 || x < 0 || y >= SIZE || x >= SIZE) {
 			throw new InvalidMoveException("Invalid position");
 		}
-		return table[y][x];
+		return Optional.ofNullable(cards[y * SIZE + x]);
+	}
+
+	/**
+	 * Get the type of the card in the given cell, without any bound check or allocation
+	 * @param cell the index of the cell (`y * SIZE + x`)
+	 * @return the type of the card, or null if the cell is empty
+	 */
+	public Card.Type getType(int cell) {
+		Card card = cards[cell];
+		return card == null ? null : card.getType();
 	}
 
 	/**
@@ -199,9 +416,7 @@ public class TableTop {
 		Card[][] result = new Card[SIZE][SIZE];
 
 		for (int y = 0; y < SIZE; y++) {
-			for (int x = 0; x < SIZE; x++) {
-				result[y][x] = table[y][x].orElse(null);
-			}
+			System.arraycopy(cards, y * SIZE, result[y], 0, SIZE);
 		}
 
 		return result;
@@ -212,7 +427,7 @@ public class TableTop {
 	 * @return a serializable copy of the tabletop
 	 */
 	public SaveTableTop getSaveTableTop() {
-		return new SaveTableTop(getSerializable(), deck);
+		return new SaveTableTop(getSerializable(), new CardsDeck(deck.getCodes()));
 	}
 }
 
@@ -1,6 +1,9 @@
 package network;
 
-import java.io.ObjectOutputStream;
+import network.rpc.FrameCodec;
+import network.rpc.MessageCodec;
+
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,10 +38,19 @@ public class Function<P extends Serializable,R extends Serializable>{
      * @return the function itself.
      * @throws Exception if an error occurs.
      */
-    public Function call(ObjectOutputStream stream) throws Exception{
-        synchronized (stream){
-            stream.writeObject(getCall());
-        }
+    public Function call(OutputStream stream) throws Exception{
+        return call(stream, FrameCodec.SERIALIZATION);
+    }
+
+    /**
+     * Call the remote function, encoding the call with the protocol of the connection.
+     * @param stream the stream to send the call to.
+     * @param codec the codec of the connection.
+     * @return the function itself.
+     * @throws Exception if an error occurs.
+     */
+    public Function call(OutputStream stream, MessageCodec codec) throws Exception{
+        FrameCodec.writeFrame(stream, codec.encode(getCall()));
         return this;
     }
 
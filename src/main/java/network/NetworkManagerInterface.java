@@ -2,6 +2,7 @@ package network;
 
 import controller.lobby.Lobby;
 import network.parameters.CardSelect;
+import network.parameters.GameInfo;
 import network.parameters.LobbyCreateInfo;
 import network.parameters.Login;
 import network.parameters.Message;
@@ -124,6 +125,13 @@ public interface NetworkManagerInterface {
      */
     public Function<Boolean, Boolean> exitGame() throws Exception;
 
+    /**
+     * Get the whole state of the current game, after missing an update
+     * @return the remote function handler for this call
+     * @throws Exception if the network manager is not connected to the server
+     */
+    public Function<Boolean, GameInfo> gameSnapshot() throws Exception;
+
     /**
      * Login to the server
      * @param username the username to log in with
@@ -0,0 +1,318 @@
+package network;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of the messages waiting to be sent to a client, so a client that doesn't keep up never holds up the
+ * threads sending to it, nor grows the memory of the server.
+ * The superseded lobby updates are collapsed as soon as a new one is queued, and when the game updates waiting cross a
+ * threshold they are replaced by a single snapshot of the game, that the owner of the queue asks for and queues as a
+ * `Snapshot` event; the updates queued before it are dropped, as the snapshot includes them.
+ * When the queue is full anyway, the overflow policy chooses what to give up among the state events. The results of
+ * the calls, the chat messages and the other events are never dropped, nor is the message being sent, that the client
+ * has partly received.
+ * The size, the policy and the threshold are read from the `myshelfie.queue.size`, `myshelfie.queue.overflow`
+ * (`disconnect`, `drop-oldest`, `coalesce`) and `myshelfie.queue.snapshot` system properties.
+ * Not thread safe, it is guarded by the lock of its client.
+ * @param <T> the type of the messages, the encoded frames or the events themselves.
+ */
+public class OutboundQueue<T> {
+    /**
+     * What to do with a message that doesn't fit in a full queue
+     */
+    public enum OverflowPolicy {
+        // Disconnect the client, that gets the state of its game when it logs in again
+        DISCONNECT,
+        // Drop the oldest state event waiting, disconnect the client if there is none
+        DROP_OLDEST,
+        // Drop the state events superseded by the newest one, the client asks for a snapshot when it misses a version
+        COALESCE;
+
+        /**
+         * Parse the name of a policy, as written in the system property.
+         * @param name The name, case insensitive, with dashes or underscores.
+         * @return The policy, `COALESCE` if the name is unknown.
+         */
+        public static OverflowPolicy parse(String name) {
+            try {
+                return valueOf(name.toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unknown overflow policy " + name + ", using coalesce");
+                return COALESCE;
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the metrics of a queue
+     * @param depth the number of messages waiting to be sent
+     * @param maxDepth the maximum value reached by `depth`
+     * @param dropped the number of state events dropped by the `DROP_OLDEST` policy
+     * @param coalesced the number of state events dropped because superseded by a newer one or by a snapshot
+     * @param snapshots the number of times the backlog has been replaced by a snapshot
+     * @param overflowed whether the queue had no room for a message, so the client has been disconnected
+     */
+    public record Metrics(int depth, int maxDepth, long dropped, long coalesced, long snapshots, boolean overflowed) {}
+
+    /**
+     * A message waiting to be sent
+     * @param message the message
+     * @param event the type of the event in the message, null for the results and the other messages
+     */
+    private record Entry<T>(T message, ServerEvent.Type event) {}
+
+    private static final Logger logger = Logger.getLogger(OutboundQueue.class.getName());
+
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("myshelfie.queue.size", 256);
+    public static final OverflowPolicy DEFAULT_POLICY = OverflowPolicy.parse(System.getProperty("myshelfie.queue.overflow", "coalesce"));
+    public static final int DEFAULT_SNAPSHOT_THRESHOLD = Integer.getInteger("myshelfie.queue.snapshot", 16);
+
+    private final ArrayDeque<Entry<T>> entries = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int snapshotThreshold;
+    private final Predicate<T> started;
+    // A snapshot has been asked for and not queued yet, the game updates are dropped until it is
+    private boolean snapshotPending = false;
+    private boolean snapshotRequested = false;
+    // Number of game updates and snapshots waiting
+    private int gameStates = 0;
+    private int maxDepth = 0;
+    private long dropped = 0;
+    private long coalesced = 0;
+    private long snapshots = 0;
+    private boolean overflowed = false;
+
+    /**
+     * Constructor of the class.
+     * @param capacity The maximum number of messages waiting, at least one.
+     * @param policy What to do when a message doesn't fit.
+     * @param snapshotThreshold The number of game updates waiting over which they are replaced by a snapshot,
+     *                          0 to never replace them.
+     * @param started Check if a message has been partly sent, so that it cannot be dropped anymore.
+     */
+    public OutboundQueue(int capacity, OverflowPolicy policy, int snapshotThreshold, Predicate<T> started) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.snapshotThreshold = snapshotThreshold;
+        this.started = started;
+    }
+
+    /**
+     * Constructor of the class, with the default size, policy and threshold.
+     * @param started Check if a message has been partly sent, so that it cannot be dropped anymore.
+     */
+    public OutboundQueue(Predicate<T> started) {
+        this(DEFAULT_CAPACITY, DEFAULT_POLICY, DEFAULT_SNAPSHOT_THRESHOLD, started);
+    }
+
+    /**
+     * Add a message at the end of the queue, collapsing the ones it supersedes, and making room for it as the policy
+     * allows if the queue is full.
+     * @param message The message to send.
+     * @param event The type of the event in the message, null for the other messages.
+     * @return false if there is no room for the message, and the client must be disconnected.
+     */
+    public boolean offer(T message, ServerEvent.Type event) {
+        if (event == ServerEvent.Type.Snapshot) {
+            snapshotPending = false;
+            removeWaiting(OutboundQueue::isGameState);
+        } else if (event == ServerEvent.Type.LobbyUpdate) {
+            removeWaiting(type -> type == ServerEvent.Type.LobbyUpdate);
+        } else if (isSuperseded(event)) {
+            coalesced++;
+            return true;
+        }
+        if (entries.size() >= capacity && !makeRoom(event)) {
+            overflowed = true;
+            return false;
+        }
+        entries.add(new Entry<>(message, event));
+        maxDepth = Math.max(maxDepth, entries.size());
+        if (isGameState(event)) {
+            gameStates++;
+        }
+        if (snapshotThreshold > 0 && gameStates > snapshotThreshold && removeWaiting(OutboundQueue::isGameState) > 0) {
+            snapshotPending = true;
+            snapshotRequested = true;
+            snapshots++;
+        }
+        return true;
+    }
+
+    /**
+     * Check if the backlog has just been dropped, so that the owner of the queue must queue a snapshot of the game.
+     * @return true only the first time it is called after the backlog has been dropped.
+     */
+    public boolean takeSnapshotRequest() {
+        boolean requested = snapshotRequested;
+        snapshotRequested = false;
+        return requested;
+    }
+
+    /**
+     * Check if an event would be dropped, as superseded by the snapshot asked for and not queued yet.
+     * @param event The type of the event, null if it is not an event.
+     * @return true if the event would be dropped.
+     */
+    public boolean isSuperseded(ServerEvent.Type event) {
+        return snapshotPending && event != ServerEvent.Type.Snapshot && isGameState(event);
+    }
+
+    /**
+     * Stop waiting for the snapshot asked for, when the client is not in a game anymore.
+     */
+    public void cancelSnapshot() {
+        snapshotPending = false;
+    }
+
+    /**
+     * Drop the messages the policy allows to, to make room for a new one.
+     * @param event The type of the event in the new message, null if it is not an event.
+     * @return true if there is room for the new message.
+     */
+    private boolean makeRoom(ServerEvent.Type event) {
+        switch (policy) {
+            case DROP_OLDEST -> {
+                // Only the state events can be dropped, the client catches up with the next one
+                Iterator<Entry<T>> iterator = entries.iterator();
+                while (iterator.hasNext()) {
+                    Entry<T> entry = iterator.next();
+                    if (isState(entry.event()) && !started.test(entry.message())) {
+                        iterator.remove();
+                        dropped++;
+                        countGameStates();
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case COALESCE -> {
+                // The newest state event is the new one, if it is a state event, or the last one waiting
+                Entry<T> newest = null;
+                if (!isState(event)) {
+                    Iterator<Entry<T>> iterator = entries.descendingIterator();
+                    while (newest == null && iterator.hasNext()) {
+                        Entry<T> entry = iterator.next();
+                        if (isState(entry.event())) {
+                            newest = entry;
+                        }
+                    }
+                }
+                Entry<T> kept = newest;
+                int before = entries.size();
+                entries.removeIf(entry -> entry != kept && isState(entry.event()) && !started.test(entry.message()));
+                coalesced += before - entries.size();
+                countGameStates();
+                return entries.size() < capacity;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Drop the events waiting of the given types, but the one being sent.
+     * @param types The types of the events to drop.
+     * @return The number of events dropped.
+     */
+    private int removeWaiting(Predicate<ServerEvent.Type> types) {
+        int before = entries.size();
+        entries.removeIf(entry -> entry.event() != null && types.test(entry.event()) && !started.test(entry.message()));
+        coalesced += before - entries.size();
+        countGameStates();
+        return before - entries.size();
+    }
+
+    /**
+     * Count again the game updates waiting, after some messages have been dropped.
+     */
+    private void countGameStates() {
+        gameStates = 0;
+        for (Entry<T> entry : entries) {
+            if (isGameState(entry.event())) {
+                gameStates++;
+            }
+        }
+    }
+
+    /**
+     * Check if an event only carries the state of the game, so that a snapshot of the game supersedes it.
+     * @param event The type of the event, null if it is not an event.
+     * @return true if the event is superseded by a snapshot.
+     */
+    private static boolean isGameState(ServerEvent.Type event) {
+        return event == ServerEvent.Type.Update || event == ServerEvent.Type.UpdateDelta || event == ServerEvent.Type.Snapshot;
+    }
+
+    /**
+     * Check if an event only carries the state of the game or of the lobby, so that a newer one supersedes it.
+     * @param event The type of the event, null if it is not an event.
+     * @return true if the event is superseded by the newer state events.
+     */
+    private static boolean isState(ServerEvent.Type event) {
+        return isGameState(event) || event == ServerEvent.Type.LobbyUpdate;
+    }
+
+    /**
+     * Get the first message of the queue, without removing it.
+     * @return The message, null if the queue is empty.
+     */
+    public T peek() {
+        Entry<T> entry = entries.peek();
+        return entry == null ? null : entry.message();
+    }
+
+    /**
+     * Remove the first message of the queue, once it has been sent.
+     * @return The message, null if the queue is empty.
+     */
+    public T poll() {
+        Entry<T> entry = entries.poll();
+        if (entry == null) {
+            return null;
+        }
+        if (isGameState(entry.event())) {
+            gameStates--;
+        }
+        return entry.message();
+    }
+
+    /**
+     * Check if there are no messages waiting.
+     * @return true if the queue is empty.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Get the number of messages waiting.
+     * @return The number of messages in the queue.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drop all the messages waiting, when the client is disconnected.
+     */
+    public void clear() {
+        entries.clear();
+        gameStates = 0;
+        snapshotPending = false;
+        snapshotRequested = false;
+    }
+
+    /**
+     * Get the current metrics of the queue.
+     * @return The metrics.
+     */
+    public Metrics getMetrics() {
+        return new Metrics(entries.size(), maxDepth, dropped, coalesced, snapshots, overflowed);
+    }
+}
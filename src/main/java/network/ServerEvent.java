@@ -4,9 +4,14 @@ import network.parameters.Message;
 import model.ScoreBoard;
 import network.parameters.GameInfo;
 import network.parameters.Update;
+import network.parameters.UpdateDelta;
+import network.rpc.MessageCodec;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Class to represent an event sent by the server to the clients.
@@ -26,7 +31,9 @@ public class ServerEvent <T extends Serializable> implements Serializable{
         NewMessage,
         LobbyUpdate,
         ExitGame,
-        ServerDisconnect
+        ServerDisconnect,
+        UpdateDelta,
+        Snapshot
     }
 
     /**
@@ -43,6 +50,9 @@ public class ServerEvent <T extends Serializable> implements Serializable{
 
     private T data;
 
+    // Frames of the event by class of codec, shared by all the clients it is sent to
+    private transient HashMap<Class<?>, byte[]> frames;
+
     /**
      * Getter for the type of the event.
      * @return the type of the event.
@@ -59,6 +69,28 @@ public class ServerEvent <T extends Serializable> implements Serializable{
         return data;
     }
 
+    /**
+     * Get the frame of the event, pushed to the clients, encoded with the given codec.
+     * The event is encoded only once for every class of codec, however many clients it is sent to,
+     * so it must not be changed after being sent.
+     * @param codec the codec of the client.
+     * @return the frame, header included, that must not be modified.
+     * @throws IOException if the event cannot be encoded.
+     */
+    public synchronized byte[] getFrame(MessageCodec codec) throws IOException {
+        if (frames == null) {
+            frames = new HashMap<>(2);
+        }
+        byte[] frame = frames.get(codec.getClass());
+        if (frame == null) {
+            ByteBuffer encoded = codec.encode(Result.serverPush(this));
+            frame = new byte[encoded.remaining()];
+            encoded.get(frame);
+            frames.put(codec.getClass(), frame);
+        }
+        return frame;
+    }
+
     /**
      * Method to create a new Join event.
      * @param player the player that joined the lobby.
@@ -120,6 +152,24 @@ public class ServerEvent <T extends Serializable> implements Serializable{
         return new ServerEvent(Type.Update, update);
     }
 
+    /**
+     * Method to create a new UpdateDelta event.
+     * @param delta the changes of the game after a turn.
+     * @return the new event.
+     */
+    public static ServerEvent UpdateDelta(UpdateDelta delta){
+        return new ServerEvent(Type.UpdateDelta, delta);
+    }
+
+    /**
+     * Method to create a new Snapshot event, that replaces the updates a slow client has fallen behind on.
+     * @param info the state of the game for the player.
+     * @return the new event.
+     */
+    public static ServerEvent Snapshot(GameInfo info){
+        return new ServerEvent(Type.Snapshot, info);
+    }
+
     /**
      * Method to create a new NewMessage event.
      * @param message the message sent by a player.
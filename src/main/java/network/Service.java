@@ -15,5 +15,6 @@ public enum Service {
     GameLoad,
     CardSelect,
     GameChatSend,
-    ExitGame
+    ExitGame,
+    GameSnapshot
 }
@@ -16,6 +16,7 @@ import model.Card;
  * @param commonObjectivesPoints list of the points of the common objectives
  * @param personalObjective personal objective of the player
  * @param currentPlayer current player of the turn
+ * @param version version of the game state, the `UpdateDelta` that follows it has the next one
  * @author Marco
  */
 public record GameInfo(
@@ -26,6 +27,7 @@ public record GameInfo(
 	ArrayList<String> commonObjectives,
 	ArrayList<Integer> commonObjectivesPoints,
 	String personalObjective,
-	String currentPlayer
+	String currentPlayer,
+	int version
 ) implements Serializable {
 }
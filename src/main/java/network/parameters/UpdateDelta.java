@@ -0,0 +1,97 @@
+package network.parameters;
+
+import model.Card;
+import model.Cockade;
+import model.InvalidMoveException;
+import model.Point;
+import model.Shelf;
+import model.TableTop;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * UpdateDelta class is used to send the changes made by a turn from the server to the clients, instead of the whole
+ * tabletop and shelf of the `Update`.
+ * A client applies it only on the state with the previous version, and asks for a `GameSnapshot` if it missed one.
+ * @param version version of the game state after the turn
+ * @param idPlayer id of the author of the update
+ * @param removed positions of the cards picked from the tabletop, empty if the turn was skipped
+ * @param column column of the shelf where the cards have been inserted
+ * @param inserted cards inserted in the column, in order from the bottom
+ * @param refill cards added to the tabletop by its refill, null if it was not refilled
+ * @param nextPlayer next player of the turn
+ * @param completedObjectives list of the common objectives
+ * @param newCommonObjectivesScores list of the points of the common objectives
+ */
+public record UpdateDelta(int version, String idPlayer, ArrayList<Point> removed, int column, ArrayList<Card> inserted, Card[][] refill, String nextPlayer, ArrayList<Cockade> completedObjectives, ArrayList<Integer> newCommonObjectivesScores) implements Serializable {
+    /**
+     * What applying a delta to the state of a client did
+     */
+    public enum Outcome {
+        // The delta followed the state, that now includes it
+        APPLIED,
+        // The state already included the delta, that has been ignored
+        INCLUDED,
+        // An update has been missed, or the delta doesn't apply to the state: a snapshot of the game is needed
+        MISSED
+    }
+
+    /**
+     * Apply the changes of the turn to the tabletop and the shelves of a client, if they follow the version of its state.
+     * The whole delta is checked before changing anything, so a delta that doesn't apply leaves the state untouched.
+     * The shelf of the player is replaced by a new one, the caller updates its other references to it.
+     * @param stateVersion the version of the state of the client
+     * @param tableTop the cells of the tabletop of the client
+     * @param players the names of the players, in the order of the shelves
+     * @param shelves the shelves of the players
+     * @return the outcome, the state has changed only if `APPLIED`
+     */
+    public Outcome applyTo(int stateVersion, Optional<Card>[][] tableTop, List<String> players, List<Shelf> shelves) {
+        if (version <= stateVersion) {
+            return Outcome.INCLUDED;
+        } else if (version != stateVersion + 1) {
+            return Outcome.MISSED;
+        }
+        int player = players.indexOf(idPlayer);
+        if (player < 0) {
+            return Outcome.MISSED;
+        }
+        for (Point position : removed) {
+            if (position.x() < 0 || position.x() >= TableTop.SIZE || position.y() < 0 || position.y() >= TableTop.SIZE) {
+                return Outcome.MISSED;
+            }
+        }
+        if (refill != null && (refill.length != TableTop.SIZE || refill[0].length != TableTop.SIZE)) {
+            return Outcome.MISSED;
+        }
+        Shelf shelf = null;
+        if (!inserted.isEmpty()) {
+            shelf = new Shelf(shelves.get(player).getSerializable());
+            try {
+                shelf.insert(column, inserted);
+            } catch (InvalidMoveException | IndexOutOfBoundsException e) {
+                return Outcome.MISSED;
+            }
+        }
+
+        for (Point position : removed) {
+            tableTop[position.y()][position.x()] = Optional.empty();
+        }
+        if (refill != null) {
+            for (int y = 0; y < TableTop.SIZE; y++) {
+                for (int x = 0; x < TableTop.SIZE; x++) {
+                    if (refill[y][x] != null) {
+                        tableTop[y][x] = Optional.of(refill[y][x]);
+                    }
+                }
+            }
+        }
+        if (shelf != null) {
+            shelves.set(player, shelf);
+        }
+        return Outcome.APPLIED;
+    }
+}
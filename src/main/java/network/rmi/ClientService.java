@@ -1,7 +1,6 @@
 package network.rmi;
 import network.Call;
 import network.Result;
-import network.ServerEvent;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
@@ -21,10 +20,10 @@ public interface ClientService extends Remote {
 
     /**
      * Poll an event from the server
-     * @return the event if there is one, null otherwise
+     * @return the frame of the event, serialized once for all its recipients, if there is one, null otherwise
      * @throws RemoteException if rmi fails
      */
-    ServerEvent pollEvent() throws RemoteException;
+    byte[] pollEvent() throws RemoteException;
 
     /**
      * Check if there is an event
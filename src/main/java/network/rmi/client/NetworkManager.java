@@ -5,13 +5,16 @@ import network.*;
 import network.errors.ClientNeverConnectedException;
 import network.errors.ClientNotIdentifiedException;
 import network.parameters.CardSelect;
+import network.parameters.GameInfo;
 import network.parameters.LobbyCreateInfo;
 import network.parameters.Login;
 import network.parameters.Message;
 import network.rmi.ClientService;
 import network.rmi.LoginService;
+import network.rpc.FrameCodec;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
@@ -127,12 +130,13 @@ public class NetworkManager implements NetworkManagerInterface {
                         setLastMessage();
                     }
                     if(clientService.get().hasEvent()){
-                        ServerEvent event = clientService.get().pollEvent();
-                        while(event != null){
+                        byte[] frame = clientService.get().pollEvent();
+                        while(frame != null){
+                            Result<?> result = (Result<?>) FrameCodec.decode(ByteBuffer.wrap(frame, FrameCodec.HEADER_BYTES, frame.length - FrameCodec.HEADER_BYTES));
                             synchronized (eventQueue){
-                                eventQueue.add(event);
+                                eventQueue.add((ServerEvent) result.unwrap());
                             }
-                            event = clientService.get().pollEvent();
+                            frame = clientService.get().pollEvent();
                         }
                         synchronized (NetworkManager.instance){
                             NetworkManager.instance.notifyAll();
@@ -364,6 +368,16 @@ public class NetworkManager implements NetworkManagerInterface {
         return handleService(new Function(true, Service.ExitGame));
     }
 
+    /**
+     * Method that asks for the whole state of the current game, used when an update has been missed.
+     * @return a function that takes a boolean value and returns the game information.
+     * @throws Exception
+     */
+    @Override
+    public Function<Boolean, GameInfo> gameSnapshot() throws Exception {
+        return handleService(new Function(true, Service.GameSnapshot));
+    }
+
     /**
      * Method that takes a `Login` object as input and returns a `Function` object that takes a `Login` object as input and returns a `Serializable` object.
      * The method also throws an `Exception`.
@@ -1,11 +1,14 @@
 package network.rmi.server;
 
+import controller.game.GameController;
 import controller.lobby.LobbyController;
 import network.*;
 import network.errors.ClientNotIdentifiedException;
 import network.errors.DisconnectedClientException;
 import network.rmi.ClientService;
+import network.rpc.FrameCodec;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.rmi.registry.Registry;
@@ -15,8 +18,7 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
@@ -25,7 +27,7 @@ import java.util.logging.Logger;
  */
 public class Client implements ClientService, ClientInterface {
     ClientStatusHandler statusHandler;
-    private final Queue<ServerEvent> serverEvents = new LinkedList<>();
+    private final OutboundQueue<ServerEvent> serverEvents = new OutboundQueue<>(event -> false);
     BiFunction<Call<Serializable>, ClientInterface, Result<Serializable>> callHandler;
     final Object handlerLock = new Object();
     String username;
@@ -84,14 +86,42 @@ public class Client implements ClientService, ClientInterface {
     }
 
     /**
-     * Add an event to the queue of messages to be sent
+     * Add an event to the queue of messages to be sent, collapsing the ones it supersedes.
+     * A client that lets the queue fill up is disconnected.
      * @param message the message to send
      */
     @Override
     public <T extends Serializable> void sendEvent(ServerEvent<T> message){
-        serverEvents.add(message);
+        synchronized (serverEvents){
+            if(serverEvents.offer(message, message.getType())){
+                return;
+            }
+            serverEvents.clear();
+        }
+        logger.warning("Event queue full, disconnecting " + username);
+        setStatus(ClientStatus.Disconnected);
+    }
+
+    /**
+     * Queue a snapshot of the game of the client, in place of the updates dropped from its backlog.
+     * It is called when the client polls the events, as the updates are sent while holding the lock of the turns of the game.
+     */
+    private void sendSnapshot(){
+        try{
+            Optional<GameController> game = LobbyController.getInstance().searchGame(username);
+            if(game.isPresent()){
+                game.get().sendSnapshot(this);
+                return;
+            }
+        }catch(Exception e){
+            logger.warning(e.getMessage());
+        }
+        synchronized (serverEvents){
+            serverEvents.cancelSnapshot();
+        }
     }
 
+
     /**
      * Check if a client is disconnected
      * @return if the client is disconnected
@@ -166,16 +196,34 @@ public class Client implements ClientService, ClientInterface {
     }
 
     /**
-     * Ask if there are any events in the queue
-     * @return true if there are any events in the `serverEvents` queue
+     * Take the next event of the queue, encoded once for all the clients it has been sent to.
+     * If the backlog of the client has been dropped, a snapshot of its game is queued first.
+     * @return the frame of the event, null if the queue is empty
+     * @throws RemoteException if the event cannot be encoded
      */
     @Override
-    public ServerEvent pollEvent() {
+    public byte[] pollEvent() throws RemoteException {
         synchronized (messageTimeLock){
             lastMessageTime = LocalDateTime.now();
         }
+        boolean snapshot;
         synchronized (serverEvents){
-            return serverEvents.poll();
+            snapshot = serverEvents.takeSnapshotRequest();
+        }
+        if(snapshot){
+            sendSnapshot();
+        }
+        ServerEvent event;
+        synchronized (serverEvents){
+            event = serverEvents.poll();
+        }
+        if(event == null){
+            return null;
+        }
+        try{
+            return event.getFrame(FrameCodec.SERIALIZATION);
+        }catch(IOException e){
+            throw new RemoteException("Cannot encode the event", e);
         }
     }
 
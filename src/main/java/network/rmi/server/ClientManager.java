@@ -119,26 +119,30 @@ public class ClientManager extends Thread implements ClientManagerInterface, Log
             }
             wasConnected = true;
         }
-        Optional<GameController> game = LobbyController.getInstance().searchGame(username);
+        // The client is registered before searching the game, so that a game being resumed or hibernated finds it
+        Client client;
         if (wasConnected) {
-            Client client = clients.get(username);
+            client = clients.get(username);
             if (client == null) {
                 return Result.err(new ClientConnectedButNotFoundException(), callId);
             }
             client.recoverStatus();
             client.clearEventQueue();
-            if (game.isPresent()) {
-                GameController gameController = game.get();
-                Player player = gameController.getPlayer(username);
-                return Result.ok(game.get().getGameInfo(player), callId);
-            }
         } else {
             synchronized (availablePortLock) {
-                Client client = new Client(username, registry, availablePort);
+                client = new Client(username, registry, availablePort);
                 clients.put(username, client);
                 availablePort++;
             }
         }
+        Optional<GameController> game = LobbyController.getInstance().searchGame(username);
+        if (game.isPresent()) {
+            if (!wasConnected) {
+                game.get().attachClient(client);
+            }
+            Player player = game.get().getPlayer(username);
+            return Result.ok(game.get().getGameInfo(player), callId);
+        }
         return Result.empty(callId);
     }
 
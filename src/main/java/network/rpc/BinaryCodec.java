@@ -0,0 +1,607 @@
+package network.rpc;
+
+import controller.lobby.Lobby;
+import model.Card;
+import model.Cockade;
+import model.Point;
+import network.Call;
+import network.Result;
+import network.ServerEvent;
+import network.Service;
+import network.parameters.CardSelect;
+import network.parameters.GameInfo;
+import network.parameters.LobbyCreateInfo;
+import network.parameters.Login;
+import network.parameters.Message;
+import network.parameters.Update;
+import network.parameters.UpdateDelta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the messages, used instead of Java serialization by the connections that negotiate it.
+ * <pre>
+ * call:   CALL (byte), service (byte), id, parameters (value)
+ * result: RESULT (byte), id, OK (byte) and value, or ERROR (byte) and the serialized exception
+ * event:  EVENT (byte), type (byte), data (value)
+ * id:     COMPACT_ID (byte) and number (varint), or FULL_ID (byte) and the UUID (two longs)
+ * value:  tag (byte) and the fields of its type
+ * </pre>
+ * The codec of the client numbers its calls, and maps the numbers of the results back to the ids of the calls, so
+ * the server only sees and echoes the numbers.
+ * Lengths and numbers are varints; the lengths of the nullable strings, lists and grids are written plus one, 0 meaning
+ * null. Grids are written as their rows and columns, a bitmap of the occupied cells and the codes of their cards.
+ * The values without a tag of their own (the scoreboard, the exceptions) are written with Java serialization.
+ */
+public class BinaryCodec implements MessageCodec {
+    private static final byte CALL = 1;
+    private static final byte RESULT = 2;
+    private static final byte EVENT = 3;
+    private static final byte COMPACT_ID = 0;
+    private static final byte FULL_ID = 1;
+    private static final byte OK = 0;
+    private static final byte ERROR = 1;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte STRING = 3;
+    private static final byte INTEGER = 4;
+    private static final byte STRING_LIST = 5;
+    private static final byte LOGIN = 6;
+    private static final byte LOBBY_CREATE = 7;
+    private static final byte CARD_SELECT = 8;
+    private static final byte MESSAGE = 9;
+    private static final byte LOBBY = 10;
+    private static final byte LOBBY_LIST = 11;
+    private static final byte GAME_INFO = 12;
+    private static final byte UPDATE = 13;
+    private static final byte SERIALIZED = 14;
+    private static final byte UPDATE_DELTA = 15;
+
+    private static final Service[] SERVICES = Service.values();
+    private static final ServerEvent.Type[] TYPES = ServerEvent.Type.values();
+
+    // Ids of the calls sent and not answered yet, by their number
+    private final HashMap<Long, UUID> pendingCalls = new HashMap<>();
+    private long nextCall = 0;
+
+    /**
+     * Encode a call or a result into a frame
+     * @param message the message
+     * @return the frame, header included
+     * @throws IOException if the message cannot be encoded
+     */
+    @Override
+    public ByteBuffer encode(Serializable message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        bytes.write(new byte[FrameCodec.HEADER_BYTES]);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            if (message instanceof Call<?> call) {
+                out.writeByte(CALL);
+                out.writeByte(call.service().ordinal());
+                writeCallId(out, call.id());
+                writeValue(out, call.params());
+            } else if (message instanceof Result<?> result && result.isEvent()) {
+                ServerEvent<?> event = (ServerEvent<?>) result.get().orElseThrow();
+                out.writeByte(EVENT);
+                out.writeByte(event.getType().ordinal());
+                writeValue(out, event.getData());
+            } else if (message instanceof Result<?> result) {
+                out.writeByte(RESULT);
+                writeId(out, result.id());
+                if (result.isErr()) {
+                    out.writeByte(ERROR);
+                    writeSerialized(out, result.getException().get());
+                } else {
+                    out.writeByte(OK);
+                    writeValue(out, result.get().orElse(null));
+                }
+            } else {
+                throw new IOException("Cannot encode " + message.getClass().getName());
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Cannot encode " + message.getClass().getName(), e);
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        FrameCodec.checkLength(frame.remaining() - FrameCodec.HEADER_BYTES);
+        frame.putInt(0, frame.remaining() - FrameCodec.HEADER_BYTES);
+        return frame;
+    }
+
+    /**
+     * Decode the payload of a frame
+     * @param payload the bytes of the message, without the header
+     * @return the `Call` or `Result`
+     * @throws IOException if the payload is not a valid message
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    @Override
+    public Object decode(ByteBuffer payload) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()));
+        Object message;
+        try {
+            byte kind = in.readByte();
+            if (kind == CALL) {
+                Service service = SERVICES[in.readUnsignedByte()];
+                UUID id = readId(in);
+                message = new Call<>(readValue(in), service, id);
+            } else if (kind == RESULT) {
+                UUID id = readId(in);
+                byte status = in.readByte();
+                if (status == OK) {
+                    message = Result.ok(readValue(in), id);
+                } else if (status == ERROR) {
+                    message = Result.err((Exception) readSerialized(in), id);
+                } else {
+                    throw new IOException("Invalid result status " + status);
+                }
+            } else if (kind == EVENT) {
+                ServerEvent.Type type = TYPES[in.readUnsignedByte()];
+                message = Result.serverPush(new ServerEvent<>(type, readValue(in)));
+            } else {
+                throw new IOException("Invalid message kind " + kind);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid message", e);
+        }
+        if (in.available() > 0) {
+            throw new IOException("Trailing bytes after the message");
+        }
+        return message;
+    }
+
+    /**
+     * Write the id of a call, numbering it
+     */
+    private void writeCallId(DataOutputStream out, UUID id) throws IOException {
+        long number;
+        synchronized (pendingCalls) {
+            number = nextCall++;
+            pendingCalls.put(number, id);
+        }
+        out.writeByte(COMPACT_ID);
+        writeVarLong(out, number);
+    }
+
+    /**
+     * Write the id of a result, compact if it is the number of a call
+     */
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+        if (id.getMostSignificantBits() == 0 && id.getLeastSignificantBits() >= 0) {
+            out.writeByte(COMPACT_ID);
+            writeVarLong(out, id.getLeastSignificantBits());
+        } else {
+            out.writeByte(FULL_ID);
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Read an id: the id of the call if it is the number of one sent by this codec, the number itself otherwise
+     */
+    private UUID readId(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind == FULL_ID) {
+            return new UUID(in.readLong(), in.readLong());
+        } else if (kind != COMPACT_ID) {
+            throw new IOException("Invalid id kind " + kind);
+        }
+        long number = readVarLong(in);
+        synchronized (pendingCalls) {
+            UUID id = pendingCalls.remove(number);
+            return id != null ? id : new UUID(0, number);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(out, string);
+        } else if (value instanceof Integer integer) {
+            out.writeByte(INTEGER);
+            out.writeInt(integer);
+        } else if (value instanceof Login login) {
+            out.writeByte(LOGIN);
+            writeString(out, login.username());
+        } else if (value instanceof LobbyCreateInfo info) {
+            out.writeByte(LOBBY_CREATE);
+            writeString(out, info.name());
+        } else if (value instanceof CardSelect select) {
+            out.writeByte(CARD_SELECT);
+            writeVarLong(out, select.column());
+            writePoints(out, select.selectedCards());
+        } else if (value instanceof Message message) {
+            out.writeByte(MESSAGE);
+            writeString(out, message.idSender());
+            writeString(out, message.message());
+            writeString(out, message.idReceiver().orElse(null));
+        } else if (value instanceof Lobby lobby && !lobby.getPlayers().isEmpty()) {
+            out.writeByte(LOBBY);
+            writeLobby(out, lobby);
+        } else if (value instanceof ArrayList<?> list && list.stream().allMatch(e -> e instanceof String)) {
+            out.writeByte(STRING_LIST);
+            writeStrings(out, (ArrayList<String>) list);
+        } else if (value instanceof ArrayList<?> list && list.stream().allMatch(e -> e instanceof Lobby lobby && !lobby.getPlayers().isEmpty())) {
+            out.writeByte(LOBBY_LIST);
+            writeVarLong(out, list.size());
+            for (Object lobby : list) {
+                writeLobby(out, (Lobby) lobby);
+            }
+        } else if (value instanceof GameInfo info) {
+            out.writeByte(GAME_INFO);
+            writeLobby(out, info.lobby());
+            writeGrid(out, info.tableTop());
+            writeStrings(out, info.players());
+            writeLength(out, info.shelves());
+            if (info.shelves() != null) {
+                for (Card[][] shelf : info.shelves()) {
+                    writeGrid(out, shelf);
+                }
+            }
+            writeStrings(out, info.commonObjectives());
+            writeIntegers(out, info.commonObjectivesPoints());
+            writeString(out, info.personalObjective());
+            writeString(out, info.currentPlayer());
+            writeVarLong(out, info.version());
+        } else if (value instanceof Update update) {
+            out.writeByte(UPDATE);
+            writeString(out, update.idPlayer());
+            writeGrid(out, update.tableTop());
+            writeGrid(out, update.shelf());
+            writeString(out, update.nextPlayer());
+            writeCockades(out, update.completedObjectives());
+            writeIntegers(out, update.newCommonObjectivesScores());
+        } else if (value instanceof UpdateDelta delta) {
+            out.writeByte(UPDATE_DELTA);
+            writeVarLong(out, delta.version());
+            writeString(out, delta.idPlayer());
+            writePoints(out, delta.removed());
+            writeVarLong(out, delta.column());
+            writeLength(out, delta.inserted());
+            if (delta.inserted() != null) {
+                for (Card card : delta.inserted()) {
+                    out.writeByte(card.getCode());
+                }
+            }
+            writeGrid(out, delta.refill());
+            writeString(out, delta.nextPlayer());
+            writeCockades(out, delta.completedObjectives());
+            writeIntegers(out, delta.newCommonObjectivesScores());
+        } else {
+            out.writeByte(SERIALIZED);
+            writeSerialized(out, value);
+        }
+    }
+
+    private static Serializable readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case STRING_LIST:
+                return readStrings(in);
+            case LOGIN:
+                return new Login(readString(in));
+            case LOBBY_CREATE:
+                return new LobbyCreateInfo(readString(in));
+            case CARD_SELECT:
+                return new CardSelect((int) readVarLong(in), readPoints(in));
+            case MESSAGE:
+                return new Message(readString(in), readString(in), readString(in));
+            case LOBBY:
+                return readLobby(in);
+            case LOBBY_LIST: {
+                int size = checkSize(readVarLong(in));
+                ArrayList<Lobby> lobbies = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    lobbies.add(readLobby(in));
+                }
+                return lobbies;
+            }
+            case GAME_INFO: {
+                Lobby lobby = readLobby(in);
+                Card[][] tableTop = readGrid(in);
+                ArrayList<String> players = readStrings(in);
+                int size = readLength(in);
+                ArrayList<Card[][]> shelves = null;
+                if (size >= 0) {
+                    shelves = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        shelves.add(readGrid(in));
+                    }
+                }
+                return new GameInfo(lobby, tableTop, players, shelves, readStrings(in), readIntegers(in), readString(in), readString(in), (int) readVarLong(in));
+            }
+            case UPDATE: {
+                String idPlayer = readString(in);
+                Card[][] tableTop = readGrid(in);
+                Card[][] shelf = readGrid(in);
+                String nextPlayer = readString(in);
+                return new Update(idPlayer, tableTop, shelf, nextPlayer, readCockades(in), readIntegers(in));
+            }
+            case UPDATE_DELTA: {
+                int version = (int) readVarLong(in);
+                String idPlayer = readString(in);
+                ArrayList<Point> removed = readPoints(in);
+                int column = (int) readVarLong(in);
+                int size = readLength(in);
+                ArrayList<Card> inserted = null;
+                if (size >= 0) {
+                    inserted = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        inserted.add(Card.fromCode(in.readByte()));
+                    }
+                }
+                Card[][] refill = readGrid(in);
+                String nextPlayer = readString(in);
+                return new UpdateDelta(version, idPlayer, removed, column, inserted, refill, nextPlayer, readCockades(in), readIntegers(in));
+            }
+            case SERIALIZED:
+                return (Serializable) readSerialized(in);
+            default:
+                throw new IOException("Invalid value tag " + tag);
+        }
+    }
+
+    private static void writeLobby(DataOutputStream out, Lobby lobby) throws IOException {
+        writeString(out, lobby.getName());
+        writeStrings(out, lobby.getPlayers());
+    }
+
+    private static Lobby readLobby(DataInputStream in) throws IOException {
+        String name = readString(in);
+        ArrayList<String> players = readStrings(in);
+        if (players == null || players.isEmpty()) {
+            throw new IOException("Lobby without players");
+        }
+        Lobby lobby = new Lobby(name, players.get(0));
+        try {
+            for (int i = 1; i < players.size(); i++) {
+                lobby.addPlayer(players.get(i));
+            }
+        } catch (Exception e) {
+            throw new IOException("Invalid lobby", e);
+        }
+        return lobby;
+    }
+
+    private static void writeGrid(DataOutputStream out, Card[][] grid) throws IOException {
+        if (grid == null) {
+            out.writeByte(0);
+            return;
+        }
+        int rows = grid.length;
+        int columns = rows == 0 ? 0 : grid[0].length;
+        out.writeByte(rows + 1);
+        out.writeByte(columns);
+        byte[] bitmap = new byte[(rows * columns + 7) / 8];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                if (grid[y][x] != null) {
+                    int index = y * columns + x;
+                    bitmap[index / 8] |= (byte)(1 << (index % 8));
+                }
+            }
+        }
+        out.write(bitmap);
+        for (Card[] row : grid) {
+            for (Card card : row) {
+                if (card != null) {
+                    out.writeByte(card.getCode());
+                }
+            }
+        }
+    }
+
+    private static Card[][] readGrid(DataInputStream in) throws IOException {
+        int rows = in.readUnsignedByte() - 1;
+        if (rows < 0) {
+            return null;
+        }
+        int columns = in.readUnsignedByte();
+        byte[] bitmap = new byte[(rows * columns + 7) / 8];
+        in.readFully(bitmap);
+        Card[][] grid = new Card[rows][columns];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                int index = y * columns + x;
+                if ((bitmap[index / 8] >>> (index % 8) & 1) != 0) {
+                    grid[y][x] = Card.fromCode(in.readByte());
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static void writePoints(DataOutputStream out, ArrayList<Point> points) throws IOException {
+        writeLength(out, points);
+        if (points != null) {
+            for (Point point : points) {
+                writeVarLong(out, point.y());
+                writeVarLong(out, point.x());
+            }
+        }
+    }
+
+    private static ArrayList<Point> readPoints(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<Point> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new Point((int) readVarLong(in), (int) readVarLong(in)));
+        }
+        return points;
+    }
+
+    private static void writeCockades(DataOutputStream out, ArrayList<Cockade> cockades) throws IOException {
+        writeLength(out, cockades);
+        if (cockades != null) {
+            for (Cockade cockade : cockades) {
+                writeString(out, cockade.name());
+                writeVarLong(out, cockade.points());
+            }
+        }
+    }
+
+    private static ArrayList<Cockade> readCockades(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<Cockade> cockades = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cockades.add(new Cockade(readString(in), (int) readVarLong(in)));
+        }
+        return cockades;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, ArrayList<String> strings) throws IOException {
+        writeLength(out, strings);
+        if (strings != null) {
+            for (String string : strings) {
+                writeString(out, string);
+            }
+        }
+    }
+
+    private static ArrayList<String> readStrings(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<String> strings = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    private static void writeIntegers(DataOutputStream out, ArrayList<Integer> integers) throws IOException {
+        writeLength(out, integers);
+        if (integers != null) {
+            for (Integer integer : integers) {
+                out.writeInt(integer);
+            }
+        }
+    }
+
+    private static ArrayList<Integer> readIntegers(DataInputStream in) throws IOException {
+        int size = readLength(in);
+        if (size < 0) {
+            return null;
+        }
+        ArrayList<Integer> integers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            integers.add(in.readInt());
+        }
+        return integers;
+    }
+
+    private static void writeSerialized(DataOutputStream out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream object = new ObjectOutputStream(bytes)) {
+            object.writeObject(value);
+        }
+        writeVarLong(out, bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private static Object readSerialized(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[checkSize(readVarLong(in))];
+        in.readFully(bytes);
+        try (ObjectInputStream object = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return object.readObject();
+        }
+    }
+
+    /**
+     * Write the size of a nullable list, plus one
+     */
+    private static void writeLength(DataOutputStream out, ArrayList<?> list) throws IOException {
+        writeVarLong(out, list == null ? 0 : list.size() + 1L);
+    }
+
+    /**
+     * Read a length written plus one
+     * @return the length, -1 for null
+     */
+    private static int readLength(DataInputStream in) throws IOException {
+        return checkSize(readVarLong(in)) - 1;
+    }
+
+    private static int checkSize(long size) throws IOException {
+        if (size < 0 || size > FrameCodec.MAX_FRAME_BYTES) {
+            throw new IOException("Invalid size " + size);
+        }
+        return (int) size;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+}
@@ -0,0 +1,154 @@
+package network.rpc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Framing of the messages exchanged by the socket client and server.
+ * Every message is encoded on its own and prefixed by its length, so the server can split the incoming bytes
+ * into messages without blocking a thread on each connection.
+ * A client that supports the `BinaryCodec` starts with a hello frame, that the server echoes if it supports it too;
+ * otherwise the messages are serialized with Java serialization.
+ */
+public class FrameCodec {
+    public static final int HEADER_BYTES = 4;
+    public static final int MAX_FRAME_BYTES = 1 << 20;
+    public static final int HELLO_MAGIC = 0x4D53484C;  // "MSHL", a serialized payload starts with 0xACED
+    public static final byte HELLO_VERSION = 1;
+    // Java serialization of every message on its own
+    public static final MessageCodec SERIALIZATION = new MessageCodec() {
+        @Override
+        public ByteBuffer encode(Serializable message) throws IOException {
+            return FrameCodec.encode(message);
+        }
+
+        @Override
+        public Object decode(ByteBuffer payload) throws IOException, ClassNotFoundException {
+            return FrameCodec.decode(payload);
+        }
+    };
+
+    private FrameCodec(){}
+
+    /**
+     * Serialize a message into a frame
+     * @param message the message to serialize
+     * @return the frame, header included, ready to be written
+     * @throws IOException if the message cannot be serialized
+     */
+    public static ByteBuffer encode(Serializable message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        bytes.write(new byte[HEADER_BYTES]);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        if (frame.remaining() - HEADER_BYTES > MAX_FRAME_BYTES) {
+            throw new IOException("Frame too long: " + (frame.remaining() - HEADER_BYTES) + " bytes");
+        }
+        frame.putInt(0, frame.remaining() - HEADER_BYTES);
+        return frame;
+    }
+
+    /**
+     * Deserialize the payload of a frame
+     * @param payload the bytes of the message, without the header
+     * @return the message
+     * @throws IOException if the payload is not a valid message
+     * @throws ClassNotFoundException if the class of the message is unknown
+     */
+    public static Object decode(ByteBuffer payload) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Check the length read from the header of a frame
+     * @param length the length of the payload
+     * @throws IOException if the length is not valid
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+    }
+
+    /**
+     * Build the hello frame, sent by the client to ask for the binary protocol and echoed by the server to accept it
+     * @return the frame
+     */
+    public static ByteBuffer hello() {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + Integer.BYTES + 1);
+        frame.putInt(Integer.BYTES + 1).putInt(HELLO_MAGIC).put(HELLO_VERSION).flip();
+        return frame;
+    }
+
+    /**
+     * Check if the payload of a frame is a hello of a supported version
+     * @param payload the payload, its position is not changed
+     * @return true if it is a hello
+     */
+    public static boolean isHello(ByteBuffer payload) {
+        return payload.remaining() == Integer.BYTES + 1
+            && payload.getInt(payload.position()) == HELLO_MAGIC
+            && payload.get(payload.position() + Integer.BYTES) == HELLO_VERSION;
+    }
+
+    /**
+     * Write a message to a blocking stream, with Java serialization
+     * @param stream the stream to write to
+     * @param message the message to write
+     * @throws IOException if an error occurs while writing
+     */
+    public static void write(OutputStream stream, Serializable message) throws IOException {
+        writeFrame(stream, encode(message));
+    }
+
+    /**
+     * Write an encoded frame to a blocking stream
+     * @param stream the stream to write to
+     * @param frame the frame, header included
+     * @throws IOException if an error occurs while writing
+     */
+    public static void writeFrame(OutputStream stream, ByteBuffer frame) throws IOException {
+        synchronized (stream) {
+            stream.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+            stream.flush();
+        }
+    }
+
+    /**
+     * Read a message from a blocking stream, with Java serialization
+     * @param stream the stream to read from
+     * @return the message
+     * @throws IOException if an error occurs while reading or the frame is not valid
+     * @throws ClassNotFoundException if the class of the message is unknown
+     */
+    public static Object read(DataInputStream stream) throws IOException, ClassNotFoundException {
+        return decode(readPayload(stream));
+    }
+
+    /**
+     * Read the payload of a frame from a blocking stream
+     * @param stream the stream to read from
+     * @return the payload, without the header
+     * @throws IOException if an error occurs while reading or the frame is not valid
+     */
+    public static ByteBuffer readPayload(DataInputStream stream) throws IOException {
+        int length = stream.readInt();
+        checkLength(length);
+        byte[] payload = new byte[length];
+        stream.readFully(payload);
+        return ByteBuffer.wrap(payload);
+    }
+}
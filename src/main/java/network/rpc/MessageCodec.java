@@ -0,0 +1,29 @@
+package network.rpc;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of the calls and results inside the frames, chosen when the connection is opened.
+ * All the codecs of a class must encode an event the same way, so that its frame can be shared by the recipients
+ * of a broadcast.
+ */
+public interface MessageCodec {
+    /**
+     * Encode a message into a frame
+     * @param message the message, a `Call` or a `Result`
+     * @return the frame, header included, ready to be written
+     * @throws IOException if the message cannot be encoded
+     */
+    ByteBuffer encode(Serializable message) throws IOException;
+
+    /**
+     * Decode the payload of a frame
+     * @param payload the bytes of the message, without the header
+     * @return the message
+     * @throws IOException if the payload is not a valid message
+     * @throws ClassNotFoundException if the class of a serialized object is unknown
+     */
+    Object decode(ByteBuffer payload) throws IOException, ClassNotFoundException;
+}
@@ -3,14 +3,21 @@ package network.rpc.client;
 import controller.lobby.Lobby;
 import network.*;
 import network.parameters.CardSelect;
+import network.parameters.GameInfo;
 import network.parameters.LobbyCreateInfo;
 import network.parameters.Login;
 import network.parameters.Message;
 
+import network.rpc.BinaryCodec;
+import network.rpc.FrameCodec;
+import network.rpc.MessageCodec;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.Socket;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -22,8 +29,11 @@ import java.util.logging.Logger;
 public class NetworkManager implements NetworkManagerInterface {
     static private final int socketTimeout = 60000;
     private Socket socket;
-    private ObjectInputStream in;
-    private ObjectOutputStream out;
+    private DataInputStream in;
+    private OutputStream out;
+    // Ask the server for the binary protocol, unless `myshelfie.rpc.protocol` is `serialization`
+    private static final boolean BINARY_PROTOCOL = !System.getProperty("myshelfie.rpc.protocol", "binary").equalsIgnoreCase("serialization");
+    private MessageCodec codec = FrameCodec.SERIALIZATION;
     private Boolean connected = false;
     private final Object connectedLock = new Object();
     private Server server;
@@ -54,7 +64,7 @@ public class NetworkManager implements NetworkManagerInterface {
      * Method that takes a `Server` object as a parameter and establishes a connection to the server.
      * It sets the `connected` flag to `false`, creates a new `Socket` object using the server's IP address and port number,
      * and initializes the input and output streams for the socket.
-     * It also sets a socket timeout and tests the connection.
+     * It also sets a socket timeout, negotiates the protocol and tests the connection.
      * If the connection is successful, it sets the `connected` flag to `true`, starts a new thread to run the `run` method, and logs a message indicating that the connection was successful.
      * If any exceptions occur during the connection process, they are thrown as an `Exception`.
      * @param server the server to connect to
@@ -66,10 +76,11 @@ public class NetworkManager implements NetworkManagerInterface {
     public void connect(Server server) throws Exception{
         setConnected(false);
         this.server = server;
-        this.socket = new Socket(server.ip(), server.port());
-        this.out = new ObjectOutputStream(socket.getOutputStream());
-        this.in = new ObjectInputStream(socket.getInputStream());
-        this.socket.setSoTimeout(socketTimeout);
+        openSocket();
+        this.codec = FrameCodec.SERIALIZATION;
+        if(BINARY_PROTOCOL){
+            this.codec = negotiate();
+        }
         testConnection();
         setConnected(true);
         mainThread = new Thread(this::run);
@@ -77,6 +88,30 @@ public class NetworkManager implements NetworkManagerInterface {
         logger.info("Connected to server");
     }
 
+    /**
+     * Open the socket to the server and its streams
+     * @throws IOException if the server cannot be reached
+     */
+    private void openSocket() throws IOException {
+        this.socket = new Socket(server.ip(), server.port());
+        this.out = socket.getOutputStream();
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.socket.setSoTimeout(socketTimeout);
+    }
+
+    /**
+     * Ask the server for the binary protocol
+     * @return the codec of the binary protocol
+     * @throws IOException if the server doesn't echo the hello
+     */
+    private MessageCodec negotiate() throws IOException {
+        FrameCodec.writeFrame(out, FrameCodec.hello());
+        if(!FrameCodec.isHello(FrameCodec.readPayload(in))){
+            throw new IOException("Unexpected reply to the hello");
+        }
+        return new BinaryCodec();
+    }
+
     /**
      * Method named `disconnect` that is synchronized, only one thread can execute it at a time.
      * It checks if the connection is currently established, sets the `connected` flag to false, logs a message, adds a `ServerDisconnect` event to the `eventQueue`,
@@ -117,7 +152,7 @@ public class NetworkManager implements NetworkManagerInterface {
      */
     private Result<Serializable> receive() throws Exception{
         synchronized(in){
-            Object obj = in.readObject();
+            Object obj = codec.decode(FrameCodec.readPayload(in));
             if(!(obj instanceof Result)){
                 throw new Exception("Invalid object received");
             }
@@ -134,8 +169,8 @@ public class NetworkManager implements NetworkManagerInterface {
     private void testConnection() throws Exception {
         LocalDateTime now = LocalDateTime.now();
         lastPing = new Function<>(now, Service.Ping);
-        lastPing.call(out);
-        Object obj = in.readObject();
+        lastPing.call(out, codec);
+        Object obj = codec.decode(FrameCodec.readPayload(in));
         if(!(obj instanceof Result)){
             throw new Exception("Invalid object received");
         }
@@ -151,7 +186,7 @@ public class NetworkManager implements NetworkManagerInterface {
         while (isConnected()) {
             try {
                 if (lastPing.checkResult().isPresent()) {
-                    lastPing.call(out);
+                    lastPing.call(out, codec);
                 }
             } catch (Exception e) {
                 logger.warning(e.getMessage());
@@ -301,7 +336,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean,ArrayList<Lobby>> lobbyList() throws Exception{
         Function<Boolean,ArrayList<Lobby>> lobbyList = new Function<>(true, Service.LobbyList);
         callQueue.put(lobbyList.id(), lobbyList);
-        lobbyList.call(out);
+        lobbyList.call(out, codec);
         return lobbyList;
     }
 
@@ -321,7 +356,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<LobbyCreateInfo, Lobby> lobbyCreate(LobbyCreateInfo info) throws Exception {
         Function<LobbyCreateInfo, Lobby> lobbyCreate = new Function<>(info, Service.LobbyCreate);
         callQueue.put(lobbyCreate.id(), lobbyCreate);
-        lobbyCreate.call(out);
+        lobbyCreate.call(out, codec);
         return lobbyCreate;
     }
 
@@ -340,7 +375,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<String, Lobby> lobbyJoin(String lobbyName) throws Exception {
         Function<String, Lobby> lobbyJoin = new Function<>(lobbyName, Service.LobbyJoin);
         callQueue.put(lobbyJoin.id(), lobbyJoin);
-        lobbyJoin.call(out);
+        lobbyJoin.call(out, codec);
         return lobbyJoin;
     }
 
@@ -358,7 +393,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean, Boolean> lobbyLeave() throws Exception {
         Function<Boolean, Boolean> lobbyLeave = new Function<>(true, Service.LobbyLeave);
         callQueue.put(lobbyLeave.id(), lobbyLeave);
-        lobbyLeave.call(out);
+        lobbyLeave.call(out, codec);
         return lobbyLeave;
     }
 
@@ -376,7 +411,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean, Lobby> updateLobby() throws Exception {
         Function<Boolean, Lobby> lobbyUpdate = new Function<>(true, Service.LobbyUpdate);
         callQueue.put(lobbyUpdate.id(), lobbyUpdate);
-        lobbyUpdate.call(out);
+        lobbyUpdate.call(out, codec);
         return lobbyUpdate;
     }
 
@@ -394,7 +429,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean,Boolean> gameStart() throws Exception{
         Function<Boolean,Boolean> gameStart = new Function<>(true, Service.GameStart);
         callQueue.put(gameStart.id(), gameStart);
-        gameStart.call(out);
+        gameStart.call(out, codec);
         return gameStart;
     }
 
@@ -412,7 +447,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean, Boolean> gameLoad() throws Exception {
         Function<Boolean,Boolean> gameLoad = new Function<>(true, Service.GameLoad);
         callQueue.put(gameLoad.id(), gameLoad);
-        gameLoad.call(out);
+        gameLoad.call(out, codec);
         return gameLoad;
     }
 
@@ -431,7 +466,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<CardSelect,Boolean> cardSelect(CardSelect selected) throws Exception{
         Function<CardSelect,Boolean> cardSelect = new Function<>(selected, Service.CardSelect);
         callQueue.put(cardSelect.id(), cardSelect);
-        cardSelect.call(out);
+        cardSelect.call(out, codec);
         return cardSelect;
     }
 
@@ -450,7 +485,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Login, Serializable> login(Login username) throws Exception {
         Function<Login, Serializable> login = new Function<>(username, Service.Login);
         callQueue.put(login.id(), login);
-        login.call(out);
+        login.call(out, codec);
         return login;
     }
 
@@ -480,7 +515,7 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Message, Boolean> chat(Message message) throws Exception {
         Function<Message, Boolean> chat = new Function<>(message, Service.GameChatSend);
         callQueue.put(chat.id(), chat);
-        chat.call(out);
+        chat.call(out, codec);
         return chat;
     }
 
@@ -498,7 +533,20 @@ public class NetworkManager implements NetworkManagerInterface {
     public Function<Boolean, Boolean> exitGame() throws Exception {
         Function<Boolean, Boolean> exitGame = new Function<>(true, Service.ExitGame);
         callQueue.put(exitGame.id(), exitGame);
-        exitGame.call(out);
+        exitGame.call(out, codec);
         return exitGame;
     }
+
+    /**
+     * Method that asks for the whole state of the current game, used when an update has been missed.
+     * @return the game information, with the version of the state.
+     * @throws Exception If an error occurs while sending the call.
+     */
+    @Override
+    public Function<Boolean, GameInfo> gameSnapshot() throws Exception {
+        Function<Boolean, GameInfo> gameSnapshot = new Function<>(true, Service.GameSnapshot);
+        callQueue.put(gameSnapshot.id(), gameSnapshot);
+        gameSnapshot.call(out, codec);
+        return gameSnapshot;
+    }
 }
@@ -1,26 +1,54 @@
 package network.rpc.server;
 
+import controller.game.GameController;
+import controller.lobby.LobbyController;
 import network.*;
-import network.errors.ClientAlreadyConnectedException;
 import network.errors.ClientNotIdentifiedException;
 import network.errors.DisconnectedClientException;
 import network.errors.ClientAlreadyIdentifiedException;
+import network.rpc.BinaryCodec;
+import network.rpc.FrameCodec;
+import network.rpc.MessageCodec;
+
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.logging.Logger;
 
 /**
  * Class to represent a client connected to the server via socket.
+ * The channel is non-blocking and served by a `Reactor` thread, that decodes the incoming frames; the calls are
+ * handled in order on the worker pool, and the outgoing frames that don't fit in the socket buffer are queued in a
+ * bounded `OutboundQueue` until the channel is writable again, so the threads sending to a slow client never wait for it.
+ * The first frame chooses the protocol: a hello switches the connection to the `BinaryCodec`, anything else keeps
+ * Java serialization, for the clients that don't know the binary protocol.
  */
-public class Client extends Thread implements ClientInterface {
-	private final Socket socket;
-	private final ObjectInputStream incomingMessages;
-	private final ObjectOutputStream outcomingMessages;
+public class Client implements ClientInterface {
+	// Enough for every call but the biggest ones, that grow the buffer until they are read
+	private static final int READ_BUFFER_BYTES = 4096;
+	private final SocketChannel channel;
+	private final Reactor reactor;
+	private final Executor workers;
+	private SelectionKey key = null;
+	private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+	// Null until the first frame is received
+	private volatile MessageCodec codec = null;
+	private final OutboundQueue<ByteBuffer> writeQueue;
+	// Guards the writes on the channel and the queue; a lock, not a monitor, so that virtual threads don't pin their carrier
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final ArrayDeque<Call<Serializable>> calls = new ArrayDeque<>();
+	private boolean handlingCalls = false;
 	private ClientStatusHandler statusHandler;
 	private BiFunction<Call<Serializable>, ClientInterface, Result<Serializable>> handler;
 	private Object handlerLock = new Object();
@@ -31,18 +59,49 @@ public class Client extends Thread implements ClientInterface {
 
 	/**
 	 * Constructor of the class.
-	 * @param socket Socket of the client.
+	 * @param channel Channel of the client, it is switched to non-blocking mode.
+	 * @param reactor Thread that serves the channel.
+	 * @param workers Pool that handles the calls received from the client.
 	 * @param handler Function to handle the calls received from the client.
-	 * @throws Exception If an error occurs.
-	 *
-	 * @author Lorenzo
+	 * @throws IOException If the channel cannot be configured.
+	 */
+	Client(SocketChannel channel, Reactor reactor, Executor workers, BiFunction<Call<Serializable>,ClientInterface,Result<Serializable>> handler) throws IOException {
+		this(channel, reactor, workers, handler, new OutboundQueue<>(frame -> frame.position() > 0));
+	}
+
+	/**
+	 * Constructor of the class, with the queue of the outgoing frames.
+	 * @param channel Channel of the client, it is switched to non-blocking mode.
+	 * @param reactor Thread that serves the channel.
+	 * @param workers Pool that handles the calls received from the client.
+	 * @param handler Function to handle the calls received from the client.
+	 * @param writeQueue Queue of the frames waiting to be written.
+	 * @throws IOException If the channel cannot be configured.
 	 */
-	public Client(Socket socket, BiFunction<Call<Serializable>,ClientInterface,Result<Serializable>> handler) throws Exception {
-		this.socket = socket;
-		this.incomingMessages = new ObjectInputStream(socket.getInputStream());
-		this.outcomingMessages = new ObjectOutputStream(socket.getOutputStream());
+	Client(SocketChannel channel, Reactor reactor, Executor workers, BiFunction<Call<Serializable>,ClientInterface,Result<Serializable>> handler, OutboundQueue<ByteBuffer> writeQueue) throws IOException {
+		this.channel = channel;
+		this.writeQueue = writeQueue;
+		this.reactor = reactor;
+		this.workers = workers;
 		this.handler = handler;
 		this.statusHandler = new ClientStatusHandler();
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+	}
+
+	/**
+	 * Register the channel on the selector of its reactor, called by the reactor thread.
+	 * @param selector The selector of the reactor.
+	 */
+	void register(Selector selector) {
+		writeLock.lock();
+		try {
+			key = channel.register(selector, writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+		} catch (ClosedChannelException e) {
+			setStatus(ClientStatus.Disconnected);
+		} finally {
+			writeLock.unlock();
+		}
 	}
 
 	/**
@@ -94,92 +153,276 @@ public class Client extends Thread implements ClientInterface {
 	}
 
 	/**
-	 * Method that sends a server event to the server by serializing the provided ServerEvent object and writing it to
-	 * the outgoing message stream.
-	 * The server event represents an event or message sent from the client to the server.
+	 * Method that sends a server event to the client, queueing it after the results and events already sent.
+	 * The frame of the event is shared with the other clients it is sent to, with the same protocol.
+	 * A failure, or a full queue that the overflow policy cannot make room in, is logged and disconnects the client.
 	 *
 	 * @param message The ServerEvent object representing the server event to be sent.
 	 * @param <T> The type parameter representing the serializable data type associated with the server event.
-	 *
-	 * @author Lorenzo
 	 */
 	@Override
 	public <T extends Serializable> void sendEvent(ServerEvent<T> message){
-		synchronized (this.outcomingMessages){
+		try{
+			if(getStatus() == ClientStatus.Disconnected){
+				throw new DisconnectedClientException();
+			}
+			MessageCodec codec = this.codec;
+			byte[] frame;
 			try{
-				outcomingMessages.reset();
-				Result<Serializable> result = Result.serverPush(message);
-				outcomingMessages.writeObject((Object)result);
-			}catch(Exception e){
+				frame = message.getFrame(codec != null ? codec : FrameCodec.SERIALIZATION);
+			}catch(IOException e){
 				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
 				disconnect();
+				throw new DisconnectedClientException();
 			}
+			write(ByteBuffer.wrap(frame), message.getType());
+		}catch(DisconnectedClientException e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
 		}
 	}
 
 	/**
 	 * Send a message to the client in response to a call.
+	 * The frame is written right away if nothing is waiting before it, the part that doesn't fit in the socket buffer
+	 * is left to the reactor thread.
 	 * @param message The message to send.
 	 * @param <T> The type of the message.
 	 * @throws DisconnectedClientException If the client is disconnected.
-	 *
-	 * @author Lorenzo
 	 */
 	private <T extends Serializable> void send(Result<T> message) throws DisconnectedClientException {
 		if(getStatus() == ClientStatus.Disconnected){
 			throw new DisconnectedClientException();
 		}
-		synchronized (this.outcomingMessages){
-			try{
-				outcomingMessages.reset();
-				outcomingMessages.writeObject((Object)message);
-			}catch(Exception e){
-				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+		ByteBuffer frame;
+		try{
+			MessageCodec codec = this.codec;
+			frame = (codec != null ? codec : FrameCodec.SERIALIZATION).encode(message);
+		}catch(IOException e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+			disconnect();
+			throw new DisconnectedClientException();
+		}
+		write(frame, null);
+	}
+
+	/**
+	 * Write an encoded frame to the channel, or queue it behind the frames still waiting.
+	 * The channel is non-blocking, so the frame is only written right away if the socket buffer has room for it.
+	 * If the backlog is replaced by a snapshot of the game, the snapshot is queued by the worker pool.
+	 * @param frame The frame to write.
+	 * @param event The type of the event in the frame, null for the other frames.
+	 * @throws DisconnectedClientException If the channel is closed, or the queue is full.
+	 */
+	private void write(ByteBuffer frame, ServerEvent.Type event) throws DisconnectedClientException {
+		boolean snapshot = false;
+		writeLock.lock();
+		try{
+			if(writeQueue.isEmpty() && !writeQueue.isSuperseded(event)){
+				channel.write(frame);
+				if(!frame.hasRemaining()){
+					return;
+				}
+			}
+			boolean wasEmpty = writeQueue.isEmpty();
+			if(writeQueue.offer(frame, event)){
+				if(key != null && wasEmpty && !writeQueue.isEmpty()){
+					key.interestOpsOr(SelectionKey.OP_WRITE);
+					reactor.wakeup();
+				}
+				snapshot = writeQueue.takeSnapshotRequest();
+				return;
+			}
+			Logger.getLogger(Client.class.getName()).warning("Outgoing queue full, disconnecting " + username);
+		}catch(IOException | CancelledKeyException e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+		}finally{
+			writeLock.unlock();
+			if(snapshot){
+				workers.execute(this::sendSnapshot);
+			}
+		}
+		disconnect();
+		throw new DisconnectedClientException();
+	}
+
+	/**
+	 * Queue a snapshot of the game of the client, in place of the updates dropped from its backlog.
+	 * It runs on the worker pool, as the updates are sent while holding the lock of the turns of the game.
+	 */
+	private void sendSnapshot(){
+		try{
+			Optional<GameController> game = LobbyController.getInstance().searchGame(getUsername());
+			if(game.isPresent()){
+				game.get().sendSnapshot(this);
+				return;
+			}
+		}catch(Exception e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+		}
+		writeLock.lock();
+		try{
+			writeQueue.cancelSnapshot();
+		}finally{
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Read what is available on the channel and handle the complete frames, called by the reactor thread.
+	 * The calls received are queued to the worker pool, while the pings are answered right away.
+	 */
+	void onReadable(){
+		try{
+			if(channel.read(readBuffer) < 0){
 				disconnect();
-				throw new DisconnectedClientException();
+				return;
 			}
+			readBuffer.flip();
+			int needed = 0;
+			while(readBuffer.remaining() >= FrameCodec.HEADER_BYTES){
+				int length = readBuffer.getInt(readBuffer.position());
+				FrameCodec.checkLength(length);
+				if(readBuffer.remaining() < FrameCodec.HEADER_BYTES + length){
+					needed = FrameCodec.HEADER_BYTES + length;
+					break;
+				}
+				ByteBuffer payload = readBuffer.slice(readBuffer.position() + FrameCodec.HEADER_BYTES, length);
+				readBuffer.position(readBuffer.position() + FrameCodec.HEADER_BYTES + length);
+				if(codec == null){
+					if(FrameCodec.isHello(payload)){
+						codec = new BinaryCodec();
+						write(FrameCodec.hello(), null);
+						continue;
+					}
+					codec = FrameCodec.SERIALIZATION;
+				}
+				Object obj = codec.decode(payload);
+				if(!(obj instanceof Call)){
+					throw new IOException("Invalid object received");
+				}
+				receive((Call<Serializable>)obj);
+			}
+			readBuffer.compact();
+			if(needed > readBuffer.capacity()){
+				ByteBuffer larger = ByteBuffer.allocate(needed);
+				readBuffer.flip();
+				larger.put(readBuffer);
+				readBuffer = larger;
+			}else if(readBuffer.position() == 0 && readBuffer.capacity() > READ_BUFFER_BYTES){
+				readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+			}
+		}catch(Exception e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+			disconnect();
 		}
 	}
 
 	/**
-	 * Wait for a call from the client.
-	 * @return The call received.
-	 * @param <T> The type call parameters.
+	 * Write the queued frames, called by the reactor thread when the channel is writable.
+	 */
+	void onWritable(){
+		writeLock.lock();
+		try{
+			while(!writeQueue.isEmpty()){
+				ByteBuffer frame = writeQueue.peek();
+				channel.write(frame);
+				if(frame.hasRemaining()){
+					return;
+				}
+				writeQueue.poll();
+			}
+			key.interestOpsAnd(~SelectionKey.OP_WRITE);
+			return;
+		}catch(IOException | CancelledKeyException e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+		}finally{
+			writeLock.unlock();
+		}
+		disconnect();
+	}
+
+	/**
+	 * Handle a call received from the client.
+	 * The lastMessageTime is updated to the current time, synchronized on the lastMessageTimeLock for thread safety.
+	 * If the call's service is Service.Ping, a response with a Result indicating a successful ping is sent back.
+	 * Otherwise, the call is queued and, if no worker is already handling the calls of this client, one is started.
+	 * @param call The call received.
 	 * @throws DisconnectedClientException If the client is disconnected.
-	 *
-	 * @author Lorenzo
 	 */
-	private <T extends Serializable> Call<T> receive() throws DisconnectedClientException{
-		if(getStatus() == ClientStatus.Disconnected){
-			throw new DisconnectedClientException();
+	private void receive(Call<Serializable> call) throws DisconnectedClientException {
+		synchronized (lastMessageTimeLock){
+			lastMessageTime = LocalDateTime.now();
 		}
-		synchronized (this.incomingMessages){
-			try{
-				Object obj = this.incomingMessages.readObject();
-				if(obj instanceof Call){
-					return (Call)obj;
+		if(call.service() == Service.Ping){
+			send(Result.ok(true, call.id()));
+			return;
+		}
+		synchronized (calls){
+			calls.add(call);
+			if(handlingCalls){
+				return;
+			}
+			handlingCalls = true;
+		}
+		workers.execute(this::handleCalls);
+	}
+
+	/**
+	 * Pass the queued calls to the handler function, one at a time and in the order they were received, and send back
+	 * the results. Runs on the worker pool until the queue is empty.
+	 */
+	private void handleCalls(){
+		while(true){
+			Call<Serializable> call;
+			synchronized (calls){
+				call = calls.poll();
+				if(call == null){
+					handlingCalls = false;
+					return;
 				}
-			}catch(Exception e){
+			}
+			try{
+				send(getCallHandler().apply(call, this));
+			}catch(DisconnectedClientException e){
 				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+			}catch(RuntimeException e){
+				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+				disconnect();
 			}
-			disconnect();
-			throw new DisconnectedClientException();
 		}
 	}
 
 	/**
-	 * disconnect the client and close the socket.
-	 *
-	 * @author Lorenzo
+	 * Get the metrics of the queue of the outgoing frames.
+	 * @return The metrics of the queue.
+	 */
+	OutboundQueue.Metrics getQueueMetrics(){
+		writeLock.lock();
+		try{
+			return writeQueue.getMetrics();
+		}finally{
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * disconnect the client and close the channel.
 	 */
 	public void disconnect(){
 		setStatus(ClientStatus.Disconnected);
-		synchronized (socket){
-			try{
-				socket.close();
-			}catch (IOException e){
-				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
-			}
+		try{
+			channel.close();
+		}catch (IOException e){
+			Logger.getLogger(Client.class.getName()).warning(e.getMessage());
+		}
+		writeLock.lock();
+		try{
+			writeQueue.clear();
+		}finally{
+			writeLock.unlock();
+		}
+		synchronized (calls){
+			calls.clear();
 		}
 	}
 
@@ -221,38 +464,6 @@ public class Client extends Thread implements ClientInterface {
 		return true;
 	}
 
-	/**
-	 * Method that represents the main execution loop of the client.
-	 * It continuously runs while the client's status is not set to ClientStatus.Disconnected.
-	 * The `receive` method is called to receive a Call object from the server.
-	 * The lastMessageTime is updated to the current time, synchronized on the lastMessageTimeLock for thread safety.
-	 * If the received call's service is Service.Ping, a response with a Result indicating a successful ping is sent back.
-	 * Otherwise, the received call is passed to the handler function along with the client instance to process it.
-	 * The resulting Result object is sent back to the server.
-	 * If a DisconnectedClientException is caught during the execution, a warning message is logged.
-	 *
-	 * @author Lorenzo
-	 */
-	@Override
-	public void run() {
-		while (getStatus() != ClientStatus.Disconnected) {
-			try {
-				Call call = receive();
-				synchronized (lastMessageTimeLock){
-					lastMessageTime = LocalDateTime.now();
-				}
-				if(call.service() == Service.Ping){
-					send(Result.ok(true, call.id()));
-				}else{
-					Result result = handler.apply(call, this);
-					send(result);
-				}
-			} catch (DisconnectedClientException e) {
-				Logger.getLogger(Client.class.getName()).warning(e.getMessage());
-			}
-		}
-	}
-
 	/**
 	 * Set the handler function of the client.
 	 * @param handler The handler function to set.
@@ -1,5 +1,6 @@
 package network.rpc.server;
 
+import controller.ThreadMode;
 import controller.lobby.LobbyController;
 import controller.game.GameController;
 import network.*;
@@ -10,22 +11,56 @@ import network.parameters.Login;
 import network.errors.WrongParametersException;
 
 import java.io.Serializable;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import static network.Server.SERVER_NAME;
 
 /**
- * Class that handles the networking part for the client towards the server, server-side
+ * Class that handles the networking part for the client towards the server, server-side.
+ * The connections are multiplexed on a few `Reactor` threads, and the calls are handled by a pool of workers, so the
+ * number of threads doesn't grow with the number of connected clients.
  */
 public class ClientManager extends Thread implements ClientManagerInterface{
+    /**
+     * Snapshot of the metrics of the queues of the outgoing frames of the clients
+     * @param clients the number of clients
+     * @param queuedFrames the number of frames waiting to be written, over all the clients
+     * @param maxQueueDepth the maximum number of frames that have been waiting for a client
+     * @param dropped the number of events dropped by the `drop-oldest` policy
+     * @param coalesced the number of state events dropped because superseded by a newer one or by a snapshot
+     * @param snapshots the number of times the backlog of a client has been replaced by a snapshot of its game
+     * @param overflows the number of clients disconnected because their queue was full
+     */
+    public record Metrics(
+        int clients,
+        int queuedFrames,
+        int maxQueueDepth,
+        long dropped,
+        long coalesced,
+        long snapshots,
+        int overflows
+    ) {}
+
     final private LinkedList<Client> unidentifiedClients = new LinkedList<>();
     final private HashMap<String, Client> identifiedClients = new HashMap<>();
-    private ServerSocket socket;
+    private ServerSocketChannel socket;
     private Thread acceptConnectionsThread;
+    private final Reactor[] reactors;
+    private final ExecutorService workers;
+    private int nextReactor = 0;
+
+    // Threads multiplexing the sockets, and threads handling the calls (unbounded in the virtual thread mode)
+    private static final int IO_THREADS = Integer.getInteger("myshelfie.rpc.io", 2);
+    // Connections waiting to be accepted, for when many clients reconnect at once
+    private static final int ACCEPT_BACKLOG = 1024;
+    private static final int WORKER_THREADS = Integer.getInteger("myshelfie.rpc.workers", Math.max(4, Runtime.getRuntime().availableProcessors()));
 
     private static int port = 8000;
 
@@ -59,12 +94,20 @@ public class ClientManager extends Thread implements ClientManagerInterface{
 
     /**
      * Constructor that creates a ClientManager object with the given port.
-     * It initializes a ServerSocket using the specified port to listen for incoming connections.
+     * It opens a ServerSocketChannel on the specified port to listen for incoming connections, and starts the reactor
+     * threads and the worker pool.
      * It also creates a new thread that will handle accepting connections by invoking the acceptConnections method.
      */
     private ClientManager(int port) throws Exception {
-        this.socket = new ServerSocket(port);
+        this.socket = ServerSocketChannel.open();
+        this.socket.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
         this.acceptConnectionsThread = new Thread(this::acceptConnections);
+        this.reactors = new Reactor[Math.max(1, IO_THREADS)];
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(i);
+            reactors[i].start();
+        }
+        this.workers = ThreadMode.current().newExecutor("rpc-worker-", WORKER_THREADS);
     }
 
     /**
@@ -74,11 +117,10 @@ public class ClientManager extends Thread implements ClientManagerInterface{
      * - If the service of the call is not Service.Login, it returns an error Result indicating that the client is not identified.
      * - If the parameters of the call do not match the expected Login type, it returns an error Result indicating wrong parameters.
      * - If the length of the login username exceeds 16 characters or equals the SERVER_NAME constant, it returns an error Result indicating an invalid username.
-     * - It tries to add the identified client using the login username and the client instance. If the addition is successful:
-     *   - It searches for a game associated with the login username using the LobbyController.
+     * - It adds the identified client using the login username and the client instance.
+     * - It searches for a game associated with the login username using the LobbyController, and attaches a new client to it.
      *   - If a game is found, it returns a Result with the game information for the player.
      *   - If no game is found, it returns an empty Result.
-     * - If the addition of the identified client fails, it returns an empty Result.
      * - If an exception occurs during the process, it returns an error Result with the corresponding exception.
      *
      * @param call   The Call object representing the requested service.
@@ -99,13 +141,14 @@ public class ClientManager extends Thread implements ClientManagerInterface{
             return Result.err(new InvalidUsernameException(), call.id());
         }
         try{
-            if (addIdentifiedClient(login.username(), (Client) client)) {
-                Optional<GameController> game = LobbyController.getInstance().searchGame(login.username());
-                if (game.isPresent()) {
-                    return Result.ok(game.get().getGameInfo(game.get().getPlayer(login.username())), call.id());
-                } else {
-                    return Result.empty(call.id());
+            boolean wasConnected = addIdentifiedClient(login.username(), (Client) client);
+            // A new client can also have a game, resumed from a save
+            Optional<GameController> game = LobbyController.getInstance().searchGame(login.username());
+            if (game.isPresent()) {
+                if (!wasConnected) {
+                    game.get().attachClient(client);
                 }
+                return Result.ok(game.get().getGameInfo(game.get().getPlayer(login.username())), call.id());
             } else {
                 return Result.empty(call.id());
             }
@@ -118,9 +161,9 @@ public class ClientManager extends Thread implements ClientManagerInterface{
      * Method that continuously accepts incoming connections and handles them. It runs in a loop until the instance of
      * ClientManager is not null. Within each iteration:
      * - Accepts a new client connection by invoking the accept method on the ServerSocket.
-     * - Creates a new Client object with the accepted socket and the registerService method as the service registration handler.
+     * - Creates a new Client object with the accepted channel and the registerService method as the service registration handler.
      * - Adds the newly created client as an unidentified client.
-     * - Starts the client by invoking its start method.
+     * - Hands the client to the next reactor thread, round-robin.
      * - If an exception occurs during the process, it logs a warning message using the Logger class.
      *
      * @author Lorenzo
@@ -128,9 +171,11 @@ public class ClientManager extends Thread implements ClientManagerInterface{
     private void acceptConnections(){
         while(instance != null){
             try{
-                Client client = new Client(socket.accept(), this::registerService);
+                Reactor reactor = reactors[nextReactor];
+                nextReactor = (nextReactor + 1) % reactors.length;
+                Client client = new Client(socket.accept(), reactor, workers, this::registerService);
                 addUnidentifiedClient(client);
-                client.start();
+                reactor.register(client);
             }catch (Exception e){
                 Logger.getLogger(Client.class.getName()).warning(e.getMessage());
             }
@@ -189,7 +234,9 @@ public class ClientManager extends Thread implements ClientManagerInterface{
             }
             (client).setUsername(username);
             identifiedClients.put(username, client);
-            unidentifiedClients.remove(client);
+            synchronized (unidentifiedClients) {
+                unidentifiedClients.remove(client);
+            }
         }
 
         return wasConnected;
@@ -203,7 +250,8 @@ public class ClientManager extends Thread implements ClientManagerInterface{
      * Within each iteration of the loop, it performs the following steps:
      * - Checks if the instance of the ClientManager is still running.
      * - Iterates over the identifiedClients collection and checks the status of each client.
-     * - If a client's status is not disconnected, it checks the client's ping. If the ping check fails, the client is interrupted.
+     * - If a client's status is not disconnected, it checks the client's ping. If the ping check fails, the client is disconnected.
+     * - Does the same with the unidentified clients, and forgets the disconnected ones.
      * - Sleeps for a duration specified by `Client.TIMEOUT` to avoid excessive processing.
      * - Checks the running status again.
      * - If interrupted by an InterruptedException, it logs a warning message using the Logger class and interrupts the acceptConnectionsThread.
@@ -221,12 +269,13 @@ public class ClientManager extends Thread implements ClientManagerInterface{
                 synchronized (identifiedClients) {
                     for (Client client : identifiedClients.values()) {
                         if(client.getStatus() != ClientStatus.Disconnected){
-                            if(!client.checkPing()) {
-                                client.interrupt();
-                            }
+                            client.checkPing();
                         }
                     }
                 }
+                synchronized (unidentifiedClients) {
+                    unidentifiedClients.removeIf(client -> !client.checkPing());
+                }
                 Thread.sleep(Client.TIMEOUT * 1000 / 2);
                 synchronized (instanceLock){
                     running = instance != null;
@@ -267,6 +316,7 @@ public class ClientManager extends Thread implements ClientManagerInterface{
      * It also closes the socket associated with the ClientManager.
      * Additionally, it waits for the current thread (ClientManager) to complete by invoking the 'join' method on itself.
      * Furthermore, it synchronizes access to the unidentifiedClients and identifiedClients collections and disconnects all clients in these collections.
+     * Finally, it stops the reactor threads and the worker pool.
      *
      * @author Lorenzo
      */
@@ -297,6 +347,36 @@ public class ClientManager extends Thread implements ClientManagerInterface{
                 client.disconnect();
             }
         }
+        for (Reactor reactor : reactors) {
+            reactor.close();
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Get the current metrics of the queues of the outgoing frames, of the clients still known by the manager.
+     * @return The metrics.
+     */
+    public Metrics getMetrics() {
+        ArrayList<Client> clients;
+        synchronized (identifiedClients) {
+            clients = new ArrayList<>(identifiedClients.values());
+        }
+        synchronized (unidentifiedClients) {
+            clients.addAll(unidentifiedClients);
+        }
+        int queuedFrames = 0, maxQueueDepth = 0, overflows = 0;
+        long dropped = 0, coalesced = 0, snapshots = 0;
+        for (Client client : clients) {
+            OutboundQueue.Metrics metrics = client.getQueueMetrics();
+            queuedFrames += metrics.depth();
+            maxQueueDepth = Math.max(maxQueueDepth, metrics.maxDepth());
+            dropped += metrics.dropped();
+            coalesced += metrics.coalesced();
+            snapshots += metrics.snapshots();
+            overflows += metrics.overflowed() ? 1 : 0;
+        }
+        return new Metrics(clients.size(), queuedFrames, maxQueueDepth, dropped, coalesced, snapshots, overflows);
     }
 
     /**
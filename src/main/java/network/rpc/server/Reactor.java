@@ -0,0 +1,94 @@
+package network.rpc.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * I/O thread that multiplexes the sockets of many clients on a single selector.
+ * It only moves bytes: the calls decoded by the clients are handled by the worker pool of the `ClientManager`.
+ */
+class Reactor extends Thread {
+    private static final Logger logger = Logger.getLogger(Reactor.class.getName());
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Client> pending = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    /**
+     * Constructor of the class.
+     * @param index The index of the thread, used in its name.
+     * @throws IOException If the selector cannot be opened.
+     */
+    Reactor(int index) throws IOException {
+        super("rpc-io-" + index);
+        setDaemon(true);
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hand a new client to this thread, that will register its channel on the next loop.
+     * @param client The client to register.
+     */
+    void register(Client client) {
+        pending.add(client);
+        selector.wakeup();
+    }
+
+    /**
+     * Wake up the selector, so that the interest changes made by other threads take effect.
+     */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    /**
+     * Stop the thread and close the selector.
+     */
+    void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Main loop of the thread: register the new clients and serve the ready channels.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                Client client;
+                while ((client = pending.poll()) != null) {
+                    client.register(selector);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Client ready = (Client) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            ready.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            ready.onWritable();
+                        }
+                    } catch (CancelledKeyException e) {
+                        ready.disconnect();
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning(e.getMessage());
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warning(e.getMessage());
+        }
+    }
+}
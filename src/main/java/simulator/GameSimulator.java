@@ -0,0 +1,103 @@
+package simulator;
+
+import model.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+/**
+ * Class that plays a whole game without any client, ending the turns
+ * with `Game.endTurn` as `GameController` does.
+ * An instance is not thread safe, every worker thread needs its own.
+ */
+public class GameSimulator {
+	public static final String PLAYER_PREFIX = "player";
+
+	private final MoveGenerator generator = new MoveGenerator();
+
+	/**
+	 * Result of a simulated game
+	 * @param points the final points of every player, indexed by the player index used to choose the policy
+	 * @param winner the index of the winner
+	 * @param turns the number of played turns
+	 * @param stalled true if the game ended because a player had no legal move
+	 * @param scoreBoard the final scoreboard of the game
+	 */
+	public record Result(int[] points, int winner, int turns, boolean stalled, ScoreBoard scoreBoard) {
+	}
+
+	/**
+	 * Play a whole game
+	 * @param policies the policy of every player, the player `i` is named `PLAYER_PREFIX + i`
+	 * @param seed the seed of the game, the same seed and policies always produce the same game
+	 * @return the result of the game
+	 */
+	public Result play(Policy[] policies, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		ArrayList<String> names = new ArrayList<>();
+		for (int i = 0; i < policies.length; i++) {
+			names.add(PLAYER_PREFIX + i);
+		}
+		Game game = new Game(names, random.nextLong());
+
+		boolean stalled = false;
+		int turns = 0;
+		Iterator<Player> iterator = game.iterator();
+		while (iterator.hasNext()) {
+			Player player = iterator.next();
+			int size = generator.generate(game, player);
+			if (size == 0) {
+				stalled = true;
+				break;
+			}
+			Policy policy = policies[indexOf(player.getName())];
+			int move = generator.getMoves()[policy.choose(game, player, generator.getMoves(), size, random)];
+			apply(game.getTabletop(), player.getShelf(), move);
+			turns++;
+
+			game.endTurn(player, new ArrayList<>(), new ArrayList<>());
+		}
+
+		for (Player player : game.getPlayers()) {
+			player.getPersonalObjective().isCompleted(player.getShelf()).ifPresent(player::addCockade);
+		}
+		ScoreBoard scoreBoard = new ScoreBoard(game, name -> true);
+
+		int[] points = new int[policies.length];
+		for (Player player : game.getPlayers()) {
+			points[indexOf(player.getName())] = player.getPoints();
+		}
+		int winner = indexOf(scoreBoard.iterator().next().username());
+		return new Result(points, winner, turns, stalled, scoreBoard);
+	}
+
+	/**
+	 * Play a move, picking the cards from the tabletop and inserting them in the shelf
+	 * @param tabletop the tabletop
+	 * @param shelf the shelf of the player
+	 * @param move the move, encoded as in `MoveGenerator`
+	 * @throws RuntimeException if the move is not legal
+	 */
+	private static void apply(TableTop tabletop, Shelf shelf, int move) {
+		ArrayList<Card> cards = new ArrayList<>();
+		try {
+			for (int i = 0; i < MoveGenerator.cardsCount(move); i++) {
+				int cell = MoveGenerator.cell(move, i);
+				cards.add(tabletop.pickCard(cell / TableTop.SIZE, cell % TableTop.SIZE));
+			}
+			shelf.insert(MoveGenerator.column(move), cards);
+		} catch (InvalidMoveException e) {
+			throw new RuntimeException("Illegal generated move", e);
+		}
+	}
+
+	/**
+	 * Get the index of a simulated player from its name
+	 * @param name the name of the player
+	 * @return the index of the player
+	 */
+	private static int indexOf(String name) {
+		return Integer.parseInt(name.substring(PLAYER_PREFIX.length()));
+	}
+}
@@ -0,0 +1,71 @@
+package simulator;
+
+import model.Card;
+import model.Game;
+import model.MoveGenerator;
+import model.Player;
+import model.Shelf;
+import model.TableTop;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Policy that plays the move putting the most cards next to cards of the same type
+ * in the shelf, preferring moves with more cards and breaking ties at random.
+ */
+public class GreedyPolicy implements Policy {
+	/**
+	 * Choose the move with the best score
+	 * @param game the game being played
+	 * @param player the player that has to move
+	 * @param moves the legal moves, encoded as in `MoveGenerator`
+	 * @param size the number of legal moves (always positive)
+	 * @param random the random source of the game
+	 * @return the index in `moves` of the chosen move
+	 */
+	@Override
+	public int choose(Game game, Player player, int[] moves, int size, RandomGenerator random) {
+		TableTop tabletop = game.getTabletop();
+		Shelf shelf = player.getShelf();
+		int best = 0;
+		int bestScore = -1;
+		int ties = 0;
+		for (int i = 0; i < size; i++) {
+			int score = score(tabletop, shelf, moves[i]);
+			if (score > bestScore) {
+				best = i;
+				bestScore = score;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Score a move by the number of same type adjacencies it creates in the shelf
+	 * @param tabletop the tabletop of the game
+	 * @param shelf the shelf of the player
+	 * @param move the encoded move
+	 * @return the score of the move
+	 */
+	private static int score(TableTop tabletop, Shelf shelf, int move) {
+		int column = MoveGenerator.column(move);
+		int row = shelf.getHighest(column);
+		int count = MoveGenerator.cardsCount(move);
+		int adjacencies = 0;
+		Card.Type below = null;
+		for (int i = 0; i < count; i++) {
+			Card.Type type = tabletop.getType(MoveGenerator.cell(move, i));
+			long cell = 1L << Shelf.bitIndex(row + i, column);
+			adjacencies += Long.bitCount(Shelf.expand(cell) & ~cell & shelf.getTypeMask(type));
+			// The previous card of the move lands right below this one
+			if (type == below) {
+				adjacencies++;
+			}
+			below = type;
+		}
+		return adjacencies * (MoveGenerator.MAX_CARDS + 1) + count;
+	}
+}
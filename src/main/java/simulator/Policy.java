@@ -0,0 +1,24 @@
+package simulator;
+
+import model.Game;
+import model.Player;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Strategy used by a simulated player to choose its move.
+ * Implementations must be stateless or thread confined, since the same policy
+ * is used by all the games running in parallel.
+ */
+public interface Policy {
+	/**
+	 * Choose the move to play among the legal ones
+	 * @param game the game being played
+	 * @param player the player that has to move
+	 * @param moves the legal moves, encoded as in `MoveGenerator`
+	 * @param size the number of legal moves (always positive)
+	 * @param random the random source of the game
+	 * @return the index in `moves` of the chosen move
+	 */
+	int choose(Game game, Player player, int[] moves, int size, RandomGenerator random);
+}
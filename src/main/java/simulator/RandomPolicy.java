@@ -0,0 +1,25 @@
+package simulator;
+
+import model.Game;
+import model.Player;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Policy that plays a uniformly random legal move.
+ */
+public class RandomPolicy implements Policy {
+	/**
+	 * Choose a random legal move
+	 * @param game the game being played
+	 * @param player the player that has to move
+	 * @param moves the legal moves, encoded as in `MoveGenerator`
+	 * @param size the number of legal moves (always positive)
+	 * @param random the random source of the game
+	 * @return the index in `moves` of the chosen move
+	 */
+	@Override
+	public int choose(Game game, Player player, int[] moves, int size, RandomGenerator random) {
+		return random.nextInt(size);
+	}
+}
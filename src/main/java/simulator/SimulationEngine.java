@@ -0,0 +1,113 @@
+package simulator;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Engine that plays batches of headless games on a fork/join pool.
+ * The games are split in ranges between the workers, every game has its own seed
+ * derived from the seed of the batch and its index, so the statistics of a batch
+ * don't depend on the number of threads.
+ */
+public class SimulationEngine {
+	// Number of games played by a single task without splitting it further
+	private static final int GAMES_PER_TASK = 64;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor of an engine using all the available cores
+	 */
+	public SimulationEngine() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor of an engine using the given number of threads
+	 * @param parallelism the number of worker threads
+	 */
+	public SimulationEngine(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Play a batch of games
+	 * @param policies the policy of every player
+	 * @param games the number of games to play
+	 * @param seed the seed of the batch
+	 * @return the statistics of the games
+	 */
+	public SimulationStats run(Policy[] policies, int games, long seed) {
+		long start = System.nanoTime();
+		SimulationStats stats = pool.invoke(new SimulationTask(policies, seed, 0, games));
+		stats.setElapsedNanos(System.nanoTime() - start);
+		return stats;
+	}
+
+	/**
+	 * Stop the worker threads of the engine
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Derive the seed of a single game from the seed of the batch
+	 * @param seed the seed of the batch
+	 * @param game the index of the game in the batch
+	 * @return the seed of the game
+	 */
+	public static long gameSeed(long seed, int game) {
+		long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Task playing the games in the range [from, to) of a batch
+	 */
+	private static class SimulationTask extends RecursiveTask<SimulationStats> {
+		// The tasks are never serialized, the policies are not serializable
+		private static final long serialVersionUID = 1L;
+		private final transient Policy[] policies;
+		private final long seed;
+		private final int from;
+		private final int to;
+
+		/**
+		 * Constructor of the task
+		 * @param policies the policy of every player
+		 * @param seed the seed of the batch
+		 * @param from the first game of the range
+		 * @param to the end (excluded) of the range
+		 */
+		SimulationTask(Policy[] policies, long seed, int from, int to) {
+			this.policies = policies;
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Play the games of the range, splitting it in half if it is too big
+		 * @return the statistics of the games of the range
+		 */
+		@Override
+		protected SimulationStats compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				GameSimulator simulator = new GameSimulator();
+				SimulationStats stats = new SimulationStats(policies.length);
+				for (int game = from; game < to; game++) {
+					stats.add(simulator.play(policies, gameSeed(seed, game)));
+				}
+				return stats;
+			}
+			int middle = (from + to) >>> 1;
+			SimulationTask left = new SimulationTask(policies, seed, from, middle);
+			left.fork();
+			SimulationStats right = new SimulationTask(policies, seed, middle, to).compute();
+			return right.merge(left.join());
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package simulator;
+
+/**
+ * Aggregated statistics of a batch of simulated games.
+ * Every worker fills its own instance, that are merged at the end.
+ */
+public class SimulationStats {
+	// Scores above this value are counted in the last bucket of the histograms
+	public static final int MAX_POINTS = 128;
+
+	private final int nPlayers;
+	private int games;
+	private long turns;
+	private int stalled;
+	private long elapsedNanos;
+	private final int[] wins;
+	private final long[] totalPoints;
+	private final int[] pointsHistogram = new int[MAX_POINTS + 1];
+	private final int[] winnerPointsHistogram = new int[MAX_POINTS + 1];
+
+	/**
+	 * Constructor of empty statistics
+	 * @param nPlayers the number of players of the simulated games
+	 */
+	public SimulationStats(int nPlayers) {
+		this.nPlayers = nPlayers;
+		wins = new int[nPlayers];
+		totalPoints = new long[nPlayers];
+	}
+
+	/**
+	 * Add the result of a game
+	 * @param result the result of the game
+	 */
+	public void add(GameSimulator.Result result) {
+		games++;
+		turns += result.turns();
+		if (result.stalled()) {
+			stalled++;
+		}
+		wins[result.winner()]++;
+		for (int i = 0; i < nPlayers; i++) {
+			totalPoints[i] += result.points()[i];
+			pointsHistogram[Math.min(result.points()[i], MAX_POINTS)]++;
+		}
+		winnerPointsHistogram[Math.min(result.points()[result.winner()], MAX_POINTS)]++;
+	}
+
+	/**
+	 * Add all the games of other statistics to these
+	 * @param other the statistics to merge
+	 * @return this object
+	 */
+	public SimulationStats merge(SimulationStats other) {
+		games += other.games;
+		turns += other.turns;
+		stalled += other.stalled;
+		for (int i = 0; i < nPlayers; i++) {
+			wins[i] += other.wins[i];
+			totalPoints[i] += other.totalPoints[i];
+		}
+		for (int i = 0; i <= MAX_POINTS; i++) {
+			pointsHistogram[i] += other.pointsHistogram[i];
+			winnerPointsHistogram[i] += other.winnerPointsHistogram[i];
+		}
+		return this;
+	}
+
+	/**
+	 * Setter for the wall clock time taken by the games
+	 * @param elapsedNanos the elapsed time in nanoseconds
+	 */
+	public void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Getter for the `games` field
+	 * @return the number of simulated games
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * Getter for the `turns` field
+	 * @return the total number of played turns
+	 */
+	public long getTurns() {
+		return turns;
+	}
+
+	/**
+	 * Getter for the `stalled` field
+	 * @return the number of games ended because a player had no legal move
+	 */
+	public int getStalled() {
+		return stalled;
+	}
+
+	/**
+	 * Get the number of games won by a player
+	 * @param player the index of the player
+	 * @return the number of wins
+	 */
+	public int getWins(int player) {
+		return wins[player];
+	}
+
+	/**
+	 * Get the average final points of a player
+	 * @param player the index of the player
+	 * @return the average points
+	 */
+	public double getAveragePoints(int player) {
+		return games == 0 ? 0 : (double)totalPoints[player] / games;
+	}
+
+	/**
+	 * Get the number of final scores, of any player, with the given points
+	 * @param points the points, `MAX_POINTS` counts all the higher scores too
+	 * @return the number of scores
+	 */
+	public int getPointsCount(int points) {
+		return pointsHistogram[points];
+	}
+
+	/**
+	 * Get a percentile of the final scores
+	 * @param histogram the histogram of the scores
+	 * @param percentile the percentile, in [0, 1]
+	 * @return the lowest score with at least `percentile` of the scores below or equal to it
+	 */
+	private static int percentile(int[] histogram, double percentile) {
+		long total = 0;
+		for (int count : histogram) {
+			total += count;
+		}
+		long seen = 0;
+		for (int points = 0; points <= MAX_POINTS; points++) {
+			seen += histogram[points];
+			if (seen > 0 && seen >= percentile * total) {
+				return points;
+			}
+		}
+		return MAX_POINTS;
+	}
+
+	/**
+	 * Get the throughput of the simulation
+	 * @return the simulated games per second
+	 */
+	public double getGamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Build a human-readable report of the statistics
+	 * @return the report
+	 */
+	public String report() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("Games: %d (%.1f games/s), %d stalled, %.1f turns per game%n", games, getGamesPerSecond(), stalled, games == 0 ? 0 : (double)turns / games));
+		for (int i = 0; i < nPlayers; i++) {
+			builder.append(String.format("Player %d: %.2f%% wins, %.2f average points%n", i, games == 0 ? 0 : 100.0 * wins[i] / games, getAveragePoints(i)));
+		}
+		builder.append(String.format("Points:        p10 %d, p50 %d, p90 %d, p99 %d%n", percentile(pointsHistogram, 0.1), percentile(pointsHistogram, 0.5), percentile(pointsHistogram, 0.9), percentile(pointsHistogram, 0.99)));
+		builder.append(String.format("Winner points: p10 %d, p50 %d, p90 %d, p99 %d%n", percentile(winnerPointsHistogram, 0.1), percentile(winnerPointsHistogram, 0.5), percentile(winnerPointsHistogram, 0.9), percentile(winnerPointsHistogram, 0.99)));
+		return builder.toString();
+	}
+}
@@ -718,6 +718,8 @@ public class CLI {
 	 *  - `Leave`: a player leaves the lobby
 	 *  - `Start`: the game starts
 	 *  - `Update`: The game state is updated after someone moved
+	 *  - `UpdateDelta`: The changes of the move are applied to the game state, that is reloaded if an update was missed
+	 *  - `Snapshot`: The game state is replaced, after falling behind on the updates
 	 *  - `End`: The game ends
 	 *  - `NewMessage`: A message is received
 	 *  - `ExitGame`: The host stopped the game
@@ -782,21 +784,23 @@ public class CLI {
 			}
 			case Update -> {
 				Update update = (Update)event.get().getData();
-				for (Cockade commonObjective : update.completedObjectives()) {
-					if (update.idPlayer().equals(username)) {
-						System.out.format("[*] You completed %s getting %d points%n", commonObjective.name(), commonObjective.points());
-					} else {
-						System.out.format("[*] %s completed %s getting %d points%n", update.idPlayer(), commonObjective.name(), commonObjective.points());
-					}
-				}
 				game.update(update);
-				doPrint = true;
-				if (update.nextPlayer().equals(username)) {
-					yourTurn = true;
-					System.out.println("[*] It's your turn");
-				} else {
-					yourTurn = false;
-					System.out.println("[*] It's " + update.nextPlayer() + "'s turn");
+				printTurn(update.idPlayer(), update.nextPlayer(), update.completedObjectives());
+			}
+			case UpdateDelta -> {
+				UpdateDelta delta = (UpdateDelta)event.get().getData();
+				// The deltas already included, e.g. by a snapshot, have already been announced
+				switch (game.update(delta)) {
+					case APPLIED -> printTurn(delta.idPlayer(), delta.nextPlayer(), delta.completedObjectives());
+					case MISSED -> loadSnapshot();
+					case INCLUDED -> {}
+				}
+			}
+			case Snapshot -> {
+				GameInfo gameInfo = (GameInfo)event.get().getData();
+				if (game == null || gameInfo.version() > game.version) {
+					game = new CLIGame(gameInfo, username);
+					printTurn(gameInfo.currentPlayer(), gameInfo.currentPlayer(), new ArrayList<>());
 				}
 			}
 			case End -> {
@@ -834,4 +838,44 @@ public class CLI {
 		}
 		return state;
 	}
+
+	/**
+	 * Print the outcome of a turn: the common objectives completed by its player and whose turn is next
+	 * @param idPlayer the player of the turn
+	 * @param nextPlayer the player of the next turn
+	 * @param completedObjectives the common objectives completed in the turn
+	 */
+	private void printTurn(String idPlayer, String nextPlayer, ArrayList<Cockade> completedObjectives) {
+		for (Cockade commonObjective : completedObjectives) {
+			if (idPlayer.equals(username)) {
+				System.out.format("[*] You completed %s getting %d points%n", commonObjective.name(), commonObjective.points());
+			} else {
+				System.out.format("[*] %s completed %s getting %d points%n", idPlayer, commonObjective.name(), commonObjective.points());
+			}
+		}
+		doPrint = true;
+		if (nextPlayer.equals(username)) {
+			yourTurn = true;
+			System.out.println("[*] It's your turn");
+		} else {
+			yourTurn = false;
+			System.out.println("[*] It's " + nextPlayer + "'s turn");
+		}
+	}
+
+	/**
+	 * Replace the game state with a snapshot asked to the server, after missing an update
+	 */
+	private void loadSnapshot() {
+		try {
+			Result result = networkManager.gameSnapshot().waitResult();
+			GameInfo gameInfo = (GameInfo)result.unwrap();
+			game = new CLIGame(gameInfo, username);
+			printTurn(gameInfo.currentPlayer(), gameInfo.currentPlayer(), new ArrayList<>());
+		} catch (Exception e) {
+			logger.warning("Failed to load the game snapshot: " + e.getMessage());
+			// Asked again with the next update
+			game.markStale();
+		}
+	}
 }
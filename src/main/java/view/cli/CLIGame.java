@@ -13,6 +13,7 @@ import model.Shelf;
 import model.TableTop;
 import network.parameters.GameInfo;
 import network.parameters.Update;
+import network.parameters.UpdateDelta;
 
 /**
  * Class that contains the game's information needed in the CLI
@@ -30,6 +31,9 @@ public class CLIGame {
 	ArrayList<String> commonObjectives;
 	ArrayList<Integer> commonObjectivesPoints;
 	PersonalObjective personalObjective;
+	int version;
+	// A delta couldn't be applied and the snapshot couldn't be loaded, the deltas wait for a new snapshot
+	boolean stale = false;
 
 	/**
 	 * Constructor of the class
@@ -44,6 +48,7 @@ public class CLIGame {
 		this.commonObjectives = data.commonObjectives();
 		this.commonObjectivesPoints = data.commonObjectivesPoints();
 		this.nPlayers = this.players.size();
+		this.version = data.version();
 
 		this.personalObjective = new PersonalObjective(data.personalObjective());
 
@@ -77,10 +82,49 @@ public class CLIGame {
 			}
 		}
 
-		for (int i = 0; i < update.completedObjectives().size(); i++) {
+		updateCommonObjectivesPoints(update.completedObjectives(), update.newCommonObjectivesScores());
+	}
+
+	/**
+	 * Apply the changes of a turn to the game state, if they follow its version.
+	 * The changes already included in the state are ignored, and a delta that cannot be applied leaves the state untouched
+	 * @param delta an `UpdateDelta` object from the server
+	 * @return whether the delta has been applied, was already included, or a snapshot of the game is needed
+	 */
+	public UpdateDelta.Outcome update(UpdateDelta delta) {
+		if (stale) {
+			return UpdateDelta.Outcome.MISSED;
+		}
+		UpdateDelta.Outcome outcome = delta.applyTo(version, tableTop, players, shelves);
+		if (outcome == UpdateDelta.Outcome.APPLIED) {
+			int mine = players.indexOf(me);
+			if (mine >= 0) {
+				myShelf = shelves.get(mine);
+			}
+			updateCommonObjectivesPoints(delta.completedObjectives(), delta.newCommonObjectivesScores());
+			version = delta.version();
+		}
+		return outcome;
+	}
+
+	/**
+	 * Mark the state as out of date, when a snapshot of the game is needed and couldn't be loaded,
+	 * so that the next deltas ask for a snapshot again
+	 */
+	public void markStale() {
+		stale = true;
+	}
+
+	/**
+	 * Update the points of the common objectives completed in a turn
+	 * @param completedObjectives the cockades of the completed objectives
+	 * @param newScores the new points of the objectives
+	 */
+	private void updateCommonObjectivesPoints(ArrayList<Cockade> completedObjectives, ArrayList<Integer> newScores) {
+		for (int i = 0; i < completedObjectives.size(); i++) {
 			for (int j = 0; j < commonObjectives.size(); j++) {
-				if (update.completedObjectives().get(i).name().equals(commonObjectives.get(j))) {
-					commonObjectivesPoints.set(j, update.newCommonObjectivesScores().get(i));
+				if (completedObjectives.get(i).name().equals(commonObjectives.get(j))) {
+					commonObjectivesPoints.set(j, newScores.get(i));
 					break;
 				}
 			}
@@ -324,7 +368,7 @@ public class CLIGame {
 			}
 		}
 		for (Cell cell : personalObjective.getCellsCheck()) {
-			shelfLikePersonalObjective[cell.y()][cell.x()] = Optional.of(new Card(cell.card()));
+			shelfLikePersonalObjective[cell.y()][cell.x()] = Optional.of(Card.of(cell.card()));
 		}
 		printShelf(new Shelf(shelfLikePersonalObjective));
 		
@@ -6,6 +6,7 @@ import java.util.Optional;
 import model.*;
 import network.parameters.GameInfo;
 import network.parameters.Update;
+import network.parameters.UpdateDelta;
 
 /**
  * This class contains all the data needed to update the GUI.
@@ -20,11 +21,14 @@ public class GameData {
     private ArrayList<String> playersNames;
     private PersonalObjective myPersonalObjective;
     private String me;
-    private Optional[][] tableTop;
+    private Optional<Card>[][] tableTop;
     private int nPlayers;
     private ArrayList<Integer> commonObjectivesPoints;
     private ScoreBoard scoreBoard;
     private String currentPlayer;
+    private int version;
+    // A delta couldn't be applied and the snapshot couldn't be loaded, the deltas wait for a new snapshot
+    private boolean stale = false;
 
     /**
      *
@@ -43,6 +47,7 @@ public class GameData {
         this.shelves = new ArrayList<>();
         this.commonObjectivesPoints = data.commonObjectivesPoints();
         this.currentPlayer = data.currentPlayer();
+        this.version = data.version();
 
         updateTableTop(data.tableTop());
 
@@ -74,10 +79,59 @@ public class GameData {
                 break;
             }
         }
-        for (int i = 0; i < update.completedObjectives().size(); i++) {
+        updateCommonObjectivesPoints(update.completedObjectives(), update.newCommonObjectivesScores());
+    }
+
+    /**
+     * This method is used to apply the changes of a turn in place.
+     * The changes are applied only if they follow the current version of the game,
+     * the ones already included in it are ignored. A delta that cannot be applied leaves the data untouched.
+     *
+     * @param delta contains the changes made by the turn.
+     * @return whether the delta has been applied, was already included, or a snapshot of the game is needed.
+     *
+     */
+
+    public UpdateDelta.Outcome update(UpdateDelta delta) {
+        if (stale) {
+            return UpdateDelta.Outcome.MISSED;
+        }
+        UpdateDelta.Outcome outcome = delta.applyTo(version, tableTop, playersNames, shelves);
+        if (outcome == UpdateDelta.Outcome.APPLIED) {
+            int mine = playersNames.indexOf(me);
+            if (mine >= 0) {
+                myShelf = shelves.get(mine);
+            }
+            updateCommonObjectivesPoints(delta.completedObjectives(), delta.newCommonObjectivesScores());
+            currentPlayer = delta.nextPlayer();
+            version = delta.version();
+        }
+        return outcome;
+    }
+
+    /**
+     * This method is used to mark the data as out of date, when a snapshot of the game is needed and couldn't be loaded.
+     * The next deltas are not applied, so that a new snapshot is asked for.
+     *
+     */
+
+    public void markStale() {
+        stale = true;
+    }
+
+    /**
+     * This method is used to update the points of the common objectives completed in a turn.
+     *
+     * @param completedObjectives are the cockades of the completed objectives.
+     * @param newScores are the new points of the objectives.
+     *
+     */
+
+    private void updateCommonObjectivesPoints(ArrayList<Cockade> completedObjectives, ArrayList<Integer> newScores) {
+        for (int i = 0; i < completedObjectives.size(); i++) {
             for (int j = 0; j < commonObjectives.size(); j++) {
-                if (update.completedObjectives().get(i).name().equals(commonObjectives.get(j))) {
-                    commonObjectivesPoints.set(j, update.newCommonObjectivesScores().get(i));
+                if (completedObjectives.get(i).name().equals(commonObjectives.get(j))) {
+                    commonObjectivesPoints.set(j, newScores.get(i));
                     break;
                 }
             }
@@ -131,6 +185,9 @@ public class GameData {
     public String getCurrentPlayer(){
         return currentPlayer;
     }
+    public int getVersion(){
+        return version;
+    }
     public void setScoreBoard(ScoreBoard scoreBoard){
         this.scoreBoard = scoreBoard;
     }
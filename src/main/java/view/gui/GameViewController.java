@@ -21,8 +21,10 @@ import javafx.stage.Stage;
 import model.*;
 import network.*;
 import network.parameters.CardSelect;
+import network.parameters.GameInfo;
 import network.parameters.Message;
 import network.parameters.Update;
+import network.parameters.UpdateDelta;
 
 import java.io.IOException;
 import java.net.URL;
@@ -611,6 +613,8 @@ public class GameViewController implements Initializable {
      * - NewMessage: prints the message received from the server
      * - Update: updates the game data with the new information received from the server, then update
      *   the GUI where necessary and sets the yourTurn boolean to true if it's the turn of the player
+     * - UpdateDelta: as Update, applying only the changes of the turn, or loading the whole game if an update was missed
+     * - Snapshot: replaces the game data, after falling behind on the updates
      * - End: calls the printEnd method to redirect to the scoreboard view of the game
      * - Join and Leave: updates the list of players in the game and notifies the players
      * - Pause: pauses the game and notifies the players
@@ -634,26 +638,24 @@ public class GameViewController implements Initializable {
             }
             case Update -> {
                 Update update = (Update)event.get().getData();
-                for (Cockade commonObjective : update.completedObjectives()) {
-                    if (update.idPlayer().equals(username)) {
-                        Platform.runLater(() -> Utils.addMessageToChat(username, new Message(Server.SERVER_NAME,"You completed " + commonObjective.name() + " getting " + commonObjective.points() + " points"), chat));
-                    } else {
-                        Platform.runLater(() -> Utils.addMessageToChat(username, new Message(Server.SERVER_NAME, update.idPlayer() + " completed " + commonObjective.name() + " getting " + commonObjective.points() + " points"), chat));
-                    }
-                }
                 gameData.update(update);
-                if (update.nextPlayer().equals(username)) {
-                    yourTurn = true;
-                    Utils.changeLabel(messageLabel, "It's your turn");
-                } else {
-                    yourTurn = false;
-                    Utils.changeLabel(messageLabel, "It's " + update.nextPlayer() + "'s turn");
+                showTurn(update.idPlayer(), update.nextPlayer(), update.completedObjectives());
+            }
+            case UpdateDelta -> {
+                UpdateDelta delta = (UpdateDelta)event.get().getData();
+                // The deltas already included, e.g. by a snapshot, have already been shown
+                switch (gameData.update(delta)) {
+                    case APPLIED -> showTurn(delta.idPlayer(), delta.nextPlayer(), delta.completedObjectives());
+                    case MISSED -> loadSnapshot();
+                    case INCLUDED -> {}
+                }
+            }
+            case Snapshot -> {
+                GameInfo gameInfo = (GameInfo)event.get().getData();
+                if (gameInfo.version() > gameData.getVersion()) {
+                    gameData = new GameData(gameInfo, username);
+                    showTurn(gameInfo.currentPlayer(), gameInfo.currentPlayer(), new ArrayList<>());
                 }
-                Platform.runLater(() -> {
-                    fillScene(gameData.getTableTop());
-                    fillShelf(gameData.getMyShelf());
-                    selectedImages.clear();
-                });
             }
             case End -> {
                 ScoreBoard scoreboard = (ScoreBoard)event.get().getData();
@@ -699,6 +701,53 @@ public class GameViewController implements Initializable {
         }
     }
 
+    /**
+     * Method that shows the outcome of a turn: the common objectives completed by its player and whose turn is next,
+     * then redraws the tabletop and the shelf from the game data.
+     *
+     * @param idPlayer the player of the turn
+     * @param nextPlayer the player of the next turn
+     * @param completedObjectives the common objectives completed in the turn
+     */
+    private void showTurn(String idPlayer, String nextPlayer, ArrayList<Cockade> completedObjectives) {
+        for (Cockade commonObjective : completedObjectives) {
+            if (idPlayer.equals(username)) {
+                Platform.runLater(() -> Utils.addMessageToChat(username, new Message(Server.SERVER_NAME,"You completed " + commonObjective.name() + " getting " + commonObjective.points() + " points"), chat));
+            } else {
+                Platform.runLater(() -> Utils.addMessageToChat(username, new Message(Server.SERVER_NAME, idPlayer + " completed " + commonObjective.name() + " getting " + commonObjective.points() + " points"), chat));
+            }
+        }
+        if (nextPlayer.equals(username)) {
+            yourTurn = true;
+            Utils.changeLabel(messageLabel, "It's your turn");
+        } else {
+            yourTurn = false;
+            Utils.changeLabel(messageLabel, "It's " + nextPlayer + "'s turn");
+        }
+        Platform.runLater(() -> {
+            fillScene(gameData.getTableTop());
+            fillShelf(gameData.getMyShelf());
+            selectedImages.clear();
+        });
+    }
+
+    /**
+     * Method that replaces the game data with a snapshot of the game asked to the server,
+     * used when an update has been missed.
+     */
+    private void loadSnapshot() {
+        try {
+            Result result = networkManager.gameSnapshot().waitResult();
+            GameInfo gameInfo = (GameInfo)result.unwrap();
+            gameData = new GameData(gameInfo, username);
+            showTurn(gameInfo.currentPlayer(), gameInfo.currentPlayer(), new ArrayList<>());
+        } catch (Exception e) {
+            logger.warning("Failed to load the game snapshot: " + e.getMessage());
+            // Asked again with the next update
+            gameData.markStale();
+        }
+    }
+
     /**
      *  Method that returns an instance of the `GameData` class.
      *  The `static` keyword means that the method can be called without creating an instance of the class.
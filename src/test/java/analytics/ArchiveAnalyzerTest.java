@@ -0,0 +1,135 @@
+package analytics;
+
+import model.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArchiveAnalyzerTest {
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("analytics").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	private static ArchivedGame play(long seed) throws InvalidMoveException {
+		return play(seed, 0);
+	}
+
+	/**
+	 * Play a whole random game, and return it as it is archived
+	 */
+	private static ArchivedGame play(long seed, int resumed) throws InvalidMoveException {
+		Game game = new Game(new ArrayList<>(List.of("p1", "p2", "p3")), seed);
+		return new RandomGame(game, seed).play(Integer.MAX_VALUE, resumed, seed);
+	}
+
+	@Test
+	public void testAnalyze() throws Exception {
+		for (int segment = 0; segment < 3; segment++) {
+			GameArchive archive = new GameArchive(directory);
+			for (int i = 0; i < 40; i++) {
+				archive.append(play(segment * 100 + i));
+			}
+			archive.close();
+		}
+		assertEquals(3, GameArchive.segments(directory).size());
+
+		ArchiveAnalyzer analyzer = new ArchiveAnalyzer(4);
+		ArchiveStats stats = analyzer.analyze(directory);
+		analyzer.shutdown();
+		assertEquals(120, stats.getGames());
+		assertEquals(0, stats.getInvalid());
+
+		double completion = 0;
+		for (CommonObjective objective : CommonObjective.generateAllCommonObjectives(3)) {
+			double rate = stats.getCompletionRate(objective.getName());
+			assertTrue(rate >= 0 && rate <= 1);
+			completion += rate;
+			if (rate > 0) {
+				assertTrue(stats.getAverageFirstTurn(objective.getName()) > 0);
+			}
+		}
+		assertTrue(completion > 0);
+
+		int players = 0;
+		for (PersonalObjective objective : PersonalObjective.generateAllPersonalObjectives()) {
+			for (int points = 0; points <= ArchiveStats.MAX_PERSONAL_POINTS; points++) {
+				players += stats.getPersonalPointsCount(objective.getName(), points);
+			}
+		}
+		assertEquals(3 * 120, players);
+
+		// Every shelf fills its bottom row before the others
+		double bottom = 0;
+		double top = 0;
+		for (Card.Type type : Card.Type.values()) {
+			bottom += stats.getHeat(0, 0, type);
+			top += stats.getHeat(Shelf.ROWS - 1, 0, type);
+		}
+		assertTrue(bottom >= top);
+		assertTrue(bottom <= 1.0001);
+
+		assertTrue(stats.report().contains("Games: 120"));
+	}
+
+	@Test
+	public void testParallelism() throws Exception {
+		GameArchive archive = new GameArchive(directory);
+		for (int i = 0; i < 60; i++) {
+			archive.append(play(i));
+		}
+		archive.close();
+
+		ArchiveAnalyzer sequential = new ArchiveAnalyzer(1);
+		ArchiveAnalyzer parallel = new ArchiveAnalyzer(4);
+		String expected = sequential.analyze(directory).report().replaceFirst("\\(.* games/s\\)", "");
+		String actual = parallel.analyze(directory).report().replaceFirst("\\(.* games/s\\)", "");
+		sequential.shutdown();
+		parallel.shutdown();
+		// The statistics don't depend on how the games are split between the workers
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testResumedGames() throws Exception {
+		ArchiveStats stats = new ArchiveStats();
+		for (int i = 0; i < 20; i++) {
+			stats.add(play(i, 45));
+		}
+		assertEquals(20, stats.getGames());
+		int before = 0;
+		for (CommonObjective objective : CommonObjective.generateAllCommonObjectives(3)) {
+			before += stats.getCompletedBeforeArchive(objective.getName());
+			// The objectives completed before the archived turns don't count as completed at their start
+			double average = stats.getAverageFirstTurn(objective.getName());
+			assertTrue(average == 0 || average >= 1);
+		}
+		assertTrue(before > 0);
+	}
+
+	@Test
+	public void testInvalidGame() {
+		ArchiveStats stats = new ArchiveStats();
+		stats.add(new ArchivedGame(0, 0, new byte[]{1, 2, 3}, List.of(), List.of()));
+		assertEquals(0, stats.getGames());
+		assertEquals(1, stats.getInvalid());
+	}
+}
@@ -0,0 +1,142 @@
+package controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DataBaseTest {
+	private File directory;
+	private File log;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("db").toFile();
+		log = new File(directory, "db.log");
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	private static HashSet<String> key(String... names) {
+		return new HashSet<>(List.of(names));
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		DataBase db = new DataBase(log);
+		db.put(key("alice", "bob"), new File("save-states/1.srl"));
+		db.put(key("carl", "dave", "erin"), new File("save-states/2.srl"));
+		db.put(key("alice", "bob"), new File("save-states/3.srl"));
+		db.remove(key("carl", "dave", "erin"));
+		db.remove(key("nobody"));
+
+		DataBase reopened = new DataBase(log);
+		assertEquals(1, reopened.size());
+		assertEquals(new File("save-states/3.srl"), reopened.get(key("bob", "alice")));
+		assertFalse(reopened.containsKey(key("carl", "dave", "erin")));
+	}
+
+	@Test
+	public void testConstantAppend() throws IOException {
+		DataBase db = new DataBase(log);
+		for (int i = 0; i < 10; i++) {
+			db.put(key("p" + i, "q" + i), new File("save-states/" + i + ".srl"));
+		}
+		long before = log.length();
+		db.put(key("p10", "q10"), new File("save-states/0.srl"));
+		long first = log.length() - before;
+		for (int i = 11; i < 90; i++) {
+			db.put(key("p" + i, "q" + i), new File("save-states/" + i % 10 + ".srl"));
+		}
+		before = log.length();
+		db.put(key("p90", "q90"), new File("save-states/0.srl"));
+		// Every put appends a record of the same size, whatever the number of entries
+		assertEquals(first, log.length() - before);
+	}
+
+	@Test
+	public void testTornTail() throws IOException {
+		DataBase db = new DataBase(log);
+		db.put(key("alice", "bob"), new File("save-states/1.srl"));
+		long length = log.length();
+		db.put(key("carl", "dave"), new File("save-states/2.srl"));
+
+		// Crash in the middle of the second record
+		try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+			file.setLength(length + 5);
+		}
+		DataBase recovered = new DataBase(log);
+		assertEquals(1, recovered.size());
+		assertEquals(length, log.length());
+
+		// Appends after the recovery are readable
+		recovered.put(key("erin", "fred"), new File("save-states/3.srl"));
+		try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+			// Corrupt the name of the last record
+			file.seek(length + 8);
+			file.write('x');
+		}
+		DataBase corrupted = new DataBase(log);
+		assertEquals(1, corrupted.size());
+		assertEquals(new File("save-states/1.srl"), corrupted.get(key("alice", "bob")));
+	}
+
+	@Test
+	public void testCompaction() throws IOException, InterruptedException {
+		DataBase db = new DataBase(log);
+		db.put(key("alice", "bob"), new File("save-states/1.srl"));
+		long single = log.length();
+		for (int i = 0; i < 200; i++) {
+			db.put(key("carl", "dave"), new File("save-states/" + i + ".srl"));
+			db.remove(key("carl", "dave"));
+		}
+		db.put(key("erin", "fred"), new File("save-states/2.srl"));
+
+		// Compactions run in background, wait for the last one
+		for (int i = 0; i < 100 && log.length() > 4 * single; i++) {
+			Thread.sleep(20);
+		}
+		db.compact();
+		assertTrue(log.length() < 2 * single);
+
+		db.put(key("gina", "hugo"), new File("save-states/3.srl"));
+		DataBase reopened = new DataBase(log);
+		assertEquals(3, reopened.size());
+		assertEquals(new File("save-states/1.srl"), reopened.get(key("alice", "bob")));
+		assertEquals(new File("save-states/2.srl"), reopened.get(key("erin", "fred")));
+		assertEquals(new File("save-states/3.srl"), reopened.get(key("gina", "hugo")));
+		assertFalse(new File(directory, "db.log.tmp").exists());
+	}
+
+	@Test
+	public void testMigration() throws IOException {
+		File legacy = new File(directory, "db.srl");
+		try (InputStream in = getClass().getResourceAsStream("legacy-db.srl")) {
+			Files.copy(in, legacy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		DataBase db = DataBase.open(log, legacy);
+		assertEquals(2, db.size());
+		assertEquals(new File("save-states/game1.srl"), db.get(key("alice", "bob")));
+		assertEquals(new File("save-states/game2.srl"), db.get(key("carl", "dave", "erin")));
+		assertFalse(legacy.exists());
+
+		DataBase reopened = DataBase.open(log, legacy);
+		assertEquals(2, reopened.size());
+	}
+}
@@ -0,0 +1,113 @@
+package controller;
+
+import model.Game;
+import model.GameJournal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SaveScannerTest {
+	private File directory;
+	private File saves;
+	private DataBase db;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("scan").toFile();
+		saves = new File(directory, "save-states");
+		saves.mkdir();
+		db = new DataBase(new File(directory, "db.log"));
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : saves.listFiles()) {
+			f.delete();
+		}
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	private File save(String name, long modified, String... players) throws IOException {
+		File file = new File(saves, name);
+		new Game(new ArrayList<>(List.of(players)), 1).saveGame(file);
+		file.setLastModified(modified);
+		db.put(new HashSet<>(List.of(players)), file);
+		return file;
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+	}
+
+	@Test
+	public void testScan() throws Exception {
+		File old = save("old.srl", 1_000_000, "alice", "bob");
+		File recent = save("recent.srl", 2_000_000, "carl", "dave");
+		File corrupted = save("corrupted.srl", 3_000_000, "erin", "fred");
+		write(corrupted, new byte[]{1, 2, 3});
+		File stolen = save("stolen.srl", 4_000_000, "gina", "hugo");
+		Files.copy(old.toPath(), stolen.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		db.put(new HashSet<>(List.of("ivan", "john")), new File(saves, "missing.srl"));
+		File orphan = new File(saves, "orphan.srl");
+		new Game(new ArrayList<>(List.of("kate", "luke")), 2).saveGame(orphan);
+		File journal = new File(saves, "gone.srl" + GameJournal.EXTENSION);
+		write(journal, new byte[8]);
+		File temporary = new File(saves, "recent.srl.tmp");
+		write(temporary, new byte[8]);
+
+		SaveScanner.Report report = SaveScanner.scan(saves, db, 3, 10, 1);
+		assertEquals(5, report.saves());
+		assertEquals(2, report.valid());
+		assertEquals(2, report.corrupted());
+		assertEquals(1, report.missing());
+		assertEquals(0, report.unchecked());
+		assertEquals(3, report.deleted());
+		assertEquals(List.of(new HashSet<>(List.of("carl", "dave"))), report.recent());
+
+		assertTrue(old.exists());
+		assertTrue(recent.exists());
+		assertFalse(orphan.exists());
+		assertFalse(journal.exists());
+		assertFalse(temporary.exists());
+		assertFalse(corrupted.exists());
+		assertTrue(new File(corrupted.getPath() + SaveScanner.CORRUPTED_EXTENSION).exists());
+
+		// The database only keeps the valid saves, also after reopening it
+		DataBase reopened = new DataBase(new File(directory, "db.log"));
+		assertEquals(2, reopened.size());
+		assertEquals(recent, reopened.get(new HashSet<>(List.of("carl", "dave"))));
+
+		// Nothing left to do on the next startup
+		report = SaveScanner.scan(saves, reopened, 3, 10, 10);
+		assertEquals(2, report.valid());
+		assertEquals(0, report.deleted());
+		assertEquals(2, report.recent().size());
+	}
+
+	@Test
+	public void testManySaves() throws Exception {
+		for (int i = 0; i < 200; i++) {
+			save("save" + i + ".srl", 1_000_000 + i, "p" + i, "q" + i);
+		}
+		SaveScanner.Report report = SaveScanner.scan(saves, db, 4, 10, 5);
+		assertEquals(200, report.valid());
+		assertEquals(5, report.recent().size());
+		assertEquals(new HashSet<>(List.of("p199", "q199")), report.recent().get(0));
+	}
+}
@@ -0,0 +1,186 @@
+package controller;
+
+import model.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SaveServiceTest {
+	private File directory;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("saves").toFile();
+		file = new File(directory, "game.srl");
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	private static Game newGame() {
+		Game game = new Game(new ArrayList<>(List.of("p1", "p2")), 5);
+		game.iterator().next();
+		return game;
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		// Run the writes only when asked
+		ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		SaveService service = new SaveService(tasks::add, SaveService.FsyncPolicy.NEVER);
+		Game game = newGame();
+		Iterator<Player> iterator = game.iterator();
+		Player player = iterator.next();
+
+		service.checkpoint(file, game.getSaveState());
+		service.append(file, GameJournal.record(game, player, List.of(), 0));
+		Player last = game.getPlayers().get(game.getPlayers().size() - 1);
+		last.getShelf().insert(0, new ArrayList<>(List.of(Card.of(Card.Type.Cat, 1))));
+		service.checkpoint(file, game.getSaveState());
+		service.append(file, GameJournal.record(game, player, List.of(), 0));
+		service.append(file, GameJournal.record(game, player, List.of(), 0));
+		assertEquals(1, tasks.size());
+		assertEquals(3, service.getMetrics().queueDepth());
+		assertEquals(2, service.getMetrics().coalesced());
+
+		tasks.poll().run();
+		assertTrue(tasks.isEmpty());
+		SaveService.Metrics metrics = service.getMetrics();
+		assertEquals(0, metrics.queueDepth());
+		assertEquals(3, metrics.maxQueueDepth());
+		assertEquals(1, metrics.snapshots());
+		assertEquals(2, metrics.records());
+		assertEquals(0, metrics.failures());
+		assertTrue(metrics.averageWriteMicros() > 0);
+
+		Game loaded = Game.loadGame(file);
+		assertTrue(Arrays.deepEquals(last.getShelf().getSerializable(), loaded.getPlayers().get(game.getPlayers().size() - 1).getShelf().getSerializable()));
+		assertEquals(2 * Integer.BYTES + 2 * 8, GameJournal.journalFile(file).length());
+		// Only the save and its journal, no temporary files
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	@Test
+	public void testDetachedSnapshot() throws Exception {
+		ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		SaveService service = new SaveService(tasks::add, SaveService.FsyncPolicy.NEVER);
+		Game game = newGame();
+		Card[][] tabletop = game.getTabletop().getSerializable();
+		int deckSize = game.getTabletop().getDeck().size();
+
+		service.checkpoint(file, game.getSaveState());
+		// The game goes on while the save is pending
+		game.getTabletop().pickCard(4, 4);
+		game.getTabletop().getDeck().draw();
+		game.getPlayers().get(0).addCockade(new Cockade("First to finish", 1));
+		tasks.poll().run();
+
+		Game loaded = Game.loadGame(file);
+		assertTrue(Arrays.deepEquals(tabletop, loaded.getTabletop().getSerializable()));
+		assertEquals(deckSize, loaded.getTabletop().getDeck().size());
+		assertTrue(loaded.getPlayers().get(0).getCockades().isEmpty());
+	}
+
+	@Test
+	public void testDelete() throws Exception {
+		ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		SaveService service = new SaveService(tasks::add, SaveService.FsyncPolicy.NEVER);
+		Game game = newGame();
+		service.checkpoint(file, game.getSaveState());
+		tasks.poll().run();
+		assertTrue(file.exists());
+
+		service.append(file, GameJournal.record(game, game.getPlayers().get(0), List.of(), 0));
+		service.delete(file);
+		tasks.poll().run();
+		assertFalse(file.exists());
+		assertFalse(GameJournal.journalFile(file).exists());
+		assertEquals(1, service.getMetrics().coalesced());
+	}
+
+	@Test
+	public void testCheckpointAfterDelete() throws Exception {
+		ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		SaveService service = new SaveService(tasks::add, SaveService.FsyncPolicy.NEVER);
+		Game game = newGame();
+		service.delete(file);
+		service.checkpoint(file, game.getSaveState());
+		tasks.poll().run();
+		assertTrue(file.exists());
+		assertNotNull(Game.loadGame(file));
+	}
+
+	@Test
+	public void testFailedWrite() throws Exception {
+		ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+		SaveService service = new SaveService(tasks::add, SaveService.FsyncPolicy.NEVER);
+		Game game = newGame();
+		File missing = new File(new File(directory, "missing"), "game.srl");
+		service.checkpoint(missing, game.getSaveState());
+		tasks.poll().run();
+		assertTrue(service.needsCheckpoint(missing));
+		assertEquals(1, service.getMetrics().failures());
+
+		// The records after a failed write are dropped, until the next snapshot is written
+		assertTrue(new File(directory, "missing").mkdir());
+		service.append(missing, GameJournal.record(game, game.getPlayers().get(0), List.of(), 0));
+		tasks.poll().run();
+		assertTrue(service.needsCheckpoint(missing));
+		assertFalse(GameJournal.journalFile(missing).exists());
+		service.checkpoint(missing, game.getSaveState());
+		tasks.poll().run();
+		assertFalse(service.needsCheckpoint(missing));
+		assertNotNull(Game.loadGame(missing));
+		for (File f : missing.getParentFile().listFiles()) {
+			f.delete();
+		}
+		missing.getParentFile().delete();
+	}
+
+	@Test
+	public void testPool() throws Exception {
+		SaveService service = new SaveService(Executors.newFixedThreadPool(2), SaveService.FsyncPolicy.ALWAYS);
+		Game[] games = new Game[4];
+		File[] files = new File[games.length];
+		for (int i = 0; i < games.length; i++) {
+			games[i] = newGame();
+			files[i] = new File(directory, "game" + i + ".srl");
+		}
+		for (int turn = 0; turn < 50; turn++) {
+			for (int i = 0; i < games.length; i++) {
+				if (turn % 10 == 0) {
+					service.checkpoint(files[i], games[i].getSaveState());
+				} else {
+					service.append(files[i], GameJournal.record(games[i], games[i].getPlayers().get(0), List.of(), 0));
+				}
+			}
+		}
+		assertTrue(service.flush(10, TimeUnit.SECONDS));
+		SaveService.Metrics metrics = service.getMetrics();
+		assertEquals(0, metrics.queueDepth());
+		assertEquals(0, metrics.failures());
+		assertEquals(4 * 50, metrics.snapshots() + metrics.records() + metrics.coalesced());
+		for (File f : files) {
+			assertNotNull(Game.loadGame(f));
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package controller;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ThreadModeTest {
+	@Test
+	public void testParse() {
+		assertEquals(ThreadMode.PLATFORM, ThreadMode.parse("platform"));
+		assertEquals(ThreadMode.PLATFORM, ThreadMode.parse("unknown"));
+		// Virtual threads are only available from Java 21, or with the preview features enabled
+		ThreadMode virtual = ThreadMode.parse("virtual");
+		assertTrue(virtual == ThreadMode.VIRTUAL || virtual == ThreadMode.PLATFORM);
+	}
+
+	@Test
+	public void testExecutors() throws InterruptedException {
+		for (ThreadMode mode : new ThreadMode[]{ThreadMode.PLATFORM, ThreadMode.parse("virtual")}) {
+			Thread thread = mode.factory("test-").newThread(() -> {});
+			assertTrue(thread.isDaemon());
+			assertTrue(thread.getName().startsWith("test-"));
+			assertEquals(mode == ThreadMode.VIRTUAL, mode.factory("test-", false).newThread(() -> {}).isDaemon());
+
+			ExecutorService executor = mode.newExecutor("test-", 2);
+			AtomicInteger done = new AtomicInteger();
+			for (int i = 0; i < 100; i++) {
+				executor.execute(done::incrementAndGet);
+			}
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(100, done.get());
+		}
+	}
+}
@@ -2,7 +2,10 @@ package controller.game;
 
 
 
+import controller.DataBase;
+import controller.SaveService;
 import model.Cockade;
+import model.Game;
 import model.Point;
 import network.GlobalClientManager;
 import model.PersonalObjective;
@@ -10,13 +13,19 @@ import model.Player;
 import network.NetworkManagerInterface;
 import controller.lobby.LobbyController;
 import network.ClientManagerInterface;
+import network.ClientStatus;
+import network.Result;
 import network.Server;
 import network.parameters.*;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.Assert.*;
 
@@ -80,11 +89,38 @@ public class GameControllerTest {
             nm2.cardSelect(new CardSelect(0, new ArrayList<>(List.of(new Point(1, 3))))).waitResult().isErr()
         );
 
+        // One of the two moves is valid
+        assertEquals(1, ((GameInfo) nm1.gameSnapshot().waitResult().unwrap()).version());
+        assertEquals(1, ((GameInfo) nm2.gameSnapshot().waitResult().unwrap()).version());
+
         assertFalse(nm2.exitGame().waitResult().isErr());
         assertFalse(nm1.lobbyCreate(new LobbyCreateInfo("BigTest")).waitResult().isErr());
         assertFalse(nm2.lobbyJoin("BigTest").waitResult().isErr());
         assertFalse(nm1.gameLoad().waitResult().isErr());
     }
-}
 
+    @Test
+    public void resumeSavedGameTest() throws Exception {
+        ClientManagerInterface clientManager = GlobalClientManager.getInstance();
+        LobbyController lobbyController = LobbyController.getInstance();
+        HashSet<String> players = new HashSet<>(List.of("r1", "r2"));
+        File saveDirectory = new File(LobbyController.SAVESTATES_DIRECTORY);
+        saveDirectory.mkdirs();
+        File saveFile = File.createTempFile("save_", ".srl", saveDirectory);
+        SaveService.getInstance().checkpoint(saveFile, new Game(new ArrayList<>(players)).getSaveState());
+        SaveService.getInstance().flush(saveFile);
+        DataBase.getInstance().put(players, saveFile);
+        // As after a restart, the players of the save have never logged in
+        lobbyController.hibernateSavedGame(players);
 
+        // Only one of the players comes back, the other one has no client
+        network.rmi.server.ClientManager rmiManager = (network.rmi.server.ClientManager) network.rmi.server.ClientManager.getInstance();
+        Result<Serializable> result = rmiManager.login(new Login("r1"), UUID.randomUUID());
+        assertTrue(result.isOk());
+        assertTrue(result.unwrap() instanceof GameInfo);
+        GameController game = lobbyController.searchGame("r1").orElseThrow();
+        assertSame(game, lobbyController.searchGame("r2").orElseThrow());
+        assertEquals(ClientStatus.InGame, clientManager.getClient("r1").orElseThrow().getStatus());
+        assertTrue(clientManager.getClient("r2").isEmpty());
+    }
+}
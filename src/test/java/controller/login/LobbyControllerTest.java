@@ -1,5 +1,7 @@
 package controller.login;
 
+import controller.DataBase;
+import controller.SaveService;
 import controller.game.GameController;
 import controller.lobby.Lobby;
 import controller.lobby.LobbyAlreadyExistsException;
@@ -9,14 +11,21 @@ import controller.lobby.LobbyNotFoundException;
 import controller.lobby.PlayerAlreadyInLobbyException;
 import controller.lobby.PlayerNotInLobbyException;
 
+import model.Game;
+import network.GlobalClientManager;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 public class LobbyControllerTest {
     @Test
@@ -117,4 +126,33 @@ public class LobbyControllerTest {
         lobbyController.joinLobby("lobby12", "player12_5");
     }
 
+    @Test
+    public void testHibernation() throws Exception {
+        GlobalClientManager.getInstance();
+        LobbyController lobbyController = LobbyController.getInstance();
+        HashSet<String> players = new HashSet<>(List.of("player13_1", "player13_2"));
+        lobbyController.hibernateSavedGame(players);
+        int hibernated = lobbyController.getHibernatedGamesCount();
+
+        // The save cannot be loaded, the game stays hibernated
+        assertFalse(lobbyController.searchGame("player13_1").isPresent());
+        assertEquals(hibernated, lobbyController.getHibernatedGamesCount());
+
+        File saveDirectory = new File(LobbyController.SAVESTATES_DIRECTORY);
+        saveDirectory.mkdirs();
+        File saveFile = File.createTempFile("save_", ".srl", saveDirectory);
+        SaveService.getInstance().checkpoint(saveFile, new Game(new ArrayList<>(players)).getSaveState());
+        SaveService.getInstance().flush(saveFile);
+        DataBase.getInstance().put(players, saveFile);
+        GameController game = lobbyController.searchGame("player13_2").orElseThrow();
+        assertSame(game, lobbyController.searchGame("player13_1").orElseThrow());
+        assertEquals(hibernated - 1, lobbyController.getHibernatedGamesCount());
+
+        // A game that cannot be parked keeps running
+        assertFalse(lobbyController.hibernateGame(game, () -> false));
+        assertSame(game, lobbyController.searchGame("player13_1").orElseThrow());
+        assertTrue(lobbyController.hibernateGame(game, () -> true));
+        assertEquals(hibernated, lobbyController.getHibernatedGamesCount());
+        assertNotSame(game, lobbyController.searchGame("player13_1").orElseThrow());
+    }
 }
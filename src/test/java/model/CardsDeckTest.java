@@ -2,10 +2,20 @@ package model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Optional;
+import java.util.SplittableRandom;
 
 public class CardsDeckTest {
 
@@ -39,4 +49,100 @@ public class CardsDeckTest {
         assertEquals(card1, card2.getType());
         assertEquals(card1.getImageIndex(), 0);
     }
+
+    @Test
+    public void testComposition() {
+        CardsDeck deck = new CardsDeck(new SplittableRandom(1));
+        int[][] counts = new int[Card.Type.values().length][CardsDeck.IMAGES_PER_TYPE + 1];
+        for (Card card = deck.drawCard(); card != null; card = deck.drawCard()) {
+            counts[card.getType().ordinal()][card.getImageIndex()]++;
+        }
+        assertTrue(deck.isEmpty());
+        assertNull(deck.drawCard());
+        for (int[] type : counts) {
+            assertEquals(0, type[0]);
+            assertEquals(8, type[1]);
+            assertEquals(7, type[2]);
+            assertEquals(7, type[3]);
+        }
+    }
+
+    @Test
+    public void testSeededShuffle() {
+        CardsDeck deck1 = new CardsDeck(new SplittableRandom(3));
+        CardsDeck deck2 = new CardsDeck(new SplittableRandom(3));
+        for (int i = 0; i < CardsDeck.TOTAL_CARDS; i++) {
+            Card card1 = deck1.drawCard();
+            Card card2 = deck2.drawCard();
+            assertEquals(card1, card2);
+            assertEquals(card1.getImageIndex(), card2.getImageIndex());
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        CardsDeck deck = new CardsDeck(new SplittableRandom(5));
+        for (int i = 0; i < 30; i++) {
+            deck.drawCard();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(deck);
+        }
+        CardsDeck copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (CardsDeck)in.readObject();
+        }
+        assertEquals(deck.size(), copy.size());
+        while (!deck.isEmpty()) {
+            Card card = deck.drawCard();
+            Card copied = copy.drawCard();
+            assertEquals(card, copied);
+            assertEquals(card.getImageIndex(), copied.getImageIndex());
+        }
+        assertTrue(copy.isEmpty());
+    }
+
+    @Test
+    public void testLegacyDeck() throws IOException, ClassNotFoundException {
+        // Deck saved with the old `Stack` representation, after drawing 10 cards
+        CardsDeck deck;
+        try (ObjectInputStream in = new ObjectInputStream(getClass().getResourceAsStream("legacy-deck.ser"))) {
+            deck = (CardsDeck)in.readObject();
+        }
+        assertEquals(CardsDeck.TOTAL_CARDS - 10, deck.size());
+        Card card = deck.drawCard();
+        assertEquals(Card.Type.Trophy, card.getType());
+        assertEquals(2, card.getImageIndex());
+        card = deck.drawCard();
+        assertEquals(Card.Type.Cat, card.getType());
+        assertEquals(3, card.getImageIndex());
+        card = deck.drawCard();
+        assertEquals(Card.Type.Plant, card.getType());
+        assertEquals(2, card.getImageIndex());
+    }
+
+    @Test
+    public void testFlyweight() throws IOException, ClassNotFoundException {
+        assertSame(Card.of(Card.Type.Cat, 2), Card.of(Card.Type.Cat, 2));
+        assertSame(Card.of(Card.Type.Book), Card.of(Card.Type.Book, -1));
+        assertNotSame(Card.of(Card.Type.Cat, 1), Card.of(Card.Type.Cat, 2));
+        assertEquals(2, Card.of(Card.Type.Cat, 2).getImageIndex());
+
+        CardsDeck deck = new CardsDeck();
+        Card drawn = deck.drawCard();
+        assertSame(Card.of(drawn.getType(), drawn.getImageIndex()), drawn);
+
+        Card[][] grid = {{new Card(Card.Type.Game, 3), Card.of(Card.Type.Game, 3)}};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(grid);
+        }
+        Card[][] copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Card[][])in.readObject();
+        }
+        assertSame(Card.of(Card.Type.Game, 3), copy[0][0]);
+        assertSame(Card.of(Card.Type.Game, 3), copy[0][1]);
+    }
 }
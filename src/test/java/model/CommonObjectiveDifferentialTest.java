@@ -0,0 +1,540 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential test between the mask based common objectives and
+ * the original grid based implementations, kept here as reference.
+ */
+public class CommonObjectiveDifferentialTest {
+    private static final int SHELVES = 20000;
+
+    private static final Map<String, Function<Shelf, Boolean>> reference = Map.ofEntries(
+        Map.entry("2 square-shaped groups", CommonObjectiveDifferentialTest::twoSquareGroups),
+        Map.entry("2 columns of 6 different cards", CommonObjectiveDifferentialTest::twoColumnsOfSixDifferentCards),
+        Map.entry("4 groups of 4 cards", CommonObjectiveDifferentialTest::fourGroupsOfFourCards),
+        Map.entry("6 groups of 2 cards", CommonObjectiveDifferentialTest::sixGroupsOfTwoCards),
+        Map.entry("3 columns of at most 3 different cards", CommonObjectiveDifferentialTest::threeColumnsOfAtMostThreeDifferentCards),
+        Map.entry("2 rows with 5 different cards", CommonObjectiveDifferentialTest::twoRowsWithFiveDifferentCards),
+        Map.entry("4 rows of at most 3 different cards", CommonObjectiveDifferentialTest::fourRowsOfAtMostThreeDifferentCards),
+        Map.entry("all equal corners", CommonObjectiveDifferentialTest::equalCorners),
+        Map.entry("eight equal cards", CommonObjectiveDifferentialTest::eightEquals),
+        Map.entry("X shapes group", CommonObjectiveDifferentialTest::equalsX),
+        Map.entry("5 cards in diagonal", CommonObjectiveDifferentialTest::fiveCardsInDiagonal),
+        Map.entry("stair-shaped cards", CommonObjectiveDifferentialTest::stairsShape)
+    );
+
+    /**
+     * Build a random shelf, using only `nTypes` card types.
+     * If `gravity` is true, the cards are stacked from the bottom of the columns,
+     * sometimes with stair-shaped heights or with all different cards in a column,
+     * otherwise every cell is independently filled or left empty.
+     */
+    private static Shelf randomShelf(Random random, int nTypes, boolean gravity) {
+        Shelf shelf = new Shelf();
+        double density = random.nextDouble();
+        boolean stairs = random.nextInt(4) == 0;
+        boolean permutations = random.nextInt(4) == 0;
+        int firstHeight = random.nextInt(Shelf.ROWS + 1);
+        int direction = random.nextBoolean() ? 1 : -1;
+        for (int x = 0; x < Shelf.COLUMNS; x++) {
+            int height = Shelf.ROWS;
+            if (gravity) {
+                height = stairs ? Math.max(0, Math.min(Shelf.ROWS, firstHeight + direction * x)) : random.nextInt(Shelf.ROWS + 1);
+            }
+            List<Card.Type> column = new ArrayList<>(Arrays.asList(Card.Type.values()));
+            Collections.shuffle(column, random);
+            for (int y = 0; y < height; y++) {
+                if (gravity || random.nextDouble() < density) {
+                    Card.Type type = permutations ? column.get(y) : Card.Type.values()[random.nextInt(nTypes)];
+                    shelf.insertTest(x, y, new Card(type, 0));
+                }
+            }
+        }
+        return shelf;
+    }
+
+    /**
+     * Compare the two implementations on random shelves
+     * @return how many times every objective has been completed
+     */
+    private static Map<String, Integer> checkShelves(Random random, boolean gravity) {
+        Map<String, Integer> completed = new HashMap<>();
+        for (int i = 0; i < SHELVES; i++) {
+            Shelf shelf = randomShelf(random, 1 + random.nextInt(Card.Type.values().length), gravity);
+            for (CommonObjective objective : CommonObjective.generateAllCommonObjectives(4)) {
+                boolean expected = reference.get(objective.getName()).apply(shelf);
+                assertEquals(objective.getName(), expected, objective.isCompleted(shelf, "player").isPresent());
+                if (expected) {
+                    completed.merge(objective.getName(), 1, Integer::sum);
+                }
+            }
+        }
+        return completed;
+    }
+
+    @Test
+    public void testRandomShelves() {
+        Random random = new Random(42);
+        Map<String, Integer> completed = checkShelves(random, true);
+        checkShelves(random, false).forEach((name, count) -> completed.merge(name, count, Integer::sum));
+
+        // Make sure that the generated shelves actually exercise the positive case
+        for (String name : reference.keySet()) {
+            assertTrue(name, completed.getOrDefault(name, 0) > 0);
+        }
+    }
+
+    @Test
+    public void testIncrementalShelves() throws InvalidMoveException {
+        Random random = new Random(7);
+        for (int i = 0; i < SHELVES / 10; i++) {
+            int nTypes = 1 + random.nextInt(Card.Type.values().length);
+            Shelf shelf = new Shelf();
+            ArrayList<CommonObjective> objectives = CommonObjective.generateAllCommonObjectives(4);
+            Set<String> awarded = new HashSet<>();
+            while (!shelf.isFull()) {
+                int column = random.nextInt(Shelf.COLUMNS);
+                int space = Shelf.ROWS - shelf.getHighest(column);
+                if (space == 0) {
+                    continue;
+                }
+                ArrayList<Card> cards = new ArrayList<>();
+                for (int j = 1 + random.nextInt(Math.min(3, space)); j > 0; j--) {
+                    cards.add(new Card(Card.Type.values()[random.nextInt(nTypes)], 0));
+                }
+                shelf.insert(column, cards);
+
+                for (CommonObjective objective : objectives) {
+                    boolean completed = objective.isCompleted(shelf, "player").isPresent();
+                    if (awarded.contains(objective.getName())) {
+                        assertFalse(objective.getName(), completed);
+                    } else {
+                        assertEquals(objective.getName(), reference.get(objective.getName()).apply(shelf), completed);
+                        if (completed) {
+                            awarded.add(objective.getName());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method computes the number of groups of n cards present in the given Shelf object.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @param n The size of the group to check for
+     * @return The number of groups of n cards present in the given Shelf object
+     * @author Marco
+     *
+     */
+    static int groupsOfAtLeastNCards(Shelf shelf, int n) {
+        boolean[][] visited = new boolean[Shelf.ROWS][Shelf.COLUMNS];
+        int groups = 0;
+
+        try {
+            for (int y = 0; y < Shelf.ROWS; y++) {
+                for (int x = 0; x < Shelf.COLUMNS; x++) {
+                    if (shelf.getCard(y, x).isPresent()) {
+                        groups += shelf.getGroupSize(y, x, shelf.getCard(y, x).get().getType(), visited) >= n ? 1 : 0;
+                    }
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking groups of n cards common objective");
+        }
+
+        return groups;
+    }
+
+    /**
+     * Method that checks if the objective "4 groups of 4 cards" is done.
+     *
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco
+     */
+    static Boolean fourGroupsOfFourCards(Shelf shelf) {
+        return groupsOfAtLeastNCards(shelf, 4) >= 4;
+    }
+
+    /**
+     * Method that checks if the objective "6 groups of 2 cards" is done.
+     *
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco
+     */
+    static Boolean sixGroupsOfTwoCards(Shelf shelf) {
+        return groupsOfAtLeastNCards(shelf, 2) >= 6;
+    }
+
+    /**
+     * Method that checks if the objective "two columns with 6 different cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Lorenzo
+     */
+    static Boolean twoColumnsOfSixDifferentCards(Shelf shelf) {
+        boolean firstCol = false;
+        HashSet<Card.Type> cards = new HashSet<>();
+
+        try {
+            for (int x = 0; x < Shelf.COLUMNS; x++) {
+                for (int y = 0; y < Shelf.ROWS; y++) {
+                    if (shelf.getCard(y, x).isEmpty()) {
+                        break;
+                    }
+                    cards.add(shelf.getCard(y, x).get().getType());
+                }
+                if (cards.size() == 6) {
+                    if (firstCol) {
+                        return true;
+                    }
+                    firstCol = true;
+                }
+                cards.clear();
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking two columns of six different cards common objective");
+        }
+
+        return false;
+    }
+
+    /**
+     * Method that checks if the objective "five cards in diagonal" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco, Lorenzo
+     */
+    static Boolean fiveCardsInDiagonal(Shelf shelf) {
+        boolean fullDiagonal;
+        Card reference;
+
+        try {
+            for (int offset = 0; offset <= Shelf.ROWS - Shelf.COLUMNS; offset++) {
+                // sud-west to north-est
+                if (shelf.getCard(offset, 0).isPresent()) {
+                    reference = shelf.getCard(offset, 0).get();
+                    fullDiagonal = true;
+                    for (int x = 1; x < Shelf.COLUMNS; x++) {
+                        Optional<Card> card = shelf.getCard(x + offset, x);
+                        if (card.isEmpty() || !card.get().equals(reference)) {
+                            fullDiagonal = false;
+                            break;
+                        }
+                    }
+                    if (fullDiagonal) return true;
+                }
+
+                // sud-est to north-west
+                if (shelf.getCard(offset, Shelf.COLUMNS - 1).isPresent()) {
+                    reference = shelf.getCard(offset, Shelf.COLUMNS - 1).get();
+                    fullDiagonal = true;
+                    for (int y = 1; y < Shelf.COLUMNS; y++) {
+                        Optional<Card> card = shelf.getCard(y + offset, Shelf.COLUMNS - y - 1);
+                        if (card.isEmpty() || !card.get().equals(reference)) {
+                            fullDiagonal = false;
+                            break;
+                        }
+                    }
+                    if (fullDiagonal) return true;
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking five cards in diagonal common objective");
+        }
+
+        return false;
+    }
+
+    /**
+     * Method that check if the objective "four rows such that each row has at most three different cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Ludovico, Marco
+     */
+    static Boolean fourRowsOfAtMostThreeDifferentCards(Shelf shelf) {
+        int count = 0;
+        HashSet<Card.Type> cards = new HashSet<>();
+
+        try {
+            for (int y = 0; y < Shelf.ROWS; y++) {
+                boolean isFull = true;
+                for (int x = 0; x < Shelf.COLUMNS; x++) {
+                    if (shelf.getCard(y, x).isEmpty()) {
+                        isFull = false;
+                        break;
+                    }
+                    cards.add(shelf.getCard(y, x).get().getType());
+                }
+                if (isFull && cards.size() <= 3) {
+                    count++;
+                }
+                cards.clear();
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking five in a row common objective");
+        }
+
+        return count == 4;
+    }
+
+    private static final int[] cornersX = {0, 0, Shelf.COLUMNS - 1, Shelf.COLUMNS - 1};
+    private static final int[] cornersY = {0, Shelf.ROWS - 1, 0, Shelf.ROWS - 1};
+    /**
+     * Method that checks if the objective "all equal cards in the four corners of the shelf" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Ludovico, Marco
+     */
+    static Boolean equalCorners(Shelf shelf) {
+        try {
+            Optional<Card> reference = shelf.getCard(cornersY[0], cornersX[0]);
+            if (reference.isEmpty()) {
+                return false;
+            }
+            for (int i = 1; i < 4; i++) {
+                if (!shelf.getCard(cornersY[i], cornersX[i]).equals(reference)) {
+                    return false;
+                }
+            }
+
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking corners common objective");
+        }
+
+        return true;
+    }
+
+    /**
+     * Method that checks if the objective "two rows contains 5 different cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Riccardo, Marco
+     */
+    static Boolean twoRowsWithFiveDifferentCards(Shelf shelf) {
+        boolean firstRow = false;
+        HashSet<Card.Type> cards = new HashSet<>();
+
+        try {
+            for (int y = 0; y < Shelf.ROWS; y++) {
+                for (int x = 0; x < Shelf.COLUMNS; x++) {
+                    if (shelf.getCard(y, x).isEmpty()) {
+                        break;
+                    }
+                    cards.add(shelf.getCard(y, x).get().getType());
+                }
+                if (cards.size() == 5) {
+                    if (firstRow) {
+                        return true;
+                    }
+                    firstRow = true;
+                }
+                cards.clear();
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking two rows with five different cards common objective");
+        }
+
+        return false;
+    }
+
+    private static final int[] squareDx = {0, 1, 1};
+    private static final int[] squareDy = {1, 0, 1};
+    /**
+     * Method that checks if the objective "two non-overlapping 2x2 squares" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco
+     */
+    static Boolean twoSquareGroups(Shelf shelf) {
+        boolean firstSquare = false;
+        boolean[][] alreadyUsed = new boolean[Shelf.ROWS][Shelf.COLUMNS];
+
+        try {
+            for (int y = 0; y < Shelf.ROWS - 1; y++) {
+                for (int x = 0; x < Shelf.COLUMNS - 1; x++) {
+                    Optional<Card> reference = shelf.getCard(y, x);
+                    if (alreadyUsed[y][x] || alreadyUsed[y][x + 1] || reference.isEmpty()) {
+                        continue;
+                    }
+                    boolean isValidSquare = true;
+                    for (int i = 0; i < 3; i++) {
+                        Optional<Card> card = shelf.getCard(y + squareDy[i], x + squareDx[i]);
+                        if (card.isEmpty() || !card.equals(reference)) {
+                            isValidSquare = false;
+                            break;
+                        }
+                    }
+
+                    if (isValidSquare) {
+                        if (firstSquare) {
+                            return true;
+                        }
+                        firstSquare = true;
+                        alreadyUsed[y + 1][x] = true;
+                        alreadyUsed[y + 1][x + 1] = true;
+                        x++;  // skip next cell because it would overlap
+                    }
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking two square groups common objective");
+        }
+
+        return false;
+    }
+
+    /**
+     * Method that checks if the objective "X-shaped equal cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Riccardo,Marco
+     */
+    static Boolean equalsX(Shelf shelf) {
+        try {
+            for (int y = 1; y < Shelf.ROWS - 1; y++) {
+                for (int x = 1; x < Shelf.COLUMNS - 1; x++) {
+                    if (
+                        shelf.getCard(y, x).isPresent() &&
+                        shelf.getCard(y, x).equals(shelf.getCard(y - 1, x - 1)) &&
+                        shelf.getCard(y, x).equals(shelf.getCard(y + 1, x + 1)) &&
+                        shelf.getCard(y, x).equals(shelf.getCard(y - 1, x + 1)) &&
+                        shelf.getCard(y, x).equals(shelf.getCard(y + 1, x - 1))
+                    ) {
+                        return true;
+                    }
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking equals X common objective");
+        }
+
+        return false;
+    }
+
+    /**
+     * Method that checks if the objective "stair shaped cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Riccardo,Marco
+     */
+    static Boolean stairsShape(Shelf shelf) {
+        int h = 0;
+
+        try {
+            while (h < Shelf.ROWS && shelf.getCard(h, 0).isPresent()) {
+                h++;
+            }
+
+            if (h < 1 || (h > 2 && h < 5)) {
+                return false;
+            }
+            int direction = h <= 2 ? 1 : -1;
+            h += direction - 1;
+
+            for (int x = 1; x < Shelf.COLUMNS; x++) {
+                if (shelf.getCard(h, x).isEmpty() || (h != Shelf.ROWS - 1 && shelf.getCard(h + 1, x).isPresent())) {
+                    return false;
+                }
+                h += direction;
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking stairs shape common objective");
+        }
+
+        return true;
+    }
+
+    /**
+     * Method that checks if the objective "8 equal cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco
+     */
+    static Boolean eightEquals(Shelf shelf) {
+        HashMap<Card.Type, Integer> cardCount = new HashMap<>();
+
+        try {
+            for (int y = 0; y < Shelf.ROWS; y++) {
+                for (int x = 0; x < Shelf.COLUMNS; x++) {
+                    if (shelf.getCard(y, x).isPresent()) {
+                        Card card = shelf.getCard(y, x).get();
+                        int count = cardCount.getOrDefault(card.getType(), 0) + 1;
+                        if (count == 8) {
+                            return true;
+                        }
+                        cardCount.put(card.getType(), count);
+                    }
+                }
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking eight equals common objective");
+        }
+
+        return false;
+    }
+
+    /**
+     * Method that checks if the objective "three columns where each column has at most three different cards" is done.
+     *
+     * @throws RuntimeException if there is any error while checking
+     * @param shelf The shelf object
+     * @return true if the objective is done, false otherwise
+     * @author Marco
+     */
+    static Boolean threeColumnsOfAtMostThreeDifferentCards(Shelf shelf) {
+        int count = 0;
+        HashSet<Card.Type> cards = new HashSet<>();
+
+        try {
+            for (int x = 0; x < Shelf.COLUMNS; x++) {
+                boolean isFull = true;
+                for (int y = 0; y < Shelf.ROWS; y++) {
+                    if (shelf.getCard(y, x).isEmpty()) {
+                        isFull = false;
+                        break;
+                    }
+                    cards.add(shelf.getCard(y, x).get().getType());
+                }
+                if (isFull && cards.size() <= 3) {
+                    count++;
+                }
+                cards.clear();
+            }
+        } catch (InvalidMoveException e) {
+            throw new RuntimeException("error while checking five in a row common objective");
+        }
+
+        return count == 3;
+    }
+}
@@ -0,0 +1,183 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class GameArchiveTest {
+	private File directory;
+	private final HashMap<Long, Game> played = new HashMap<>();
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("archive").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : directory.listFiles()) {
+			f.delete();
+		}
+		directory.delete();
+	}
+
+	private ArchivedGame play(long seed) throws InvalidMoveException {
+		return play(seed, 0);
+	}
+
+	/**
+	 * Play 30 random turns of a new game, and return it as it would be archived
+	 */
+	private ArchivedGame play(long seed, int resumed) throws InvalidMoveException {
+		Game game = new Game(new ArrayList<>(List.of("p1", "p2", "p3")), seed);
+		ArchivedGame archived = new RandomGame(game, seed).play(30, resumed, 1000 + seed);
+		played.put(seed, game);
+		return archived;
+	}
+
+	private static void assertSameShelves(Game expected, Game actual) {
+		assertTrue(Arrays.deepEquals(expected.getTabletop().getSerializable(), actual.getTabletop().getSerializable()));
+		for (int i = 0; i < expected.getPlayers().size(); i++) {
+			assertTrue(Arrays.deepEquals(expected.getPlayers().get(i).getShelf().getSerializable(), actual.getPlayers().get(i).getShelf().getSerializable()));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		GameArchive archive = new GameArchive(directory, 4096, 1000, 8192);
+		int uncompressed = 0;
+		for (long seed = 0; seed < 100; seed++) {
+			ArchivedGame game = play(seed);
+			uncompressed += game.start().length + game.turns().stream().mapToInt(turn -> turn.length).sum();
+			archive.append(game);
+		}
+		archive.close();
+
+		List<File> segments = GameArchive.segments(directory);
+		assertTrue(segments.size() > 1);
+		long compressed = segments.stream().mapToLong(File::length).sum();
+		assertTrue(compressed * 3 < uncompressed);
+
+		List<ArchivedGame> games;
+		try (var stream = GameArchive.stream(directory)) {
+			games = stream.collect(Collectors.toList());
+		}
+		assertEquals(100, games.size());
+		for (int i = 0; i < games.size(); i++) {
+			ArchivedGame game = games.get(i);
+			assertEquals(i, game.seed());
+			assertEquals(1000 + i, game.endTime());
+			assertEquals(30, game.turns().size());
+			assertEquals(3, game.scores().size());
+			assertSameShelves(played.get(game.seed()), game.replay());
+		}
+
+		// Reading the segments in parallel gives the same games
+		try (var stream = GameArchive.stream(directory).parallel()) {
+			assertEquals(100 * 99 / 2, stream.mapToLong(ArchivedGame::seed).sum());
+		}
+	}
+
+	@Test
+	public void testResumedGame() throws Exception {
+		GameArchive archive = new GameArchive(directory, 1 << 20, 1000, 1 << 20);
+		archive.append(play(1, 10));
+		archive.close();
+		try (var stream = GameArchive.stream(directory)) {
+			ArchivedGame game = stream.findFirst().orElseThrow();
+			assertEquals(20, game.turns().size());
+			assertSameShelves(played.get(1L), game.replay());
+		}
+	}
+
+	@Test
+	public void testReopen() throws Exception {
+		GameArchive archive = new GameArchive(directory, 1 << 20, 1000, 1 << 20);
+		archive.append(play(1));
+		archive.append(play(2));
+		// Only in memory until flushed
+		assertTrue(GameArchive.segments(directory).isEmpty());
+		archive.flush();
+		archive.append(play(3));
+		archive.close();
+		assertEquals(1, GameArchive.segments(directory).size());
+
+		archive = new GameArchive(directory, 1 << 20, 1000, 1 << 20);
+		archive.append(play(4));
+		archive.close();
+		assertEquals(2, GameArchive.segments(directory).size());
+		try (var stream = GameArchive.stream(directory)) {
+			assertEquals(List.of(1L, 2L, 3L, 4L), stream.map(ArchivedGame::seed).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testTruncatedBlock() throws Exception {
+		GameArchive archive = new GameArchive(directory, 1 << 20, 1000, 1 << 20);
+		archive.append(play(1));
+		archive.flush();
+		File segment = GameArchive.segments(directory).get(0);
+		long length = segment.length();
+		archive.append(play(2));
+		archive.close();
+
+		// Crash while writing the second block
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.setLength(length + 30);
+		}
+		try (GameArchive.Reader reader = GameArchive.read(segment)) {
+			assertTrue(reader.hasNext());
+			assertEquals(1, reader.next().seed());
+			assertFalse(reader.hasNext());
+		}
+	}
+
+	@Test
+	public void testCorruptedHeader() throws Exception {
+		GameArchive archive = new GameArchive(directory, 1 << 20, 1000, 1 << 20);
+		archive.append(play(1));
+		archive.close();
+		File segment = GameArchive.segments(directory).get(0);
+
+		// A valid magic followed by a huge compressed length
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+			file.seek(file.length());
+			file.writeInt(GameArchive.MAGIC);
+			file.writeInt(Integer.MAX_VALUE - 16);
+			file.writeInt(1024);
+			file.writeInt(1);
+			file.writeInt(0);
+		}
+		try (GameArchive.Reader reader = GameArchive.read(segment)) {
+			assertTrue(reader.hasNext());
+			assertEquals(1, reader.next().seed());
+			assertFalse(reader.hasNext());
+		}
+	}
+
+	@Test
+	public void testBlockGames() throws Exception {
+		GameArchive archive = new GameArchive(directory, 1 << 20, 2, 1 << 20);
+		archive.append(play(1));
+		assertTrue(GameArchive.segments(directory).isEmpty());
+		archive.append(play(2));
+		assertEquals(1, GameArchive.segments(directory).size());
+		archive.append(play(3));
+		archive.close();
+		try (var stream = GameArchive.stream(directory)) {
+			assertEquals(List.of(1L, 2L, 3L), stream.map(ArchivedGame::seed).collect(Collectors.toList()));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameJournalTest {
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("journal", ".srl");
+	}
+
+	@After
+	public void tearDown() {
+		GameJournal.journalFile(file).delete();
+		file.delete();
+	}
+
+	private static void assertSameGame(Game expected, Game actual) {
+		assertTrue(Arrays.deepEquals(expected.getTabletop().getSerializable(), actual.getTabletop().getSerializable()));
+		assertEquals(expected.getTabletop().getDeck().size(), actual.getTabletop().getDeck().size());
+		for (int i = 0; i < expected.getPlayers().size(); i++) {
+			Player player = expected.getPlayers().get(i);
+			Player other = actual.getPlayers().get(i);
+			assertTrue(Arrays.deepEquals(player.getShelf().getSerializable(), other.getShelf().getSerializable()));
+			assertEquals(player.getCockades(), other.getCockades());
+		}
+		for (int i = 0; i < expected.getCommonObjectives().size(); i++) {
+			assertEquals(expected.getCommonObjectives().get(i).getValue(), actual.getCommonObjectives().get(i).getValue());
+		}
+		assertEquals(expected.getIteratorIndex(), actual.getIteratorIndex());
+	}
+
+	private static Game newGame(long seed) {
+		return new Game(new ArrayList<>(List.of("p1", "p2", "p3")), seed);
+	}
+
+	@Test
+	public void testReplay() throws InvalidMoveException, IOException, ClassNotFoundException {
+		Game game = newGame(77);
+		RandomGame random = new RandomGame(game, 3);
+		GameJournal journal = new GameJournal(file);
+		journal.checkpoint(game);
+		long saveLength = file.length();
+
+		for (int turn = 0; turn < 30; turn++) {
+			journal.append(List.of(random.playTurn(turn % 7 == 6)), false);
+			assertSameGame(game, Game.loadGame(file));
+		}
+		assertEquals(30, journal.getTurns());
+		// Every record is much smaller than a save
+		assertTrue(GameJournal.journalFile(file).length() * 10 < saveLength * 30);
+		journal.close();
+
+		// The loaded game resumes from the right player
+		Game loaded = Game.loadGame(file);
+		Player current = game.getPlayers().get((game.getIteratorIndex() + 2) % 3);
+		assertEquals(current.getName(), loaded.iterator().next().getName());
+	}
+
+	@Test
+	public void testCheckpoint() throws InvalidMoveException, IOException, ClassNotFoundException {
+		Game game = newGame(78);
+		RandomGame random = new RandomGame(game, 4);
+		GameJournal journal = new GameJournal(file);
+		journal.checkpoint(game);
+		for (int turn = 0; turn < 5; turn++) {
+			journal.append(List.of(random.playTurn(false)), false);
+		}
+		journal.checkpoint(game);
+		assertEquals(0, journal.getTurns());
+		assertEquals(2 * Integer.BYTES, GameJournal.journalFile(file).length());
+		for (int turn = 0; turn < 5; turn++) {
+			journal.append(List.of(random.playTurn(false)), false);
+		}
+		journal.close();
+		assertSameGame(game, Game.loadGame(file));
+
+		// A full save deletes the journal
+		game.saveGame(file);
+		assertFalse(GameJournal.journalFile(file).exists());
+		assertSameGame(game, Game.loadGame(file));
+	}
+
+	@Test
+	public void testTornRecord() throws InvalidMoveException, IOException, ClassNotFoundException {
+		Game game = newGame(79);
+		RandomGame random = new RandomGame(game, 5);
+		GameJournal journal = new GameJournal(file);
+		journal.checkpoint(game);
+		for (int turn = 0; turn < 4; turn++) {
+			journal.append(List.of(random.playTurn(false)), false);
+		}
+		long length = GameJournal.journalFile(file).length();
+		Game beforeLast = Game.loadGame(file);
+		journal.append(List.of(random.playTurn(false)), false);
+		journal.close();
+
+		// Crash in the middle of the last record
+		try (RandomAccessFile raf = new RandomAccessFile(GameJournal.journalFile(file), "rw")) {
+			raf.setLength(length + 3);
+		}
+		assertSameGame(beforeLast, Game.loadGame(file));
+
+		// Corrupted last record
+		try (RandomAccessFile raf = new RandomAccessFile(GameJournal.journalFile(file), "rw")) {
+			raf.setLength(length);
+			raf.seek(length);
+			raf.write(new byte[]{0, 1, 4, 4, 0, 1, 0, 0, 0, 0});
+		}
+		assertSameGame(beforeLast, Game.loadGame(file));
+	}
+
+	@Test
+	public void testStaleJournal() throws InvalidMoveException, IOException, ClassNotFoundException {
+		Game game = newGame(80);
+		RandomGame random = new RandomGame(game, 6);
+		GameJournal journal = new GameJournal(file);
+		journal.checkpoint(game);
+		for (int turn = 0; turn < 3; turn++) {
+			journal.append(List.of(random.playTurn(false)), false);
+		}
+		journal.close();
+
+		// The save is replaced without touching the journal, that doesn't follow it anymore
+		Game other = newGame(81);
+		Game.writeSnapshot(file, other.getSaveState(), false);
+		assertSameGame(other, Game.loadGame(file));
+	}
+}
@@ -3,6 +3,7 @@ package model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -10,6 +11,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -59,5 +61,73 @@ public class GameTest {
 			assertEquals(game1.getPlayers().get(i).getCockades(), game2.getPlayers().get(i).getCockades());
 			assertEquals(game1.getPlayers().get(i).getPersonalObjective().getName(), game2.getPlayers().get(i).getPersonalObjective().getName());
 		}
+		assertEquals(game1.getSeed(), game2.getSeed());
+	}
+
+	@Test
+	public void testSeed() throws InvalidMoveException {
+		Game game1 = new Game(new ArrayList<>(Arrays.asList("p1", "p2", "p3")), 1234);
+		Game game2 = new Game(new ArrayList<>(Arrays.asList("p3", "p1", "p2")), 1234);
+		assertEquals(1234, game1.getSeed());
+		assertTrue(Arrays.deepEquals(game1.getTabletop().getSerializable(), game2.getTabletop().getSerializable()));
+		assertEquals(game1.getTabletop().getDeck().size(), game2.getTabletop().getDeck().size());
+		for (int i = 0; i < game1.getPlayers().size(); i++) {
+			assertEquals(game1.getPlayers().get(i).getName(), game2.getPlayers().get(i).getName());
+			assertEquals(game1.getPlayers().get(i).getPersonalObjective().getName(), game2.getPlayers().get(i).getPersonalObjective().getName());
+		}
+		for (int i = 0; i < game1.getCommonObjectives().size(); i++) {
+			assertEquals(game1.getCommonObjectives().get(i).getName(), game2.getCommonObjectives().get(i).getName());
+		}
+
+		// Every refill draws the same cards
+		for (int y = 0; y < TableTop.SIZE; y++) {
+			for (int x = 0; x < TableTop.SIZE; x++) {
+				if (game1.getTabletop().getCard(y, x).isPresent()) {
+					game1.getTabletop().pickCard(y, x);
+					game2.getTabletop().pickCard(y, x);
+				}
+			}
+		}
+		game1.getTabletop().fillTable();
+		game2.getTabletop().fillTable();
+		assertTrue(Arrays.deepEquals(game1.getTabletop().getSerializable(), game2.getTabletop().getSerializable()));
+
+		Game game3 = new Game(new ArrayList<>(Arrays.asList("p1", "p2", "p3")), 4321);
+		assertFalse(Arrays.deepEquals(game1.getTabletop().getSerializable(), game3.getTabletop().getSerializable()));
+	}
+
+	@Test
+	public void testEndTurn() throws InvalidMoveException {
+		Game game = new Game(new ArrayList<String>(Arrays.asList("p1", "p2")), 1);
+		for (Player player : game.getPlayers()) {
+			for (int y = 0; y < Shelf.ROWS; y++) {
+				for (int x = 0; x < Shelf.COLUMNS; x++) {
+					player.getShelf().insert(x, new ArrayList<>(List.of(new Card(Card.Type.Plant, 0))));
+				}
+			}
+		}
+		Player first = game.getPlayers().get(0);
+		Player second = game.getPlayers().get(1);
+		ArrayList<Cockade> completed = new ArrayList<>();
+		ArrayList<Integer> scores = new ArrayList<>();
+		assertNull(game.endTurn(first, completed, scores));
+		assertEquals(completed.size(), scores.size());
+		assertTrue(first.getCockades().containsAll(completed));
+		assertTrue(first.getCockades().contains(first.getShelf().getFinishCockade().orElseThrow()));
+
+		Card[][] cards = game.getTabletop().getSerializable();
+		for (int y = 0; y < TableTop.SIZE; y++) {
+			for (int x = 0; x < TableTop.SIZE; x++) {
+				if (cards[y][x] != null) {
+					game.getTabletop().pickCard(y, x);
+				}
+			}
+		}
+		// The empty tabletop is refilled, and all its cards are new
+		Card[][] refill = game.endTurn(second, new ArrayList<>(), new ArrayList<>());
+		assertNotNull(refill);
+		assertTrue(Arrays.deepEquals(refill, game.getTabletop().getSerializable()));
+		// Only the first player with a full shelf gets the cockade
+		assertFalse(second.getCockades().contains(second.getShelf().getFinishCockade().orElseThrow()));
 	}
 }
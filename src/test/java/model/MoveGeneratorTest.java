@@ -0,0 +1,129 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MoveGeneratorTest {
+
+	/**
+	 * Brute force enumeration of the moves accepted by `GameController.doMove`
+	 */
+	private static Set<String> referenceMoves(TableTop tabletop, Shelf shelf) throws InvalidMoveException {
+		ArrayList<Point> pickable = new ArrayList<>();
+		for (int y = 0; y < TableTop.SIZE; y++) {
+			for (int x = 0; x < TableTop.SIZE; x++) {
+				if (tabletop.isUsed(y, x) && tabletop.getCard(y, x).isPresent() && tabletop.isPickable(y, x)) {
+					pickable.add(new Point(y, x));
+				}
+			}
+		}
+
+		ArrayList<List<Point>> selections = new ArrayList<>();
+		for (Point a : pickable) {
+			selections.add(List.of(a));
+			for (Point b : pickable) {
+				selections.add(List.of(a, b));
+				for (Point c : pickable) {
+					selections.add(List.of(a, b, c));
+				}
+			}
+		}
+
+		Set<String> result = new HashSet<>();
+		for (List<Point> positions : selections) {
+			boolean valid = true;
+			for (int i = 0; i < positions.size() - 1; i++) {
+				for (int j = i + 1; j < positions.size(); j++) {
+					int dist = positions.get(i).distance(positions.get(j));
+					if (dist != 1 && (positions.size() != 3 || dist != 2)) {
+						valid = false;
+					}
+				}
+			}
+			if (positions.size() == 3) {
+				Point p1 = positions.get(0);
+				Point p2 = positions.get(1);
+				Point p3 = positions.get(2);
+				if ((p1.x() != p2.x() || p1.x() != p3.x()) && (p1.y() != p2.y() || p1.y() != p3.y())) {
+					valid = false;
+				}
+			}
+			if (!valid) {
+				continue;
+			}
+			for (int column = 0; column < Shelf.COLUMNS; column++) {
+				if (shelf.getHighest(column) + positions.size() <= Shelf.ROWS) {
+					result.add(positions + "@" + column);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testRandomPositions() throws InvalidMoveException {
+		Random random = new Random(5);
+		MoveGenerator generator = new MoveGenerator();
+		for (int i = 0; i < 300; i++) {
+			int nPlayers = 2 + random.nextInt(3);
+			TableTop tabletop = new TableTop(nPlayers);
+			double pickProbability = random.nextDouble();
+			for (int y = 0; y < TableTop.SIZE; y++) {
+				for (int x = 0; x < TableTop.SIZE; x++) {
+					if (tabletop.getCard(y, x).isPresent() && random.nextDouble() < pickProbability) {
+						tabletop.pickCard(y, x);
+					}
+				}
+			}
+			Shelf shelf = new Shelf();
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				int height = Shelf.ROWS - random.nextInt(5);
+				for (int y = 0; y < height; y++) {
+					shelf.insertTest(x, y, new Card(Card.Type.Cat, 0));
+				}
+			}
+
+			int size = generator.generate(tabletop, shelf);
+			Set<String> generated = new HashSet<>();
+			for (int j = 0; j < size; j++) {
+				int move = generator.getMoves()[j];
+				assertTrue(generated.add(MoveGenerator.positions(move) + "@" + MoveGenerator.column(move)));
+			}
+			assertEquals(referenceMoves(tabletop, shelf), generated);
+			assertEquals(size, MoveGenerator.count(tabletop, shelf));
+		}
+	}
+
+	@Test
+	public void testNewGame() throws InvalidMoveException {
+		Game game = new Game(new ArrayList<>(List.of("a", "b")));
+		MoveGenerator generator = new MoveGenerator();
+		int size = generator.generate(game, game.getPlayers().get(0));
+		assertEquals(referenceMoves(game.getTabletop(), game.getPlayers().get(0).getShelf()).size(), size);
+
+		int move = generator.getMoves()[0];
+		assertEquals(1, MoveGenerator.cardsCount(move));
+		assertEquals(0, MoveGenerator.column(move));
+		assertEquals(List.of(new Point(1, 3)), MoveGenerator.positions(move));
+	}
+
+	@Test
+	public void testFullShelf() {
+		TableTop tabletop = new TableTop(3);
+		Shelf shelf = new Shelf();
+		for (int y = 0; y < Shelf.ROWS; y++) {
+			for (int x = 0; x < Shelf.COLUMNS; x++) {
+				shelf.insertTest(x, y, new Card(Card.Type.Cat, 0));
+			}
+		}
+		assertEquals(0, new MoveGenerator().generate(tabletop, shelf));
+		assertEquals(0, MoveGenerator.count(tabletop, shelf));
+	}
+}
@@ -0,0 +1,99 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Game played with random legal moves, turn by turn as `GameController` plays it,
+ * for the tests of the journal, the archive and the analytics.
+ */
+public class RandomGame {
+	private final Game game;
+	private final Iterator<Player> iterator;
+	private final SplittableRandom random;
+	private final MoveGenerator generator = new MoveGenerator();
+	private Player player;
+	private boolean over = false;
+
+	/**
+	 * Start playing a game, from the player its iterator returns first
+	 * @param game the game, whose iterator hasn't been used yet
+	 * @param seed the seed of the moves
+	 */
+	public RandomGame(Game game, long seed) {
+		this.game = game;
+		this.iterator = game.iterator();
+		this.random = new SplittableRandom(seed);
+		this.player = iterator.next();
+	}
+
+	/**
+	 * Play a turn: the player picks a random legal move, unless it skips the turn,
+	 * then the turn ends with `Game.endTurn` and the next player is chosen, if the game isn't over
+	 * @param skip true if the player is disconnected and skips the turn
+	 * @return the journal record of the turn
+	 * @throws InvalidMoveException if the generated move is not legal
+	 */
+	public byte[] playTurn(boolean skip) throws InvalidMoveException {
+		List<Point> positions = List.of();
+		int column = 0;
+		if (!skip) {
+			generator.generate(game, player);
+			int move = generator.getMoves()[random.nextInt(generator.size())];
+			positions = MoveGenerator.positions(move);
+			column = MoveGenerator.column(move);
+			ArrayList<Card> cards = new ArrayList<>();
+			for (Point position : positions) {
+				cards.add(game.getTabletop().pickCard(position.y(), position.x()));
+			}
+			player.getShelf().insert(column, cards);
+		}
+		game.endTurn(player, new ArrayList<>(), new ArrayList<>());
+		Player played = player;
+		if (iterator.hasNext()) {
+			player = iterator.next();
+		} else {
+			over = true;
+		}
+		return GameJournal.record(game, played, positions, column);
+	}
+
+	/**
+	 * Check if the game is over, or the player has no legal move left
+	 * @return true if no more turns can be played
+	 */
+	public boolean isOver() {
+		return over || generator.generate(game, player) == 0;
+	}
+
+	/**
+	 * Play until the game is over or for the given number of turns, and return the game as it is archived.
+	 * The personal cockades are added if the game is over.
+	 * @param turns the maximum number of turns
+	 * @param resumed the turns played before the game was loaded by the server, that are not archived
+	 * @param endTime the end time of the archived game
+	 * @return the archived game
+	 * @throws InvalidMoveException if a generated move is not legal
+	 */
+	public ArchivedGame play(int turns, int resumed, long endTime) throws InvalidMoveException {
+		byte[] start = SaveStateCodec.encode(game.getSaveState());
+		ArrayList<byte[]> records = new ArrayList<>();
+		for (int turn = 0; turn < turns && !isOver(); turn++) {
+			if (turn == resumed) {
+				start = SaveStateCodec.encode(game.getSaveState());
+				records.clear();
+			}
+			records.add(playTurn(false));
+		}
+		if (isOver()) {
+			for (Player p : game.getPlayers()) {
+				p.getPersonalObjective().isCompleted(p.getShelf()).ifPresent(p::addCockade);
+			}
+		}
+		ArrayList<Score> scores = new ArrayList<>();
+		new ScoreBoard(game, name -> true).forEach(scores::add);
+		return new ArchivedGame(game.getSeed(), endTime, start, records, scores);
+	}
+}
@@ -0,0 +1,113 @@
+package model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class SaveStateCodecTest {
+
+	private static SaveState sampleState() throws InvalidMoveException {
+		Game game = new Game(new ArrayList<>(List.of("alice", "bob", "çarlie")), -42);
+		TableTop tabletop = game.getTabletop();
+		tabletop.pickCard(4, 4);
+		SplittableRandom random = new SplittableRandom(11);
+		ArrayList<SavePlayer> players = new ArrayList<>();
+		for (Player player : game.getPlayers()) {
+			Shelf shelf = player.getShelf();
+			for (int i = 0; i < 7; i++) {
+				shelf.insert(random.nextInt(Shelf.COLUMNS), new ArrayList<>(List.of(tabletop.getDeck().drawCard())));
+			}
+			ArrayList<Cockade> cockades = new ArrayList<>();
+			for (CommonObjective objective : game.getCommonObjectives()) {
+				cockades.add(new Cockade(objective.getName(), 8));
+			}
+			cockades.add(new Cockade(player.getPersonalObjective().getName(), 4));
+			players.add(new SavePlayer(player.getName(), player.getPersonalObjective().getName(), shelf.getSerializable(), cockades, 10));
+		}
+		ArrayList<SaveCommonObjective> objectives = new ArrayList<>();
+		for (CommonObjective objective : game.getCommonObjectives()) {
+			objectives.add(new SaveCommonObjective(objective.getName(), 6, new HashSet<>(List.of(players.get(0).name()))));
+		}
+		return new SaveState(tabletop.getSaveTableTop(), players, objectives, 2, game.getSeed());
+	}
+
+	private static void assertSameState(SaveState expected, SaveState actual) {
+		assertTrue(Arrays.deepEquals(expected.tabletop().grid(), actual.tabletop().grid()));
+		assertArrayEquals(expected.tabletop().deck().getCodes(), actual.tabletop().deck().getCodes());
+		assertEquals(expected.players().size(), actual.players().size());
+		for (int i = 0; i < expected.players().size(); i++) {
+			SavePlayer player = expected.players().get(i);
+			SavePlayer other = actual.players().get(i);
+			assertEquals(player.name(), other.name());
+			assertEquals(player.personalObjective(), other.personalObjective());
+			assertTrue(Arrays.deepEquals(player.shelf(), other.shelf()));
+			assertEquals(player.cockades(), other.cockades());
+			assertEquals(player.points(), other.points());
+		}
+		assertEquals(expected.commonObjectives(), actual.commonObjectives());
+		assertEquals(expected.playerIteratorIndex(), actual.playerIteratorIndex());
+		assertEquals(expected.seed(), actual.seed());
+	}
+
+	@Test
+	public void testRoundTrip() throws InvalidMoveException, IOException {
+		SaveState state = sampleState();
+		byte[] encoded = SaveStateCodec.encode(state);
+		assertTrue(SaveStateCodec.isEncoded(encoded));
+		SaveState decoded = SaveStateCodec.decode(ByteBuffer.wrap(encoded));
+		assertSameState(state, decoded);
+		// Images are kept too
+		assertSame(state.tabletop().grid()[3][3], decoded.tabletop().grid()[3][3]);
+
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+			out.writeObject(state);
+		}
+		// The deck is already compact in Java serialization too, the old `Stack` of cards was ~14 times bigger
+		assertTrue(encoded.length * 5 < serialized.size());
+	}
+
+	@Test
+	public void testCorruption() throws InvalidMoveException {
+		byte[] encoded = SaveStateCodec.encode(sampleState());
+		for (int i = 0; i < encoded.length; i += 7) {
+			byte[] corrupted = encoded.clone();
+			corrupted[i] ^= 0x10;
+			assertThrows(IOException.class, () -> SaveStateCodec.decode(ByteBuffer.wrap(corrupted)));
+		}
+		assertThrows(IOException.class, () -> SaveStateCodec.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+	}
+
+	@Test
+	public void testLegacySave() throws InvalidMoveException, IOException, ClassNotFoundException {
+		File file = File.createTempFile("legacy", ".srl");
+		file.deleteOnExit();
+		SaveState state = sampleState();
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+			out.writeObject(state);
+		}
+
+		Game game = Game.loadGame(file);
+		assertEquals(-42, game.getSeed());
+		assertEquals(state.players().get(0).name(), game.getPlayers().get(0).getName());
+
+		// The next save is in the new format
+		game.saveGame(file);
+		Game reloaded = Game.loadGame(file);
+		assertEquals(game.getPlayers().get(2).getName(), reloaded.getPlayers().get(2).getName());
+		assertTrue(Arrays.deepEquals(game.getTabletop().getSerializable(), reloaded.getTabletop().getSerializable()));
+		file.delete();
+	}
+}
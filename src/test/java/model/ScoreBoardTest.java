@@ -28,4 +28,17 @@ public class ScoreBoardTest {
             assertEquals(s, target.get(cnt++));
         }
     }
+
+    @Test
+    public void testSoleSurvivor() {
+        Game game = new Game(new ArrayList<String>(Arrays.asList("p1", "p2", "p3")));
+        game.getPlayers().get(0).addCockade(new Cockade("c1", 10));
+
+        ScoreBoard sc = new ScoreBoard(game, name -> name.equals("p2"));
+
+        Score first = sc.iterator().next();
+        assertEquals("p2", first.username());
+        assertEquals("Many fall in the face of chaos; but not this one, not today.", first.title());
+        assertEquals(3, sc.size());
+    }
 }
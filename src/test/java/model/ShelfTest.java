@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 public class ShelfTest {
 	@Test
@@ -219,4 +220,84 @@ public class ShelfTest {
 		assertFalse(shelf.getFinishCockade().isEmpty());
 		assertEquals(shelf.countCard(Card.Type.Plant), Shelf.COLUMNS * Shelf.ROWS);
 	}
+
+	@Test
+	public void testMasks() throws InvalidMoveException {
+		Shelf shelf = new Shelf();
+		assertEquals(0, shelf.getOccupiedMask());
+		assertEquals(0, shelf.getHighest(1));
+
+		shelf.insert(1, new ArrayList<>(Arrays.asList(new Card(Card.Type.Cat, 0), new Card(Card.Type.Book, 0))));
+		assertEquals(2, shelf.getHighest(1));
+		assertEquals(0, shelf.getHighest(0));
+		assertEquals(1L << Shelf.bitIndex(0, 1), shelf.getTypeMask(Card.Type.Cat));
+		assertEquals(1L << Shelf.bitIndex(1, 1), shelf.getTypeMask(Card.Type.Book));
+		assertEquals(Card.Type.Book, shelf.getType(1, 1));
+		assertEquals(null, shelf.getType(2, 1));
+
+		shelf.insert(1, new ArrayList<>(Arrays.asList(new Card(Card.Type.Cat, 0), new Card(Card.Type.Book, 0), new Card(Card.Type.Cat, 0))));
+		shelf.insert(1, new ArrayList<>(Arrays.asList(new Card(Card.Type.Plant, 0))));
+		assertEquals(Shelf.ROWS, shelf.getHighest(1));
+		assertEquals(Shelf.columnMask(1), shelf.getOccupiedMask());
+		assertEquals(3, shelf.countCard(Card.Type.Cat));
+	}
+
+	@Test
+	public void testShelfViewInvalidation() throws InvalidMoveException {
+		Shelf shelf = new Shelf();
+		Optional<Card>[][] view = shelf.getShelf();
+		assertEquals(view, shelf.getShelf());
+
+		shelf.insert(0, new ArrayList<>(Arrays.asList(new Card(Card.Type.Trophy, 2))));
+		assertFalse(view == shelf.getShelf());
+		assertEquals(2, shelf.getCard(0, 0).get().getImageIndex());
+		assertEquals(2, shelf.getSerializable()[0][0].getImageIndex());
+	}
+
+	@Test
+	public void testIncrementalGroups() throws InvalidMoveException {
+		Random random = new Random(3);
+		for (int i = 0; i < 1000; i++) {
+			Shelf shelf = new Shelf();
+			int nTypes = 1 + random.nextInt(Card.Type.values().length);
+			while (!shelf.isFull()) {
+				int column = random.nextInt(Shelf.COLUMNS);
+				if (shelf.getHighest(column) == Shelf.ROWS) {
+					continue;
+				}
+				shelf.insert(column, new ArrayList<>(List.of(new Card(Card.Type.values()[random.nextInt(nTypes)], 0))));
+
+				// Compare with a fresh flood fill of the shelf
+				ArrayList<Cockade> expected = new ArrayList<>();
+				long remaining = shelf.getOccupiedMask();
+				while (remaining != 0) {
+					int index = Long.numberOfTrailingZeros(remaining);
+					Card.Type type = shelf.getType(index / Shelf.COLUMNS, index % Shelf.COLUMNS);
+					long group = Shelf.floodFill(Long.lowestOneBit(remaining), shelf.getTypeMask(type));
+					remaining &= ~group;
+					int size = Long.bitCount(group);
+					if (size >= 3) {
+						expected.add(new Cockade(String.format("Area of %s of size %d", type, size), new int[]{2, 3, 5, 8}[Math.min(size - 3, 3)]));
+					}
+				}
+				assertEquals(expected, shelf.getGroupsCockades());
+				assertEquals(expected.stream().mapToInt(Cockade::points).sum(), shelf.getGroupsPoints());
+			}
+		}
+	}
+
+	@Test
+	public void testOverwriteRebuildsGroups() {
+		Shelf shelf = new Shelf();
+		for (int x = 0; x < 3; x++) {
+			shelf.insertTest(x, 0, new Card(Card.Type.Cat, 0));
+		}
+		assertEquals(2, shelf.getGroupsPoints());
+		shelf.insertTest(1, 0, new Card(Card.Type.Book, 0));
+		assertEquals(0, shelf.getGroupsPoints());
+		assertEquals(1, shelf.getOverwrites());
+		assertEquals(List.of(), shelf.getGroupsCockades());
+		shelf.insertTest(1, 0, new Card(Card.Type.Cat, 0));
+		assertEquals(List.of(new Cockade("Area of Cat of size 3", 2)), shelf.getGroupsCockades());
+	}
 }
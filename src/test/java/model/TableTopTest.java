@@ -115,4 +115,40 @@ public class TableTopTest {
 			}
 		}
 	}
+
+	@Test
+	public void testPickablePositions() throws InvalidMoveException {
+		TableTop table = new TableTop(4);
+		for (int y = 0; y < TableTop.SIZE; y++) {
+			for (int x = 0; x < TableTop.SIZE; x++) {
+				boolean pickable = table.getPickablePositions().contains(new Point(y, x));
+				if (table.getCard(y, x).isPresent()) {
+					assertEquals(table.isPickable(y, x), pickable);
+				} else {
+					assertFalse(pickable);
+				}
+			}
+		}
+		assertTrue(table.getPickablePositions().contains(new Point(8, 4)));
+		assertFalse(table.getPickablePositions().contains(new Point(7, 4)));
+		table.pickCard(8, 4);
+		assertTrue(table.getPickablePositions().contains(new Point(7, 4)));
+	}
+
+	@Test
+	public void testNeedRefillBorders() throws InvalidMoveException {
+		TableTop table = new TableTop(4);
+		for (int y = 0; y < TableTop.SIZE; y++) {
+			for (int x = 0; x < TableTop.SIZE; x++) {
+				if (table.getCard(y, x).isPresent() && (y != 8 || x != 4) && (y != 8 || x != 5)) {
+					table.pickCard(y, x);
+				}
+			}
+		}
+		assertFalse(table.needRefill());
+		table.pickCard(8, 5);
+		assertTrue(table.needRefill());
+		table.fillTable();
+		assertFalse(table.needRefill());
+	}
 }
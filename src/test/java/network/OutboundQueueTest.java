@@ -0,0 +1,127 @@
+package network;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboundQueueTest {
+    private static ByteBuffer frame(int id) {
+        return ByteBuffer.allocate(8).putInt(0, id);
+    }
+
+    private static OutboundQueue<ByteBuffer> queue(int capacity, OutboundQueue.OverflowPolicy policy, int snapshotThreshold) {
+        return new OutboundQueue<>(capacity, policy, snapshotThreshold, frame -> frame.position() > 0);
+    }
+
+    private static ArrayList<Integer> drain(OutboundQueue<ByteBuffer> queue) {
+        ArrayList<Integer> ids = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            ids.add(queue.poll().getInt(0));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testDisconnect() {
+        OutboundQueue<ByteBuffer> queue = queue(2, OutboundQueue.OverflowPolicy.DISCONNECT, 0);
+        assertTrue(queue.offer(frame(1), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(2), null));
+        assertFalse(queue.offer(frame(3), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.getMetrics().overflowed());
+        assertEquals(2, queue.getMetrics().maxDepth());
+        assertEquals(List.of(1, 2), drain(queue));
+    }
+
+    @Test
+    public void testDropOldest() {
+        OutboundQueue<ByteBuffer> queue = queue(3, OutboundQueue.OverflowPolicy.DROP_OLDEST, 0);
+        assertTrue(queue.offer(frame(1), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(2), ServerEvent.Type.NewMessage));
+        assertTrue(queue.offer(frame(3), ServerEvent.Type.LobbyUpdate));
+        // The frame being written is kept
+        queue.peek().position(4);
+        assertTrue(queue.offer(frame(4), ServerEvent.Type.Join));
+        assertEquals(1, queue.getMetrics().dropped());
+        // Only the state events are dropped, the messages and the other events are never lost
+        assertFalse(queue.offer(frame(5), null));
+        assertFalse(queue.offer(frame(6), ServerEvent.Type.End));
+        assertEquals(List.of(1, 2, 4), drain(queue));
+    }
+
+    @Test
+    public void testCoalesce() {
+        OutboundQueue<ByteBuffer> queue = queue(4, OutboundQueue.OverflowPolicy.COALESCE, 0);
+        assertTrue(queue.offer(frame(1), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(2), ServerEvent.Type.NewMessage));
+        assertTrue(queue.offer(frame(3), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(4), ServerEvent.Type.NewMessage));
+        // The older deltas are superseded by the new one, the messages are kept in order
+        assertTrue(queue.offer(frame(5), ServerEvent.Type.UpdateDelta));
+        assertEquals(2, queue.getMetrics().coalesced());
+        assertTrue(queue.offer(frame(6), ServerEvent.Type.NewMessage));
+        // The last delta is kept for a message, and nothing else can be dropped
+        assertFalse(queue.offer(frame(7), ServerEvent.Type.NewMessage));
+        assertEquals(List.of(2, 4, 5, 6), drain(queue));
+    }
+
+    @Test
+    public void testLobbyUpdates() {
+        OutboundQueue<ByteBuffer> queue = queue(10, OutboundQueue.OverflowPolicy.DISCONNECT, 0);
+        assertTrue(queue.offer(frame(1), ServerEvent.Type.LobbyUpdate));
+        assertTrue(queue.offer(frame(2), ServerEvent.Type.Join));
+        assertTrue(queue.offer(frame(3), ServerEvent.Type.LobbyUpdate));
+        assertTrue(queue.offer(frame(4), ServerEvent.Type.LobbyUpdate));
+        assertEquals(List.of(2, 4), drain(queue));
+    }
+
+    @Test
+    public void testSnapshot() {
+        OutboundQueue<ByteBuffer> queue = queue(100, OutboundQueue.OverflowPolicy.DISCONNECT, 2);
+        assertTrue(queue.offer(frame(1), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(2), ServerEvent.Type.NewMessage));
+        assertTrue(queue.offer(frame(3), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(4), ServerEvent.Type.NewMessage));
+        assertFalse(queue.takeSnapshotRequest());
+        // Over the threshold the updates are dropped, and a snapshot is asked for once, the messages are kept
+        assertTrue(queue.offer(frame(5), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.takeSnapshotRequest());
+        assertFalse(queue.takeSnapshotRequest());
+        assertEquals(1, queue.getMetrics().snapshots());
+        // The updates are dropped until the snapshot is queued
+        assertTrue(queue.isSuperseded(ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(6), ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(7), ServerEvent.Type.NewMessage));
+        assertTrue(queue.offer(frame(8), ServerEvent.Type.Snapshot));
+        assertFalse(queue.isSuperseded(ServerEvent.Type.UpdateDelta));
+        assertTrue(queue.offer(frame(9), ServerEvent.Type.UpdateDelta));
+        assertEquals(4, queue.getMetrics().coalesced());
+        assertEquals(List.of(2, 4, 7, 8, 9), drain(queue));
+    }
+
+    @Test
+    public void testBoundedBacklog() {
+        OutboundQueue<ByteBuffer> queue = queue(32, OutboundQueue.OverflowPolicy.DISCONNECT, 8);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(queue.offer(frame(i), ServerEvent.Type.UpdateDelta));
+            if (queue.takeSnapshotRequest()) {
+                assertTrue(queue.offer(frame(-i), ServerEvent.Type.Snapshot));
+            }
+            assertTrue(queue.size() <= 9);
+        }
+        // The client catches up with the last snapshot and the updates that follow it
+        ArrayList<Integer> backlog = drain(queue);
+        assertTrue(backlog.get(0) < 0);
+        assertEquals(999, (int) backlog.get(backlog.size() - 1));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(OutboundQueue.OverflowPolicy.DROP_OLDEST, OutboundQueue.OverflowPolicy.parse("drop-oldest"));
+        assertEquals(OutboundQueue.OverflowPolicy.COALESCE, OutboundQueue.OverflowPolicy.parse("Coalesce"));
+        assertEquals(OutboundQueue.OverflowPolicy.COALESCE, OutboundQueue.OverflowPolicy.parse("drop-newest"));
+    }
+}
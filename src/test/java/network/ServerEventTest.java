@@ -7,7 +7,11 @@ import model.ScoreBoard;
 import network.parameters.GameInfo;
 import network.parameters.Message;
 import network.parameters.Update;
+import network.rpc.BinaryCodec;
+import network.rpc.FrameCodec;
+import network.rpc.MessageCodec;
 
+import java.nio.ByteBuffer;
 import java.security.spec.ECField;
 import java.util.ArrayList;
 
@@ -42,7 +46,7 @@ public class ServerEventTest extends TestCase {
     }
 
     public void testTestStart() {
-        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, null, null);
+        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, null, null, 0);
         ServerEvent event = ServerEvent.Start(gameInfo);
         assertEquals(event.getType(), ServerEvent.Type.Start);
         assertEquals(event.getData(), gameInfo);
@@ -88,4 +92,23 @@ public class ServerEventTest extends TestCase {
         assertEquals(event.getType(), ServerEvent.Type.ServerDisconnect);
         assertEquals(event.getData(), null);
     }
-}
\ No newline at end of file
+
+    public void testGetFrame() throws Exception {
+        ServerEvent event = ServerEvent.Join("test");
+        byte[] serialized = event.getFrame(FrameCodec.SERIALIZATION);
+        assertSame(serialized, event.getFrame(FrameCodec.SERIALIZATION));
+        assertSame(serialized, event.getFrame(FrameCodec.SERIALIZATION));
+
+        byte[] binary = event.getFrame(new BinaryCodec());
+        assertSame(binary, event.getFrame(new BinaryCodec()));
+        assertNotSame(serialized, binary);
+
+        for (MessageCodec codec : new MessageCodec[]{FrameCodec.SERIALIZATION, new BinaryCodec()}) {
+            byte[] frame = event.getFrame(codec);
+            assertEquals(frame.length - FrameCodec.HEADER_BYTES, ByteBuffer.wrap(frame).getInt());
+            ServerEvent decoded = (ServerEvent) ((Result<?>) codec.decode(ByteBuffer.wrap(frame, FrameCodec.HEADER_BYTES, frame.length - FrameCodec.HEADER_BYTES))).unwrap();
+            assertEquals(ServerEvent.Type.Join, decoded.getType());
+            assertEquals("test", decoded.getData());
+        }
+    }
+}
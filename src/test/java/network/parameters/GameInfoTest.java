@@ -11,13 +11,13 @@ public class GameInfoTest extends TestCase {
 
     public void testLobby() {
         Lobby lobby = new Lobby("Lobby", "Marco");
-        GameInfo gameInfo = new GameInfo(lobby, null, null, null, null, null, null, null);
+        GameInfo gameInfo = new GameInfo(lobby, null, null, null, null, null, null, null, 0);
         assertEquals(lobby, gameInfo.lobby());
     }
 
     public void testTableTop() {
         TableTop tableTop = new TableTop(3);
-        GameInfo gameInfo = new GameInfo(null, tableTop.getSerializable(), null, null, null, null, null, null);
+        GameInfo gameInfo = new GameInfo(null, tableTop.getSerializable(), null, null, null, null, null, null, 0);
         for (int i = 0; i < tableTop.getSerializable().length; i++) {
             for (int j = 0; j < tableTop.getSerializable()[i].length; j++) {
                 assertEquals(tableTop.getSerializable()[i][j], gameInfo.tableTop()[i][j]);
@@ -28,7 +28,7 @@ public class GameInfoTest extends TestCase {
         ArrayList<String> players = new ArrayList<>();
         players.add("Marco");
         players.add("Lorenzo");
-        GameInfo gameInfo = new GameInfo(null, null, players, null, null, null, null, null);
+        GameInfo gameInfo = new GameInfo(null, null, players, null, null, null, null, null, 0);
         assertEquals(players, gameInfo.players());
     }
 
@@ -36,7 +36,7 @@ public class GameInfoTest extends TestCase {
         ArrayList<Card[][]> shelves = new ArrayList<>();
         Card[][] shelf = new Card[4][5];
         shelves.add(shelf);
-        GameInfo gameInfo = new GameInfo(null, null, null, shelves, null, null, null, null);
+        GameInfo gameInfo = new GameInfo(null, null, null, shelves, null, null, null, null, 0);
         assertEquals(shelves, gameInfo.shelves());
     }
 
@@ -44,7 +44,7 @@ public class GameInfoTest extends TestCase {
         ArrayList<String> commonObjectives = new ArrayList<>();
         commonObjectives.add("Obiettivo 1");
         commonObjectives.add("Obiettivo 2");
-        GameInfo gameInfo = new GameInfo(null, null, null, null, commonObjectives, null, null, null);
+        GameInfo gameInfo = new GameInfo(null, null, null, null, commonObjectives, null, null, null, 0);
         assertEquals(commonObjectives, gameInfo.commonObjectives());
     }
 
@@ -52,17 +52,17 @@ public class GameInfoTest extends TestCase {
         ArrayList<Integer> commonObjectivesPoints = new ArrayList<>();
         commonObjectivesPoints.add(1);
         commonObjectivesPoints.add(2);
-        GameInfo gameInfo = new GameInfo(null, null, null, null, null, commonObjectivesPoints, null, null);
+        GameInfo gameInfo = new GameInfo(null, null, null, null, null, commonObjectivesPoints, null, null, 0);
         assertEquals(commonObjectivesPoints, gameInfo.commonObjectivesPoints());
     }
 
     public void testPersonalObjective() {
-        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, "Obiettivo personale", null);
+        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, "Obiettivo personale", null, 0);
         assertEquals("Obiettivo personale", gameInfo.personalObjective());
     }
 
     public void testCurrentPlayer() {
-        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, null, "Marco");
+        GameInfo gameInfo = new GameInfo(null, null, null, null, null, null, null, "Marco", 0);
         assertEquals("Marco", gameInfo.currentPlayer());
     }
 }
\ No newline at end of file
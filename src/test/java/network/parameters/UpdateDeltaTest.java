@@ -0,0 +1,88 @@
+package network.parameters;
+
+import junit.framework.TestCase;
+import model.Card;
+import model.InvalidMoveException;
+import model.Point;
+import model.Shelf;
+import model.TableTop;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class UpdateDeltaTest extends TestCase {
+    private Optional<Card>[][] tableTop;
+    private final ArrayList<String> players = new ArrayList<>(List.of("p1", "p2"));
+    private final ArrayList<Shelf> shelves = new ArrayList<>(List.of(new Shelf(), new Shelf()));
+    private Point full;
+    private Point empty;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setUp() {
+        Card[][] cards = new TableTop(2).getSerializable();
+        tableTop = new Optional[TableTop.SIZE][TableTop.SIZE];
+        for (int y = 0; y < TableTop.SIZE; y++) {
+            for (int x = 0; x < TableTop.SIZE; x++) {
+                tableTop[y][x] = Optional.ofNullable(cards[y][x]);
+                if (cards[y][x] != null && full == null) {
+                    full = new Point(y, x);
+                } else if (cards[y][x] == null && empty == null) {
+                    empty = new Point(y, x);
+                }
+            }
+        }
+    }
+
+    private UpdateDelta delta(int version, int inserted, Card[][] refill) {
+        ArrayList<Card> cards = new ArrayList<>();
+        for (int i = 0; i < inserted; i++) {
+            cards.add(Card.of(Card.Type.Cat, 1));
+        }
+        return new UpdateDelta(version, "p1", new ArrayList<>(List.of(full)), 0, cards, refill, "p2", new ArrayList<>(), new ArrayList<>());
+    }
+
+    private int cardsInColumn(Shelf shelf) throws InvalidMoveException {
+        int cards = 0;
+        for (int y = 0; y < Shelf.ROWS; y++) {
+            cards += shelf.getCard(y, 0).isPresent() ? 1 : 0;
+        }
+        return cards;
+    }
+
+    public void testApply() throws InvalidMoveException {
+        assertEquals(UpdateDelta.Outcome.APPLIED, delta(1, 1, null).applyTo(0, tableTop, players, shelves));
+        assertTrue(tableTop[full.y()][full.x()].isEmpty());
+        assertEquals(1, cardsInColumn(shelves.get(0)));
+        assertEquals(0, cardsInColumn(shelves.get(1)));
+    }
+
+    public void testDuplicateVersion() throws InvalidMoveException {
+        assertEquals(UpdateDelta.Outcome.APPLIED, delta(1, 1, null).applyTo(0, tableTop, players, shelves));
+        assertEquals(UpdateDelta.Outcome.INCLUDED, delta(1, 1, null).applyTo(1, tableTop, players, shelves));
+        assertEquals(1, cardsInColumn(shelves.get(0)));
+    }
+
+    public void testVersionGap() throws InvalidMoveException {
+        assertEquals(UpdateDelta.Outcome.MISSED, delta(2, 1, null).applyTo(0, tableTop, players, shelves));
+        assertTrue(tableTop[full.y()][full.x()].isPresent());
+        assertEquals(0, cardsInColumn(shelves.get(0)));
+    }
+
+    public void testRefill() {
+        Card[][] refill = new Card[TableTop.SIZE][TableTop.SIZE];
+        refill[empty.y()][empty.x()] = Card.of(Card.Type.Plant, 2);
+        assertEquals(UpdateDelta.Outcome.APPLIED, delta(1, 1, refill).applyTo(0, tableTop, players, shelves));
+        assertEquals(Optional.of(Card.of(Card.Type.Plant, 2)), tableTop[empty.y()][empty.x()]);
+    }
+
+    public void testFailedInsert() throws InvalidMoveException {
+        // More cards than the rows of the column, nothing is applied
+        Shelf shelf = shelves.get(0);
+        assertEquals(UpdateDelta.Outcome.MISSED, delta(1, Shelf.ROWS + 1, null).applyTo(0, tableTop, players, shelves));
+        assertTrue(tableTop[full.y()][full.x()].isPresent());
+        assertSame(shelf, shelves.get(0));
+        assertEquals(0, cardsInColumn(shelf));
+    }
+}
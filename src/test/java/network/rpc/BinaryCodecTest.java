@@ -0,0 +1,191 @@
+package network.rpc;
+
+import controller.lobby.Lobby;
+import model.Card;
+import model.Cockade;
+import model.Point;
+import network.Call;
+import network.Result;
+import network.ServerEvent;
+import network.Service;
+import network.parameters.CardSelect;
+import network.parameters.GameInfo;
+import network.parameters.LobbyCreateInfo;
+import network.parameters.Login;
+import network.parameters.Message;
+import network.parameters.Update;
+import network.parameters.UpdateDelta;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+    private final BinaryCodec client = new BinaryCodec();
+    private final BinaryCodec server = new BinaryCodec();
+
+    private static Object decode(MessageCodec codec, ByteBuffer frame) throws Exception {
+        assertEquals(frame.remaining() - FrameCodec.HEADER_BYTES, frame.getInt(frame.position()));
+        return codec.decode(frame.slice(frame.position() + FrameCodec.HEADER_BYTES, frame.remaining() - FrameCodec.HEADER_BYTES));
+    }
+
+    /**
+     * Send a call from the client to the server and back a result with the same value
+     */
+    private Result<?> roundTrip(Serializable params, Service service) throws Exception {
+        Call<Serializable> call = new Call<>(params, service, UUID.randomUUID());
+        Call<?> received = (Call<?>) decode(server, client.encode(call));
+        assertEquals(service, received.service());
+        Result<?> result = (Result<?>) decode(client, server.encode(Result.ok(received.params(), received.id())));
+        assertEquals(call.id(), result.id());
+        return result;
+    }
+
+    private static Card[][] grid(int rows, int columns, Random random) {
+        Card[][] grid = new Card[rows][columns];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                if (random.nextInt(4) > 0) {
+                    grid[y][x] = Card.of(Card.Type.values()[random.nextInt(Card.Type.values().length)], random.nextInt(3) + 1);
+                }
+            }
+        }
+        return grid;
+    }
+
+    private static Update update(Random random) {
+        return new Update("player1", grid(9, 9, random), grid(6, 5, random), "player2",
+            new ArrayList<>(List.of(new Cockade("common", 8))), new ArrayList<>(List.of(6, 4)));
+    }
+
+    private static UpdateDelta delta(Random random) {
+        ArrayList<Card> inserted = new ArrayList<>(List.of(Card.of(Card.Type.Cat, 1), Card.of(Card.Type.Book, 2)));
+        return new UpdateDelta(12, "player1", new ArrayList<>(List.of(new Point(4, 4), new Point(4, 5))), 2, inserted, grid(9, 9, random), "player2",
+            new ArrayList<>(), new ArrayList<>());
+    }
+
+    @Test
+    public void testCallParameters() throws Exception {
+        assertNull(roundTrip(null, Service.Ping).unwrap());
+        assertEquals(true, roundTrip(true, Service.LobbyList).unwrap());
+        assertEquals("lobby", roundTrip("lobby", Service.LobbyJoin).unwrap());
+        assertEquals(new Login("user"), roundTrip(new Login("user"), Service.Login).unwrap());
+        assertEquals(new LobbyCreateInfo("lobby"), roundTrip(new LobbyCreateInfo("lobby"), Service.LobbyCreate).unwrap());
+        CardSelect select = new CardSelect(3, new ArrayList<>(List.of(new Point(1, 4), new Point(2, 4))));
+        assertEquals(select, roundTrip(select, Service.CardSelect).unwrap());
+
+        Message message = (Message) roundTrip(new Message("p1", "hello è", "p2"), Service.GameChatSend).unwrap();
+        assertEquals("p1", message.idSender());
+        assertEquals("hello è", message.message());
+        assertEquals("p2", message.idReceiver().orElseThrow());
+        assertTrue(((Message) roundTrip(new Message("p1", "all"), Service.GameChatSend).unwrap()).idReceiver().isEmpty());
+    }
+
+    @Test
+    public void testResults() throws Exception {
+        Lobby lobby = new Lobby("lobby", "host");
+        lobby.addPlayer("guest");
+        ArrayList<Lobby> lobbies = (ArrayList<Lobby>) roundTrip(new ArrayList<>(List.of(lobby)), Service.LobbyList).unwrap();
+        assertEquals("lobby", lobbies.get(0).getName());
+        assertEquals(List.of("host", "guest"), lobbies.get(0).getPlayers());
+        assertEquals(List.of(), roundTrip(new ArrayList<>(), Service.LobbyList).unwrap());
+
+        UUID id = UUID.randomUUID();
+        Result<?> error = (Result<?>) decode(client, server.encode(Result.err(new IllegalStateException("nope"), id)));
+        assertTrue(error.isErr());
+        assertEquals(id, error.id());
+        assertEquals("nope", error.getException().orElseThrow().getMessage());
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Random random = new Random(1);
+        Lobby lobby = new Lobby("lobby", "p1");
+        GameInfo info = new GameInfo(lobby, grid(9, 9, random), new ArrayList<>(List.of("p1")), new ArrayList<>(List.<Card[][]>of(grid(6, 5, random))),
+            new ArrayList<>(List.of("c1", "c2")), new ArrayList<>(List.of(8, 8)), "p3", "p1", 7);
+        Update update = update(random);
+        List<ServerEvent<?>> events = List.of(ServerEvent.Join("p1"), ServerEvent.Leave("p1"), ServerEvent.Start(), ServerEvent.Start(info),
+            ServerEvent.Error(new IOException("error")), ServerEvent.Update(update), ServerEvent.NewMessage(new Message("p1", "hi")),
+            ServerEvent.LobbyUpdate(new ArrayList<>(List.of("p1", "p2"))), ServerEvent.ExitGame(), ServerEvent.ServerDisconnect());
+        for (ServerEvent<?> event : events) {
+            Result<?> result = (Result<?>) decode(client, server.encode(Result.serverPush(event)));
+            assertTrue(result.isEvent());
+            assertEquals(event.getType(), ((ServerEvent<?>) result.unwrap()).getType());
+        }
+
+        Update decoded = (Update) ((ServerEvent<?>) ((Result<?>) decode(client, server.encode(Result.serverPush(ServerEvent.Update(update))))).unwrap()).getData();
+        assertArrayEquals(update.tableTop(), decoded.tableTop());
+        assertArrayEquals(update.shelf(), decoded.shelf());
+        assertEquals(update.nextPlayer(), decoded.nextPlayer());
+        assertEquals(update.completedObjectives(), decoded.completedObjectives());
+        assertEquals(update.newCommonObjectivesScores(), decoded.newCommonObjectivesScores());
+
+        GameInfo start = (GameInfo) ((ServerEvent<?>) ((Result<?>) decode(client, server.encode(Result.serverPush(ServerEvent.Start(info))))).unwrap()).getData();
+        assertArrayEquals(info.tableTop(), start.tableTop());
+        assertArrayEquals(info.shelves().get(0), start.shelves().get(0));
+        assertEquals(info.commonObjectivesPoints(), start.commonObjectivesPoints());
+        assertEquals("p3", start.personalObjective());
+        assertEquals(7, start.version());
+
+        UpdateDelta delta = delta(random);
+        UpdateDelta decodedDelta = (UpdateDelta) ((ServerEvent<?>) ((Result<?>) decode(client, server.encode(Result.serverPush(ServerEvent.UpdateDelta(delta))))).unwrap()).getData();
+        assertEquals(delta.version(), decodedDelta.version());
+        assertEquals(delta.removed(), decodedDelta.removed());
+        assertEquals(delta.column(), decodedDelta.column());
+        assertEquals(delta.inserted(), decodedDelta.inserted());
+        assertArrayEquals(delta.refill(), decodedDelta.refill());
+        assertEquals(delta.completedObjectives(), decodedDelta.completedObjectives());
+    }
+
+    @Test
+    public void testIds() throws Exception {
+        // The server echoes the numbers of the calls, that the client maps back even if answered out of order
+        Call<Serializable> first = new Call<>(null, Service.LobbyList, UUID.randomUUID());
+        Call<Serializable> second = new Call<>(null, Service.LobbyList, UUID.randomUUID());
+        Call<?> firstReceived = (Call<?>) decode(server, client.encode(first));
+        Call<?> secondReceived = (Call<?>) decode(server, client.encode(second));
+        assertEquals(second.id(), ((Result<?>) decode(client, server.encode(Result.empty(secondReceived.id())))).id());
+        assertEquals(first.id(), ((Result<?>) decode(client, server.encode(Result.empty(firstReceived.id())))).id());
+
+        // Ids not assigned by the codec are sent in full
+        UUID id = UUID.randomUUID();
+        assertEquals(id, ((Result<?>) decode(server, server.encode(Result.empty(id)))).id());
+    }
+
+    @Test
+    public void testSmallerThanSerialization() throws Exception {
+        Result<Serializable> update = Result.serverPush(ServerEvent.Update(update(new Random(2))));
+        int binary = server.encode(update).remaining();
+        int serialized = FrameCodec.encode(update).remaining();
+        assertTrue(binary + " bytes against " + serialized, binary * 5 < serialized);
+
+        // A turn without refill only sends the moved cards
+        UpdateDelta withRefill = delta(new Random(2));
+        UpdateDelta delta = new UpdateDelta(withRefill.version(), withRefill.idPlayer(), withRefill.removed(), withRefill.column(), withRefill.inserted(), null,
+            withRefill.nextPlayer(), withRefill.completedObjectives(), withRefill.newCommonObjectivesScores());
+        int deltaBytes = server.encode(Result.serverPush(ServerEvent.UpdateDelta(delta))).remaining();
+        assertTrue(deltaBytes + " bytes against " + binary, deltaBytes * 3 < binary);
+    }
+
+    @Test
+    public void testInvalidPayloads() {
+        assertThrows(IOException.class, () -> server.decode(ByteBuffer.wrap(new byte[]{9})));
+        assertThrows(IOException.class, () -> server.decode(ByteBuffer.wrap(new byte[]{1, (byte) 200, 0, 0, 0})));
+        assertThrows(IOException.class, () -> server.decode(ByteBuffer.wrap(new byte[]{1, 0, 0, 0})));
+        assertThrows(IOException.class, () -> server.decode(ByteBuffer.wrap(new byte[]{1, 0, 0, 0, 0, 0})));
+    }
+
+    @Test
+    public void testHello() {
+        ByteBuffer hello = FrameCodec.hello();
+        assertTrue(FrameCodec.isHello(hello.slice(FrameCodec.HEADER_BYTES, hello.remaining() - FrameCodec.HEADER_BYTES)));
+        assertFalse(FrameCodec.isHello(ByteBuffer.wrap(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5, 0})));
+    }
+}
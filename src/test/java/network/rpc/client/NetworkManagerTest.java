@@ -3,10 +3,10 @@ package network.rpc.client;
 import com.sun.jdi.connect.spi.Connection;
 import junit.framework.AssertionFailedError;
 import network.*;
+import network.rpc.FrameCodec;
 
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.DataInputStream;
 import java.net.Socket;
 import static org.junit.Assert.*;
 
@@ -25,11 +25,9 @@ public class NetworkManagerTest {
 
         try {
             Socket socket = new Socket(server.ip(), server.port());
-            ObjectOutputStream outputStream = new ObjectOutputStream(socket.getOutputStream());
-            outputStream.writeObject(new Function<>(null, Service.Ping).getCall());
-            outputStream.flush();
-            ObjectInputStream inputStream = new ObjectInputStream(socket.getInputStream());
-            Result<?> result = (Result<?>) inputStream.readObject();
+            new Function<>(null, Service.Ping).call(socket.getOutputStream());
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            Result<?> result = (Result<?>) FrameCodec.read(inputStream);
             assertTrue(result.isOk());
         } catch (Exception e) {
             System.out.println(e.getMessage());
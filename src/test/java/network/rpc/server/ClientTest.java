@@ -1,6 +1,193 @@
 package network.rpc.server;
 
+import network.*;
+import network.parameters.Message;
+import network.rpc.BinaryCodec;
+import network.rpc.FrameCodec;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
 public class ClientTest {
+    private ServerSocketChannel server;
+    private Reactor reactor;
+    private ExecutorService workers;
+    private final ArrayList<Socket> sockets = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("localhost", 0));
+        reactor = new Reactor(0);
+        reactor.start();
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        reactor.close();
+        workers.shutdown();
+        server.close();
+    }
+
+    /**
+     * Connect a socket to the test server, and return the server side of the connection
+     */
+    private Client connect(Socket socket) throws Exception {
+        socket.connect(server.getLocalAddress());
+        socket.setSoTimeout(10000);
+        sockets.add(socket);
+        // Every call is answered with its own parameters
+        Client client = new Client(server.accept(), reactor, workers, (call, c) -> Result.ok(call.params(), call.id()));
+        reactor.register(client);
+        return client;
+    }
+
+    private static Result<?> read(DataInputStream in) throws Exception {
+        return (Result<?>) FrameCodec.read(in);
+    }
+
+    @Test
+    public void testCallsInOrder() throws Exception {
+        Socket socket = new Socket();
+        connect(socket);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        Call<Serializable> ping = new Call<>(null, Service.Ping, UUID.randomUUID());
+        FrameCodec.write(socket.getOutputStream(), ping);
+        assertEquals(Result.ok(true, ping.id()), read(in));
+
+        ArrayList<Call<Serializable>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            calls.add(new Call<>(i, Service.LobbyList, UUID.randomUUID()));
+            FrameCodec.write(socket.getOutputStream(), calls.get(i));
+        }
+        for (Call<Serializable> call : calls) {
+            Result<?> result = read(in);
+            assertEquals(call.id(), result.id());
+            assertEquals(call.params(), result.unwrap());
+        }
+    }
+
+    @Test
+    public void testSplitAndLargeFrames() throws Exception {
+        Socket socket = new Socket();
+        connect(socket);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = socket.getOutputStream();
+
+        // A frame sent a byte at a time
+        Call<Serializable> small = new Call<>("small", Service.LobbyList, UUID.randomUUID());
+        ByteBuffer frame = FrameCodec.encode(small);
+        for (int i = 0; i < frame.limit(); i++) {
+            out.write(frame.get(i));
+            out.flush();
+        }
+        assertEquals("small", read(in).unwrap());
+
+        // A frame bigger than the read buffer, followed by a small one in the same write
+        Call<Serializable> large = new Call<>("x".repeat(200000), Service.LobbyList, UUID.randomUUID());
+        ByteBuffer first = FrameCodec.encode(large);
+        ByteBuffer second = FrameCodec.encode(small);
+        ByteBuffer both = ByteBuffer.allocate(first.limit() + second.limit()).put(first).put(second);
+        out.write(both.array());
+        out.flush();
+        assertEquals(large.params(), read(in).unwrap());
+        assertEquals("small", read(in).unwrap());
+    }
+
+    @Test
+    public void testEventsAndDisconnection() throws Exception {
+        Socket socket = new Socket();
+        Client client = connect(socket);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        client.sendEvent(ServerEvent.Join("p1"));
+        Result<?> result = read(in);
+        assertTrue(result.isEvent());
+        assertEquals(ServerEvent.Join("p1").getType(), ((ServerEvent<?>) result.unwrap()).getType());
+
+        // An invalid frame closes the connection
+        socket.getOutputStream().write(new byte[]{-1, -1, -1, -1});
+        socket.getOutputStream().flush();
+        assertEquals(-1, in.read());
+        assertTrue(client.isDisconnected());
+    }
+
+    @Test
+    public void testBinaryProtocol() throws Exception {
+        Socket socket = new Socket();
+        Client client = connect(socket);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        BinaryCodec codec = new BinaryCodec();
+
+        FrameCodec.writeFrame(socket.getOutputStream(), FrameCodec.hello());
+        assertTrue(FrameCodec.isHello(FrameCodec.readPayload(in)));
+
+        Call<Serializable> call = new Call<>("binary", Service.LobbyJoin, UUID.randomUUID());
+        FrameCodec.writeFrame(socket.getOutputStream(), codec.encode(call));
+        assertEquals(Result.ok("binary", call.id()), codec.decode(FrameCodec.readPayload(in)));
+
+        client.sendEvent(ServerEvent.Leave("p1"));
+        Result<?> event = (Result<?>) codec.decode(FrameCodec.readPayload(in));
+        assertEquals("p1", ((ServerEvent<?>) event.unwrap()).getData());
+    }
+
+    @Test
+    public void testSlowClient() throws Exception {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(4096);
+        socket.connect(server.getLocalAddress());
+        sockets.add(socket);
+        Client client = new Client(server.accept(), reactor, workers, (call, c) -> Result.ok(call.params(), call.id()), new OutboundQueue<>(8, OutboundQueue.OverflowPolicy.DISCONNECT, 0, frame -> frame.position() > 0));
+        reactor.register(client);
+
+        // The socket is never read: the events fill its buffers, then the queue, without blocking the sender
+        String text = "x".repeat(100000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100 && !client.isDisconnected(); i++) {
+            client.sendEvent(ServerEvent.NewMessage(new Message("server", text)));
+        }
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+        assertTrue(client.isDisconnected());
+        assertTrue(client.getQueueMetrics().overflowed());
+        assertEquals(8, client.getQueueMetrics().maxDepth());
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void testManyConnections() throws Exception {
+        int threads = Thread.activeCount();
+        ArrayList<Socket> connected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Socket socket = new Socket();
+            connect(socket);
+            connected.add(socket);
+        }
+        // The connections don't own a thread
+        assertTrue(Thread.activeCount() < threads + 10);
+        for (Socket socket : connected) {
+            Call<Serializable> ping = new Call<>(null, Service.Ping, UUID.randomUUID());
+            FrameCodec.write(socket.getOutputStream(), ping);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(ping.id(), read(in).id());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package simulator;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SimulationEngineTest {
+
+	@Test
+	public void testReproducibleGame() {
+		Policy[] policies = {new RandomPolicy(), new GreedyPolicy(), new RandomPolicy()};
+		GameSimulator.Result first = new GameSimulator().play(policies, 42);
+		GameSimulator.Result second = new GameSimulator().play(policies, 42);
+		assertArrayEquals(first.points(), second.points());
+		assertEquals(first.turns(), second.turns());
+		assertEquals(first.winner(), second.winner());
+		assertEquals(Arrays.stream(first.points()).max().getAsInt(), first.points()[first.winner()]);
+	}
+
+	@Test
+	public void testParallelismIndependent() {
+		Policy[] policies = {new GreedyPolicy(), new RandomPolicy()};
+		SimulationEngine single = new SimulationEngine(1);
+		SimulationEngine parallel = new SimulationEngine(4);
+		SimulationStats singleStats = single.run(policies, 300, 7);
+		SimulationStats parallelStats = parallel.run(policies, 300, 7);
+		single.shutdown();
+		parallel.shutdown();
+
+		assertEquals(300, singleStats.getGames());
+		assertEquals(singleStats.getGames(), parallelStats.getGames());
+		assertEquals(singleStats.getTurns(), parallelStats.getTurns());
+		for (int i = 0; i < policies.length; i++) {
+			assertEquals(singleStats.getWins(i), parallelStats.getWins(i));
+			assertEquals(singleStats.getAveragePoints(i), parallelStats.getAveragePoints(i), 0);
+		}
+		for (int points = 0; points <= SimulationStats.MAX_POINTS; points++) {
+			assertEquals(singleStats.getPointsCount(points), parallelStats.getPointsCount(points));
+		}
+		// The greedy policy should beat the random one
+		assertTrue(singleStats.getWins(0) > singleStats.getWins(1));
+	}
+}